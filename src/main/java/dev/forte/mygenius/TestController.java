@@ -1,7 +1,7 @@
 package dev.forte.mygenius;
 
-import dev.forte.mygenius.user.User;
-import dev.forte.mygenius.user.UserService;
+import dev.forte.mygenius.security.CustomUserPrincipal;
+import dev.forte.mygenius.user.UserProfile;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -11,35 +11,25 @@ import org.springframework.web.bind.annotation.*;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/test")
 public class TestController {
 
-    private final UserService userService;
-
-    public TestController(UserService userService) {
-        this.userService = userService;
-    }
-
     @GetMapping("/auth-check")
     public ResponseEntity<Map<String, Object>> checkAuthentication(HttpServletRequest request) {
         // Get the current authentication
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String userEmail = authentication.getName();
 
-        // Get the userId stored by JwtAuthenticationFilter
-        UUID userId = (UUID) request.getAttribute("userId");
-
-        // Get full user from database
-        User user = userService.findByEmail(userEmail);
+        // The profile JwtAuthenticationFilter found for the caller
+        UserProfile profile = ((CustomUserPrincipal) authentication.getPrincipal()).getProfile();
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Authentication successful!");
         response.put("email", userEmail);
-        response.put("userId", userId);
-        response.put("username", user.getUsername());
+        response.put("userId", profile.userId());
+        response.put("username", profile.username());
         response.put("timestamp", new Date());
         response.put("isAuthenticated", authentication.isAuthenticated());
 
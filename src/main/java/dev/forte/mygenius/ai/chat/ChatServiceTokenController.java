@@ -0,0 +1,90 @@
+package dev.forte.mygenius.ai.chat;
+
+import dev.forte.mygenius.user.UserProfile;
+import dev.forte.mygenius.user.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Lets the chat service mint tokens for many users in one request. It
+ * authenticates with the shared {@code chat.service.api-key} in the
+ * {@code X-Chat-Service-Key} header; without a key configured the endpoint is off.
+ */
+@RestController
+@RequestMapping("/api/internal/chat/tokens")
+public class ChatServiceTokenController {
+
+    public record BatchRequest(List<UUID> userIds) {
+    }
+
+    private final ChatTokenService chatTokenService;
+    private final UserService userService;
+    private final byte[] apiKey;
+    private final int maxUsers;
+
+    public ChatServiceTokenController(ChatTokenService chatTokenService, UserService userService,
+                                      @Value("${chat.service.api-key:}") String apiKey,
+                                      @Value("${chat.token.batch.max-users:500}") int maxUsers) {
+        this.chatTokenService = chatTokenService;
+        this.userService = userService;
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+        this.maxUsers = maxUsers;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> issueTokens(
+            @RequestHeader(name = "X-Chat-Service-Key", required = false) String key,
+            @RequestBody BatchRequest request) {
+        if (apiKey.length == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (key == null || !MessageDigest.isEqual(apiKey, key.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid chat service key");
+        }
+        if (request.userIds() == null || request.userIds().isEmpty() || request.userIds().size() > maxUsers) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "userIds must list between 1 and " + maxUsers + " users");
+        }
+
+        Set<UUID> userIds = new LinkedHashSet<>(request.userIds());
+        Map<UUID, UserProfile> known = userService.findProfiles(userIds);
+        Map<UUID, ChatTokenService.ChatToken> tokens = chatTokenService.getChatTokens(known.keySet());
+
+        List<Map<String, Object>> issued = new ArrayList<>(tokens.size());
+        List<UUID> unknown = new ArrayList<>();
+        for (UUID userId : userIds) {
+            ChatTokenService.ChatToken token = tokens.get(userId);
+            if (token == null) {
+                unknown.add(userId);
+                continue;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("userId", userId);
+            entry.put("token", token.token());
+            entry.put("expiresAt", token.expiresAt().toString());
+            issued.add(entry);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("tokens", issued);
+        response.put("unknownUserIds", unknown);
+        return ResponseEntity.ok(response);
+    }
+}
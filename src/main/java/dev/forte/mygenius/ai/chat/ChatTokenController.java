@@ -23,6 +23,10 @@ public class ChatTokenController {
         this.chatTokenService = chatTokenService;
     }
 
+    /**
+     * The caller's chat token. Polling is cheap: the same token comes back until
+     * shortly before {@code expiresAt}.
+     */
     @GetMapping("/token")
     public ResponseEntity<Map<String, String>> getChatToken(
             @AuthenticationPrincipal CustomUserPrincipal userPrincipal) {
@@ -32,10 +36,11 @@ public class ChatTokenController {
                     .body(Map.of("error", "Not authenticated"));
         }
 
-        String token = chatTokenService.generateChatToken(userPrincipal.getUserId());
+        ChatTokenService.ChatToken token = chatTokenService.getChatToken(userPrincipal.getUserId());
         return ResponseEntity.ok(Map.of(
-                "token", token,
+                "token", token.token(),
+                "expiresAt", token.expiresAt().toString(),
                 "chatServiceUrl", chatServiceUrl
         ));
     }
-}
\ No newline at end of file
+}
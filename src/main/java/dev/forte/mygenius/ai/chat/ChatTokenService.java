@@ -1,31 +1,115 @@
 package dev.forte.mygenius.ai.chat;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import dev.forte.mygenius.security.TokenCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Tokens for the external chat service. A user gets the same token back until it
+ * is {@code chat.token.refresh-ahead} from expiring; the next request after that
+ * still gets it while a new one is signed in the background, and a token is never
+ * handed out with less than {@code chat.token.min-remaining} left. Concurrent
+ * requests of one user sign at most one token.
+ *
+ * <p>Signing time is the {@code chat.tokens.mint} timer, the time to answer a
+ * request, cached or not, is {@code chat.tokens.issue}, and the hit rate is in the
+ * {@code cache.gets} metrics of the {@code chat.tokens} cache.
+ */
 @Service
 public class ChatTokenService {
 
-    @Value("${jwt.secret}")
-    private String chatTokenSecret;
+    public record ChatToken(String token, Instant expiresAt) {
+    }
+
+    private final TokenCodec tokenCodec;
+    private final Duration lifetime;
+    private final LoadingCache<UUID, ChatToken> tokens;
+    private final Timer mint;
+    private final Timer issueOne;
+    private final Timer issueBatch;
+
+    @Autowired
+    public ChatTokenService(TokenCodec tokenCodec, MeterRegistry meterRegistry,
+                            @Value("${chat.token.expiration:1800}") long expirationSeconds, // 30 minutes
+                            @Value("${chat.token.refresh-ahead:10m}") Duration refreshAhead,
+                            @Value("${chat.token.min-remaining:5m}") Duration minRemaining,
+                            @Value("${chat.token.cache.max-size:100000}") long maxSize) {
+        this(tokenCodec, meterRegistry, Duration.ofSeconds(expirationSeconds), refreshAhead, minRemaining, maxSize,
+                Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    ChatTokenService(TokenCodec tokenCodec, MeterRegistry meterRegistry, Duration lifetime, Duration refreshAhead,
+                     Duration minRemaining, long maxSize, Ticker ticker, Executor refreshExecutor) {
+        if (minRemaining.compareTo(refreshAhead) >= 0 || refreshAhead.compareTo(lifetime) >= 0) {
+            throw new IllegalArgumentException(
+                    "Chat tokens need min-remaining < refresh-ahead < expiration, got "
+                            + minRemaining + ", " + refreshAhead + ", " + lifetime);
+        }
+        this.tokenCodec = tokenCodec;
+        this.lifetime = lifetime;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(lifetime.minus(refreshAhead))
+                .expireAfterWrite(lifetime.minus(minRemaining))
+                .ticker(ticker)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(this::mint);
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "chat.tokens");
+        this.mint = Timer.builder("chat.tokens.mint")
+                .description("Time to sign a chat token")
+                .register(meterRegistry);
+        this.issueOne = issueTimer(meterRegistry, "single");
+        this.issueBatch = issueTimer(meterRegistry, "batch");
+    }
 
-    @Value("${chat.token.expiration:1800}") // 30 minutes in seconds
-    private int expirationTime;
+    public ChatToken getChatToken(UUID userId) {
+        return issueOne.record(() -> tokens.get(userId));
+    }
+
+    /**
+     * Tokens for many users at once, signing only those not cached.
+     */
+    public Map<UUID, ChatToken> getChatTokens(Collection<UUID> userIds) {
+        return issueBatch.record(() -> tokens.getAll(userIds));
+    }
 
-    public String generateChatToken(UUID userId) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expirationTime * 1000);
+    /**
+     * Stops handing out the user's current token; it stays valid until it expires.
+     */
+    public void forget(UUID userId) {
+        tokens.invalidate(userId);
+    }
+
+    private ChatToken mint(UUID userId) {
+        return mint.record(() -> {
+            // Not after the expiry in the token, which is signed a moment later and kept in whole seconds
+            Instant expiresAt = Instant.now().plus(lifetime).truncatedTo(ChronoUnit.SECONDS);
+            return new ChatToken(tokenCodec.issue(userId.toString(), Map.of(), lifetime), expiresAt);
+        });
+    }
 
-        return Jwts.builder()
-                .setSubject(userId.toString())
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(Keys.hmacShaKeyFor(chatTokenSecret.getBytes()))
-                .compact();
+    private static Timer issueTimer(MeterRegistry meterRegistry, String kind) {
+        return Timer.builder("chat.tokens.issue")
+                .description("Time to answer a chat token request, cached or not")
+                .tag("kind", kind)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
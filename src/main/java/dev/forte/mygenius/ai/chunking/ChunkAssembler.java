@@ -0,0 +1,141 @@
+package dev.forte.mygenius.ai.chunking;
+
+import java.util.function.Consumer;
+
+/**
+ * Combines paragraphs (or sentences) into chunks of {@code minWords} to
+ * {@code maxWords} words. Word counts are carried along with the text, so
+ * nothing is re-split to count it.
+ *
+ * <p>The last chunk is held back until the next one is complete, because a too
+ * small tail at the end of the document is merged into it rather than emitted
+ * on its own.
+ */
+class ChunkAssembler {
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final int minWords;
+    private final int maxWords;
+    private final Consumer<TextChunk> sink;
+
+    private final StringBuilder current = new StringBuilder();
+    private int currentWords;
+    private TextChunk pending;
+    private String separator = SEPARATOR;
+
+    ChunkAssembler(int minWords, int maxWords, Consumer<TextChunk> sink) {
+        this.minWords = minWords;
+        this.maxWords = maxWords;
+        this.sink = sink;
+    }
+
+    /**
+     * Adds one trimmed, non-empty segment holding {@code words} words. A
+     * {@code continuation} is the next piece of an over-long paragraph and is
+     * joined to the previous piece with a space rather than a paragraph break.
+     */
+    void add(CharSequence segment, int words, boolean continuation) {
+        separator = continuation ? " " : SEPARATOR;
+        if (currentWords + words <= maxWords) {
+            // Add to current chunk if within max size
+            appendToCurrent(segment, 0, segment.length(), words);
+            return;
+        }
+
+        if (currentWords >= minWords) {
+            // Current chunk is big enough, save it and start a new chunk
+            emitCurrent();
+            if (words <= maxWords) {
+                appendToCurrent(segment, 0, segment.length(), words);
+                return;
+            }
+        }
+
+        // The current chunk is too small (or empty) and the segment doesn't fit:
+        // fill the chunk up to maxWords, then keep cutting maxWords-sized pieces
+        int start = 0;
+        int remainingWords = words;
+        while (currentWords + remainingWords > maxWords) {
+            int take = maxWords - currentWords;
+            int cut = endOfWords(segment, start, take);
+            appendToCurrent(segment, start, cut, take);
+            emitCurrent();
+            separator = SEPARATOR;
+            start = skipWhitespace(segment, cut);
+            remainingWords -= take;
+        }
+        if (remainingWords > 0) {
+            appendToCurrent(segment, start, segment.length(), remainingWords);
+        }
+    }
+
+    /**
+     * Flushes what is left. A final chunk under {@code minWords} is appended to the
+     * previous chunk, unless it is the only one.
+     */
+    void finish() {
+        if (currentWords > 0) {
+            if (currentWords >= minWords || pending == null) {
+                emitCurrent();
+            } else {
+                pending = new TextChunk(pending.text() + SEPARATOR + current, pending.wordCount() + currentWords);
+                current.setLength(0);
+                currentWords = 0;
+            }
+        }
+        if (pending != null) {
+            sink.accept(pending);
+            pending = null;
+        }
+    }
+
+    private void appendToCurrent(CharSequence segment, int start, int end, int words) {
+        if (!current.isEmpty()) {
+            current.append(separator);
+        }
+        current.append(segment, start, end);
+        currentWords += words;
+    }
+
+    private void emitCurrent() {
+        if (pending != null) {
+            sink.accept(pending);
+        }
+        pending = new TextChunk(current.toString(), currentWords);
+        current.setLength(0);
+        currentWords = 0;
+    }
+
+    /**
+     * Index just past the {@code count}-th word starting at {@code from}.
+     */
+    private static int endOfWords(CharSequence text, int from, int count) {
+        int i = from;
+        int words = 0;
+        int length = text.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (++words == count) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,49 @@
+package dev.forte.mygenius.ai.chunking;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pulls chunks out of a {@link ChunkWriter} by feeding it the text a slice at a
+ * time, only as far as needed for the next chunk.
+ */
+class ChunkIterator implements Iterator<TextChunk> {
+
+    // How much text is fed to the writer at a time
+    private static final int SLICE_CHARS = 8192;
+
+    private final CharSequence text;
+    private final ArrayDeque<TextChunk> ready = new ArrayDeque<>();
+    private final ChunkWriter writer;
+    private int position;
+    private boolean finished;
+
+    ChunkIterator(ChunkingStrategy strategy, CharSequence text) {
+        this.text = text;
+        this.writer = strategy.open(ready::add);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (ready.isEmpty() && !finished) {
+            if (position < text.length()) {
+                int end = Math.min(text.length(), position + SLICE_CHARS);
+                writer.append(text, position, end);
+                position = end;
+            } else {
+                writer.finish();
+                finished = true;
+            }
+        }
+        return !ready.isEmpty();
+    }
+
+    @Override
+    public TextChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ready.poll();
+    }
+}
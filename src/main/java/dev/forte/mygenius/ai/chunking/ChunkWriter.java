@@ -0,0 +1,21 @@
+package dev.forte.mygenius.ai.chunking;
+
+/**
+ * Push side of a {@link ChunkingStrategy}. Text is appended in pieces of any size
+ * and completed chunks are handed to the sink the writer was opened with.
+ */
+public interface ChunkWriter {
+
+    void append(CharSequence text, int start, int end);
+
+    void append(char[] text, int start, int length);
+
+    default void append(CharSequence text) {
+        append(text, 0, text.length());
+    }
+
+    /**
+     * Signals the end of the text and flushes the remaining chunks to the sink.
+     */
+    void finish();
+}
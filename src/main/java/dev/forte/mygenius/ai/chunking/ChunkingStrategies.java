@@ -0,0 +1,69 @@
+package dev.forte.mygenius.ai.chunking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the chunking strategy for a document by its MIME type. Entries of
+ * {@code chunking.strategy.by-mime-type} look like {@code text/csv=word} or
+ * {@code text/*=token}; anything not listed uses {@code chunking.strategy.default}.
+ */
+@Component
+public class ChunkingStrategies {
+
+    private final Map<String, ChunkingStrategy> byMimeType = new HashMap<>();
+    private final ChunkingStrategy defaultStrategy;
+
+    public ChunkingStrategies(List<ChunkingStrategy> strategies,
+                              @Value("${chunking.strategy.default:token}") String defaultName,
+                              @Value("${chunking.strategy.by-mime-type:}") String[] mappings) {
+        Map<String, ChunkingStrategy> byName = new HashMap<>();
+        for (ChunkingStrategy strategy : strategies) {
+            byName.put(strategy.name(), strategy);
+        }
+
+        this.defaultStrategy = lookup(byName, defaultName.trim());
+        for (String mapping : mappings) {
+            if (mapping.isBlank()) {
+                continue;
+            }
+            int equals = mapping.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Invalid chunking.strategy.by-mime-type entry: " + mapping);
+            }
+            String mimeType = mapping.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+            byMimeType.put(mimeType, lookup(byName, mapping.substring(equals + 1).trim()));
+        }
+    }
+
+    public ChunkingStrategy forMimeType(String mimeType) {
+        if (mimeType == null || mimeType.isBlank()) {
+            return defaultStrategy;
+        }
+        // Drop parameters such as "; charset=UTF-8"
+        int semicolon = mimeType.indexOf(';');
+        String type = (semicolon < 0 ? mimeType : mimeType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+
+        ChunkingStrategy strategy = byMimeType.get(type);
+        if (strategy == null) {
+            int slash = type.indexOf('/');
+            if (slash > 0) {
+                strategy = byMimeType.get(type.substring(0, slash) + "/*");
+            }
+        }
+        return strategy != null ? strategy : defaultStrategy;
+    }
+
+    private static ChunkingStrategy lookup(Map<String, ChunkingStrategy> byName, String name) {
+        ChunkingStrategy strategy = byName.get(name);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown chunking strategy '" + name + "', expected one of " + byName.keySet());
+        }
+        return strategy;
+    }
+}
@@ -0,0 +1,38 @@
+package dev.forte.mygenius.ai.chunking;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A way of cutting extracted document text into chunks for embedding. Strategies
+ * are picked per MIME type by {@link ChunkingStrategies}.
+ */
+public interface ChunkingStrategy {
+
+    /**
+     * Name used to select the strategy in {@code chunking.strategy.*} properties.
+     */
+    String name();
+
+    /**
+     * Returns a push-style writer that hands every completed chunk to {@code sink}.
+     */
+    ChunkWriter open(Consumer<TextChunk> sink);
+
+    /**
+     * Chunks {@code text} lazily, so a consumer that stops early never pays for
+     * the rest of the text.
+     */
+    default Iterator<TextChunk> chunk(CharSequence text) {
+        return new ChunkIterator(this, text);
+    }
+
+    default Stream<TextChunk> stream(CharSequence text) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(chunk(text), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
@@ -0,0 +1,39 @@
+package dev.forte.mygenius.ai.chunking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * The {@code word} chunking strategy: splits extracted document text into chunks
+ * of {@code chunking.min-words} to {@code chunking.max-words} words in a single pass.
+ */
+@Component
+public class DocumentChunker implements ChunkingStrategy {
+
+    private final int minWords;
+    private final int maxWords;
+    private final int decisionBufferChars;
+
+    public DocumentChunker(@Value("${chunking.min-words:100}") int minWords,
+                           @Value("${chunking.max-words:500}") int maxWords,
+                           @Value("${chunking.decision-buffer-chars:65536}") int decisionBufferChars) {
+        if (minWords < 1 || maxWords < minWords) {
+            throw new IllegalArgumentException("chunking.min-words must be >= 1 and <= chunking.max-words");
+        }
+        this.minWords = minWords;
+        this.maxWords = maxWords;
+        this.decisionBufferChars = decisionBufferChars;
+    }
+
+    @Override
+    public String name() {
+        return "word";
+    }
+
+    @Override
+    public StreamingChunker open(Consumer<TextChunk> sink) {
+        return new StreamingChunker(minWords, maxWords, decisionBufferChars, sink);
+    }
+}
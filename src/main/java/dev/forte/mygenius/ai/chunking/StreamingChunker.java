@@ -0,0 +1,171 @@
+package dev.forte.mygenius.ai.chunking;
+
+import java.util.function.Consumer;
+
+/**
+ * Single-pass chunker. Text is pushed in with {@link #append} in pieces of any
+ * size and chunks are handed to the sink as soon as they are complete, so the
+ * caller never needs the whole text at once.
+ *
+ * <p>The text is cut into paragraphs at blank lines. Text with fewer than three
+ * paragraphs and more than 1000 characters is cut into sentences instead. That
+ * decision needs some lookahead: input is buffered until a third paragraph
+ * starts, or until {@code decisionBufferChars} characters have arrived without
+ * one, in which case the text is treated as a single wall of sentences.
+ */
+public class StreamingChunker implements ChunkWriter {
+
+    private static final int SENTENCE_MODE_MIN_LENGTH = 1000;
+    private static final int PARAGRAPH_MODE_MIN_PARAGRAPHS = 3;
+
+    private enum Mode { UNDECIDED, PARAGRAPHS, SENTENCES }
+
+    private final ChunkAssembler assembler;
+    private final int maxWords;
+    private final int decisionBufferChars;
+
+    private Mode mode = Mode.UNDECIDED;
+
+    // Only used while the mode is undecided
+    private final StringBuilder lookahead = new StringBuilder();
+    private int paragraphsSeen;
+    private int lookaheadNewlines;
+    private boolean lookaheadHasContent;
+
+    // Segment currently being read
+    private final StringBuilder segment = new StringBuilder();
+    private int segmentWords;
+    private int segmentContentEnd;
+    private boolean inWord;
+    private boolean continuation;
+    private int newlinesSinceContent;
+    private boolean whitespaceSinceContent;
+    private char lastContentChar;
+
+    StreamingChunker(int minWords, int maxWords, int decisionBufferChars, Consumer<TextChunk> sink) {
+        this.assembler = new ChunkAssembler(minWords, maxWords, sink);
+        this.maxWords = maxWords;
+        this.decisionBufferChars = Math.max(decisionBufferChars, SENTENCE_MODE_MIN_LENGTH + 1);
+    }
+
+    @Override
+    public void append(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            accept(text.charAt(i));
+        }
+    }
+
+    @Override
+    public void append(char[] text, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            accept(text[i]);
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (mode == Mode.UNDECIDED) {
+            boolean sentences = paragraphsSeen < PARAGRAPH_MODE_MIN_PARAGRAPHS
+                    && lookahead.length() > SENTENCE_MODE_MIN_LENGTH;
+            decide(sentences ? Mode.SENTENCES : Mode.PARAGRAPHS);
+        }
+        endSegment();
+        assembler.finish();
+    }
+
+    private void accept(char c) {
+        if (mode == Mode.UNDECIDED) {
+            lookahead.append(c);
+            countParagraphs(c);
+            if (paragraphsSeen >= PARAGRAPH_MODE_MIN_PARAGRAPHS) {
+                decide(Mode.PARAGRAPHS);
+            } else if (lookahead.length() >= decisionBufferChars) {
+                decide(Mode.SENTENCES);
+            }
+            return;
+        }
+        segment(c);
+    }
+
+    private void countParagraphs(char c) {
+        if (c == '\n') {
+            lookaheadNewlines++;
+        } else if (!Character.isWhitespace(c)) {
+            if (!lookaheadHasContent || lookaheadNewlines >= 2) {
+                paragraphsSeen++;
+            }
+            lookaheadHasContent = true;
+            lookaheadNewlines = 0;
+        }
+    }
+
+    private void decide(Mode decided) {
+        mode = decided;
+        for (int i = 0; i < lookahead.length(); i++) {
+            segment(lookahead.charAt(i));
+        }
+        lookahead.setLength(0);
+        lookahead.trimToSize();
+    }
+
+    private void segment(char c) {
+        if (Character.isWhitespace(c)) {
+            inWord = false;
+            whitespaceSinceContent = true;
+            if (c == '\n') {
+                newlinesSinceContent++;
+            }
+            // Leading whitespace is dropped, inner whitespace is kept as-is
+            if (!segment.isEmpty()) {
+                segment.append(c);
+            }
+            return;
+        }
+
+        if (!segment.isEmpty() && isBoundary()) {
+            endSegment();
+        }
+        if (!inWord) {
+            if (segmentWords == maxWords) {
+                // A paragraph longer than a chunk: hand over what we have so a
+                // single huge paragraph never sits in memory as a whole
+                flushSegment();
+                continuation = true;
+            }
+            segmentWords++;
+            inWord = true;
+        }
+        segment.append(c);
+        segmentContentEnd = segment.length();
+        lastContentChar = c;
+        newlinesSinceContent = 0;
+        whitespaceSinceContent = false;
+    }
+
+    private boolean isBoundary() {
+        if (mode == Mode.SENTENCES) {
+            // Same as splitting on (?<=[.!?])\s+
+            return whitespaceSinceContent
+                    && (lastContentChar == '.' || lastContentChar == '!' || lastContentChar == '?');
+        }
+        // Same as splitting on \n\s*\n
+        return newlinesSinceContent >= 2;
+    }
+
+    private void endSegment() {
+        flushSegment();
+        continuation = false;
+        inWord = false;
+    }
+
+    private void flushSegment() {
+        if (segmentWords > 0) {
+            // Drop the trailing whitespace
+            segment.setLength(segmentContentEnd);
+            assembler.add(segment, segmentWords, continuation);
+        }
+        segment.setLength(0);
+        segmentWords = 0;
+        segmentContentEnd = 0;
+    }
+}
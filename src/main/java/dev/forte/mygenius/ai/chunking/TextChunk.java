@@ -0,0 +1,8 @@
+package dev.forte.mygenius.ai.chunking;
+
+/**
+ * A chunk of extracted text ready for labelling and embedding. The word count is
+ * tracked while chunking so callers don't have to split the text again.
+ */
+public record TextChunk(String text, int wordCount) {
+}
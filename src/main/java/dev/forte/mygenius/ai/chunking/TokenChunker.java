@@ -0,0 +1,286 @@
+package dev.forte.mygenius.ai.chunking;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Push-mode writer of the {@code token} strategy. Text is cut into sentences (at
+ * {@code .!?} followed by whitespace, and at blank lines) and sentences are packed
+ * into chunks of up to {@code targetTokens} tokens. Each chunk starts with the
+ * last sentences of the previous one, up to {@code overlapTokens} tokens, so text
+ * near a cut is embedded with its context on both sides.
+ *
+ * <p>Every sentence is tokenized once, together with the whitespace that precedes
+ * it, which is how the BPE pre-tokenizer splits it inside the full chunk. A
+ * sentence longer than a whole chunk is cut between words.
+ */
+class TokenChunker implements ChunkWriter {
+
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+    private static final String SENTENCE_SEPARATOR = " ";
+
+    private record Piece(String text, String separator, int tokens, int words) {
+    }
+
+    private final Encoding encoding;
+    private final int targetTokens;
+    private final int overlapTokens;
+    private final int minTokens;
+    private final int maxTokens;
+    private final int maxSentenceChars;
+    private final Consumer<TextChunk> sink;
+
+    // Sentence currently being read
+    private final StringBuilder sentence = new StringBuilder();
+    private int sentenceWords;
+    private int sentenceContentEnd;
+    private boolean inWord;
+    private int newlinesSinceContent;
+    private boolean whitespaceSinceContent;
+    private char lastContentChar;
+    private String separator = SENTENCE_SEPARATOR;
+
+    // Chunk currently being filled; the first overlapCount pieces repeat the previous chunk
+    private final List<Piece> current = new ArrayList<>();
+    private int currentTokens;
+    private int overlapCount;
+
+    // Last complete chunk, held back so a small tail can be merged into it
+    private List<Piece> pending;
+    private int pendingTokens;
+
+    TokenChunker(Encoding encoding, int targetTokens, int overlapTokens, int minTokens, int maxTokens,
+                 Consumer<TextChunk> sink) {
+        this.encoding = encoding;
+        this.targetTokens = targetTokens;
+        this.overlapTokens = overlapTokens;
+        this.minTokens = minTokens;
+        this.maxTokens = maxTokens;
+        // Text without sentence ends is cut at the next whitespace after this many
+        // characters, so one huge run-on "sentence" never sits in memory as a whole
+        this.maxSentenceChars = targetTokens * 8;
+        this.sink = sink;
+    }
+
+    @Override
+    public void append(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            accept(text.charAt(i));
+        }
+    }
+
+    @Override
+    public void append(char[] text, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            accept(text[i]);
+        }
+    }
+
+    @Override
+    public void finish() {
+        endSentence();
+        if (currentTokens > 0 && current.size() > overlapCount) {
+            List<Piece> fresh = current.subList(overlapCount, current.size());
+            int freshTokens = sumTokens(fresh);
+            if (pending != null && freshTokens < minTokens && pendingTokens + freshTokens <= maxTokens) {
+                // Too small to stand alone: append to the previous chunk, without the overlap
+                pending.addAll(fresh);
+                pendingTokens += freshTokens;
+            } else {
+                emitCurrent();
+            }
+        }
+        if (pending != null) {
+            sink.accept(toChunk(pending));
+            pending = null;
+        }
+        current.clear();
+        currentTokens = 0;
+        overlapCount = 0;
+    }
+
+    private void accept(char c) {
+        if (Character.isWhitespace(c)) {
+            inWord = false;
+            whitespaceSinceContent = true;
+            if (c == '\n') {
+                newlinesSinceContent++;
+            }
+            if (!sentence.isEmpty()) {
+                if (sentence.length() >= maxSentenceChars) {
+                    endSentence();
+                    return;
+                }
+                sentence.append(c);
+            }
+            return;
+        }
+
+        if (!sentence.isEmpty() && isBoundary()) {
+            String next = newlinesSinceContent >= 2 ? PARAGRAPH_SEPARATOR : SENTENCE_SEPARATOR;
+            endSentence();
+            separator = next;
+        }
+        if (!inWord) {
+            sentenceWords++;
+            inWord = true;
+        }
+        sentence.append(c);
+        sentenceContentEnd = sentence.length();
+        lastContentChar = c;
+        newlinesSinceContent = 0;
+        whitespaceSinceContent = false;
+    }
+
+    private boolean isBoundary() {
+        if (newlinesSinceContent >= 2) {
+            return true;
+        }
+        return whitespaceSinceContent
+                && (lastContentChar == '.' || lastContentChar == '!' || lastContentChar == '?');
+    }
+
+    private void endSentence() {
+        if (sentenceWords > 0) {
+            sentence.setLength(sentenceContentEnd);
+            addSentence(sentence.toString(), sentenceWords);
+        }
+        sentence.setLength(0);
+        sentenceWords = 0;
+        sentenceContentEnd = 0;
+        inWord = false;
+        separator = SENTENCE_SEPARATOR;
+    }
+
+    private void addSentence(String text, int words) {
+        int tokens = encoding.countTokens(separator + text);
+        if (tokens <= targetTokens) {
+            addPiece(new Piece(text, separator, tokens, words));
+        } else {
+            splitBetweenWords(text);
+        }
+    }
+
+    /**
+     * Cuts a sentence that doesn't fit in a chunk into pieces of at most
+     * {@code targetTokens} tokens, between words.
+     */
+    private void splitBetweenWords(String text) {
+        StringBuilder part = new StringBuilder();
+        int partTokens = 0;
+        int partWords = 0;
+        String partSeparator = separator;
+
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int wordStart = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            String word = text.substring(wordStart, i);
+            int wordTokens = encoding.countTokens(SENTENCE_SEPARATOR + word);
+
+            if (wordTokens > targetTokens) {
+                // A single "word" longer than a chunk (encoded data, long URLs): cut on tokens
+                if (partWords > 0) {
+                    addPiece(new Piece(part.toString(), partSeparator, partTokens, partWords));
+                    part.setLength(0);
+                    partTokens = 0;
+                    partWords = 0;
+                }
+                IntArrayList ids = encoding.encode(word);
+                for (int from = 0; from < ids.size(); from += targetTokens) {
+                    int to = Math.min(ids.size(), from + targetTokens);
+                    IntArrayList slice = new IntArrayList(to - from);
+                    for (int t = from; t < to; t++) {
+                        slice.add(ids.get(t));
+                    }
+                    addPiece(new Piece(encoding.decode(slice), partSeparator, to - from, 1));
+                    partSeparator = SENTENCE_SEPARATOR;
+                }
+            } else {
+                if (partWords > 0 && partTokens + wordTokens > targetTokens) {
+                    addPiece(new Piece(part.toString(), partSeparator, partTokens, partWords));
+                    part.setLength(0);
+                    partTokens = 0;
+                    partWords = 0;
+                    partSeparator = SENTENCE_SEPARATOR;
+                }
+                if (partWords > 0) {
+                    part.append(' ');
+                }
+                part.append(word);
+                partTokens += wordTokens;
+                partWords++;
+            }
+
+            while (i < length && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+        }
+        if (partWords > 0) {
+            addPiece(new Piece(part.toString(), partSeparator, partTokens, partWords));
+        }
+    }
+
+    private void addPiece(Piece piece) {
+        if (current.size() > overlapCount && currentTokens + piece.tokens() > targetTokens) {
+            emitCurrent();
+        }
+        // Drop overlap from the front until the new piece fits
+        while (overlapCount > 0 && currentTokens + piece.tokens() > targetTokens) {
+            currentTokens -= current.removeFirst().tokens();
+            overlapCount--;
+        }
+        current.add(piece);
+        currentTokens += piece.tokens();
+    }
+
+    private void emitCurrent() {
+        if (pending != null) {
+            sink.accept(toChunk(pending));
+        }
+        pending = new ArrayList<>(current);
+        pendingTokens = currentTokens;
+
+        // Start the next chunk with the trailing sentences that fit in the overlap,
+        // taken only from new text so no sentence ends up in more than two chunks
+        int start = current.size();
+        int tokens = 0;
+        while (start > overlapCount && tokens + current.get(start - 1).tokens() <= overlapTokens) {
+            start--;
+            tokens += current.get(start).tokens();
+        }
+        List<Piece> overlap = new ArrayList<>(current.subList(start, current.size()));
+        current.clear();
+        current.addAll(overlap);
+        currentTokens = tokens;
+        overlapCount = overlap.size();
+    }
+
+    private static TextChunk toChunk(List<Piece> pieces) {
+        StringBuilder text = new StringBuilder();
+        int words = 0;
+        for (Piece piece : pieces) {
+            if (!text.isEmpty()) {
+                text.append(piece.separator());
+            }
+            text.append(piece.text());
+            words += piece.words();
+        }
+        return new TextChunk(text.toString(), words);
+    }
+
+    private static int sumTokens(List<Piece> pieces) {
+        int tokens = 0;
+        for (Piece piece : pieces) {
+            tokens += piece.tokens();
+        }
+        return tokens;
+    }
+}
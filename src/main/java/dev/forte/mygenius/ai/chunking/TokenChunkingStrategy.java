@@ -0,0 +1,55 @@
+package dev.forte.mygenius.ai.chunking;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * The {@code token} chunking strategy: sizes chunks by the tokens the embedding
+ * model will actually see, using a local BPE tokenizer ({@code cl100k_base} by
+ * default, the encoding of {@code text-embedding-ada-002}). The encoding ships
+ * inside the jtokkit jar, nothing is downloaded.
+ */
+@Component
+public class TokenChunkingStrategy implements ChunkingStrategy {
+
+    private final Encoding encoding;
+    private final int targetTokens;
+    private final int overlapTokens;
+    private final int minTokens;
+    private final int maxTokens;
+
+    public TokenChunkingStrategy(@Value("${chunking.token.encoding:cl100k_base}") String encodingName,
+                                 @Value("${chunking.token.target-tokens:512}") int targetTokens,
+                                 @Value("${chunking.token.overlap-tokens:64}") int overlapTokens,
+                                 @Value("${chunking.token.min-tokens:100}") int minTokens,
+                                 @Value("${chunking.token.model-max-tokens:8191}") int maxTokens) {
+        if (targetTokens < 1 || targetTokens > maxTokens) {
+            throw new IllegalArgumentException(
+                    "chunking.token.target-tokens must be >= 1 and <= chunking.token.model-max-tokens");
+        }
+        if (overlapTokens < 0 || overlapTokens >= targetTokens) {
+            throw new IllegalArgumentException(
+                    "chunking.token.overlap-tokens must be >= 0 and < chunking.token.target-tokens");
+        }
+        this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(encodingName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown tokenizer encoding: " + encodingName));
+        this.targetTokens = targetTokens;
+        this.overlapTokens = overlapTokens;
+        this.minTokens = minTokens;
+        this.maxTokens = maxTokens;
+    }
+
+    @Override
+    public String name() {
+        return "token";
+    }
+
+    @Override
+    public ChunkWriter open(Consumer<TextChunk> sink) {
+        return new TokenChunker(encoding, targetTokens, overlapTokens, minTokens, maxTokens, sink);
+    }
+}
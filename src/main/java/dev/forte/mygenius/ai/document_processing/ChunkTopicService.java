@@ -0,0 +1,325 @@
+package dev.forte.mygenius.ai.document_processing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.forte.mygenius.ai.openai.OpenAiRateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Generates the short topic label stored with every document chunk. Chunks are
+ * labelled concurrently, with the number of in-flight calls capped by
+ * {@code topics.concurrency} across all documents being ingested and the send
+ * rate held under the account budget by {@link OpenAiRateLimiter}.
+ *
+ * <p>In {@code batch} mode (the default) many chunks are packed into a single
+ * structured-output request to the JSON model, so the system prompt and request
+ * overhead are paid once per batch instead of once per chunk. Entries missing or
+ * invalid in the batch answer are retried one chunk at a time.
+ */
+@Slf4j
+@Service
+public class ChunkTopicService {
+
+    private static final String TOPIC_PROMPT =
+            "Provide a concise topic label (3-7 words) that summarizes the main subject of this text.";
+
+    private static final String BATCH_TOPIC_PROMPT = """
+            You label the sections of a document. Each section starts with a line "### chunk_index: N".
+            For every section provide a concise topic label (3-7 words) that summarizes the main subject of that section.
+            Return exactly one entry per section, using the chunk_index given in its header.""";
+
+    private static final String BATCH_RESPONSE_SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "topics": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "chunk_index": { "type": "integer" },
+                      "topic": { "type": "string" }
+                    },
+                    "required": ["chunk_index", "topic"],
+                    "additionalProperties": false
+                  }
+                }
+              },
+              "required": ["topics"],
+              "additionalProperties": false
+            }""";
+
+    // Upper bound for the label we ask for, used in the token estimate
+    private static final int TOPIC_MAX_OUTPUT_TOKENS = 20;
+
+    // Output tokens per entry of a batch answer: the label plus the JSON around it
+    private static final int BATCH_ENTRY_OUTPUT_TOKENS = 30;
+
+    // Anything longer than this is not a 3-7 word label
+    private static final int MAX_TOPIC_WORDS = 12;
+    private static final int MAX_TOPIC_LENGTH = 120;
+
+    private final ChatModel openAiChatModel;
+    private final OpenAiRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final Semaphore inFlight;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${topics.mode:batch}")
+    private String mode;
+
+    @Value("${topics.batch.max-input-tokens:24000}")
+    private int batchMaxInputTokens;
+
+    // The openAiApiJson model is configured with a 16k completion budget
+    @Value("${topics.batch.max-output-tokens:16384}")
+    private int batchMaxOutputTokens;
+
+    @Value("${topics.batch.max-chunks:50}")
+    private int batchMaxChunks;
+
+    // A label only needs the gist of a chunk, so long chunks are cut in the batch prompt
+    @Value("${topics.batch.max-chunk-chars:2000}")
+    private int batchMaxChunkChars;
+
+    public ChunkTopicService(@Qualifier("openAiApiJson") ChatModel openAiChatModel,
+                             OpenAiRateLimiter rateLimiter,
+                             ObjectMapper objectMapper,
+                             @Value("${topics.concurrency:16}") int concurrency) {
+        this.openAiChatModel = openAiChatModel;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.inFlight = new Semaphore(concurrency);
+    }
+
+    /**
+     * Returns one topic per chunk, in the same order as {@code chunks}. A chunk whose
+     * call fails gets the "Document Section N" fallback, N being its 1-based index.
+     */
+    public List<String> generateTopics(List<String> chunks) {
+        return generateTopics(chunks, 0);
+    }
+
+    /**
+     * Same as {@link #generateTopics(List)} for a window of a document's chunks
+     * starting at chunk {@code firstIndex}, which the fallback labels count from.
+     */
+    public List<String> generateTopics(List<String> chunks, int firstIndex) {
+        if ("batch".equalsIgnoreCase(mode)) {
+            return generateTopicsInBatches(chunks, firstIndex);
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            int index = firstIndex + i;
+            String chunkText = chunks.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> topicFor(index, chunkText), executor));
+        }
+        return joinAll(futures);
+    }
+
+    private List<String> generateTopicsInBatches(List<String> chunks, int firstIndex) {
+        String[] topics = new String[chunks.size()];
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<Integer> batch : planBatches(chunks)) {
+            batches.add(CompletableFuture.runAsync(() -> labelBatch(chunks, batch, topics), executor));
+        }
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+
+        // Only the entries the batch answers didn't cover go out as single requests
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < topics.length; i++) {
+            if (topics[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            log.info("Labelling {} of {} chunks individually after batch validation", missing.size(), chunks.size());
+            List<CompletableFuture<String>> singles = new ArrayList<>(missing.size());
+            for (int index : missing) {
+                singles.add(CompletableFuture.supplyAsync(
+                        () -> topicFor(firstIndex + index, chunks.get(index)), executor));
+            }
+            List<String> singleTopics = joinAll(singles);
+            for (int i = 0; i < missing.size(); i++) {
+                topics[missing.get(i)] = singleTopics.get(i);
+            }
+        }
+        return List.of(topics);
+    }
+
+    /**
+     * Greedily packs consecutive chunks into batches that stay within the input and
+     * output token budgets, so a document of short chunks gets few large batches and
+     * one of long chunks gets more, smaller ones.
+     */
+    private List<List<Integer>> planBatches(List<String> chunks) {
+        int promptTokens = OpenAiRateLimiter.estimateTokens(BATCH_TOPIC_PROMPT);
+        int maxEntriesByOutput = Math.max(1, batchMaxOutputTokens / BATCH_ENTRY_OUTPUT_TOKENS);
+        int maxEntries = Math.min(batchMaxChunks, maxEntriesByOutput);
+
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int currentTokens = promptTokens;
+        for (int i = 0; i < chunks.size(); i++) {
+            int chunkTokens = OpenAiRateLimiter.estimateTokens(batchText(chunks.get(i))) + 8;
+            if (!current.isEmpty()
+                    && (current.size() >= maxEntries || currentTokens + chunkTokens > batchMaxInputTokens)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = promptTokens;
+            }
+            current.add(i);
+            currentTokens += chunkTokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private void labelBatch(List<String> chunks, List<Integer> batch, String[] topics) {
+        StringBuilder sections = new StringBuilder();
+        for (int index : batch) {
+            sections.append("### chunk_index: ").append(index).append('\n')
+                    .append(batchText(chunks.get(index))).append("\n\n");
+        }
+
+        long estimate = OpenAiRateLimiter.estimateTokens(BATCH_TOPIC_PROMPT)
+                + OpenAiRateLimiter.estimateTokens(sections)
+                + (long) batch.size() * BATCH_ENTRY_OUTPUT_TOKENS;
+
+        OpenAiChatOptions options = OpenAiChatOptions.builder()
+                .responseFormat(ResponseFormat.builder()
+                        .type(ResponseFormat.Type.JSON_SCHEMA)
+                        .jsonSchema(BATCH_RESPONSE_SCHEMA)
+                        .build())
+                .build();
+
+        try {
+            inFlight.acquire();
+            ChatResponse response;
+            try {
+                rateLimiter.acquire(estimate);
+                response = openAiChatModel.call(new Prompt(
+                        List.of(new SystemMessage(BATCH_TOPIC_PROMPT), new UserMessage(sections.toString())),
+                        options));
+            } finally {
+                inFlight.release();
+            }
+            refund(estimate, response);
+
+            int accepted = 0;
+            JsonNode entries = objectMapper.readTree(response.getResult().getOutput().getText()).path("topics");
+            for (JsonNode entry : entries) {
+                JsonNode indexNode = entry.get("chunk_index");
+                if (indexNode == null || !indexNode.canConvertToInt()) {
+                    continue;
+                }
+                int index = indexNode.asInt();
+                String topic = entry.path("topic").asText("").trim();
+                // Only accept indexes that were actually in this batch, once, with a sane label
+                if (batch.contains(index) && topics[index] == null && isValidTopic(topic)) {
+                    topics[index] = topic;
+                    accepted++;
+                }
+            }
+            log.debug("Batch of {} chunks returned {} valid topics", batch.size(), accepted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while labelling a batch of {} chunks", batch.size());
+        } catch (Exception e) {
+            // Leave the entries empty, they are retried one by one
+            log.error("Error getting topics for a batch of {} chunks: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private String topicFor(int index, String chunkText) {
+        try {
+            return requestTopic(chunkText);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while getting topic for chunk {}", index);
+        } catch (Exception e) {
+            log.error("Error getting topic for chunk {}: {}", index, e.getMessage());
+        }
+        // Use a fallback topic if LLM call fails
+        return fallbackTopic(index);
+    }
+
+    private String requestTopic(String chunkText) throws InterruptedException {
+        long estimate = OpenAiRateLimiter.estimateTokens(TOPIC_PROMPT)
+                + OpenAiRateLimiter.estimateTokens(chunkText) + TOPIC_MAX_OUTPUT_TOKENS;
+
+        inFlight.acquire();
+        try {
+            rateLimiter.acquire(estimate);
+            ChatResponse topicResponse = openAiChatModel.call(
+                    new Prompt(
+                            new SystemMessage(TOPIC_PROMPT),
+                            new UserMessage(chunkText)
+                    )
+            );
+
+            refund(estimate, topicResponse);
+            return topicResponse.getResult().getOutput().getText().trim();
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void refund(long estimate, ChatResponse response) {
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getTotalTokens() != null) {
+            rateLimiter.refund(estimate, usage.getTotalTokens());
+        }
+    }
+
+    private String batchText(String chunkText) {
+        return chunkText.length() <= batchMaxChunkChars ? chunkText : chunkText.substring(0, batchMaxChunkChars);
+    }
+
+    private static boolean isValidTopic(String topic) {
+        if (topic.isEmpty() || topic.length() > MAX_TOPIC_LENGTH) {
+            return false;
+        }
+        return topic.split("\\s+").length <= MAX_TOPIC_WORDS;
+    }
+
+    private static List<String> joinAll(List<CompletableFuture<String>> futures) {
+        List<String> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    static String fallbackTopic(int index) {
+        return "Document Section " + (index + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,143 @@
+package dev.forte.mygenius.ai.document_processing;
+
+import dev.forte.mygenius.storage.BlobStore;
+import dev.forte.mygenius.storage.ByteaSliceInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Raw access to the {@code document_contents} rows and the uploaded bytes they
+ * point to, without going through the entity.
+ */
+@Component
+public class DocumentContentStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final int readSliceBytes;
+
+    public DocumentContentStore(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+                                @Value("${documents.extraction.read-buffer-bytes:1048576}") int readSliceBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.readSliceBytes = readSliceBytes;
+    }
+
+    /**
+     * Creates the content row of a document whose bytes are stored under
+     * {@code blobKey} and returns the new content id.
+     */
+    public UUID insert(UUID documentId, String blobKey) {
+        UUID contentId = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO document_contents (content_id, document_id, processing_status, blob_key)
+                VALUES (?, ?, 'pending', ?)
+                """, contentId, documentId, blobKey);
+        return contentId;
+    }
+
+    /**
+     * Finds a document of {@code userId} whose bytes are {@code blobKey} and that
+     * was processed successfully. Its content row stays share-locked until the
+     * caller's transaction ends, so an upload pointed at it can't lose it to a
+     * concurrent delete, which locks the row before checking for other uploads.
+     */
+    public Optional<UUID> findProcessedDocumentId(UUID userId, String blobKey) {
+        List<UUID> ids = jdbcTemplate.queryForList("""
+                SELECT c.document_id FROM document_contents c
+                JOIN documents d ON d.document_id = c.document_id
+                WHERE c.blob_key = ? AND d.user_id = ? AND c.processing_status = 'processed'
+                ORDER BY c.processed_at DESC
+                LIMIT 1
+                FOR SHARE OF c
+                """, UUID.class, blobKey, userId);
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Content of another document, of any user, holding the same bytes and processed successfully.
+     */
+    public record ProcessedCopy(UUID contentId, UUID userId) {
+    }
+
+    /**
+     * Finds content other than {@code contentId}, of any user, holding the same
+     * bytes and processed successfully, with the user owning it.
+     */
+    public Optional<ProcessedCopy> findProcessedCopy(UUID contentId) {
+        List<ProcessedCopy> copies = jdbcTemplate.query("""
+                SELECT other.content_id, d.user_id FROM document_contents c
+                JOIN document_contents other ON other.blob_key = c.blob_key AND other.content_id <> c.content_id
+                JOIN documents d ON d.document_id = other.document_id
+                WHERE c.content_id = ? AND other.processing_status = 'processed'
+                ORDER BY other.processed_at DESC
+                LIMIT 1
+                """, (rs, rowNum) -> new ProcessedCopy(rs.getObject("content_id", UUID.class),
+                rs.getObject("user_id", UUID.class)), contentId);
+        return copies.stream().findFirst();
+    }
+
+    /**
+     * Hands the text and topic of every stored chunk of {@code copy} to
+     * {@code consumer}, in chunk order. Only the owner's partition is read.
+     */
+    public void forEachChunk(ProcessedCopy copy, BiConsumer<String, String> consumer) {
+        jdbcTemplate.query("""
+                SELECT content, metadata->>'topic' AS topic FROM vector_store
+                WHERE user_id = ? AND content_id = ?
+                ORDER BY (metadata->>'chunk_index')::int
+                """, (RowCallbackHandler) rs -> consumer.accept(rs.getString("content"), rs.getString("topic")),
+                copy.userId(), copy.contentId());
+    }
+
+    public void copyExtractedText(UUID fromContentId, UUID toContentId) {
+        jdbcTemplate.update("""
+                UPDATE document_contents
+                SET extracted_text = (SELECT extracted_text FROM document_contents WHERE content_id = ?)
+                WHERE content_id = ?
+                """, fromContentId, toContentId);
+    }
+
+    public Optional<UUID> findContentId(UUID documentId) {
+        List<UUID> ids = jdbcTemplate.queryForList(
+                "SELECT content_id FROM document_contents WHERE document_id = ?", UUID.class, documentId);
+        return ids.stream().findFirst();
+    }
+
+    /**
+     * Opens the stored bytes for reading. Rows not yet moved to the blob store are
+     * read from {@code content_data}, {@code documents.extraction.read-buffer-bytes}
+     * at a time.
+     */
+    public InputStream openContent(UUID contentId) throws IOException {
+        List<String> blobKeys = jdbcTemplate.queryForList(
+                "SELECT blob_key FROM document_contents WHERE content_id = ?", String.class, contentId);
+        String blobKey = blobKeys.isEmpty() ? null : blobKeys.getFirst();
+        if (blobKey != null) {
+            return blobStore.open(blobKey);
+        }
+        return new ByteaSliceInputStream(jdbcTemplate, "document_contents", "content_data", "content_id",
+                contentId, readSliceBytes);
+    }
+
+    public void saveExtractedText(UUID contentId, String extractedText) {
+        jdbcTemplate.update("UPDATE document_contents SET extracted_text = ? WHERE content_id = ?",
+                extractedText, contentId);
+    }
+
+    public void updateStatus(UUID documentId, String status) {
+        jdbcTemplate.update("UPDATE document_contents SET processing_status = ?, processed_at = ? WHERE document_id = ?",
+                status, Timestamp.valueOf(LocalDateTime.now()), documentId);
+    }
+}
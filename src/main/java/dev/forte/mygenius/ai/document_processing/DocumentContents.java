@@ -6,6 +6,10 @@ import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
+/**
+ * Status and extracted text of a stored document. The uploaded bytes are in the
+ * {@link dev.forte.mygenius.storage.BlobStore} under {@code blobKey}.
+ */
 @Entity
 @Table(name = "document_contents")
 public class DocumentContents {
@@ -28,8 +32,8 @@ public class DocumentContents {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
-    @Column(name = "content_data", columnDefinition = "bytea")
-    private byte[] contentData;
+    @Column(name = "blob_key")
+    private String blobKey;
 
     public UUID getContentId() {
         return contentId;
@@ -71,11 +75,11 @@ public class DocumentContents {
         this.processedAt = processedAt;
     }
 
-    public byte[] getContentData() {
-        return contentData;
+    public String getBlobKey() {
+        return blobKey;
     }
 
-    public void setContentData(byte[] contentData) {
-        this.contentData = contentData;
+    public void setBlobKey(String blobKey) {
+        this.blobKey = blobKey;
     }
 }
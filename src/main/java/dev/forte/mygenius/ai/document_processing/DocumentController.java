@@ -1,6 +1,7 @@
 package dev.forte.mygenius.ai.document_processing;
 
 
+import dev.forte.mygenius.ai.uploads.AcceptedUpload;
 import dev.forte.mygenius.security.CustomUserPrincipal;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -35,15 +36,16 @@ public class DocumentController {
             // Get user ID from authentication principal
             UUID userId = userPrincipal.getUserId();
 
-            // Start async processing
-            documentProcessingService.processUserDocuments(userId, file);
+            // Store the file and queue it, processing happens on an ingestion worker
+            AcceptedUpload accepted = documentProcessingService.acceptDocument(userId, file);
 
             // Return accepted status with basic information
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Document upload initiated");
+            response.put("uploadId", accepted.upload().getUploadId());
             response.put("fileName", file.getOriginalFilename());
             response.put("fileSize", file.getSize());
-            response.put("status", "processing");
+            response.put("status", accepted.status());
 
             return ResponseEntity.accepted().body(response);
 
@@ -1,245 +1,366 @@
 package dev.forte.mygenius.ai.document_processing;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.forte.mygenius.ai.chunking.ChunkingStrategies;
+import dev.forte.mygenius.ai.chunking.ChunkWriter;
+import dev.forte.mygenius.ai.chunking.ChunkingStrategy;
+import dev.forte.mygenius.ai.chunking.TextChunk;
+import dev.forte.mygenius.ai.ingestion.IngestionJob;
+import dev.forte.mygenius.ai.ingestion.IngestionJobService;
+import dev.forte.mygenius.ai.near_duplicates.NearDuplicateDetector;
+import dev.forte.mygenius.ai.uploads.AcceptedUpload;
+import dev.forte.mygenius.ai.uploads.DeduplicationMetrics;
 import dev.forte.mygenius.ai.uploads.Upload;
 import dev.forte.mygenius.ai.uploads.UploadRepository;
+import dev.forte.mygenius.ai.vector_store.PartitionedVectorStore;
+import dev.forte.mygenius.errors.ResourceNotFoundException;
+import dev.forte.mygenius.storage.BlobReferences;
+import dev.forte.mygenius.storage.BlobStore;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.OpenAiChatOptions;
-import org.springframework.ai.openai.api.OpenAiApi;
-import org.springframework.ai.openai.api.ResponseFormat;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class DocumentProcessingService {
 
     private final DocumentRepository documentRepository;
-    private final DocumentContentsRepository documentContentsRepository;
-    private final OpenAiChatModel openAiChatModel;
-    private final PgVectorStore pgVectorStore;
-    private final ObjectMapper objectMapper;
+    private final DocumentContentStore documentContentStore;
+    private final BlobStore blobStore;
+    private final BlobReferences blobReferences;
+    private final StreamingTextExtractor textExtractor;
+    private final PartitionedVectorStore vectorStore;
     private final UploadRepository uploadRepository;
-
-
-    public DocumentProcessingService(DocumentRepository documentRepository, DocumentContentsRepository documentContentsRepository,
-                                     @Qualifier("openAiApiJson") OpenAiChatModel openAiChatModel, PgVectorStore pgVectorStore, ObjectMapper objectMapper, UploadRepository uploadRepository) {
+    private final IngestionJobService ingestionJobService;
+    private final ChunkTopicService chunkTopicService;
+    private final ChunkingStrategies chunkingStrategies;
+    private final DeduplicationMetrics deduplicationMetrics;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${documents.extraction.window-chunks:100}")
+    private int windowChunks;
+
+    public DocumentProcessingService(DocumentRepository documentRepository, DocumentContentStore documentContentStore,
+                                     BlobStore blobStore, BlobReferences blobReferences,
+                                     StreamingTextExtractor textExtractor, PartitionedVectorStore vectorStore,
+                                     UploadRepository uploadRepository,
+                                     IngestionJobService ingestionJobService, ChunkTopicService chunkTopicService,
+                                     ChunkingStrategies chunkingStrategies, DeduplicationMetrics deduplicationMetrics,
+                                     NearDuplicateDetector nearDuplicateDetector,
+                                     TransactionTemplate transactionTemplate) {
         this.documentRepository = documentRepository;
-        this.documentContentsRepository = documentContentsRepository;
-        this.openAiChatModel = openAiChatModel;
-        this.pgVectorStore = pgVectorStore;
-        this.objectMapper = objectMapper;
-
+        this.documentContentStore = documentContentStore;
+        this.blobStore = blobStore;
+        this.blobReferences = blobReferences;
+        this.textExtractor = textExtractor;
+        this.vectorStore = vectorStore;
         this.uploadRepository = uploadRepository;
+        this.ingestionJobService = ingestionJobService;
+        this.chunkTopicService = chunkTopicService;
+        this.chunkingStrategies = chunkingStrategies;
+        this.deduplicationMetrics = deduplicationMetrics;
+        this.nearDuplicateDetector = nearDuplicateDetector;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    public void processUserDocuments(UUID userId, MultipartFile file) throws IOException {
-        UserDocument document = new UserDocument();
-        document.setUserId(userId);
-        document.setFileName(file.getOriginalFilename());
-        document.setFileSize(file.getSize());
-        document.setMimeType(file.getContentType());
-        document.setCreatedAt(LocalDateTime.now());
-        documentRepository.save(document);
-        log.info("Document saved to database: {}", document.getFileName());
-
-        DocumentContents content = new DocumentContents();
-        content.setDocumentId(document.getDocumentId());
-        content.setContentData(file.getBytes());
-        content.setProcessingStatus("pending");
-        documentContentsRepository.save(content);
-        log.info("Document content saved to database");
+    /**
+     * Stores the upload and queues it for processing. Extraction, topic labelling
+     * and embedding happen later on an ingestion worker, see {@link #processDocument(UUID)}.
+     * The file is streamed from the multipart temp file into the blob store, then
+     * the document, its content, the upload and the job are written in one
+     * transaction, so a failure leaves none of them behind.
+     *
+     * <p>If the user already has the same file processed, the new upload points at
+     * that document and its vectors, and nothing is queued.
+     */
+    public AcceptedUpload acceptDocument(UUID userId, MultipartFile file) throws IOException {
+        // The blob key is the SHA-256 of the file, computed while it is stored
+        String blobKey;
+        try (InputStream data = file.getInputStream()) {
+            blobKey = blobStore.put(data);
+        }
 
+        return transactionTemplate.execute(status -> {
+            blobReferences.deleteIfRolledBack(blobKey);
+
+            // Locks the document's content, so deleting its last upload waits for this one
+            Optional<UUID> processedDocumentId = documentContentStore.findProcessedDocumentId(userId, blobKey);
+            if (processedDocumentId.isPresent()) {
+                log.info("Document {} is a re-upload of document {}, reusing it", file.getOriginalFilename(),
+                        processedDocumentId.get());
+                Upload upload = saveUpload(userId, file, processedDocumentId.get(), LocalDateTime.now());
+                deduplicationMetrics.record("document", DeduplicationMetrics.SAME_USER);
+                return new AcceptedUpload(upload, IngestionJob.STATUS_COMPLETED);
+            }
+
+            UserDocument document = new UserDocument();
+            document.setUserId(userId);
+            document.setFileName(file.getOriginalFilename());
+            document.setFileSize(file.getSize());
+            document.setMimeType(file.getContentType());
+            document.setCreatedAt(LocalDateTime.now());
+            documentRepository.save(document);
+            log.info("Document saved to database: {}", document.getFileName());
+
+            // Under the blob's lock, so a delete of another upload of the same bytes can't remove it meanwhile
+            blobReferences.insertReferencing(blobKey, file,
+                    () -> documentContentStore.insert(document.getDocumentId(), blobKey));
+
+            Upload upload = saveUpload(userId, file, document.getDocumentId(), document.getCreatedAt());
+            ingestionJobService.enqueue(upload.getUploadId(), userId, "DOCUMENT", document.getDocumentId());
+            return new AcceptedUpload(upload, IngestionJob.STATUS_QUEUED);
+        });
+    }
+
+    private Upload saveUpload(UUID userId, MultipartFile file, UUID documentId, LocalDateTime createdAt) {
         Upload upload = new Upload();
         upload.setUserId(userId);
         upload.setFileName(file.getOriginalFilename());
         upload.setFileType("DOCUMENT");
-        upload.setContentId(document.getDocumentId());
-        uploadRepository.save(upload);
-
-        try {
-            // Extract text using Tika
-            ByteArrayResource resource = new ByteArrayResource(content.getContentData());
-            TikaDocumentReader reader = new TikaDocumentReader(resource);
-            List<Document> documents = reader.get();
-            String extractedText = "";
-
-            if (!documents.isEmpty()) {
-                Document doc = documents.getFirst();
-                if (doc.isText()) {
-                    extractedText = doc.getText();
-                }
-            }
-
-            // Update document content with extracted text
-            content.setExtractedText(extractedText);
-            content.setProcessingStatus("processed");
-            content.setProcessedAt(LocalDateTime.now());
-            documentContentsRepository.save(content);
-            log.info("Text extracted successfully, length: {} characters", extractedText.length());
-
-            // Split into paragraphs
-            List<String> paragraphs = Arrays.stream(extractedText.split("\\n\\s*\\n"))
-                    .filter(para -> !para.trim().isEmpty())
-                    .collect(Collectors.toList());
-
-            // If there are very few paragraphs, try sentence splitting
-            if (paragraphs.size() < 3 && extractedText.length() > 1000) {
-                paragraphs = Arrays.stream(extractedText.split("(?<=[.!?])\\s+"))
-                        .filter(sent -> !sent.trim().isEmpty())
-                        .collect(Collectors.toList());
-            }
+        upload.setContentId(documentId);
+        upload.setCreatedAt(createdAt);
+        return uploadRepository.save(upload);
+    }
 
-            // Combine paragraphs into appropriately sized chunks
-            List<String> properChunks = new ArrayList<>();
-            StringBuilder currentChunk = new StringBuilder();
-            int minWords = 100; // Aim for at least 100 words per chunk
-            int maxWords = 500; // But no more than 500 words
+    /**
+     * Runs the ingestion pipeline for a stored document. Called by the ingestion
+     * worker; any exception is treated as a failed attempt and retried with backoff.
+     * Vector ids are derived from the content id and chunk index, so a retry
+     * overwrites the rows of an earlier partial attempt instead of duplicating them.
+     *
+     * <p>The stored bytes are streamed through Tika into the chunker, and chunks are
+     * labelled and embedded in windows of {@code documents.extraction.window-chunks},
+     * so neither the document nor its full text is ever held in memory.
+     *
+     * <p>When the same bytes were already processed for another upload, possibly of
+     * another user, its chunk texts and topics are reused instead of extracting and
+     * labelling again. The chunks are embedded into new rows carrying this
+     * document's own metadata.
+     */
+    public void processDocument(UUID documentId) {
+        UserDocument document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found: " + documentId));
+        UUID contentId = documentContentStore.findContentId(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document content not found: " + documentId));
+
+        Optional<DocumentContentStore.ProcessedCopy> processedCopy = documentContentStore.findProcessedCopy(contentId);
+        if (processedCopy.isPresent()) {
+            reuseProcessedCopy(document, contentId, processedCopy.get());
+            deduplicationMetrics.record("document", DeduplicationMetrics.CROSS_USER);
+            return;
+        }
 
-            for (String paragraph : paragraphs) {
-                int currentWords = currentChunk.toString().split("\\s+").length;
-                int paragraphWords = paragraph.split("\\s+").length;
+        try (InputStream input = documentContentStore.openContent(contentId)) {
+            // Chunk with the strategy configured for this file type, as Tika extracts the text
+            ChunkingStrategy chunkingStrategy = chunkingStrategies.forMimeType(document.getMimeType());
+            ChunkWindow window = new ChunkWindow(document, contentId);
+            ChunkWriter chunkWriter = chunkingStrategy.open(window::add);
+
+            StreamingTextExtractor.ExtractedText extracted = textExtractor.extract(
+                    input, document.getFileName(), document.getMimeType(), chunkWriter);
+            chunkWriter.finish();
+            window.flush();
+            log.info("Text extracted successfully, length: {} characters", extracted.length());
+            log.info("Document split into {} chunks using the {} strategy, {} added to vector store, "
+                            + "{} near-duplicates skipped",
+                    window.chunkCount, chunkingStrategy.name(), window.nextIndex, window.skippedCount);
+
+            documentContentStore.saveExtractedText(contentId, extracted.storedText());
+            documentContentStore.updateStatus(documentId, "processed");
+            deduplicationMetrics.record("document", DeduplicationMetrics.MISS);
+        } catch (Exception e) {
+            log.error("Error processing document: {}", e.getMessage(), e);
+            throw new IllegalStateException("Failed to process document " + documentId, e);
+        }
+    }
 
-                if (currentWords + paragraphWords <= maxWords) {
-                    // Add to current chunk if within max size
-                    if (currentChunk.length() > 0) {
-                        currentChunk.append("\n\n");
-                    }
-                    currentChunk.append(paragraph);
-                } else if (currentWords >= minWords) {
-                    // Current chunk is big enough, save it and start new chunk
-                    properChunks.add(currentChunk.toString());
-                    currentChunk = new StringBuilder(paragraph);
-                } else {
-                    // Current chunk is too small, but adding paragraph would exceed max
-                    // Split the paragraph to fit what we can
-                    String[] words = paragraph.split("\\s+");
-                    int wordsToAdd = maxWords - currentWords;
-
-                    // Add as many words as we can to current chunk
-                    if (!currentChunk.isEmpty()) {
-                        currentChunk.append("\n\n");
-                    }
-                    currentChunk.append(String.join(" ", Arrays.copyOfRange(words, 0, Math.min(wordsToAdd, words.length))));
+    private void reuseProcessedCopy(UserDocument document, UUID contentId, DocumentContentStore.ProcessedCopy source) {
+        log.info("Document {} has the same content as {}, reusing its extraction", document.getDocumentId(),
+                source.contentId());
+        ChunkWindow window = new ChunkWindow(document, contentId);
+        documentContentStore.forEachChunk(source, window::addLabelled);
+        window.flush();
+        log.info("Reused {} chunks, {} added to vector store, {} near-duplicates skipped", window.chunkCount,
+                window.nextIndex, window.skippedCount);
+
+        documentContentStore.copyExtractedText(source.contentId(), contentId);
+        documentContentStore.updateStatus(document.getDocumentId(), "processed");
+    }
 
-                    // Save current chunk
-                    properChunks.add(currentChunk.toString());
+    /**
+     * Collects a document's chunks as they are produced and, once enough have
+     * arrived, labels them and adds them to the vector store in one go. Chunks
+     * reused from another upload come with their topic already.
+     *
+     * <p>Each chunk is first checked for near-duplicates among the user's chunks.
+     * A near-duplicate is stored with the topic and embedding of the chunk it
+     * duplicates; a repeat within the document is dropped instead when
+     * {@code ingestion.dedup.mode} is {@code skip}.
+     */
+    private class ChunkWindow {
+
+        private final UserDocument document;
+        private final UUID contentId;
+        private final NearDuplicateDetector.Session duplicates;
+        private final List<String> chunkTexts = new ArrayList<>();
+        private final List<String> knownTopics = new ArrayList<>();
+        // Vector id of the chunk each one duplicates, null for chunks of their own
+        private final List<UUID> duplicateOf = new ArrayList<>();
+        private int chunkCount;
+        private int skippedCount;
+        private int nextIndex;
+
+        ChunkWindow(UserDocument document, UUID contentId) {
+            this.document = document;
+            this.contentId = contentId;
+            this.duplicates = nearDuplicateDetector.open(document.getUserId(), contentId);
+        }
 
-                    // Start new chunk with remaining words if any
-                    if (wordsToAdd < words.length) {
-                        currentChunk = new StringBuilder(String.join(" ",
-                                Arrays.copyOfRange(words, wordsToAdd, words.length)));
-                    } else {
-                        currentChunk = new StringBuilder();
-                    }
-                }
+        void add(TextChunk chunk) {
+            chunkCount++;
+            // Keep only chunks that are substantial
+            if (chunk.wordCount() >= 10) {
+                accept(chunk.text(), null);
             }
+        }
 
-            // Add the final chunk if it's not empty and meets minimum size
-            if (!currentChunk.isEmpty()) {
-                int finalChunkWords = currentChunk.toString().split("\\s+").length;
-                if (finalChunkWords >= minWords) {
-                    properChunks.add(currentChunk.toString());
-                } else if (!properChunks.isEmpty()) {
-                    // If final chunk is too small, append it to the last chunk
-                    String lastChunk = properChunks.remove(properChunks.size() - 1);
-                    properChunks.add(lastChunk + "\n\n" + currentChunk);
-                } else {
-                    // If this is the only chunk, keep it despite being small
-                    properChunks.add(currentChunk.toString());
-                }
+        void addLabelled(String chunkText, String topic) {
+            chunkCount++;
+            accept(chunkText, topic != null ? topic : ChunkTopicService.fallbackTopic(nextIndex + chunkTexts.size()));
+        }
+
+        private void accept(String chunkText, String topic) {
+            NearDuplicateDetector.Duplicate duplicate =
+                    duplicates.check(chunkText, chunkId(contentId, nextIndex + chunkTexts.size()));
+            // Only repeats within this document are dropped: a chunk of another
+            // document may be deleted with it, and must not take this text along
+            if (duplicate != null && duplicate.sameContent()
+                    && nearDuplicateDetector.mode() == NearDuplicateDetector.Mode.SKIP) {
+                skippedCount++;
+                nearDuplicateDetector.recordSkipped(1);
+                return;
+            }
+            chunkTexts.add(chunkText);
+            duplicateOf.add(duplicate == null ? null : duplicate.vectorId());
+            if (topic != null) {
+                knownTopics.add(topic);
+            }
+            if (chunkTexts.size() >= windowChunks) {
+                flush();
             }
+        }
 
-            // Special case: if the entire document is very small, use it as a single chunk
-            if (properChunks.isEmpty() && !paragraphs.isEmpty()) {
-                properChunks.add(extractedText);
+        void flush() {
+            if (chunkTexts.isEmpty()) {
+                return;
             }
 
-            log.info("Document split into {} chunks", properChunks.size());
+            // Linked chunks take the topic of the chunk they duplicate, which is either
+            // in this window or already stored; if it is gone they are processed as usual
+            Set<UUID> windowIds = new HashSet<>();
+            for (int i = 0; i < chunkTexts.size(); i++) {
+                windowIds.add(chunkId(contentId, nextIndex + i));
+            }
+            List<String> storedSourceIds = duplicateOf.stream()
+                    .filter(source -> source != null && !windowIds.contains(source))
+                    .distinct()
+                    .map(UUID::toString)
+                    .toList();
+            Map<String, Document> storedSources = vectorStore.findByIds(document.getUserId(), storedSourceIds);
+            for (int i = 0; i < duplicateOf.size(); i++) {
+                UUID source = duplicateOf.get(i);
+                if (source != null && !windowIds.contains(source) && !storedSources.containsKey(source.toString())) {
+                    duplicateOf.set(i, null);
+                }
+            }
 
-            // Process each chunk and add to vector store
-            List<Document> vectorDocuments = new ArrayList<>();
-            int index = 0;
-
-            for (String chunkText : properChunks) {
-                // Only process if the chunk is substantial
-                if (chunkText.split("\\s+").length >= 10) {
-                    try {
-                        // Get topic for this specific chunk
-                        ChatResponse topicResponse = openAiChatModel.call(
-                                new Prompt(
-                                        new SystemMessage("Provide a concise topic label (3-7 words) that summarizes the main subject of this text."),
-                                        new UserMessage(chunkText)
-                                )
-                        );
-
-                        String topic = topicResponse.getResult().getOutput().getText().trim();
-                        log.info("Generated topic for chunk {}: {} {}", index, topic, chunkText);
-
-                        // Create metadata for the chunk
-                        Map<String, Object> metadata = new HashMap<>();
-                        metadata.put("user_id", userId.toString());
-                        metadata.put("document_id", document.getDocumentId().toString());
-                        metadata.put("content_id", content.getContentId().toString());
-                        metadata.put("chunk_index", index);
-                        metadata.put("topic", topic);
-
-                        // Create document for vector store
-                        Document vectorDocument = new Document(chunkText, metadata);
-                        vectorDocuments.add(vectorDocument);
-
-                        index++;
-
-                    } catch (Exception e) {
-                        log.error("Error getting topic for chunk {}: {}", index, e.getMessage());
-
-                        // Use a fallback topic if LLM call fails
-                        Map<String, Object> metadata = new HashMap<>();
-                        metadata.put("user_id", userId.toString());
-                        metadata.put("document_id", document.getDocumentId().toString());
-                        metadata.put("content_id", content.getContentId().toString());
-                        metadata.put("chunk_index", index);
-                        metadata.put("topic", "Document Section " + (index + 1));
-
-                        Document vectorDocument = new Document(chunkText, metadata);
-                        vectorDocuments.add(vectorDocument);
-
-                        index++;
+            // Get a topic for every chunk of its own, labelled in parallel under the rate limit
+            List<String> topics;
+            if (knownTopics.size() == chunkTexts.size()) {
+                topics = knownTopics;
+            } else {
+                List<String> ownTexts = new ArrayList<>();
+                for (int i = 0; i < chunkTexts.size(); i++) {
+                    if (duplicateOf.get(i) == null) {
+                        ownTexts.add(chunkTexts.get(i));
                     }
                 }
+                Iterator<String> ownTopics = chunkTopicService.generateTopics(ownTexts, nextIndex).iterator();
+                topics = new ArrayList<>(chunkTexts.size());
+                for (int i = 0; i < chunkTexts.size(); i++) {
+                    topics.add(duplicateOf.get(i) == null ? ownTopics.next() : null);
+                }
+            }
+            Map<UUID, String> windowTopics = new HashMap<>();
+            for (int i = 0; i < chunkTexts.size(); i++) {
+                if (duplicateOf.get(i) == null) {
+                    windowTopics.put(chunkId(contentId, nextIndex + i), topics.get(i));
+                }
             }
 
-            // Add all documents to vector store at once
-            if (!vectorDocuments.isEmpty()) {
-                pgVectorStore.add(vectorDocuments);
-                log.info("Added {} chunks to vector store", vectorDocuments.size());
+            // Process each chunk and add to vector store
+            List<Document> vectorDocuments = new ArrayList<>(chunkTexts.size());
+            List<Document> linkedDocuments = new ArrayList<>();
+            List<UUID> linkedSources = new ArrayList<>();
+            for (int i = 0; i < chunkTexts.size(); i++) {
+                int index = nextIndex + i;
+                UUID source = duplicateOf.get(i);
+                String topic = source == null
+                        ? topics.get(i)
+                        : windowTopics.containsKey(source)
+                        ? windowTopics.get(source)
+                        : (String) storedSources.get(source.toString()).getMetadata().get("topic");
+                log.debug("Generated topic for chunk {}: {}", index, topic);
+
+                // Create metadata for the chunk
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("user_id", document.getUserId().toString());
+                metadata.put("document_id", document.getDocumentId().toString());
+                metadata.put("content_id", contentId.toString());
+                metadata.put("chunk_index", index);
+                metadata.put("topic", topic != null ? topic : ChunkTopicService.fallbackTopic(index));
+
+                // Create document for vector store
+                Document vectorDocument = new Document(chunkId(contentId, index).toString(), chunkTexts.get(i),
+                        metadata);
+                if (source == null) {
+                    vectorDocuments.add(vectorDocument);
+                } else {
+                    linkedDocuments.add(vectorDocument);
+                    linkedSources.add(source);
+                }
             }
-        } catch (Exception e) {
-            log.error("Error processing document: {}", e.getMessage(), e);
-            content.setProcessingStatus("failed");
-            content.setProcessedAt(LocalDateTime.now());
-            documentContentsRepository.save(content);
+
+            vectorStore.add(vectorDocuments);
+            duplicates.save();
+            List<Document> unlinked = vectorStore.addWithEmbeddingsOf(linkedDocuments, linkedSources);
+            vectorStore.add(unlinked);
+            nearDuplicateDetector.recordUnique(vectorDocuments.size() + unlinked.size());
+            nearDuplicateDetector.recordLinked(linkedDocuments.size() - unlinked.size());
+            log.info("Added {} chunks to vector store, {} of them linked to near-duplicates",
+                    vectorDocuments.size() + linkedDocuments.size(), linkedDocuments.size() - unlinked.size());
+
+            nextIndex += chunkTexts.size();
+            chunkTexts.clear();
+            knownTopics.clear();
+            duplicateOf.clear();
         }
     }
-}
\ No newline at end of file
+
+    private static UUID chunkId(UUID contentId, int chunkIndex) {
+        return UUID.nameUUIDFromBytes((contentId + ":" + chunkIndex).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void markFailed(UUID documentId) {
+        documentContentStore.updateStatus(documentId, "failed");
+    }
+}
@@ -0,0 +1,83 @@
+package dev.forte.mygenius.ai.document_processing;
+
+import dev.forte.mygenius.ai.chunking.ChunkWriter;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+
+/**
+ * Extracts document text with Tika and pushes it straight into a chunker as the
+ * parser produces it, instead of building the whole text first. Parsers that
+ * need random access (PDF, zip based formats) get a temp file from
+ * {@link TikaInputStream}, not an in-memory copy.
+ *
+ * <p>Only the first {@code documents.extraction.stored-text-max-chars} characters
+ * are kept, for the {@code extracted_text} column.
+ */
+@Component
+public class StreamingTextExtractor {
+
+    public record ExtractedText(long length, String storedText) {
+    }
+
+    private final Parser parser = new AutoDetectParser();
+    private final int storedTextMaxChars;
+
+    public StreamingTextExtractor(@Value("${documents.extraction.stored-text-max-chars:1000000}") int storedTextMaxChars) {
+        this.storedTextMaxChars = storedTextMaxChars;
+    }
+
+    public ExtractedText extract(InputStream input, String fileName, String mimeType, ChunkWriter writer)
+            throws Exception {
+        Metadata metadata = new Metadata();
+        if (fileName != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName);
+        }
+        if (mimeType != null) {
+            metadata.set(Metadata.CONTENT_TYPE, mimeType);
+        }
+
+        ChunkingContentHandler handler = new ChunkingContentHandler(writer, storedTextMaxChars);
+        try (TikaInputStream stream = TikaInputStream.get(input)) {
+            parser.parse(stream, new BodyContentHandler(handler), metadata, new ParseContext());
+        }
+        return new ExtractedText(handler.length, handler.stored.toString());
+    }
+
+    private static class ChunkingContentHandler extends DefaultHandler {
+
+        private final ChunkWriter writer;
+        private final int storedMaxChars;
+        private final StringBuilder stored = new StringBuilder();
+        private long length;
+
+        ChunkingContentHandler(ChunkWriter writer, int storedMaxChars) {
+            this.writer = writer;
+            this.storedMaxChars = storedMaxChars;
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            writer.append(ch, start, length);
+            this.length += length;
+            if (stored.length() < storedMaxChars) {
+                stored.append(ch, start, Math.min(length, storedMaxChars - stored.length()));
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            // Tika reports the line breaks between paragraphs here
+            characters(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package dev.forte.mygenius.ai.embedding;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import dev.forte.mygenius.ai.openai.Deadline;
+import dev.forte.mygenius.ai.openai.OpenAiUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Micro-batches embedding requests in front of another {@link EmbeddingModel}.
+ * Texts from all concurrent callers go into one queue, and a dispatcher packs them
+ * into requests of at most {@code maxInputs} texts and {@code maxTokens} tokens,
+ * counted with the model's tokenizer. Each caller waits for its own texts only and
+ * gets its vectors in its own order, or the failure of the request that carried them.
+ *
+ * <p>The batch size follows the load. With no request in flight a text is sent
+ * at once, together with whatever else is queued, so a lone search pays no
+ * batching delay. While requests are in flight a batch is sent when it is full,
+ * or {@code window} after its first text arrived, and when all
+ * {@code maxConcurrentRequests} slots are busy it keeps filling until one frees
+ * up; batches grow exactly when the provider is the bottleneck. A batch the provider
+ * rejects as invalid is split in half and retried, down to single texts, so one
+ * bad input only fails its own caller.
+ *
+ * <p>At most {@code maxQueuedInputs} texts wait in the queue. Callers block for
+ * room up to {@code queueTimeout}, then fail with a {@link TransientAiException}
+ * that the ingestion retry picks up.
+ *
+ * <p>Only requests with the default options are batched; others, and single
+ * documents, go to the delegate directly.
+ */
+@Slf4j
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private record Pending(String text, int tokens, CompletableFuture<float[]> vector) {
+    }
+
+    private final EmbeddingModel delegate;
+    private final Encoding encoding;
+    private final long windowNanos;
+    private final int maxInputs;
+    private final int maxTokens;
+    private final int maxQueuedInputs;
+    private final int maxConcurrentRequests;
+    private final long queueTimeoutNanos;
+
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // Room in the queue, in texts
+    private final Semaphore queueRoom;
+    private final Semaphore requestSlots;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    // The batch being filled, and a text taken from the queue but left for the
+    // next batch; dispatcher only
+    private final List<Pending> open = new ArrayList<>();
+    private Pending carried;
+
+    private final DistributionSummary batchInputs;
+    private final DistributionSummary batchTokens;
+    private final Counter rejected;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, String encodingName, long windowMillis, int maxInputs,
+                                  int maxTokens, int maxQueuedInputs, long queueTimeoutMillis,
+                                  int maxConcurrentRequests, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.encoding = Encodings.newLazyEncodingRegistry().getEncoding(encodingName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown tokenizer encoding: " + encodingName));
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxInputs = maxInputs;
+        this.maxTokens = maxTokens;
+        this.maxQueuedInputs = maxQueuedInputs;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.queueRoom = new Semaphore(maxQueuedInputs);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestSlots = new Semaphore(maxConcurrentRequests);
+        this.batchInputs = DistributionSummary.builder("embedding.batch.inputs")
+                .description("Texts per embedding request sent to the provider")
+                .register(meterRegistry);
+        this.batchTokens = DistributionSummary.builder("embedding.batch.tokens")
+                .description("Tokens per embedding request sent to the provider")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("embedding.batch.rejected")
+                .description("Embedding requests that found the queue full for too long")
+                .register(meterRegistry);
+        Gauge.builder("embedding.batch.queued", queue, LinkedBlockingQueue::size)
+                .description("Texts waiting for an embedding request")
+                .register(meterRegistry);
+        this.dispatcher = Thread.ofPlatform().daemon().name("embedding-batcher").start(this::dispatch);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!isDefault(request.getOptions())) {
+            return delegate.call(request);
+        }
+        List<String> texts = request.getInstructions();
+        List<Pending> pending = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += maxQueuedInputs) {
+            List<String> slice = texts.subList(from, Math.min(texts.size(), from + maxQueuedInputs));
+            List<Pending> items = new ArrayList<>(slice.size());
+            for (String text : slice) {
+                items.add(new Pending(text, encoding.countTokens(text), new CompletableFuture<>()));
+            }
+            awaitRoom(items.size());
+            // Enqueued together, so an idle dispatcher sends them in one request
+            synchronized (queue) {
+                queue.addAll(items);
+            }
+            pending.addAll(items);
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            embeddings.add(new Embedding(await(pending.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings, new EmbeddingResponseMetadata());
+    }
+
+    // Waits no longer than the caller's deadline; the text is still embedded
+    private static float[] await(Pending pending) {
+        try {
+            return pending.vector().get(Math.max(0, Deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new OpenAiUnavailableException("Deadline passed while waiting for embeddings");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAiUnavailableException("Interrupted while waiting for embeddings");
+        }
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        executor.shutdown();
+    }
+
+    private void awaitRoom(int texts) {
+        try {
+            if (!queueRoom.tryAcquire(texts, queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new TransientAiException("Embedding queue full, " + queue.size() + " texts waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientAiException("Interrupted while waiting for room in the embedding queue");
+        }
+    }
+
+    private static boolean isDefault(EmbeddingOptions options) {
+        return options == null || (options.getModel() == null && options.getDimensions() == null);
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                fillBatch();
+                List<Pending> batch = List.copyOf(open);
+                open.clear();
+                queueRoom.release(batch.size());
+                executor.execute(() -> {
+                    try {
+                        send(batch);
+                    } finally {
+                        requestSlots.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                if (running) {
+                    log.warn("Embedding dispatcher interrupted, continuing");
+                }
+            } catch (RuntimeException e) {
+                log.error("Embedding dispatcher failed to start a request", e);
+            }
+        }
+
+        // Shut down: nothing left will be sent
+        List<Pending> unsent = new ArrayList<>(open);
+        if (carried != null) {
+            unsent.add(carried);
+        }
+        queue.drainTo(unsent);
+        unsent.forEach(pending -> pending.vector().completeExceptionally(
+                new TransientAiException("The embedding batcher is shut down")));
+    }
+
+    /**
+     * Waits for texts and a free request slot, and fills the open batch; returns
+     * with the slot taken.
+     */
+    private void fillBatch() throws InterruptedException {
+        List<Pending> batch = open;
+        if (batch.isEmpty()) {
+            batch.add(carried != null ? carried : queue.take());
+            carried = null;
+        }
+        int tokens = batch.stream().mapToInt(Pending::tokens).sum();
+
+        if (requestSlots.availablePermits() == maxConcurrentRequests) {
+            // Idle: take what is queued, including the rest of the first text's request
+            synchronized (queue) {
+                Pending next;
+                while (carried == null && batch.size() < maxInputs && (next = queue.poll()) != null) {
+                    tokens = addOrCarry(batch, tokens, next);
+                }
+            }
+        } else {
+            // Fill the batch for at most the window
+            long deadline = System.nanoTime() + windowNanos;
+            while (carried == null && batch.size() < maxInputs) {
+                Pending next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                tokens = addOrCarry(batch, tokens, next);
+            }
+        }
+
+        // Keep filling while every request slot is busy
+        while (!requestSlots.tryAcquire()) {
+            if (carried != null || batch.size() >= maxInputs) {
+                requestSlots.acquire();
+                break;
+            }
+            Pending next = queue.poll(1, TimeUnit.MILLISECONDS);
+            if (next != null) {
+                tokens = addOrCarry(batch, tokens, next);
+            }
+        }
+    }
+
+    private int addOrCarry(List<Pending> batch, int tokens, Pending next) {
+        if (tokens + next.tokens() > maxTokens) {
+            carried = next;
+            return tokens;
+        }
+        batch.add(next);
+        return tokens + next.tokens();
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(
+                    batch.stream().map(Pending::text).toList(), EmbeddingOptionsBuilder.builder().build()));
+            batchInputs.record(batch.size());
+            batchTokens.record(batch.stream().mapToInt(Pending::tokens).sum());
+            for (Embedding embedding : response.getResults()) {
+                batch.get(embedding.getIndex()).vector().complete(embedding.getOutput());
+            }
+            for (Pending pending : batch) {
+                if (!pending.vector().isDone()) {
+                    pending.vector().completeExceptionally(
+                            new IllegalStateException("The embedding response has no vector for an input"));
+                }
+            }
+        } catch (NonTransientAiException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().vector().completeExceptionally(e);
+                return;
+            }
+            log.warn("Embedding request of {} texts rejected, retrying in halves: {}", batch.size(), e.getMessage());
+            send(batch.subList(0, batch.size() / 2));
+            send(batch.subList(batch.size() / 2, batch.size()));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.vector().completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package dev.forte.mygenius.ai.embedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Caches embeddings in front of another {@link EmbeddingModel}, keyed by the model
+ * and the SHA-256 of the normalized text (NFC, whitespace runs collapsed, trimmed).
+ *
+ * <p>Lookups go to a size-bounded in-process Caffeine cache first, then to the
+ * {@code embedding_cache} table. Only texts missing from both are sent to the
+ * model, once each, and the results are written to both tiers. A request whose
+ * texts are all cached never reaches the network.
+ *
+ * <p>Failures of the database tier are logged and treated as misses, the cache
+ * never fails an embedding request that the model could serve.
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final HexFormat HEX = HexFormat.of();
+
+    // Rough per-entry overhead of the key, the array header and the cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final EmbeddingModel delegate;
+    private final String defaultModel;
+    private final EmbeddingCacheTable table;
+    private final Cache<String, float[]> memory;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, String defaultModel, JdbcTemplate jdbcTemplate,
+                                 long maxMemoryBytes, MeterRegistry meterRegistry) {
+        this(delegate, defaultModel, new EmbeddingCacheTable(jdbcTemplate), maxMemoryBytes, meterRegistry);
+    }
+
+    CachingEmbeddingModel(EmbeddingModel delegate, String defaultModel, EmbeddingCacheTable table,
+                          long maxMemoryBytes, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.defaultModel = defaultModel;
+        this.table = table;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, float[] vector) -> ENTRY_OVERHEAD_BYTES + vector.length * Float.BYTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "embeddings");
+        this.databaseHits = Counter.builder("embedding.cache.database")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.databaseMisses = Counter.builder("embedding.cache.database")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        String model = modelOf(request.getOptions());
+        List<String> texts = request.getInstructions();
+
+        // Cache keys, one per input text; identical texts share a key
+        List<String> hashes = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            hashes.add(hash(text));
+        }
+
+        // Texts not in memory are collected once each, in request order
+        Map<String, float[]> byHash = new HashMap<>();
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String hash = hashes.get(i);
+            if (byHash.containsKey(hash) || missing.containsKey(hash)) {
+                continue;
+            }
+            float[] vector = memory.getIfPresent(memoryKey(model, hash));
+            if (vector != null) {
+                byHash.put(hash, vector);
+            } else {
+                missing.put(hash, texts.get(i));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, float[]> stored = findStored(model, List.copyOf(missing.keySet()));
+            stored.forEach((hash, vector) -> {
+                byHash.put(hash, vector);
+                memory.put(memoryKey(model, hash), vector);
+                missing.remove(hash);
+            });
+        }
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+        metadata.setModel(model);
+        if (!missing.isEmpty()) {
+            EmbeddingResponse response = delegate.call(
+                    new EmbeddingRequest(List.copyOf(missing.values()), request.getOptions()));
+            Map<String, float[]> computed = new HashMap<>();
+            List<String> missingHashes = List.copyOf(missing.keySet());
+            for (Embedding embedding : response.getResults()) {
+                String hash = missingHashes.get(embedding.getIndex());
+                computed.put(hash, embedding.getOutput());
+                memory.put(memoryKey(model, hash), embedding.getOutput());
+            }
+            byHash.putAll(computed);
+            store(model, computed);
+            metadata = response.getMetadata();
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            embeddings.add(new Embedding(byHash.get(hashes.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        // The delegate decides which metadata goes into the embedded text, so
+        // single documents are passed through; stores embed in batches via call()
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private Map<String, float[]> findStored(String model, List<String> hashes) {
+        try {
+            Map<String, float[]> stored = table.findAll(model, hashes);
+            databaseHits.increment(stored.size());
+            databaseMisses.increment(hashes.size() - stored.size());
+            return stored;
+        } catch (Exception e) {
+            log.warn("Embedding cache lookup failed, embedding {} texts: {}", hashes.size(), e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private void store(String model, Map<String, float[]> computed) {
+        try {
+            table.saveAll(model, computed);
+        } catch (Exception e) {
+            log.warn("Failed to store {} embeddings in the cache: {}", computed.size(), e.getMessage());
+        }
+    }
+
+    private String modelOf(EmbeddingOptions options) {
+        String model = options != null && options.getModel() != null ? options.getModel() : defaultModel;
+        if (options != null && options.getDimensions() != null) {
+            // Shortened embeddings of the same model are different vectors
+            model = model + "/" + options.getDimensions();
+        }
+        return model;
+    }
+
+    private static String memoryKey(String model, String hash) {
+        return model + "|" + hash;
+    }
+
+    static String normalize(String text) {
+        return WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Hex SHA-256 of the normalized text, the key an embedding is cached under.
+     */
+    public static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
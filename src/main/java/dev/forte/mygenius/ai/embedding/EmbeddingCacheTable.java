@@ -0,0 +1,70 @@
+package dev.forte.mygenius.ai.embedding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Array;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent tier of the embedding cache: the {@code embedding_cache} table,
+ * keyed by model and text hash. Vectors are stored as little-endian float32
+ * {@code bytea}, 4 bytes per dimension.
+ */
+class EmbeddingCacheTable {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    EmbeddingCacheTable(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the stored vectors for those of {@code textHashes} (hex) that are
+     * present, keyed by hash.
+     */
+    Map<String, float[]> findAll(String model, List<String> textHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(
+                    "SELECT text_hash, embedding FROM embedding_cache WHERE model = ? AND text_hash = ANY (?)");
+            Array hashes = connection.createArrayOf("bytea", textHashes.stream().map(HEX::parseHex).toArray());
+            statement.setString(1, model);
+            statement.setArray(2, hashes);
+            return statement;
+        }, rs -> {
+            found.put(HEX.formatHex(rs.getBytes("text_hash")), toFloats(rs.getBytes("embedding")));
+        });
+        return found;
+    }
+
+    void saveAll(String model, Map<String, float[]> embeddings) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO embedding_cache (model, text_hash, embedding, created_at)
+                VALUES (?, ?, ?, now())
+                ON CONFLICT (model, text_hash) DO NOTHING
+                """, embeddings.entrySet(), embeddings.size(), (ps, entry) -> {
+            ps.setString(1, model);
+            ps.setBytes(2, HEX.parseHex(entry.getKey()));
+            ps.setBytes(3, toBytes(entry.getValue()));
+        });
+    }
+
+    static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] toFloats(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,55 @@
+package dev.forte.mygenius.ai.image_processing;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands the tokens of an image description from the ingestion worker producing
+ * it to the clients following it over SSE. Each stream replays everything
+ * produced so far, so a client that connects mid-way still gets the whole text.
+ *
+ * <p>Either side may create the stream for an image: a client that connects
+ * before the worker starts simply waits on it. A stream is dropped once its
+ * producer is done, or when its last client leaves before any producer came.
+ * Streams only exist on the instance running the worker; clients connected
+ * elsewhere fall back to the stored description.
+ */
+@Component
+public class DescriptionStreams {
+
+    private static final class Stream {
+        private final Sinks.Many<String> sink = Sinks.many().replay().all();
+        private volatile boolean producing;
+    }
+
+    private final ConcurrentHashMap<UUID, Stream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the sink the worker describing {@code imageId} emits its tokens to.
+     */
+    Sinks.Many<String> startProducing(UUID imageId) {
+        Stream stream = streams.computeIfAbsent(imageId, id -> new Stream());
+        stream.producing = true;
+        return stream.sink;
+    }
+
+    /**
+     * Drops the stream after its producer completed or failed it. Clients already
+     * subscribed keep their subscription until they have seen the end.
+     */
+    void finishProducing(UUID imageId, Sinks.Many<String> sink) {
+        streams.computeIfPresent(imageId, (id, stream) -> stream.sink == sink ? null : stream);
+    }
+
+    Flux<String> follow(UUID imageId) {
+        Stream stream = streams.computeIfAbsent(imageId, id -> new Stream());
+        return stream.sink.asFlux()
+                .doFinally(signal -> streams.computeIfPresent(imageId, (id, current) ->
+                        current == stream && !current.producing && current.sink.currentSubscriberCount() == 0
+                                ? null : current));
+    }
+}
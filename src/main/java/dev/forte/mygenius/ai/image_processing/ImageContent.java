@@ -26,8 +26,8 @@ public class ImageContent {
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
-    @Column(name = "content_data", columnDefinition = "bytea")
-    private byte[] contentData;
+    @Column(name = "blob_key")
+    private String blobKey;
 
     // Add missing getters and setters
     public String getExtractedText() {
@@ -79,11 +79,11 @@ public class ImageContent {
         this.imageId = imageId;
     }
 
-    public byte[] getContentData() {
-        return contentData;
+    public String getBlobKey() {
+        return blobKey;
     }
 
-    public void setContentData(byte[] contentData) {
-        this.contentData = contentData;
+    public void setBlobKey(String blobKey) {
+        this.blobKey = blobKey;
     }
 }
\ No newline at end of file
@@ -1,8 +1,12 @@
 package dev.forte.mygenius.ai.image_processing;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +15,27 @@ public interface ImageContentRepository extends JpaRepository<ImageContent, UUID
     Optional<ImageContent> findByImageId(UUID imageId);
 
     void deleteByImageId(UUID contentId);
+
+    /**
+     * Images of {@code userId} whose bytes are {@code blobKey} and that were processed successfully.
+     * Their rows stay share-locked until the caller's transaction ends, so an upload
+     * pointed at one can't lose it to a concurrent delete.
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("""
+            SELECT c.imageId FROM ImageContent c, Image i
+            WHERE i.imageId = c.imageId AND i.userId = :userId AND c.blobKey = :blobKey
+              AND c.processingStatus = 'completed'
+            """)
+    List<UUID> findProcessedImageIds(UUID userId, String blobKey);
+
+    /**
+     * Descriptions generated for other uploads of the same bytes, by any user.
+     */
+    @Query("""
+            SELECT c.generatedDescription FROM ImageContent c
+            WHERE c.blobKey = :blobKey AND c.contentId <> :contentId
+              AND c.processingStatus = 'completed' AND c.generatedDescription IS NOT NULL
+            """)
+    List<String> findDescriptionsOfCopies(String blobKey, UUID contentId);
 }
\ No newline at end of file
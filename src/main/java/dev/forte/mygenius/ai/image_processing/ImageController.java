@@ -1,16 +1,21 @@
 package dev.forte.mygenius.ai.image_processing;
 
+import dev.forte.mygenius.ai.uploads.AcceptedUpload;
+import dev.forte.mygenius.paging.CursorPage;
 import dev.forte.mygenius.security.CustomUserPrincipal;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.Date;
@@ -21,6 +26,9 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/user/images")
 public class ImageController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ImageProcessingService imageProcessingService;
 
     public ImageController(ImageProcessingService imageProcessingService) {
@@ -43,36 +51,71 @@ public class ImageController {
                         .body(Map.of("error", "File is empty"));
             }
 
-            // Process the image
-            imageProcessingService.processUserImage(userPrincipal.getUserId(), file);
+            // Store the image and queue it, the vision call runs on an ingestion worker
+            AcceptedUpload accepted = imageProcessingService.acceptImage(userPrincipal.getUserId(), file);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Image processed successfully");
+            response.put("message", "Image upload initiated");
+            response.put("uploadId", accepted.upload().getUploadId());
             response.put("fileName", file.getOriginalFilename());
+            response.put("status", accepted.status());
             response.put("timestamp", new Date());
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Error processing image: " + e.getMessage()));
         }
     }
 
+    /**
+     * Follows the description of an uploaded image as it is generated, see
+     * {@link ImageProcessingService#streamDescription(UUID, UUID)}.
+     */
+    @GetMapping(value = "/{uploadId}/description", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamDescription(@AuthenticationPrincipal CustomUserPrincipal userPrincipal,
+                                                           @PathVariable UUID uploadId) {
+        if (userPrincipal == null) {
+            // Before any event is sent, so the client gets a plain 401
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not authenticated");
+        }
+        return imageProcessingService.streamDescription(userPrincipal.getUserId(), uploadId);
+    }
+
+    /**
+     * Names of the caller's images, newest first, a page at a time: pass the
+     * {@code nextCursor} of a page as {@code cursor} to get the next one. The older
+     * {@code page} parameter still gives offset paging with exact totals.
+     */
     @GetMapping("/imageFileNames")
     public ResponseEntity<Map<String, Object>> getImageFileNames(@AuthenticationPrincipal CustomUserPrincipal userPrincipal,
-                                                                 @RequestParam(defaultValue = "0") int page,
-                                                                 @RequestParam(defaultValue = "10") int size) {
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer page,
+                                                                 @RequestParam(defaultValue = "10") int size,
+                                                                 @RequestParam(defaultValue = "false") boolean includeTotal) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+        }
         UUID userId = userPrincipal.getUserId();
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<SimpleImageDTO> imageNamePage = imageProcessingService.getImageFileNames(userId, pageable);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("imageNames", imageNamePage.getContent());
-        response.put("currentPage", imageNamePage.getNumber());
-        response.put("totalItems", imageNamePage.getTotalElements());
-        response.put("totalPages", imageNamePage.getTotalPages());
 
-        return ResponseEntity.ok(response);
+        if (page != null && cursor == null) {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+            Page<SimpleImageDTO> imageNamePage = imageProcessingService.getImageFileNames(userId, pageable);
+            response.put("imageNames", imageNamePage.getContent());
+            response.put("currentPage", imageNamePage.getNumber());
+            response.put("totalItems", imageNamePage.getTotalElements());
+            response.put("totalPages", imageNamePage.getTotalPages());
+            return ResponseEntity.ok(response);
+        }
 
+        CursorPage<SimpleImageDTO> imageNames = imageProcessingService.listImageFileNames(userId, cursor, size);
+        response.put("imageNames", imageNames.items());
+        response.put("nextCursor", imageNames.nextCursor());
+        response.put("hasMore", imageNames.hasMore());
+        if (includeTotal) {
+            response.put("approximateTotal", imageProcessingService.approximateImageCount(userId));
+        }
+        return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
@@ -0,0 +1,383 @@
+package dev.forte.mygenius.ai.image_processing;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Turns a stored image into the data URL sent to the vision model. The image is
+ * decoded with {@code javax.imageio}, scaled down to what the model looks at,
+ * turned upright according to its EXIF orientation and re-encoded without any
+ * metadata (camera details, GPS position).
+ *
+ * <p>The default size limits are the ones the model applies itself in high detail
+ * mode: the image is made to fit in 2048x2048, then its short edge is brought
+ * down to 768 pixels. Anything larger only costs bandwidth.
+ *
+ * <p>The encoder writes straight through a Base64 encoder into the buffer holding
+ * the data URL, so the only full-size copy made is the final string, which stays
+ * one byte per character.
+ *
+ * <p>Formats ImageIO can't read (WebP, HEIC) are sent as they are, as before, and
+ * so are PNG and GIF images that need no scaling.
+ */
+@Slf4j
+@Component
+public class ImagePreprocessor {
+
+    /**
+     * Opens the original image. Called a second time if it has to be sent as is.
+     */
+    @FunctionalInterface
+    public interface ImageSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * What is sent to the model: a {@code data:} URL, its media type, the size of
+     * the image in it ({@code 0x0} when sent as is) and the URL length in bytes.
+     */
+    public record VisionImage(String dataUrl, MimeType mimeType, int width, int height, long sentBytes) {
+    }
+
+    private static final String EXIF_HEADER = "Exif\0\0";
+    private static final int APP1_MARKER = 0xE1;
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private final int maxLongEdge;
+    private final int maxShortEdge;
+    private final String outputFormat;
+    private final float jpegQuality;
+    private final DistributionSummary reencodedBytes;
+    private final DistributionSummary passthroughBytes;
+
+    public ImagePreprocessor(@Value("${images.preprocessing.max-long-edge-px:2048}") int maxLongEdge,
+                             @Value("${images.preprocessing.max-short-edge-px:768}") int maxShortEdge,
+                             @Value("${images.preprocessing.format:jpeg}") String outputFormat,
+                             @Value("${images.preprocessing.jpeg-quality:0.85}") float jpegQuality,
+                             MeterRegistry meterRegistry) {
+        if (!"jpeg".equals(outputFormat) && !"png".equals(outputFormat)) {
+            throw new IllegalArgumentException("images.preprocessing.format must be jpeg or png, not " + outputFormat);
+        }
+        this.maxLongEdge = maxLongEdge;
+        this.maxShortEdge = maxShortEdge;
+        this.outputFormat = outputFormat;
+        this.jpegQuality = jpegQuality;
+        this.reencodedBytes = bytesSent(meterRegistry, "reencoded");
+        this.passthroughBytes = bytesSent(meterRegistry, "passthrough");
+    }
+
+    private static DistributionSummary bytesSent(MeterRegistry meterRegistry, String result) {
+        return DistributionSummary.builder("images.vision.bytes")
+                .description("Size of the image data URLs sent to the vision model")
+                .baseUnit("bytes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public VisionImage prepare(ImageSource source) throws IOException {
+        BufferedImage image;
+        try (InputStream in = source.open();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            image = input == null ? null : decode(input);
+        }
+        if (image == null) {
+            return passthrough(source);
+        }
+
+        VisionImage prepared = encode(image);
+        reencodedBytes.record(prepared.sentBytes());
+        return prepared;
+    }
+
+    /**
+     * Decodes the image, already scaled down and upright, or returns {@code null}
+     * when the original should be sent as is: no ImageIO reader understands it,
+     * or it is a PNG or GIF that is small enough already. Those are mostly
+     * screenshots, which re-encoding would only make larger or blurrier.
+     */
+    private BufferedImage decode(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            log.warn("No image reader for this image, sending the original bytes");
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, true, false);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            double scale = scale(width, height);
+            String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+            if (scale == 1.0 && (format.equals("png") || format.equals("gif"))) {
+                return null;
+            }
+
+            // Let the decoder skip pixels first, keeping twice the target size so the
+            // final scaling still has enough of them to interpolate from
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = Math.max(1, (int) (1 / scale) / 2);
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+            int orientation = format.equals("jpeg") ? exifOrientation(reader) : 1;
+            BufferedImage decoded = reader.read(0, param);
+            return render(decoded, (int) Math.round(width * scale), (int) Math.round(height * scale), orientation);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Factor that brings the image within the size limits, at most 1.
+     */
+    double scale(int width, int height) {
+        double longEdge = Math.max(width, height);
+        double shortEdge = Math.min(width, height);
+        return Math.min(1.0, Math.min(maxLongEdge / longEdge, maxShortEdge / shortEdge));
+    }
+
+    /**
+     * Draws the image at {@code width} x {@code height}, rotated or flipped per
+     * its EXIF orientation, on an opaque white background.
+     */
+    private static BufferedImage render(BufferedImage source, int width, int height, int orientation) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        boolean swapped = orientation >= 5 && orientation <= 8;
+        BufferedImage target = new BufferedImage(swapped ? height : width, swapped ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+
+        AffineTransform transform = orientationTransform(orientation, width, height);
+        transform.concatenate(AffineTransform.getScaleInstance(
+                (double) width / source.getWidth(), (double) height / source.getHeight()));
+
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, target.getWidth(), target.getHeight());
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Maps a {@code width} x {@code height} image to its upright position for the
+     * eight EXIF orientations.
+     */
+    static AffineTransform orientationTransform(int orientation, int width, int height) {
+        return switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, width);
+            default -> new AffineTransform();
+        };
+    }
+
+    private static int exifOrientation(ImageReader reader) throws IOException {
+        IIOMetadata metadata;
+        try {
+            metadata = reader.getImageMetadata(0);
+        } catch (IIOException e) {
+            // Markers out of the order ImageIO expects; the pixels are still readable
+            log.debug("Unreadable JPEG metadata, assuming the image is upright: {}", e.getMessage());
+            return 1;
+        }
+        if (metadata == null) {
+            return 1;
+        }
+        Node markers = child(metadata.getAsTree("javax_imageio_jpeg_image_1.0"), "markerSequence");
+        for (Node marker = markers == null ? null : markers.getFirstChild(); marker != null;
+             marker = marker.getNextSibling()) {
+            if ("unknown".equals(marker.getNodeName())
+                    && String.valueOf(APP1_MARKER).equals(((IIOMetadataNode) marker).getAttribute("MarkerTag"))
+                    && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] data) {
+                int orientation = exifOrientation(data);
+                if (orientation != 0) {
+                    return orientation;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static Node child(Node node, String name) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (name.equals(child.getNodeName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the orientation tag from the first IFD of an APP1 EXIF segment, or
+     * returns 0 when there is none.
+     */
+    static int exifOrientation(byte[] app1) {
+        int tiff = EXIF_HEADER.length();
+        if (app1.length < tiff + 8
+                || !new String(app1, 0, tiff, StandardCharsets.ISO_8859_1).equals(EXIF_HEADER)) {
+            return 0;
+        }
+        boolean littleEndian = app1[tiff] == 'I' && app1[tiff + 1] == 'I';
+        int ifd = tiff + readInt(app1, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = readShort(app1, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                break;
+            }
+            if (readShort(app1, entry, littleEndian) == ORIENTATION_TAG) {
+                int orientation = readShort(app1, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int first = data[offset] & 0xFF;
+        int second = data[offset + 1] & 0xFF;
+        return littleEndian ? second << 8 | first : first << 8 | second;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return high << 16 | low;
+    }
+
+    private VisionImage encode(BufferedImage image) throws IOException {
+        MimeType mimeType = "png".equals(outputFormat) ? MimeTypeUtils.IMAGE_PNG : MimeTypeUtils.IMAGE_JPEG;
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(outputFormat).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if ("jpeg".equals(outputFormat)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+        }
+
+        DataUrlBuffer buffer = new DataUrlBuffer(mimeType, image.getWidth() * image.getHeight() / 2);
+        try (OutputStream base64 = Base64.getEncoder().wrap(buffer.content());
+             ImageOutputStream output = new MemoryCacheImageOutputStream(base64)) {
+            writer.setOutput(output);
+            // No metadata: only the pixels leave the server
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toVisionImage(image.getWidth(), image.getHeight());
+    }
+
+    private VisionImage passthrough(ImageSource source) throws IOException {
+        MimeType mimeType;
+        DataUrlBuffer buffer;
+        try (InputStream in = source.open()) {
+            byte[] head = in.readNBytes(12);
+            mimeType = sniff(head);
+            buffer = new DataUrlBuffer(mimeType, 64 * 1024);
+            try (OutputStream base64 = Base64.getEncoder().wrap(buffer.content())) {
+                base64.write(head);
+                in.transferTo(base64);
+            }
+        }
+        VisionImage prepared = buffer.toVisionImage(0, 0);
+        passthroughBytes.record(prepared.sentBytes());
+        return prepared;
+    }
+
+    /**
+     * Media type of the formats the vision model accepts, from their signature.
+     * Anything else is labelled JPEG and left to the model to reject.
+     */
+    static MimeType sniff(byte[] head) {
+        String ascii = new String(head, StandardCharsets.ISO_8859_1);
+        if (ascii.startsWith("\u0089PNG")) {
+            return MimeTypeUtils.IMAGE_PNG;
+        }
+        if (ascii.startsWith("GIF8")) {
+            return MimeTypeUtils.IMAGE_GIF;
+        }
+        if (ascii.startsWith("RIFF") && ascii.length() >= 12 && ascii.startsWith("WEBP", 8)) {
+            return MimeType.valueOf("image/webp");
+        }
+        return MimeTypeUtils.IMAGE_JPEG;
+    }
+
+    /**
+     * Collects a data URL as ASCII bytes. The encoders write into {@link #content()},
+     * which ignores {@code close()} so closing them (and flushing the Base64 padding)
+     * leaves the buffer readable.
+     */
+    private static final class DataUrlBuffer {
+
+        private final MimeType mimeType;
+        private final ByteArrayOutputStream bytes;
+
+        DataUrlBuffer(MimeType mimeType, int expectedBytes) {
+            this.mimeType = mimeType;
+            this.bytes = new ByteArrayOutputStream(Math.max(1024, expectedBytes * 4 / 3));
+            bytes.writeBytes(("data:" + mimeType + ";base64,").getBytes(StandardCharsets.US_ASCII));
+        }
+
+        OutputStream content() {
+            return new FilterOutputStream(bytes) {
+                @Override
+                public void write(byte[] data, int offset, int length) {
+                    bytes.write(data, offset, length);
+                }
+
+                @Override
+                public void close() {
+                    // Keep the buffer open
+                }
+            };
+        }
+
+        VisionImage toVisionImage(int width, int height) {
+            return new VisionImage(bytes.toString(StandardCharsets.ISO_8859_1), mimeType, width, height, bytes.size());
+        }
+    }
+}
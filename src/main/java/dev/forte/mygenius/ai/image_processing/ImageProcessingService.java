@@ -1,111 +1,389 @@
 package dev.forte.mygenius.ai.image_processing;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.forte.mygenius.ai.ingestion.IngestionJob;
+import dev.forte.mygenius.ai.ingestion.IngestionJobService;
+import dev.forte.mygenius.ai.uploads.AcceptedUpload;
+import dev.forte.mygenius.ai.uploads.DeduplicationMetrics;
 import dev.forte.mygenius.ai.uploads.Upload;
 import dev.forte.mygenius.ai.uploads.UploadRepository;
-import dev.forte.mygenius.ai.uploads.UploadService;
+import dev.forte.mygenius.ai.vector_store.PartitionedVectorStore;
+import dev.forte.mygenius.errors.ResourceNotFoundException;
+import dev.forte.mygenius.paging.ApproximateTotals;
+import dev.forte.mygenius.paging.Cursor;
+import dev.forte.mygenius.paging.CursorPage;
+import dev.forte.mygenius.storage.BlobReferences;
+import dev.forte.mygenius.storage.BlobStore;
+import dev.forte.mygenius.storage.ByteaSliceInputStream;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.model.Media;
-import org.springframework.ai.openai.OpenAiChatModel;
 
-import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+@Slf4j
 @Service
 public class ImageProcessingService {
+
+    private static final String TOKEN_EVENT = "token";
+    private static final String DONE_EVENT = "done";
+    private static final String ERROR_EVENT = "error";
+
+    // Slice size when reading image bytes still stored in image_contents.content_data
+    private static final int READ_SLICE_BYTES = 1024 * 1024;
+
     private final ImageRepository imageRepository;
     private final ImageContentRepository contentRepository;
-    private final PgVectorStore vectorStore;
-    private final OpenAiChatModel visionModel;
-    private final ObjectMapper objectMapper;
-   private final UploadRepository uploadRepository;
+    private final PartitionedVectorStore vectorStore;
+    private final ChatModel visionModel;
+    private final UploadRepository uploadRepository;
+    private final IngestionJobService ingestionJobService;
+    private final BlobStore blobStore;
+    private final BlobReferences blobReferences;
+    private final JdbcTemplate jdbcTemplate;
+    private final DeduplicationMetrics deduplicationMetrics;
+    private final DescriptionStreams descriptionStreams;
+    private final ImagePreprocessor imagePreprocessor;
+    private final ApproximateTotals approximateTotals;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${images.description-stream.poll-interval-ms:2000}")
+    private long streamPollIntervalMs;
+
+    @Value("${images.description-stream.timeout-seconds:600}")
+    private long streamTimeoutSeconds;
 
-    public ImageProcessingService(ImageRepository imageRepository, ImageContentRepository contentRepository, PgVectorStore vectorStore,
-                                  @Qualifier("openAiApi") OpenAiChatModel visionModel, ObjectMapper objectMapper, UploadRepository uploadRepository) {
+    public ImageProcessingService(ImageRepository imageRepository, ImageContentRepository contentRepository, PartitionedVectorStore vectorStore,
+                                  @Qualifier("openAiApi") ChatModel visionModel, UploadRepository uploadRepository,
+                                  IngestionJobService ingestionJobService, BlobStore blobStore,
+                                  BlobReferences blobReferences, JdbcTemplate jdbcTemplate,
+                                  DeduplicationMetrics deduplicationMetrics, DescriptionStreams descriptionStreams,
+                                  ImagePreprocessor imagePreprocessor, ApproximateTotals approximateTotals,
+                                  TransactionTemplate transactionTemplate) {
         this.imageRepository = imageRepository;
         this.contentRepository = contentRepository;
         this.vectorStore = vectorStore;
         this.visionModel = visionModel;
-        this.objectMapper = objectMapper;
         this.uploadRepository = uploadRepository;
+        this.ingestionJobService = ingestionJobService;
+        this.blobStore = blobStore;
+        this.blobReferences = blobReferences;
+        this.jdbcTemplate = jdbcTemplate;
+        this.deduplicationMetrics = deduplicationMetrics;
+        this.descriptionStreams = descriptionStreams;
+        this.imagePreprocessor = imagePreprocessor;
+        this.approximateTotals = approximateTotals;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    public void processUserImage(UUID userId, MultipartFile file) throws IOException {
-        // 1. Store image metadata
-        Image image = new Image();
-        image.setUserId(userId);
-        image.setFileName(file.getOriginalFilename());
-        image.setFileSize(file.getSize());
-        image.setMimeType(file.getContentType());
-        image.setCreatedAt(LocalDateTime.now());
-        imageRepository.save(image);
-
-        // 2. Store binary image data
-        ImageContent content = new ImageContent();
-        content.setImageId(image.getImageId());
-        content.setContentData(file.getBytes());
-        content.setProcessingStatus("pending"); // Set status
-        content.setExtractedText(null); // Will be filled later
-        content.setGeneratedDescription(null); // Will be filled after OpenAI processing
-        ImageContent savedContent = contentRepository.save(content);
+    /**
+     * Stores the image and queues it for processing. The vision call and the
+     * embedding run later on an ingestion worker, see {@link #processImage(UUID)}.
+     * The image, its content, the upload and the job are written in one
+     * transaction once the bytes are in the blob store.
+     *
+     * <p>If the user already has the same image processed, the new upload points at
+     * that image and its vector, and nothing is queued.
+     */
+    public AcceptedUpload acceptImage(UUID userId, MultipartFile file) throws IOException {
+        // The blob key is the SHA-256 of the file, computed while it is stored
+        String blobKey;
+        try (InputStream data = file.getInputStream()) {
+            blobKey = blobStore.put(data);
+        }
+
+        return transactionTemplate.execute(status -> {
+            blobReferences.deleteIfRolledBack(blobKey);
+
+            // Locks the image's content, so deleting its last upload waits for this one
+            List<UUID> processedImageIds = contentRepository.findProcessedImageIds(userId, blobKey);
+            if (!processedImageIds.isEmpty()) {
+                log.info("Image {} is a re-upload of image {}, reusing it", file.getOriginalFilename(),
+                        processedImageIds.getFirst());
+                Upload upload = saveUpload(userId, file, processedImageIds.getFirst(), LocalDateTime.now());
+                deduplicationMetrics.record("image", DeduplicationMetrics.SAME_USER);
+                return new AcceptedUpload(upload, IngestionJob.STATUS_COMPLETED);
+            }
+
+            // 1. Store image metadata
+            Image image = new Image();
+            image.setUserId(userId);
+            image.setFileName(file.getOriginalFilename());
+            image.setFileSize(file.getSize());
+            image.setMimeType(file.getContentType());
+            image.setCreatedAt(LocalDateTime.now());
+            imageRepository.save(image);
+
+            // 2. Store binary image data
+            ImageContent content = new ImageContent();
+            content.setImageId(image.getImageId());
+            content.setBlobKey(blobKey);
+            content.setProcessingStatus("pending"); // Set status
+            content.setExtractedText(null); // Will be filled later
+            content.setGeneratedDescription(null); // Will be filled after OpenAI processing
+            // Under the blob's lock, so a delete of another upload of the same bytes can't remove it meanwhile
+            blobReferences.insertReferencing(blobKey, file, () -> contentRepository.save(content));
+
+            Upload upload = saveUpload(userId, file, image.getImageId(), image.getCreatedAt());
+            ingestionJobService.enqueue(upload.getUploadId(), userId, "IMAGE", image.getImageId());
+            return new AcceptedUpload(upload, IngestionJob.STATUS_QUEUED);
+        });
+    }
 
+    private Upload saveUpload(UUID userId, MultipartFile file, UUID imageId, LocalDateTime createdAt) {
         Upload upload = new Upload();
         upload.setUserId(userId);
         upload.setFileName(file.getOriginalFilename());
-        upload.setFileType("IMAGE"); // or "IMAGE"
-        upload.setContentId(image.getImageId()); // or image.getImageId()
-        uploadRepository.save(upload);
+        upload.setFileType("IMAGE");
+        upload.setContentId(imageId);
+        upload.setCreatedAt(createdAt);
+        return uploadRepository.save(upload);
+    }
+
+    /**
+     * Describes a stored image with the vision model and embeds the description.
+     * Called by the ingestion worker; exceptions are retried with backoff.
+     *
+     * <p>The description is streamed from the model and every token is published to
+     * {@link DescriptionStreams} as it arrives, for clients following the upload
+     * through {@link #streamDescription(UUID, UUID)}. The stream completes once the
+     * description is stored and embedded.
+     */
+    public void processImage(UUID imageId) {
+        Image image = imageRepository.findById(imageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + imageId));
+        ImageContent savedContent = contentRepository.findByImageId(imageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Image content not found: " + imageId));
+        UUID userId = image.getUserId();
+
+        Sinks.Many<String> tokens = descriptionStreams.startProducing(imageId);
+        try {
+            // Another upload of the same image, by any user, may already have been described
+            String imageDescription = null;
+            if (savedContent.getBlobKey() != null) {
+                imageDescription = contentRepository
+                        .findDescriptionsOfCopies(savedContent.getBlobKey(), savedContent.getContentId())
+                        .stream().findFirst().orElse(null);
+            }
+            boolean reused = imageDescription != null;
+            if (reused) {
+                log.info("Image {} has the same content as an image already described, reusing the description", imageId);
+                tokens.tryEmitNext(imageDescription);
+            } else {
+                imageDescription = describeImage(savedContent, tokens);
+            }
+
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("user_id", userId.toString());
+            metadata.put("content_id", savedContent.getContentId().toString());
+            metadata.put("content_type", "description");
+
+            // Stable id so a retried job overwrites its earlier vector instead of adding a second one
+            String vectorId = UUID.nameUUIDFromBytes((savedContent.getContentId() + ":description")
+                    .getBytes(StandardCharsets.UTF_8)).toString();
+            Document document = new Document(vectorId, imageDescription, metadata);
+
+            log.info("Embedding the description of image {}", imageId);
+            vectorStore.add(Collections.singletonList(document));
+
+            savedContent.setGeneratedDescription(imageDescription);
+            savedContent.setProcessingStatus("completed");
+            savedContent.setProcessedAt(LocalDateTime.now());
+            contentRepository.save(savedContent);
+            deduplicationMetrics.record("image", reused ? DeduplicationMetrics.CROSS_USER : DeduplicationMetrics.MISS);
+
+            tokens.tryEmitComplete();
+        } catch (RuntimeException e) {
+            tokens.tryEmitError(e);
+            throw e;
+        } finally {
+            descriptionStreams.finishProducing(imageId, tokens);
+        }
+    }
 
+    /**
+     * Streams the description of an image upload as Server-Sent Events: {@code token}
+     * events carry the text as the model produces it, then a single {@code done} or
+     * {@code error} event ends the stream. An image described already, or described
+     * on another instance, arrives as one {@code token} event with the whole text.
+     */
+    public Flux<ServerSentEvent<String>> streamDescription(UUID userId, UUID uploadId) {
+        Upload upload = uploadRepository.findByUploadIdAndUserId(uploadId, userId)
+                .filter(found -> "IMAGE".equals(found.getFileType()))
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Image upload not found or doesn't belong to user"));
+        UUID imageId = upload.getContentId();
 
-        // 3. Generate base64 encoding of image for OpenAI
-        String base64Image = Base64.getEncoder().encodeToString(file.getBytes());
-        String dataUrl = "data:image/jpeg;base64," + base64Image;
+        // Follow the live stream before looking at the stored state, so a
+        // description finishing in between is seen by one or the other
+        AtomicBoolean streamed = new AtomicBoolean();
+        Flux<ServerSentEvent<String>> live = descriptionStreams.follow(imageId)
+                .doOnNext(token -> streamed.set(true))
+                .map(token -> event(TOKEN_EVENT, token))
+                .concatWith(Mono.just(event(DONE_EVENT, "")))
+                .onErrorResume(e -> Mono.just(event(ERROR_EVENT, "Description failed, it will be retried")));
+
+        Flux<ServerSentEvent<String>> stored = Flux.interval(Duration.ZERO, Duration.ofMillis(streamPollIntervalMs))
+                .concatMap(tick -> Mono.fromCallable(() -> storedOutcome(imageId, streamed.get()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .concatMapIterable(events -> events);
+
+        // Comments keep proxies from closing the connection while the upload waits in the queue
+        Flux<ServerSentEvent<String>> keepAlive = Flux.interval(Duration.ofSeconds(15))
+                .map(tick -> ServerSentEvent.<String>builder().comment("keep-alive").build());
+
+        return Flux.merge(live, stored, keepAlive)
+                .takeUntil(event -> DONE_EVENT.equals(event.event()) || ERROR_EVENT.equals(event.event()))
+                .timeout(Duration.ofSeconds(streamTimeoutSeconds),
+                        Mono.just(event(ERROR_EVENT, "Timed out waiting for the description")));
+    }
+
+    private List<ServerSentEvent<String>> storedOutcome(UUID imageId, boolean streamed) {
+        Optional<ImageContent> content = contentRepository.findByImageId(imageId);
+        if (content.isEmpty()) {
+            return List.of(event(ERROR_EVENT, "Image not found"));
+        }
+        String status = content.get().getProcessingStatus();
+        if ("completed".equals(status)) {
+            if (streamed) {
+                return List.of(event(DONE_EVENT, ""));
+            }
+            return List.of(event(TOKEN_EVENT, content.get().getGeneratedDescription()), event(DONE_EVENT, ""));
+        }
+        if ("failed".equals(status)) {
+            return List.of(event(ERROR_EVENT, "Image processing failed"));
+        }
+        return List.of();
+    }
+
+    private static ServerSentEvent<String> event(String name, String data) {
+        return ServerSentEvent.<String>builder().event(name).data(data).build();
+    }
+
+    private String describeImage(ImageContent content, Sinks.Many<String> tokens) {
+        // 3. Scale down, strip metadata and base64-encode the image for OpenAI
+        ImagePreprocessor.VisionImage visionImage;
+        try {
+            visionImage = imagePreprocessor.prepare(() -> openImage(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read image " + content.getImageId(), e);
+        }
+        log.info("Sending image {} to the vision model as {}x{} {}, {} bytes", content.getImageId(),
+                visionImage.width(), visionImage.height(), visionImage.mimeType(), visionImage.sentBytes());
 
         Media imageMedia = Media.builder()
-                .mimeType(Media.Format.IMAGE_JPEG)
-                .data(dataUrl)  // Pass the data URL string directly here
+                .mimeType(visionImage.mimeType())
+                .data(visionImage.dataUrl())  // Pass the data URL string directly here
                 .build();
 
-        String imageDescription = ChatClient.builder(visionModel)
+        StringBuilder description = new StringBuilder();
+        ChatClient.builder(visionModel)
                 .build()
                 .prompt()
                 .system("You are an assistant that does two things: If an image is uploaded without text, you will generate a detailed description of the image. " +
                         "If the image does have text, you must parse the text from the image, word for word. Do not summarize it, just parse the text in its entirety.")
                 .user(u -> u.text("This is the upload:")
                         .media(imageMedia))
-                .call()
-                .content();
-
-        System.out.println(imageDescription);
+                .stream()
+                .content()
+                .doOnNext(token -> {
+                    description.append(token);
+                    tokens.tryEmitNext(token);
+                })
+                // The ingestion worker runs on a virtual thread, waiting here is cheap
+                .blockLast();
+        return description.toString();
+    }
 
-        savedContent.setGeneratedDescription(imageDescription);
-        savedContent.setProcessingStatus("completed");
-        contentRepository.save(savedContent);
+    private InputStream openImage(ImageContent content) throws IOException {
+        return content.getBlobKey() != null
+                ? blobStore.open(content.getBlobKey())
+                // Not moved to the blob store yet
+                : new ByteaSliceInputStream(jdbcTemplate, "image_contents", "content_data", "content_id",
+                        content.getContentId(), READ_SLICE_BYTES);
+    }
 
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("user_id", userId.toString());
-        metadata.put("content_id", savedContent.getContentId().toString());
-        metadata.put("content_type", "description");
+    public void markFailed(UUID imageId) {
+        contentRepository.findByImageId(imageId).ifPresent(content -> {
+            content.setProcessingStatus("failed");
+            content.setProcessedAt(LocalDateTime.now());
+            contentRepository.save(content);
+        });
+    }
 
-        Document document = new Document(imageDescription, metadata);
+    /**
+     * @deprecated offset paging with a total count, use {@link #listImageFileNames(UUID, String, int)}
+     */
+    @Deprecated
+    public Page<SimpleImageDTO> getImageFileNames(UUID userId, Pageable pageable) {
+      return imageRepository.findSimpleIMagesByUserId(userId, pageable);
 
+    }
 
-        System.out.println("Embedding the image description");
-        vectorStore.add(Collections.singletonList(document));
+    /**
+     * The user's images, newest first, {@code size} at a time from {@code cursor}
+     * (null for the first page). Each page is one seek on
+     * {@code idx_images_user_created}, and no count is run.
+     */
+    public CursorPage<SimpleImageDTO> listImageFileNames(UUID userId, String cursor, int size) {
+        RowMapper<ImageRow> rowMapper = (rs, rowNum) -> new ImageRow(rs.getObject("image_id", UUID.class),
+                new SimpleImageDTO(rs.getString("file_name"), userId, rs.getObject("uploaded_at", LocalDateTime.class)));
+        List<ImageRow> rows;
+        if (cursor == null) {
+            rows = jdbcTemplate.query("""
+                    SELECT image_id, file_name, uploaded_at FROM images
+                    WHERE user_id = ?
+                    ORDER BY uploaded_at DESC, image_id DESC
+                    LIMIT ?
+                    """, rowMapper, userId, size + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            rows = jdbcTemplate.query("""
+                    SELECT image_id, file_name, uploaded_at FROM images
+                    WHERE user_id = ? AND (uploaded_at, image_id) < (?, ?)
+                    ORDER BY uploaded_at DESC, image_id DESC
+                    LIMIT ?
+                    """, rowMapper, userId, after.createdAt(), after.id(), size + 1);
+        }
+        CursorPage<ImageRow> page = CursorPage.of(rows, size,
+                row -> new Cursor(row.image().getCreatedAt(), row.imageId()));
+        return new CursorPage<>(page.items().stream().map(ImageRow::image).toList(), page.nextCursor());
     }
 
-    public Page<SimpleImageDTO> getImageFileNames(UUID userId, Pageable pageable) {
-      return imageRepository.findSimpleIMagesByUserId(userId, pageable);
+    private record ImageRow(UUID imageId, SimpleImageDTO image) {
+    }
 
+    /**
+     * The number of images the user has, up to {@code paging.totals.ttl} old.
+     */
+    public long approximateImageCount(UUID userId) {
+        return approximateTotals.get("images", userId, () -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM images WHERE user_id = ?", Long.class, userId));
     }
 }
\ No newline at end of file
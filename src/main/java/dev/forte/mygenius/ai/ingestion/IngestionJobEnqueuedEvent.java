@@ -0,0 +1,10 @@
+package dev.forte.mygenius.ai.ingestion;
+
+import java.util.UUID;
+
+/**
+ * Published after a job row is inserted so the local worker can pick it up
+ * without waiting for the next poll.
+ */
+public record IngestionJobEnqueuedEvent(UUID jobId) {
+}
@@ -0,0 +1,11 @@
+package dev.forte.mygenius.ai.ingestion;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, UUID> {
+
+    Optional<IngestionJob> findFirstByUploadIdOrderByCreatedAtDesc(UUID uploadId);
+}
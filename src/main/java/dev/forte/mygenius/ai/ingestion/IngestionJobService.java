@@ -0,0 +1,214 @@
+package dev.forte.mygenius.ai.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Postgres-backed job queue for upload processing. All state transitions are
+ * single SQL statements so they stay atomic without holding a transaction open
+ * while the (slow) processing runs.
+ */
+@Slf4j
+@Service
+public class IngestionJobService {
+
+    private static final String CLAIM_SQL = """
+            UPDATE ingestion_jobs j
+            SET status = 'running', attempts = j.attempts + 1, locked_by = ?, locked_at = now(), updated_at = now()
+            WHERE j.job_id IN (
+                SELECT job_id FROM ingestion_jobs
+                WHERE status = 'queued' AND next_attempt_at <= now()
+                ORDER BY next_attempt_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING j.job_id, j.upload_id, j.user_id, j.job_type, j.content_id, j.attempts, j.max_attempts
+            """;
+
+    private static final RowMapper<IngestionJob> CLAIMED_JOB_MAPPER = (rs, rowNum) -> {
+        IngestionJob job = new IngestionJob();
+        job.setJobId(rs.getObject("job_id", UUID.class));
+        job.setUploadId(rs.getObject("upload_id", UUID.class));
+        job.setUserId(rs.getObject("user_id", UUID.class));
+        job.setJobType(rs.getString("job_type"));
+        job.setContentId(rs.getObject("content_id", UUID.class));
+        job.setAttempts(rs.getInt("attempts"));
+        job.setMaxAttempts(rs.getInt("max_attempts"));
+        job.setStatus(IngestionJob.STATUS_RUNNING);
+        return job;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestionJobRepository ingestionJobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ingestion.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${ingestion.jobs.backoff-initial-seconds:10}")
+    private long backoffInitialSeconds;
+
+    @Value("${ingestion.jobs.backoff-max-seconds:900}")
+    private long backoffMaxSeconds;
+
+    public IngestionJobService(JdbcTemplate jdbcTemplate, IngestionJobRepository ingestionJobRepository,
+                               ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ingestionJobRepository = ingestionJobRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public UUID enqueue(UUID uploadId, UUID userId, String jobType, UUID contentId) {
+        UUID jobId = UUID.randomUUID();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_jobs (job_id, upload_id, user_id, job_type, content_id, status,
+                                            attempts, max_attempts, next_attempt_at, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, 'queued', 0, ?, ?, ?, ?)
+                """, jobId, uploadId, userId, jobType, contentId, maxAttempts, now, now, now);
+        log.info("Queued {} ingestion job {} for upload {}", jobType, jobId, uploadId);
+
+        eventPublisher.publishEvent(new IngestionJobEnqueuedEvent(jobId));
+        return jobId;
+    }
+
+    /**
+     * Claims up to {@code limit} due jobs for this worker. Rows locked by another
+     * worker's claim are skipped rather than waited on.
+     */
+    public List<IngestionJob> claim(String workerId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query(CLAIM_SQL, CLAIMED_JOB_MAPPER, workerId, limit);
+    }
+
+    /**
+     * Marks the job done. Returns {@code false}, and changes nothing, if this worker
+     * no longer holds the job because its lease expired and the job was recovered.
+     */
+    public boolean complete(IngestionJob job, String workerId) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_jobs
+                SET status = 'completed', locked_by = NULL, locked_at = NULL, last_error = NULL, updated_at = now()
+                WHERE job_id = ? AND locked_by = ? AND status = 'running'
+                """, job.getJobId(), workerId) > 0;
+    }
+
+    /**
+     * Records a failed attempt: the job is re-queued with backoff, or failed if it
+     * has used up its attempts. Like {@link #complete}, only while this worker
+     * still holds the job.
+     */
+    public FailOutcome fail(IngestionJob job, String workerId, Exception error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            int updated = jdbcTemplate.update("""
+                    UPDATE ingestion_jobs
+                    SET status = 'failed', locked_by = NULL, locked_at = NULL, last_error = ?, updated_at = now()
+                    WHERE job_id = ? AND locked_by = ? AND status = 'running'
+                    """, message, job.getJobId(), workerId);
+            return updated > 0 ? FailOutcome.FAILED : FailOutcome.LEASE_LOST;
+        }
+
+        long delaySeconds = backoffSeconds(job.getAttempts());
+        int updated = jdbcTemplate.update("""
+                UPDATE ingestion_jobs
+                SET status = 'queued', locked_by = NULL, locked_at = NULL, last_error = ?,
+                    next_attempt_at = now() + make_interval(secs => ?), updated_at = now()
+                WHERE job_id = ? AND locked_by = ? AND status = 'running'
+                """, message, delaySeconds, job.getJobId(), workerId);
+        if (updated == 0) {
+            return FailOutcome.LEASE_LOST;
+        }
+        log.warn("Ingestion job {} attempt {} failed, retrying in {}s: {}",
+                job.getJobId(), job.getAttempts(), delaySeconds, message);
+        return FailOutcome.RETRYING;
+    }
+
+    /**
+     * Extends the lease on every job this worker is still running so that
+     * {@link #recoverStaleJobs(long)} on other instances leaves them alone.
+     */
+    public void heartbeat(String workerId) {
+        jdbcTemplate.update("""
+                UPDATE ingestion_jobs SET locked_at = now()
+                WHERE status = 'running' AND locked_by = ?
+                """, workerId);
+    }
+
+    /**
+     * Puts jobs whose worker stopped heart-beating (crash, kill -9, redeploy) back
+     * on the queue. Jobs that already used their last attempt are failed instead so
+     * a poison upload cannot crash-loop the workers. Returns the recovered jobs with
+     * their new status; the caller still has to mark the content of failed ones.
+     */
+    public List<IngestionJob> recoverStaleJobs(long leaseSeconds) {
+        return jdbcTemplate.query("""
+                UPDATE ingestion_jobs
+                SET status = CASE WHEN attempts >= max_attempts THEN 'failed' ELSE 'queued' END,
+                    last_error = COALESCE(last_error, 'Worker lease expired'),
+                    locked_by = NULL, locked_at = NULL, next_attempt_at = now(), updated_at = now()
+                WHERE status = 'running' AND locked_at < now() - make_interval(secs => ?)
+                RETURNING job_id, upload_id, user_id, job_type, content_id, attempts, max_attempts, status
+                """, (rs, rowNum) -> {
+            IngestionJob job = CLAIMED_JOB_MAPPER.mapRow(rs, rowNum);
+            job.setStatus(rs.getString("status"));
+            return job;
+        }, leaseSeconds);
+    }
+
+    /**
+     * Hands back this worker's unfinished jobs on shutdown. The attempt is not
+     * counted against the job since it was interrupted, not failed.
+     */
+    public int release(String workerId) {
+        return jdbcTemplate.update("""
+                UPDATE ingestion_jobs
+                SET status = 'queued', attempts = GREATEST(attempts - 1, 0),
+                    locked_by = NULL, locked_at = NULL, next_attempt_at = now(), updated_at = now()
+                WHERE status = 'running' AND locked_by = ?
+                """, workerId);
+    }
+
+    /**
+     * Drops the queue entries of a deleted upload so workers don't keep retrying
+     * a document that no longer exists.
+     */
+    public void deleteForUpload(UUID uploadId) {
+        jdbcTemplate.update("DELETE FROM ingestion_jobs WHERE upload_id = ?", uploadId);
+    }
+
+    public Optional<IngestionJob> findLatestForUpload(UUID uploadId) {
+        return ingestionJobRepository.findFirstByUploadIdOrderByCreatedAtDesc(uploadId);
+    }
+
+    public enum FailOutcome {
+        /** Re-queued with backoff. */
+        RETRYING,
+        /** Out of attempts, the job is failed and its content has to be marked failed. */
+        FAILED,
+        /** Another worker recovered the job in the meantime, nothing was changed. */
+        LEASE_LOST
+    }
+
+    private long backoffSeconds(int attempt) {
+        // Exponential backoff with +/-20% jitter so a provider outage doesn't
+        // make every job retry in lock-step.
+        long delay = backoffInitialSeconds << Math.min(attempt - 1, 20);
+        delay = Math.min(delay, backoffMaxSeconds);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(1, Math.round(delay * jitter));
+    }
+}
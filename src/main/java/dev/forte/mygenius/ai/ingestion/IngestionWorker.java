@@ -0,0 +1,203 @@
+package dev.forte.mygenius.ai.ingestion;
+
+import dev.forte.mygenius.ai.document_processing.DocumentProcessingService;
+import dev.forte.mygenius.ai.image_processing.ImageProcessingService;
+import dev.forte.mygenius.ai.openai.Deadline;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the ingestion_jobs queue on virtual threads. Concurrency is bounded by
+ * a semaphore so a burst of uploads can't open more LLM calls and DB connections
+ * than {@code ingestion.worker.concurrency}.
+ */
+@Slf4j
+@Component
+public class IngestionWorker {
+
+    private final IngestionJobService ingestionJobService;
+    private final DocumentProcessingService documentProcessingService;
+    private final ImageProcessingService imageProcessingService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final String workerId;
+    private final Semaphore permits;
+
+    @Value("${ingestion.worker.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${ingestion.jobs.deadline:30m}")
+    private Duration jobDeadline;
+
+    public IngestionWorker(IngestionJobService ingestionJobService,
+                           DocumentProcessingService documentProcessingService,
+                           ImageProcessingService imageProcessingService,
+                           @Value("${ingestion.worker.concurrency:8}") int concurrency) {
+        this.ingestionJobService = ingestionJobService;
+        this.documentProcessingService = documentProcessingService;
+        this.imageProcessingService = imageProcessingService;
+        this.permits = new Semaphore(concurrency);
+        this.workerId = hostName() + "-" + UUID.randomUUID();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        int recovered = recoverStaleJobs();
+        if (recovered > 0) {
+            log.info("Recovered {} ingestion jobs left running by a stopped worker", recovered);
+        }
+        wakeUp();
+    }
+
+    // After the enqueuing transaction commits, before that the job can't be claimed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobEnqueued(IngestionJobEnqueuedEvent event) {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${ingestion.worker.poll-interval-ms:2000}")
+    public void poll() {
+        drain();
+    }
+
+    @Scheduled(fixedDelayString = "${ingestion.worker.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        ingestionJobService.heartbeat(workerId);
+        int recovered = recoverStaleJobs();
+        if (recovered > 0) {
+            log.info("Recovered {} stale ingestion jobs", recovered);
+        }
+    }
+
+    private int recoverStaleJobs() {
+        List<IngestionJob> recovered = ingestionJobService.recoverStaleJobs(leaseSeconds);
+        for (IngestionJob job : recovered) {
+            if (IngestionJob.STATUS_FAILED.equals(job.getStatus())) {
+                log.error("Ingestion job {} failed permanently: worker lease expired on its last attempt",
+                        job.getJobId());
+                markContentFailed(job);
+            }
+        }
+        return recovered.size();
+    }
+
+    private void wakeUp() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // shutting down, the queue will be picked up by the next instance
+        }
+    }
+
+    private void drain() {
+        // Only one thread claims at a time, otherwise two drains could both see
+        // free permits and claim more jobs than we can run.
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (!executor.isShutdown()) {
+                List<IngestionJob> jobs = ingestionJobService.claim(workerId, permits.availablePermits());
+                if (jobs.isEmpty()) {
+                    return;
+                }
+                for (IngestionJob job : jobs) {
+                    permits.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            run(job);
+                        } finally {
+                            permits.release();
+                            wakeUp();
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error claiming ingestion jobs: {}", e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    private void run(IngestionJob job) {
+        log.info("Processing {} job {} (attempt {}/{})",
+                job.getJobType(), job.getJobId(), job.getAttempts(), job.getMaxAttempts());
+        try {
+            // OpenAI calls made for the job give up once it runs past its deadline
+            Deadline.run(jobDeadline, () -> {
+                if ("DOCUMENT".equals(job.getJobType())) {
+                    documentProcessingService.processDocument(job.getContentId());
+                } else if ("IMAGE".equals(job.getJobType())) {
+                    imageProcessingService.processImage(job.getContentId());
+                } else {
+                    throw new IllegalStateException("Unknown ingestion job type: " + job.getJobType());
+                }
+            });
+            if (!ingestionJobService.complete(job, workerId)) {
+                logLostLease(job);
+            }
+        } catch (Exception e) {
+            switch (ingestionJobService.fail(job, workerId, e)) {
+                case FAILED -> {
+                    log.error("Ingestion job {} failed permanently: {}", job.getJobId(), e.getMessage(), e);
+                    markContentFailed(job);
+                }
+                case LEASE_LOST -> logLostLease(job);
+                case RETRYING -> { }
+            }
+        }
+    }
+
+    private void logLostLease(IngestionJob job) {
+        // The job was recovered while we ran it and now belongs to another worker
+        log.warn("Lost the lease on ingestion job {} before it finished, leaving it to its new worker",
+                job.getJobId());
+    }
+
+    private void markContentFailed(IngestionJob job) {
+        if ("DOCUMENT".equals(job.getJobType())) {
+            documentProcessingService.markFailed(job.getContentId());
+        } else if ("IMAGE".equals(job.getJobType())) {
+            imageProcessingService.markFailed(job.getContentId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(20, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        int released = ingestionJobService.release(workerId);
+        if (released > 0) {
+            log.info("Released {} unfinished ingestion jobs back to the queue", released);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+}
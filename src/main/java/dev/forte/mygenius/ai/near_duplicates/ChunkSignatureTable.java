@@ -0,0 +1,110 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@code chunk_signatures} table (V8): the MinHash signature of every stored
+ * chunk, keyed like its vector, as little-endian int64 {@code bytea}, with the LSH
+ * band keys of each signature in {@code chunk_signature_bands}.
+ */
+class ChunkSignatureTable {
+
+    /**
+     * A signature to save, with the band keys it is found under.
+     */
+    record Row(UUID vectorId, long[] signature, long[] bandKeys) {
+    }
+
+    /**
+     * A stored signature sharing a band with the one looked up.
+     */
+    record Candidate(UUID vectorId, long[] signature) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ChunkSignatureTable(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Up to {@code limit} signatures of the user's chunks, except those of
+     * {@code excludedContentId}, that share at least one of {@code bandKeys}. One
+     * index lookup per band, so the cost doesn't grow with the user's library.
+     */
+    List<Candidate> candidates(UUID userId, UUID excludedContentId, long[] bandKeys, int limit) {
+        List<Candidate> candidates = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement("""
+                    SELECT s.vector_id, s.signature FROM chunk_signatures s
+                    WHERE s.user_id = ? AND s.content_id <> ? AND s.vector_id IN (
+                        SELECT vector_id FROM chunk_signature_bands WHERE user_id = ? AND band_key = ANY(?))
+                    LIMIT ?
+                    """);
+            statement.setObject(1, userId);
+            statement.setObject(2, excludedContentId);
+            statement.setObject(3, userId);
+            Long[] keys = new Long[bandKeys.length];
+            for (int i = 0; i < bandKeys.length; i++) {
+                keys[i] = bandKeys[i];
+            }
+            statement.setArray(4, connection.createArrayOf("bigint", keys));
+            statement.setInt(5, limit);
+            return statement;
+        }, (RowCallbackHandler) rs -> candidates.add(
+                new Candidate(rs.getObject("vector_id", UUID.class), toLongs(rs.getBytes("signature")))));
+        return candidates;
+    }
+
+    /**
+     * Saves the signatures of chunks whose vectors are already stored, replacing
+     * the band keys of any saved before under the same vector id.
+     */
+    void saveAll(UUID userId, UUID contentId, List<Row> rows) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO chunk_signatures (user_id, vector_id, content_id, signature)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (user_id, vector_id) DO UPDATE
+                SET content_id = EXCLUDED.content_id, signature = EXCLUDED.signature
+                """, rows, rows.size(), (ps, row) -> {
+            ps.setObject(1, userId);
+            ps.setObject(2, row.vectorId());
+            ps.setObject(3, contentId);
+            ps.setBytes(4, toBytes(row.signature()));
+        });
+        jdbcTemplate.batchUpdate("DELETE FROM chunk_signature_bands WHERE user_id = ? AND vector_id = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setObject(1, userId);
+                    ps.setObject(2, row.vectorId());
+                });
+        List<Object[]> bands = new ArrayList<>(rows.size() * 16);
+        for (Row row : rows) {
+            for (long bandKey : row.bandKeys()) {
+                bands.add(new Object[]{userId, bandKey, row.vectorId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO chunk_signature_bands (user_id, band_key, vector_id) VALUES (?, ?, ?)
+                ON CONFLICT DO NOTHING
+                """, bands);
+    }
+
+    static byte[] toBytes(long[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(signature);
+        return buffer.array();
+    }
+
+    static long[] toLongs(byte[] bytes) {
+        long[] signature = new long[bytes.length / Long.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(signature);
+        return signature;
+    }
+}
@@ -0,0 +1,194 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Locality-sensitive hashing index of MinHash signatures. A signature is cut into
+ * {@code bands} bands of {@code rows} values, and two signatures become candidates
+ * when any band is identical, which happens with probability
+ * {@code 1 - (1 - J^rows)^bands} for texts of Jaccard similarity {@code J}. With 16
+ * bands of 8 rows that is 95% at J = 0.8 and 6% at J = 0.5; candidates are then
+ * checked against the threshold on their full signatures.
+ *
+ * <p>Everything is kept in primitive arrays: the signatures one after the other,
+ * and per band a chain of entries through an open-addressing table from band hash
+ * to the latest entry, so an index of tens of thousands of chunks is a few flat
+ * arrays rather than millions of boxed keys. Not thread-safe.
+ */
+public final class LshIndex {
+
+    /**
+     * An indexed signature at or above the threshold, and its estimated Jaccard similarity.
+     */
+    public record Match(UUID id, double similarity) {
+    }
+
+    private final int bands;
+    private final int rows;
+    private final int length;
+
+    private UUID[] ids;
+    private long[] signatures;
+    // Next entry with the same band hash, per entry and band; -1 ends the chain
+    private int[] next;
+    // Query that last saw each entry, so a candidate in several bands is compared once
+    private int[] seenBy;
+    private int size;
+    private int queries;
+
+    // Band hash -> latest entry, open addressing with linear probing
+    private long[] bucketKeys;
+    private int[] bucketHeads;
+    private int buckets;
+
+    public LshIndex(int bands, int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.length = bands * rows;
+        this.ids = new UUID[16];
+        this.signatures = new long[16 * length];
+        this.next = new int[16 * bands];
+        this.seenBy = new int[16];
+        this.bucketKeys = new long[64];
+        this.bucketHeads = new int[64];
+        Arrays.fill(bucketHeads, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(UUID id, long[] signature) {
+        checkLength(signature);
+        if (size == ids.length) {
+            grow();
+        }
+        int entry = size++;
+        ids[entry] = id;
+        System.arraycopy(signature, 0, signatures, entry * length, length);
+        for (int band = 0; band < bands; band++) {
+            int slot = slot(bandHash(signature, band));
+            next[entry * bands + band] = bucketHeads[slot];
+            bucketHeads[slot] = entry;
+        }
+        if (2 * buckets > bucketKeys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * The most similar indexed signature whose estimated similarity is at least
+     * {@code threshold}, or null.
+     */
+    public Match findMostSimilar(long[] signature, double threshold) {
+        checkLength(signature);
+        int query = ++queries;
+        int best = -1;
+        int bestSame = (int) Math.ceil(threshold * length) - 1;
+        for (int band = 0; band < bands; band++) {
+            long key = bandHash(signature, band);
+            int entry = bucketHeads[find(key)];
+            while (entry >= 0) {
+                if (seenBy[entry] != query) {
+                    seenBy[entry] = query;
+                    int same = agreeing(signature, entry);
+                    if (same > bestSame) {
+                        bestSame = same;
+                        best = entry;
+                    }
+                }
+                entry = next[entry * bands + band];
+            }
+        }
+        return best < 0 ? null : new Match(ids[best], bestSame / (double) length);
+    }
+
+    /**
+     * The hash of each band of the signature, the keys under which it is indexed.
+     * Two signatures are candidates exactly when they share one of these.
+     */
+    public long[] bandKeys(long[] signature) {
+        checkLength(signature);
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            keys[band] = bandHash(signature, band);
+        }
+        return keys;
+    }
+
+    private int agreeing(long[] signature, int entry) {
+        int base = entry * length;
+        int same = 0;
+        for (int i = 0; i < length; i++) {
+            if (signatures[base + i] == signature[i]) {
+                same++;
+            }
+        }
+        return same;
+    }
+
+    private long bandHash(long[] signature, int band) {
+        long hash = band;
+        for (int r = band * rows, end = r + rows; r < end; r++) {
+            hash = MinHash.mix(hash * 31 + signature[r]);
+        }
+        return hash;
+    }
+
+    /**
+     * Slot of the key, claimed for it when the key is new.
+     */
+    private int slot(long key) {
+        int slot = find(key);
+        if (bucketHeads[slot] < 0) {
+            bucketKeys[slot] = key;
+            buckets++;
+        }
+        return slot;
+    }
+
+    /**
+     * Slot holding the key, or the empty slot where it would go.
+     */
+    private int find(long key) {
+        int mask = bucketKeys.length - 1;
+        int slot = (int) (MinHash.mix(key) & mask);
+        while (bucketHeads[slot] >= 0 && bucketKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = bucketKeys;
+        int[] oldHeads = bucketHeads;
+        bucketKeys = new long[oldKeys.length * 2];
+        bucketHeads = new int[oldKeys.length * 2];
+        Arrays.fill(bucketHeads, -1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] >= 0) {
+                int slot = find(oldKeys[i]);
+                bucketKeys[slot] = oldKeys[i];
+                bucketHeads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        signatures = Arrays.copyOf(signatures, capacity * length);
+        next = Arrays.copyOf(next, capacity * bands);
+        seenBy = Arrays.copyOf(seenBy, capacity);
+    }
+
+    private void checkLength(long[] signature) {
+        if (signature.length != length) {
+            throw new IllegalArgumentException("Expected signatures of " + length + " values, got " + signature.length);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import java.util.Arrays;
+
+/**
+ * MinHash signatures of texts over word shingles. The fraction of positions at
+ * which two signatures agree estimates the Jaccard similarity of the texts'
+ * shingle sets, with a standard error of about {@code sqrt(J (1 - J) / hashes)}.
+ *
+ * <p>Words are runs of letters and digits, lower-cased, so punctuation, case and
+ * whitespace don't count. Each shingle of {@code shingleWords} consecutive words
+ * is hashed to 64 bits once, and the {@code hashes} hash functions are that value
+ * xor-ed with a per-function seed and run through the SplitMix64 finalizer.
+ */
+public final class MinHash {
+
+    private final int shingleWords;
+    private final long[] seeds;
+
+    public MinHash(int hashes, int shingleWords) {
+        if (hashes < 1 || shingleWords < 1) {
+            throw new IllegalArgumentException("hashes and shingleWords must be positive");
+        }
+        this.shingleWords = shingleWords;
+        this.seeds = new long[hashes];
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < hashes; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            seeds[i] = mix(seed);
+        }
+    }
+
+    public int hashes() {
+        return seeds.length;
+    }
+
+    /**
+     * The text's signature. A text with fewer words than a shingle is one shingle;
+     * a text without words has all positions at {@link Long#MAX_VALUE}.
+     */
+    public long[] signature(CharSequence text) {
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        // Hashes of the last shingleWords words, as a ring
+        long[] window = new long[shingleWords];
+        int words = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            long word = 0xCBF29CE484222325L;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                word = (word ^ Character.toLowerCase(text.charAt(i))) * 0x100000001B3L;
+                i++;
+            }
+            window[words % shingleWords] = word;
+            words++;
+            if (words >= shingleWords) {
+                update(signature, shingle(window, words));
+            }
+        }
+        if (words > 0 && words < shingleWords) {
+            update(signature, shingle(window, words));
+        }
+        return signature;
+    }
+
+    /**
+     * Estimated Jaccard similarity of the texts of two signatures.
+     */
+    public static double similarity(long[] a, long[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Signatures of different lengths: " + a.length + " and " + b.length);
+        }
+        int same = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return same / (double) a.length;
+    }
+
+    private void update(long[] signature, long shingle) {
+        for (int h = 0; h < seeds.length; h++) {
+            long value = mix(shingle ^ seeds[h]);
+            if (value < signature[h]) {
+                signature[h] = value;
+            }
+        }
+    }
+
+    /**
+     * Combines the hashes of the words in the window, oldest first, so the same
+     * words in another order make another shingle.
+     */
+    private long shingle(long[] window, int words) {
+        int count = Math.min(words, shingleWords);
+        long hash = 0;
+        for (int w = words - count; w < words; w++) {
+            hash = mix(hash * 31 + window[w % shingleWords]);
+        }
+        return hash;
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
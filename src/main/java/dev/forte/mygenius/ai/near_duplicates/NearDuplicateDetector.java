@@ -0,0 +1,210 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Finds document chunks that are near-duplicates of chunks the user already has,
+ * such as headers, footers and disclaimers repeated on every page or in every
+ * document, before they are labelled and embedded.
+ *
+ * <p>Every chunk gets a {@link MinHash} signature over its word shingles, cut
+ * into LSH bands. The chunks of this content seen so far are kept in an
+ * {@link LshIndex}; the user's other content is looked up in
+ * {@code chunk_signature_bands} by the band keys of each chunk, so only chunks
+ * sharing a band are read. A chunk whose estimated Jaccard similarity to one of
+ * them is at least {@code ingestion.dedup.jaccard-threshold} is a near-duplicate.
+ * Signatures of the chunks that are stored are saved, so later uploads are
+ * checked against them.
+ *
+ * <p>A near-duplicate of another content is always linked: stored with the
+ * embedding and topic of the chunk it duplicates, without labelling or embedding
+ * it, so it still belongs to its document and outlives the other content. A
+ * repeat within the same content, such as a footer on every page, depends on
+ * {@code ingestion.dedup.mode}:
+ * <ul>
+ *     <li>{@code skip}: it is dropped; searches find the first occurrence, which
+ *     lives and dies with the same document</li>
+ *     <li>{@code link}: it is linked like a near-duplicate of another content</li>
+ * </ul>
+ * Published as {@code ingestion.dedup.chunks} tagged with the {@code outcome}
+ * ({@code unique}, {@code skipped} or {@code linked}), and the savings as
+ * {@code ingestion.dedup.vectors-saved} and {@code ingestion.dedup.embeddings-saved}.
+ */
+@Slf4j
+@Component
+public class NearDuplicateDetector {
+
+    public enum Mode { SKIP, LINK }
+
+    /**
+     * The stored or earlier chunk a chunk duplicates, and whether it belongs to the
+     * same content.
+     */
+    public record Duplicate(UUID vectorId, boolean sameContent) {
+    }
+
+    // Chunks of other content read per check, at most
+    private static final int MAX_CANDIDATES = 256;
+
+    private final ChunkSignatureTable signatureTable;
+    private final boolean enabled;
+    private final Mode mode;
+    private final double threshold;
+    private final MinHash minHash;
+    private final int bands;
+    private final int rows;
+
+    private final Counter unique;
+    private final Counter skipped;
+    private final Counter linked;
+    private final Counter vectorsSaved;
+    private final Counter embeddingsSaved;
+
+    public NearDuplicateDetector(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                 @Value("${ingestion.dedup.enabled:true}") boolean enabled,
+                                 @Value("${ingestion.dedup.mode:skip}") String mode,
+                                 @Value("${ingestion.dedup.jaccard-threshold:0.8}") double threshold,
+                                 @Value("${ingestion.dedup.shingle-words:3}") int shingleWords,
+                                 @Value("${ingestion.dedup.minhash.hashes:128}") int hashes,
+                                 @Value("${ingestion.dedup.lsh.bands:16}") int bands) {
+        this(new ChunkSignatureTable(jdbcTemplate), meterRegistry, enabled,
+                Mode.valueOf(mode.toUpperCase(Locale.ROOT)), threshold, shingleWords, hashes, bands);
+    }
+
+    NearDuplicateDetector(ChunkSignatureTable signatureTable, MeterRegistry meterRegistry, boolean enabled,
+                          Mode mode, double threshold, int shingleWords, int hashes, int bands) {
+        if (hashes % bands != 0) {
+            throw new IllegalArgumentException("ingestion.dedup.minhash.hashes (" + hashes
+                    + ") must be a multiple of ingestion.dedup.lsh.bands (" + bands + ")");
+        }
+        this.signatureTable = signatureTable;
+        this.enabled = enabled;
+        this.mode = mode;
+        this.threshold = threshold;
+        this.minHash = new MinHash(hashes, shingleWords);
+        this.bands = bands;
+        this.rows = hashes / bands;
+        this.unique = chunkCounter(meterRegistry, "unique");
+        this.skipped = chunkCounter(meterRegistry, "skipped");
+        this.linked = chunkCounter(meterRegistry, "linked");
+        this.vectorsSaved = Counter.builder("ingestion.dedup.vectors-saved")
+                .description("Near-duplicate chunks not stored as vectors")
+                .register(meterRegistry);
+        this.embeddingsSaved = Counter.builder("ingestion.dedup.embeddings-saved")
+                .description("Near-duplicate chunks not sent to the embedding model")
+                .register(meterRegistry);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Starts checking the chunks of one document of a user.
+     */
+    public Session open(UUID userId, UUID contentId) {
+        return new Session(userId, contentId);
+    }
+
+    /**
+     * Records chunks stored with an embedding of their own.
+     */
+    public void recordUnique(int chunks) {
+        unique.increment(chunks);
+    }
+
+    public void recordSkipped(int chunks) {
+        skipped.increment(chunks);
+        vectorsSaved.increment(chunks);
+        embeddingsSaved.increment(chunks);
+    }
+
+    public void recordLinked(int chunks) {
+        linked.increment(chunks);
+        embeddingsSaved.increment(chunks);
+    }
+
+    private static Counter chunkCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ingestion.dedup.chunks")
+                .description("Document chunks by near-duplicate check outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The near-duplicate checks of one ingestion. Not thread-safe.
+     */
+    public final class Session {
+
+        private final UUID userId;
+        private final UUID contentId;
+        private final LshIndex ownChunks = new LshIndex(bands, rows);
+        private final List<ChunkSignatureTable.Row> unsaved = new ArrayList<>();
+
+        private Session(UUID userId, UUID contentId) {
+            this.userId = userId;
+            this.contentId = contentId;
+        }
+
+        /**
+         * Checks a chunk against the earlier chunks of this content and the user's
+         * other content. When it is not a near-duplicate it is indexed under
+         * {@code vectorId}, and its signature is saved by the next {@link #save()}.
+         *
+         * @return the chunk it duplicates, or null
+         */
+        public Duplicate check(String text, UUID vectorId) {
+            if (!enabled) {
+                return null;
+            }
+            long[] signature = minHash.signature(text);
+            LshIndex.Match own = ownChunks.findMostSimilar(signature, threshold);
+            if (own != null) {
+                log.debug("Chunk {} repeats {} ({})", vectorId, own.id(), own.similarity());
+                return new Duplicate(own.id(), true);
+            }
+            long[] bandKeys = ownChunks.bandKeys(signature);
+            UUID best = null;
+            double bestSimilarity = threshold;
+            for (ChunkSignatureTable.Candidate candidate
+                    : signatureTable.candidates(userId, contentId, bandKeys, MAX_CANDIDATES)) {
+                if (candidate.signature().length != signature.length) {
+                    continue;
+                }
+                double similarity = MinHash.similarity(signature, candidate.signature());
+                if (similarity >= bestSimilarity) {
+                    best = candidate.vectorId();
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null) {
+                log.debug("Chunk {} is a near-duplicate of {} ({})", vectorId, best, bestSimilarity);
+                return new Duplicate(best, false);
+            }
+            ownChunks.add(vectorId, signature);
+            unsaved.add(new ChunkSignatureTable.Row(vectorId, signature, bandKeys));
+            return null;
+        }
+
+        /**
+         * Saves the signatures of the chunks checked since the last save, once
+         * their vectors are stored.
+         */
+        public void save() {
+            if (!unsaved.isEmpty()) {
+                signatureTable.saveAll(userId, contentId, unsaved);
+                unsaved.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.forte.mygenius.ai.openai;
+
+/**
+ * Count-based circuit breaker. While {@code CLOSED} it remembers the outcome of
+ * the last {@code windowSize} calls; once at least {@code minimumCalls} of them
+ * are known and the failure rate reaches {@code failureRateThreshold}, it opens
+ * and rejects every call for {@code openNanos}. Then it lets
+ * {@code halfOpenCalls} trial calls through: if they all succeed it closes with a
+ * fresh window, the first failure opens it again.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Ring of the last outcomes, true for a failure
+    private final boolean[] window;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openNanos,
+                          int halfOpenCalls) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Whether a call may be made now. Every permitted call must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                state = State.CLOSED;
+                recorded = 0;
+                next = 0;
+                failures = 0;
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls
+                && failures >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Failures among the calls in the window, 0 to 1.
+     */
+    public synchronized double failureRate() {
+        return recorded == 0 ? 0 : failures / (double) recorded;
+    }
+
+    private void record(boolean failure) {
+        if (state != State.CLOSED) {
+            // A call permitted before the circuit opened
+            return;
+        }
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+}
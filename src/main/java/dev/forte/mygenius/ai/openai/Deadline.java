@@ -0,0 +1,54 @@
+package dev.forte.mygenius.ai.openai;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * The time by which the work on the current thread must be done, such as an
+ * ingestion job or a search request. OpenAI calls made under a deadline give up
+ * when it passes, even if their own timeout would allow more.
+ *
+ * <p>The deadline is inherited by threads started under it, so the virtual
+ * threads that fan calls out for one job share the job's deadline. A nested
+ * deadline can only shorten the one around it.
+ */
+public final class Deadline {
+
+    private static final InheritableThreadLocal<Long> DEADLINE_NANOS = new InheritableThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    public static <T> T call(Duration timeout, Supplier<T> work) {
+        Long outer = DEADLINE_NANOS.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (outer != null && outer - deadline < 0) {
+            deadline = outer;
+        }
+        DEADLINE_NANOS.set(deadline);
+        try {
+            return work.get();
+        } finally {
+            if (outer == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(outer);
+            }
+        }
+    }
+
+    public static void run(Duration timeout, Runnable work) {
+        call(timeout, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Time left, {@link Long#MAX_VALUE} without a deadline, negative once it passed.
+     */
+    public static long remainingNanos() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+}
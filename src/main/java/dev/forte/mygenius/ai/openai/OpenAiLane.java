@@ -0,0 +1,313 @@
+package dev.forte.mygenius.ai.openai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * One kind of OpenAI traffic (vision, topic labelling, embeddings) with its own
+ * bulkhead, circuit breaker and timeout, so a slow or failing kind can't take the
+ * others down with it.
+ *
+ * <p>A call:
+ * <ol>
+ *     <li>gets a budget of {@code callTimeout}, cut short by the current
+ *     {@link Deadline}; the wait for the bulkhead counts against it</li>
+ *     <li>waits at most {@code bulkheadWait} for one of {@code maxConcurrent} slots</li>
+ *     <li>is rejected at once while the circuit is open</li>
+ *     <li>runs on a virtual thread and is abandoned, and interrupted, when the
+ *     budget runs out</li>
+ *     <li>with hedging on, is sent a second time if the first attempt takes longer
+ *     than the lane's recent p99 latency (at least {@code hedgeMinDelay}) and a
+ *     slot is free; the first answer wins</li>
+ * </ol>
+ * Rejections and timeouts are {@link OpenAiUnavailableException}s; timeouts and
+ * the model's own errors count as failures for the circuit.
+ *
+ * <p>Published as the {@code openai.calls} timer (tagged {@code lane} and
+ * {@code outcome}, with a latency histogram), {@code openai.calls.rejected}
+ * (tagged {@code reason}), {@code openai.calls.hedged}, and the
+ * {@code openai.circuit.state} (0 closed, 1 half open, 2 open) and
+ * {@code openai.bulkhead.in-use} gauges.
+ */
+public final class OpenAiLane {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitNanos;
+    private final long callTimeoutNanos;
+    private final boolean hedge;
+    private final long hedgeMinDelayNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Timer successes;
+    private final Timer failures;
+    private final Counter hedged;
+    private final MeterRegistry meterRegistry;
+
+    public OpenAiLane(String name, int maxConcurrent, Duration bulkheadWait, Duration callTimeout, boolean hedge,
+                      Duration hedgeMinDelay, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWaitNanos = bulkheadWait.toNanos();
+        this.callTimeoutNanos = callTimeout.toNanos();
+        this.hedge = hedge;
+        this.hedgeMinDelayNanos = hedgeMinDelay.toNanos();
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.successes = callTimer(meterRegistry, "success");
+        this.failures = callTimer(meterRegistry, "failure");
+        this.hedged = Counter.builder("openai.calls.hedged")
+                .description("OpenAI calls sent a second time because the first was slow")
+                .tag("lane", name)
+                .register(meterRegistry);
+        Gauge.builder("openai.circuit.state", circuitBreaker, breaker -> switch (breaker.state()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .description("0 closed, 1 half open, 2 open")
+                .tag("lane", name)
+                .register(meterRegistry);
+        Gauge.builder("openai.bulkhead.in-use", bulkhead, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .tag("lane", name)
+                .register(meterRegistry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public <T> T call(Supplier<T> attempt) {
+        long deadline = System.nanoTime() + budget();
+        acquireSlot(deadline);
+        try {
+            permit();
+            long start = System.nanoTime();
+            try {
+                T result = hedge ? hedged(attempt, deadline) : timed(attempt, deadline);
+                circuitBreaker.onSuccess();
+                successes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (RuntimeException | Error e) {
+                circuitBreaker.onFailure();
+                failures.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Like {@link #call} for a streamed answer, without hedging: the whole stream
+     * has to finish within the budget. The slot is taken on the subscribing
+     * thread, which may block.
+     */
+    public <T> Flux<T> stream(Supplier<Flux<T>> attempt) {
+        return Flux.defer(() -> {
+            long deadline = System.nanoTime() + budget();
+            acquireSlot(deadline);
+            try {
+                permit();
+            } catch (OpenAiUnavailableException e) {
+                bulkhead.release();
+                throw e;
+            }
+            long start = System.nanoTime();
+            return attempt.get()
+                    .timeout(Mono.delay(remaining(deadline)), item -> Mono.delay(remaining(deadline)))
+                    .onErrorMap(TimeoutException.class, e -> timedOut())
+                    .doFinally(signal -> {
+                        bulkhead.release();
+                        long elapsed = System.nanoTime() - start;
+                        // A cancelled stream didn't fail
+                        if (signal == SignalType.ON_ERROR) {
+                            circuitBreaker.onFailure();
+                            failures.record(elapsed, TimeUnit.NANOSECONDS);
+                        } else {
+                            circuitBreaker.onSuccess();
+                            successes.record(elapsed, TimeUnit.NANOSECONDS);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * State for the {@code openai} actuator endpoint.
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("circuit", circuitBreaker.state());
+        description.put("failureRate", circuitBreaker.failureRate());
+        description.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+        description.put("maxConcurrent", maxConcurrent);
+        description.put("callTimeoutMs", TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos));
+        description.put("hedge", hedge);
+        description.put("p99Ms", TimeUnit.NANOSECONDS.toMillis(p99Nanos()));
+        return description;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private long budget() {
+        long budget = Math.min(callTimeoutNanos, Deadline.remainingNanos());
+        if (budget <= 0) {
+            throw reject("deadline", "deadline passed before the call");
+        }
+        return budget;
+    }
+
+    private void acquireSlot(long deadline) {
+        try {
+            long wait = Math.min(bulkheadWaitNanos, deadline - System.nanoTime());
+            if (!bulkhead.tryAcquire(Math.max(0, wait), TimeUnit.NANOSECONDS)) {
+                throw reject("bulkhead", maxConcurrent + " calls in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("bulkhead", "interrupted while waiting for a slot");
+        }
+    }
+
+    private void permit() {
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject("circuit", "circuit open");
+        }
+    }
+
+    private <T> T timed(Supplier<T> attempt, long deadline) {
+        Future<T> future = executor.submit(attempt::get);
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAiUnavailableException("Interrupted while waiting for OpenAI (" + name + ")");
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    private <T> T hedged(Supplier<T> attempt, long deadline) {
+        ExecutorCompletionService<T> attempts = new ExecutorCompletionService<>(executor);
+        List<Future<T>> started = new ArrayList<>(2);
+        boolean backupSlot = false;
+        try {
+            started.add(attempts.submit(attempt::get));
+            long hedgeAt = System.nanoTime() + Math.max(hedgeMinDelayNanos, p99Nanos());
+            RuntimeException failure = null;
+            int running = 1;
+            while (running > 0) {
+                boolean canHedge = started.size() == 1 && failure == null;
+                long until = canHedge ? Math.min(hedgeAt, deadline) : deadline;
+                Future<T> done = attempts.poll(Math.max(0, until - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        throw timedOut();
+                    }
+                    if (canHedge && bulkhead.tryAcquire()) {
+                        backupSlot = true;
+                        hedged.increment();
+                        started.add(attempts.submit(attempt::get));
+                        running++;
+                    } else {
+                        hedgeAt = deadline;
+                    }
+                    continue;
+                }
+                running--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure = unwrap(e);
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAiUnavailableException("Interrupted while waiting for OpenAI (" + name + ")");
+        } finally {
+            started.forEach(future -> future.cancel(true));
+            if (backupSlot) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    private long p99Nanos() {
+        for (ValueAtPercentile percentile : successes.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return (long) percentile.value(TimeUnit.NANOSECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
+
+    private OpenAiUnavailableException timedOut() {
+        return new OpenAiUnavailableException("OpenAI call (" + name + ") ran out of time");
+    }
+
+    private OpenAiUnavailableException reject(String reason, String message) {
+        Counter.builder("openai.calls.rejected")
+                .description("OpenAI calls not made")
+                .tag("lane", name)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        return new OpenAiUnavailableException("OpenAI call (" + name + ") rejected: " + message);
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private Timer callTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("openai.calls")
+                .description("OpenAI calls, from the first attempt to the answer used")
+                .tag("lane", name)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package dev.forte.mygenius.ai.openai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link OpenAiLane}s, one per kind of OpenAI traffic. Each is configured
+ * under {@code openai.lanes.<name>}: {@code timeout}, {@code max-concurrent},
+ * {@code bulkhead-wait}, {@code hedge}, {@code hedge-min-delay} and the
+ * {@code circuit.*} settings; what a lane doesn't set comes from
+ * {@code openai.lanes.default}.
+ */
+@Component
+public class OpenAiLanes {
+
+    private final OpenAiLane vision;
+    private final OpenAiLane topics;
+    private final OpenAiLane embeddings;
+
+    public OpenAiLanes(Environment environment, MeterRegistry meterRegistry) {
+        this.vision = lane("vision", Duration.ofSeconds(120), 8, environment, meterRegistry);
+        this.topics = lane("topics", Duration.ofSeconds(60), 16, environment, meterRegistry);
+        this.embeddings = lane("embeddings", Duration.ofSeconds(30), 8, environment, meterRegistry);
+    }
+
+    public OpenAiLane vision() {
+        return vision;
+    }
+
+    public OpenAiLane topics() {
+        return topics;
+    }
+
+    public OpenAiLane embeddings() {
+        return embeddings;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        for (OpenAiLane lane : List.of(vision, topics, embeddings)) {
+            lanes.put(lane.name(), lane.describe());
+        }
+        return lanes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        vision.shutdown();
+        topics.shutdown();
+        embeddings.shutdown();
+    }
+
+    private static OpenAiLane lane(String name, Duration timeout, int maxConcurrent, Environment environment,
+                                   MeterRegistry meterRegistry) {
+        LaneProperties properties = new LaneProperties(environment, "openai.lanes." + name + ".");
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                properties.get("circuit.window-size", Integer.class, 20),
+                properties.get("circuit.minimum-calls", Integer.class, 10),
+                properties.get("circuit.failure-rate-threshold", Double.class, 0.5),
+                properties.get("circuit.open-duration", Duration.class, Duration.ofSeconds(30)).toNanos(),
+                properties.get("circuit.half-open-calls", Integer.class, 3));
+        return new OpenAiLane(name,
+                properties.get("max-concurrent", Integer.class, maxConcurrent),
+                properties.get("bulkhead-wait", Duration.class, Duration.ofSeconds(5)),
+                properties.get("timeout", Duration.class, timeout),
+                properties.get("hedge", Boolean.class, false),
+                properties.get("hedge-min-delay", Duration.class, Duration.ofSeconds(2)),
+                circuitBreaker, meterRegistry);
+    }
+
+    private record LaneProperties(Environment environment, String prefix) {
+
+        <T> T get(String key, Class<T> type, T fallback) {
+            T value = environment.getProperty(prefix + key, type);
+            return value != null ? value : environment.getProperty("openai.lanes.default." + key, type, fallback);
+        }
+    }
+}
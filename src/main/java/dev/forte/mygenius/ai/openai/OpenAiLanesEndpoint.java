@@ -0,0 +1,27 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/openai}: circuit state, failure rate and bulkhead use of each
+ * OpenAI lane. Latencies are in the {@code openai.calls} metric.
+ */
+@Component
+@Endpoint(id = "openai")
+public class OpenAiLanesEndpoint {
+
+    private final OpenAiLanes lanes;
+
+    public OpenAiLanesEndpoint(OpenAiLanes lanes) {
+        this.lanes = lanes;
+    }
+
+    @ReadOperation
+    public Map<String, Object> lanes() {
+        return lanes.describe();
+    }
+}
@@ -0,0 +1,68 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client-side limiter for the chat completion budget of our OpenAI account. A call
+ * has to get one permit from the requests-per-minute bucket and its estimated token
+ * count from the tokens-per-minute bucket before it is sent, so fanning out over
+ * many chunks slows down instead of running into 429s.
+ *
+ * <p>Callers block while waiting, which is cheap on the virtual threads the
+ * ingestion pipeline runs on.
+ */
+@Component
+public class OpenAiRateLimiter {
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+
+    public OpenAiRateLimiter(@Value("${openai.rate-limit.requests-per-minute:500}") long requestsPerMinute,
+                             @Value("${openai.rate-limit.tokens-per-minute:150000}") long tokensPerMinute) {
+        this.requests = new TokenBucket(requestsPerMinute, TimeUnit.MINUTES.toNanos(1));
+        this.tokens = new TokenBucket(tokensPerMinute, TimeUnit.MINUTES.toNanos(1));
+    }
+
+    /**
+     * Blocks until one request and {@code estimatedTokens} tokens fit in the budget.
+     * Requests larger than the whole per-minute token budget wait for a full bucket.
+     */
+    public void acquire(long estimatedTokens) throws InterruptedException {
+        while (true) {
+            long wait;
+            synchronized (this) {
+                wait = Math.max(requests.nanosUntilAvailable(1), tokens.nanosUntilAvailable(estimatedTokens));
+                if (wait == 0) {
+                    requests.take(1);
+                    tokens.take(estimatedTokens);
+                    return;
+                }
+            }
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Returns the part of an estimate that the call didn't use, once the real token
+     * usage is known.
+     */
+    public void refund(long estimatedTokens, long actualTokens) {
+        if (actualTokens < estimatedTokens) {
+            tokens.giveBack(estimatedTokens - actualTokens);
+        }
+    }
+
+    /**
+     * Rough token estimate for English text, used before the real count is known.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return text.length() / 4 + 1;
+    }
+}
@@ -0,0 +1,15 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.springframework.ai.retry.TransientAiException;
+
+/**
+ * An OpenAI call that was not made, or was given up on: its circuit is open, its
+ * bulkhead stayed full, or it ran out of time. Transient, so ingestion retries
+ * the job later; callers with a fallback use it instead.
+ */
+public class OpenAiUnavailableException extends TransientAiException {
+
+    public OpenAiUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,36 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * A chat model whose calls and streams go through an {@link OpenAiLane}.
+ */
+public class ResilientChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final OpenAiLane lane;
+
+    public ResilientChatModel(ChatModel delegate, OpenAiLane lane) {
+        this.delegate = delegate;
+        this.lane = lane;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return lane.call(() -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return lane.stream(() -> delegate.stream(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
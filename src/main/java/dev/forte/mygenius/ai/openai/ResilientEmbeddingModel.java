@@ -0,0 +1,35 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * An embedding model whose calls go through an {@link OpenAiLane}.
+ */
+public class ResilientEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final OpenAiLane lane;
+
+    public ResilientEmbeddingModel(EmbeddingModel delegate, OpenAiLane lane) {
+        this.delegate = delegate;
+        this.lane = lane;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return lane.call(() -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return lane.call(() -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
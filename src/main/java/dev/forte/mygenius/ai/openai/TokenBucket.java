@@ -0,0 +1,49 @@
+package dev.forte.mygenius.ai.openai;
+
+/**
+ * Classic token bucket: holds up to {@code capacity} permits and refills
+ * continuously at {@code capacity} per {@code periodNanos}.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long lastRefill;
+
+    TokenBucket(long capacity, long periodNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = (double) capacity / periodNanos;
+        this.available = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    long capacity() {
+        return (long) capacity;
+    }
+
+    /**
+     * Returns how long the caller has to wait before {@code permits} are available,
+     * or 0 if they are available now. Does not take anything from the bucket.
+     */
+    synchronized long nanosUntilAvailable(long permits) {
+        refill();
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    synchronized void take(long permits) {
+        refill();
+        available -= Math.min(permits, capacity);
+    }
+
+    synchronized void giveBack(long permits) {
+        available = Math.min(capacity, available + permits);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,42 @@
+package dev.forte.mygenius.ai.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates the time a cache saves: every hit is credited with the recent
+ * average time of a miss, an exponentially weighted moving average over the
+ * last few dozen misses. Published as the {@code search.cache.time-saved}
+ * counter, in seconds, tagged with the cache level.
+ */
+final class CacheSavings {
+
+    // Weight of a new sample is 1 / 2^SMOOTHING_SHIFT
+    private static final int SMOOTHING_SHIFT = 5;
+
+    private final Counter saved;
+    private final AtomicLong averageMissNanos = new AtomicLong();
+
+    CacheSavings(MeterRegistry meterRegistry, String level) {
+        this.saved = Counter.builder("search.cache.time-saved")
+                .description("Estimated time not spent recomputing what the cache returned")
+                .baseUnit("seconds")
+                .tag("level", level)
+                .register(meterRegistry);
+    }
+
+    void miss(long nanos) {
+        averageMissNanos.accumulateAndGet(nanos,
+                (average, sample) -> average == 0 ? sample : average + ((sample - average) >> SMOOTHING_SHIFT));
+    }
+
+    void hit() {
+        saved.increment(averageMissNanos.get() / 1e9);
+    }
+
+    long averageMissNanos() {
+        return averageMissNanos.get();
+    }
+}
@@ -0,0 +1,71 @@
+package dev.forte.mygenius.ai.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Embeddings of search queries, keyed by the hash of the normalized query
+ * ({@link dev.forte.mygenius.ai.embedding.CachingEmbeddingModel#hash(String)}).
+ *
+ * <p>Vectors are kept as raw floats in direct buffers, outside the heap, and the
+ * cache is bounded by their total size. It is separate from the embedding cache
+ * so that ingesting a large document, which embeds thousands of chunks once,
+ * doesn't push the queries users keep repeating out of memory.
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    // Rough per-entry overhead of the key, the buffer objects and the cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 250;
+
+    private final Cache<String, FloatBuffer> cache;
+    private final CacheSavings savings;
+
+    public QueryEmbeddingCache(MeterRegistry meterRegistry,
+                               @Value("${search.cache.query-embeddings.max-bytes:16777216}") long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, FloatBuffer vector) -> ENTRY_OVERHEAD_BYTES + vector.capacity() * Float.BYTES)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.query-embeddings");
+        Gauge.builder("search.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("level", "embedding")
+                .register(meterRegistry);
+        this.savings = new CacheSavings(meterRegistry, "embedding");
+    }
+
+    /**
+     * Returns the cached embedding of the query, or computes and caches it. Every
+     * call gets its own copy of the vector.
+     */
+    public float[] get(String queryHash, Supplier<float[]> embed) {
+        FloatBuffer cached = cache.getIfPresent(queryHash);
+        if (cached != null) {
+            savings.hit();
+            float[] vector = new float[cached.capacity()];
+            cached.get(0, vector);
+            return vector;
+        }
+
+        long start = System.nanoTime();
+        float[] vector = embed.get();
+        savings.miss(System.nanoTime() - start);
+        FloatBuffer buffer = ByteBuffer.allocateDirect(vector.length * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        buffer.put(0, vector);
+        cache.put(queryHash, buffer);
+        return vector;
+    }
+}
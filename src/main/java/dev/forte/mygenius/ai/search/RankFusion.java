@@ -0,0 +1,48 @@
+package dev.forte.mygenius.ai.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion: a document scores {@code 1 / (k + rank)} in every
+ * ranking it appears in (rank starting at 1), and the sums decide the fused
+ * order. Only ranks are used, so rankings with incomparable scores (cosine
+ * similarity, {@code ts_rank_cd}) combine without any tuning; {@code k = 60} is
+ * the usual choice.
+ */
+final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    /**
+     * Fuses the rankings, best first, and returns at most {@code limit} documents
+     * scored with their fused score. Documents are matched by id; the first
+     * ranking a document appears in provides its text and metadata.
+     */
+    static List<Document> fuse(List<List<Document>> rankings, int k, int limit) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                Document document = ranking.get(i);
+                scores.merge(document.getId(), 1.0 / (k + i + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+
+        List<Document> fused = new ArrayList<>(documents.size());
+        for (Document document : documents.values()) {
+            fused.add(document.mutate().score(scores.get(document.getId())).build());
+        }
+        // Stable sort: ties keep the order of the first ranking
+        fused.sort(Comparator.comparingDouble(Document::getScore).reversed());
+        return fused.size() > limit ? fused.subList(0, limit) : fused;
+    }
+}
@@ -0,0 +1,53 @@
+package dev.forte.mygenius.ai.search;
+
+import dev.forte.mygenius.security.CustomUserPrincipal;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/user/search")
+public class SearchController {
+
+    private final SemanticSearchService searchService;
+
+    public SearchController(SemanticSearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> search(
+            @AuthenticationPrincipal CustomUserPrincipal userPrincipal,
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "hybrid") String mode,
+            @RequestParam(defaultValue = "5") int topK,
+            @RequestParam(defaultValue = "0.0") double threshold,
+            @RequestParam(name = "documentId", required = false) List<UUID> documentIds,
+            @RequestParam(required = false) String topic) {
+
+        SearchMode searchMode;
+        try {
+            searchMode = SearchMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "mode must be hybrid, vector or lexical");
+        }
+
+        UUID userId = userPrincipal.getUserId();
+        List<SearchResultDTO> results =
+                searchService.search(userId, query, searchMode, topK, threshold, documentIds, topic);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("mode", searchMode.name().toLowerCase(Locale.ROOT));
+        response.put("results", results);
+        response.put("count", results.size());
+        return ResponseEntity.ok(response);
+    }
+}
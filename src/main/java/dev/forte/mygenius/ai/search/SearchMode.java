@@ -0,0 +1,11 @@
+package dev.forte.mygenius.ai.search;
+
+/**
+ * How {@link SemanticSearchService} finds chunks: by embedding similarity, by
+ * full-text match, or both, with the two rankings fused.
+ */
+public enum SearchMode {
+    HYBRID,
+    VECTOR,
+    LEXICAL
+}
@@ -0,0 +1,112 @@
+package dev.forte.mygenius.ai.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.forte.mygenius.ai.vector_store.UserVectorsChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranked result ids of recent searches, per user, query and filters.
+ *
+ * <p>Every user has a generation number that is part of the key. When the user's
+ * vectors change ({@link UserVectorsChangedEvent}: an upload was deleted or new
+ * content ingested) the generation moves on, and the user's older results can no
+ * longer be found; they age out of the cache on their own. A search takes the
+ * key, and with it the generation, before it runs, so results computed while the
+ * vectors were changing are stored under the old generation and never served.
+ */
+@Component
+public class SearchResultCache {
+
+    /**
+     * Everything a search's results depend on. Document ids are sorted and the topic
+     * is null when absent, so equivalent requests share a key.
+     */
+    public record Key(UUID userId, long generation, SearchMode mode, String queryHash, int topK, double threshold,
+                      List<UUID> documentIds, String topic) {
+    }
+
+    public record Hit(String id, Double score) {
+    }
+
+    private final Cache<Key, List<Hit>> results;
+    private final Cache<UUID, AtomicLong> generations;
+    private final CacheSavings savings;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${search.cache.results.max-entries:10000}") long maxEntries,
+                             @Value("${search.cache.results.ttl-seconds:600}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // A generation must outlive every result stored under it; if it was dropped
+        // and restarted at 0 while such results remained, they would be served again
+        this.generations = Caffeine.newBuilder()
+                .expireAfterAccess(ttl.multipliedBy(2))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "search.results");
+        Gauge.builder("search.cache.hit.ratio", results, c -> c.stats().hitRate())
+                .tag("level", "results")
+                .register(meterRegistry);
+        this.savings = new CacheSavings(meterRegistry, "results");
+    }
+
+    public Key key(UUID userId, SearchMode mode, String queryHash, int topK, double threshold,
+                   List<UUID> documentIds, String topic) {
+        List<UUID> documents = documentIds == null ? List.of() : documentIds.stream().distinct().sorted().toList();
+        return new Key(userId, generation(userId).get(), mode, queryHash, topK, threshold, documents,
+                topic == null || topic.isBlank() ? null : topic);
+    }
+
+    /**
+     * @return the cached hits in rank order, or null
+     */
+    public List<Hit> get(Key key) {
+        List<Hit> hits = results.getIfPresent(key);
+        if (hits != null) {
+            savings.hit();
+        }
+        return hits;
+    }
+
+    /**
+     * Stores the ranked results of a search that missed the cache.
+     *
+     * @param nanos how long the search took
+     */
+    public void put(Key key, List<Document> documents, long nanos) {
+        savings.miss(nanos);
+        results.put(key, documents.stream().map(document -> new Hit(document.getId(), document.getScore())).toList());
+    }
+
+    /**
+     * Runs after the transaction that changed the vectors commits, or right away
+     * outside a transaction.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserVectorsChanged(UserVectorsChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    public void invalidate(UUID userId) {
+        generation(userId).incrementAndGet();
+    }
+
+    private AtomicLong generation(UUID userId) {
+        return generations.get(userId, id -> new AtomicLong());
+    }
+}
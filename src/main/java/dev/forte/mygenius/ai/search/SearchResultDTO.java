@@ -0,0 +1,88 @@
+package dev.forte.mygenius.ai.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Map;
+
+public class SearchResultDTO {
+
+    private String id;
+    private String content;
+    private Double score;
+    private String documentId;
+    private String contentId;
+    private Integer chunkIndex;
+    private String topic;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getContentId() {
+        return contentId;
+    }
+
+    public void setContentId(String contentId) {
+        this.contentId = contentId;
+    }
+
+    public Integer getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(Integer chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public static SearchResultDTO fromDocument(Document document) {
+        Map<String, Object> metadata = document.getMetadata();
+        SearchResultDTO dto = new SearchResultDTO();
+        dto.setId(document.getId());
+        dto.setContent(document.getText());
+        dto.setScore(document.getScore());
+        dto.setDocumentId((String) metadata.get("document_id"));
+        dto.setContentId((String) metadata.get("content_id"));
+        if (metadata.get("chunk_index") instanceof Number index) {
+            dto.setChunkIndex(index.intValue());
+        }
+        // Image descriptions have no topic, they are labelled by their content type
+        dto.setTopic((String) metadata.getOrDefault("topic", metadata.get("content_type")));
+        return dto;
+    }
+}
@@ -0,0 +1,219 @@
+package dev.forte.mygenius.ai.search;
+
+import dev.forte.mygenius.ai.embedding.CachingEmbeddingModel;
+import dev.forte.mygenius.ai.openai.Deadline;
+import dev.forte.mygenius.ai.openai.OpenAiUnavailableException;
+import dev.forte.mygenius.ai.vector_store.HotVectorTier;
+import dev.forte.mygenius.ai.vector_store.PartitionedVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Search over a user's own chunks and image descriptions, by embedding similarity,
+ * by full-text match, or both ({@link SearchMode}).
+ *
+ * <p>Hybrid search runs the vector and the full-text query at the same time on
+ * virtual threads, each for a few times more candidates than asked for, and fuses
+ * the two rankings with {@link RankFusion}. It takes about as long as the slower
+ * of the two, usually the vector leg since it embeds the query first.
+ *
+ * <p>Every search carries a {@code user_id} filter. {@link PartitionedVectorStore}
+ * turns it into a {@code user_id = ?} condition on the partition key and the rest
+ * into a {@code metadata @@ jsonpath} condition, in the same SQL statement as the
+ * distance ordering, so a search only reads the user's partition.
+ *
+ * <p>Repeated searches are served from two caches: {@link SearchResultCache} keeps
+ * the ranked ids of recent results, which are loaded again by primary key, and
+ * {@link QueryEmbeddingCache} spares the embedding call when the same query runs
+ * with other filters or after the user's vectors changed.
+ */
+@Slf4j
+@Service
+public class SemanticSearchService {
+
+    // Filter values are inlined in the jsonpath text, these would break out of it
+    private static final Pattern UNSAFE_FILTER_VALUE = Pattern.compile("['\"\\\\]");
+
+    private final PartitionedVectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final QueryEmbeddingCache queryEmbeddings;
+    private final SearchResultCache resultCache;
+    private final HotVectorTier hotTier;
+    private final Map<SearchMode, Timer> searchTimers = new EnumMap<>(SearchMode.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxTopK;
+    private final int candidateMultiplier;
+    private final int rrfK;
+
+    @Value("${search.embedding-deadline:10s}")
+    private Duration embeddingDeadline;
+
+    public SemanticSearchService(PartitionedVectorStore vectorStore, EmbeddingModel embeddingModel,
+                                 QueryEmbeddingCache queryEmbeddings, SearchResultCache resultCache,
+                                 HotVectorTier hotTier, MeterRegistry meterRegistry,
+                                 @Value("${search.max-top-k:50}") int maxTopK,
+                                 @Value("${search.hybrid.candidate-multiplier:4}") int candidateMultiplier,
+                                 @Value("${search.hybrid.rrf-k:60}") int rrfK) {
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.queryEmbeddings = queryEmbeddings;
+        this.resultCache = resultCache;
+        this.hotTier = hotTier;
+        this.maxTopK = maxTopK;
+        this.candidateMultiplier = candidateMultiplier;
+        this.rrfK = rrfK;
+        for (SearchMode mode : SearchMode.values()) {
+            searchTimers.put(mode, Timer.builder("search.latency")
+                    .description("Time to run a search, including embedding the query and cache hits")
+                    .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                    .publishPercentiles(0.5, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Returns the user's {@code topK} best chunks for {@code query}, optionally only
+     * from the given documents and/or with the given topic. {@code threshold} is the
+     * minimum similarity of vector matches; full-text matches don't have one.
+     */
+    public List<SearchResultDTO> search(UUID userId, String query, SearchMode mode, int topK, double threshold,
+                                        List<UUID> documentIds, String topic) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query must not be empty");
+        }
+        if (topK < 1 || topK > maxTopK) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK must be between 1 and " + maxTopK);
+        }
+        if (threshold < 0 || threshold > 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "threshold must be between 0 and 1");
+        }
+
+        SearchRequest request = SearchRequest.builder()
+                .query(query)
+                .topK(mode == SearchMode.HYBRID ? topK * candidateMultiplier : topK)
+                .similarityThreshold(threshold)
+                .filterExpression(filter(userId, documentIds, topic))
+                .build();
+        String queryHash = CachingEmbeddingModel.hash(query);
+        SearchResultCache.Key key = resultCache.key(userId, mode, queryHash, topK, threshold, documentIds, topic);
+
+        List<Document> documents = searchTimers.get(mode).record(() -> {
+            List<SearchResultCache.Hit> hits = resultCache.get(key);
+            if (hits != null) {
+                return load(userId, hits);
+            }
+            long start = System.nanoTime();
+            boolean userOnly = (documentIds == null || documentIds.isEmpty()) && (topic == null || topic.isBlank());
+            List<Document> found = switch (mode) {
+                case VECTOR -> vectorSearch(userId, request, queryHash, userOnly);
+                case LEXICAL -> vectorStore.lexicalSearch(request);
+                case HYBRID -> hybridSearch(userId, request, queryHash, userOnly, topK);
+            };
+            resultCache.put(key, found, System.nanoTime() - start);
+            return found;
+        });
+        log.debug("{} search for user {} returned {} results", mode, userId, documents.size());
+        return documents.stream().map(SearchResultDTO::fromDocument).toList();
+    }
+
+    /**
+     * Loads cached hits, in their cached order and with their cached scores. Hits
+     * whose vectors are gone by now are skipped.
+     */
+    private List<Document> load(UUID userId, List<SearchResultCache.Hit> hits) {
+        Map<String, Document> byId = vectorStore.findByIds(userId,
+                hits.stream().map(SearchResultCache.Hit::id).toList());
+        List<Document> documents = new ArrayList<>(hits.size());
+        for (SearchResultCache.Hit hit : hits) {
+            Document document = byId.get(hit.id());
+            if (document != null) {
+                documents.add(document.mutate().score(hit.score()).build());
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Searches by embedding, in the user's {@link HotVectorTier} index when there is
+     * one and the search has no filter besides the user.
+     */
+    private List<Document> vectorSearch(UUID userId, SearchRequest request, String queryHash, boolean userOnly) {
+        float[] embedding;
+        try {
+            embedding = queryEmbeddings.get(queryHash,
+                    () -> Deadline.call(embeddingDeadline, () -> embeddingModel.embed(request.getQuery())));
+        } catch (OpenAiUnavailableException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search is unavailable, try again later");
+        }
+        if (userOnly) {
+            List<Document> hot = hotTier.search(userId, embedding, request.getTopK(), request.getSimilarityThreshold());
+            if (hot != null) {
+                return hot;
+            }
+        }
+        return vectorStore.similaritySearch(request, embedding);
+    }
+
+    private List<Document> hybridSearch(UUID userId, SearchRequest request, String queryHash, boolean userOnly,
+                                        int topK) {
+        CompletableFuture<List<Document>> vector =
+                CompletableFuture.supplyAsync(() -> vectorSearch(userId, request, queryHash, userOnly), executor);
+        CompletableFuture<List<Document>> lexical =
+                CompletableFuture.supplyAsync(() -> vectorStore.lexicalSearch(request), executor);
+        try {
+            return RankFusion.fuse(List.of(vector.join(), lexical.join()), rrfK, topK);
+        } catch (CompletionException e) {
+            vector.cancel(true);
+            lexical.cancel(true);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    static Filter.Expression filter(UUID userId, List<UUID> documentIds, String topic) {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        FilterExpressionBuilder.Op filter = b.eq("user_id", userId.toString());
+        if (documentIds != null && !documentIds.isEmpty()) {
+            filter = b.and(filter, b.in("document_id", documentIds.stream().map(UUID::toString).toArray()));
+        }
+        if (topic != null && !topic.isBlank()) {
+            if (UNSAFE_FILTER_VALUE.matcher(topic).find()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topic must not contain quotes or backslashes");
+            }
+            filter = b.and(filter, b.eq("topic", topic));
+        }
+        return filter.build();
+    }
+}
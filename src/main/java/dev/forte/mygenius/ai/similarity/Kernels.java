@@ -0,0 +1,22 @@
+package dev.forte.mygenius.ai.similarity;
+
+/**
+ * The loops everything in {@link VectorSimilarity} is built from, over array
+ * ranges. Implementations must give the same results up to float rounding.
+ */
+interface Kernels {
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product of floats with int8 codes.
+     */
+    float dot(float[] a, byte[] b, int bOffset, int length);
+
+    /**
+     * Dot product of two int8 code ranges, exact in integers.
+     */
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+}
@@ -0,0 +1,120 @@
+package dev.forte.mygenius.ai.similarity;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the Vector API, at the widest float vector the CPU supports (8 lanes
+ * with AVX2, 16 with AVX-512). Each loop keeps two accumulators to overlap the
+ * fused multiply-adds, and finishes the last {@code length % lanes} elements in
+ * scalar code.
+ *
+ * <p>Int8 codes are loaded as byte vectors with as many lanes as a float vector
+ * and widened in registers. Loading this class fails when the JVM was started
+ * without {@code --add-modules jdk.incubator.vector}; {@link VectorSimilarity}
+ * checks first.
+ */
+final class SimdKernels implements Kernels {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Null below 8 lanes: a 32-bit byte vector doesn't exist, the byte kernels fall back to scalar
+    private static final VectorSpecies<Byte> BYTES = FLOATS.length() >= 8
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * Byte.SIZE))
+            : null;
+
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    static int lanes() {
+        return FLOATS.length();
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (; i + 2 * step <= length; i += 2 * step) {
+            sum0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), sum0);
+            sum1 = FloatVector.fromArray(FLOATS, a, aOffset + i + step)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i + step), sum1);
+        }
+        for (; i + step <= length; i += step) {
+            sum0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), sum0);
+        }
+        float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        return sum + scalar.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    public float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (; i + 2 * step <= length; i += 2 * step) {
+            FloatVector d0 = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i));
+            FloatVector d1 = FloatVector.fromArray(FLOATS, a, aOffset + i + step)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i + step));
+            sum0 = d0.fma(d0, sum0);
+            sum1 = d1.fma(d1, sum1);
+        }
+        for (; i + step <= length; i += step) {
+            FloatVector d = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i));
+            sum0 = d.fma(d, sum0);
+        }
+        float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        return sum + scalar.squaredL2(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    public float dot(float[] a, byte[] b, int bOffset, int length) {
+        if (BYTES == null) {
+            return scalar.dot(a, b, bOffset, length);
+        }
+        int step = FLOATS.length();
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (; i + step <= length; i += step) {
+            FloatVector codes = (FloatVector) ByteVector.fromArray(BYTES, b, bOffset + i)
+                    .convertShape(VectorOperators.B2F, FLOATS, 0);
+            sum = FloatVector.fromArray(FLOATS, a, i).fma(codes, sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + tailDot(a, i, b, bOffset + i, length - i);
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        if (BYTES == null) {
+            return scalar.dot(a, aOffset, b, bOffset, length);
+        }
+        int step = INTS.length();
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (; i + step <= length; i += step) {
+            IntVector x = (IntVector) ByteVector.fromArray(BYTES, a, aOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            IntVector y = (IntVector) ByteVector.fromArray(BYTES, b, bOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            sum = x.mul(y).add(sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + scalar.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    private static float tailDot(float[] a, int aOffset, byte[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,238 @@
+package dev.forte.mygenius.ai.similarity;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Dot product, cosine similarity and Euclidean distance of embeddings, one pair
+ * at a time or one query against many vectors.
+ *
+ * <p>With {@code --add-modules jdk.incubator.vector} on the command line the
+ * loops run on SIMD registers through the Vector API; otherwise, or with
+ * {@code -Dsimilarity.simd=false}, on plain scalar loops. Either way the results
+ * agree up to float rounding.
+ *
+ * <p>Many vectors are passed as one flat array, or buffer, of {@code count}
+ * consecutive vectors of the query's length. Vectors in buffers, which may live
+ * outside the heap, are copied into a per-thread array a block at a time before
+ * the kernel runs: the Vector API of Java 21 can only load from buffers through
+ * the preview {@code MemorySegment} API, and the copy is a memcpy that costs far
+ * less than the arithmetic.
+ */
+@Slf4j
+public final class VectorSimilarity {
+
+    // Vectors copied out of a buffer per kernel call in the batched methods
+    private static final int BLOCK_VECTORS = 64;
+
+    private static final Kernels KERNELS = selectKernels();
+    private static final ThreadLocal<float[]> FLOAT_SCRATCH = ThreadLocal.withInitial(() -> new float[0]);
+    private static final ThreadLocal<byte[]> BYTE_SCRATCH = ThreadLocal.withInitial(() -> new byte[0]);
+
+    private VectorSimilarity() {
+    }
+
+    /**
+     * Whether the SIMD kernels are in use.
+     */
+    public static boolean simd() {
+        return KERNELS instanceof SimdKernels;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        checkLength(a.length, b.length);
+        return KERNELS.dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Cosine similarity, 0 when either vector is all zeros.
+     */
+    public static float cosine(float[] a, float[] b) {
+        checkLength(a.length, b.length);
+        float norms = (float) Math.sqrt(KERNELS.dot(a, 0, a, 0, a.length) * KERNELS.dot(b, 0, b, 0, b.length));
+        return norms == 0 ? 0 : KERNELS.dot(a, 0, b, 0, a.length) / norms;
+    }
+
+    /**
+     * Euclidean distance.
+     */
+    public static float l2(float[] a, float[] b) {
+        checkLength(a.length, b.length);
+        return (float) Math.sqrt(KERNELS.squaredL2(a, 0, b, 0, a.length));
+    }
+
+    /**
+     * Dot products of the query with {@code count} vectors laid out one after the other.
+     */
+    public static void dot(float[] query, float[] vectors, int count, float[] scores) {
+        int dimensions = query.length;
+        checkBatch(vectors.length, dimensions, count, scores);
+        for (int v = 0; v < count; v++) {
+            scores[v] = KERNELS.dot(query, 0, vectors, v * dimensions, dimensions);
+        }
+    }
+
+    /**
+     * Cosine similarities of the query with {@code count} vectors laid out one
+     * after the other. The query's norm is computed once.
+     */
+    public static void cosine(float[] query, float[] vectors, int count, float[] scores) {
+        int dimensions = query.length;
+        checkBatch(vectors.length, dimensions, count, scores);
+        float queryNorm = (float) Math.sqrt(KERNELS.dot(query, 0, query, 0, dimensions));
+        for (int v = 0; v < count; v++) {
+            scores[v] = cosine(query, queryNorm, vectors, v * dimensions);
+        }
+    }
+
+    /**
+     * Euclidean distances of the query to {@code count} vectors laid out one after the other.
+     */
+    public static void l2(float[] query, float[] vectors, int count, float[] distances) {
+        int dimensions = query.length;
+        checkBatch(vectors.length, dimensions, count, distances);
+        for (int v = 0; v < count; v++) {
+            distances[v] = (float) Math.sqrt(KERNELS.squaredL2(query, 0, vectors, v * dimensions, dimensions));
+        }
+    }
+
+    /**
+     * Dot product of the query with the vector that starts at {@code offset}, in floats.
+     */
+    public static float dot(float[] query, FloatBuffer vectors, int offset) {
+        float[] block = floatScratch(query.length);
+        vectors.get(offset, block, 0, query.length);
+        return KERNELS.dot(query, 0, block, 0, query.length);
+    }
+
+    /**
+     * Dot products of the query with {@code count} consecutive vectors, the first
+     * starting at {@code offset}, in floats.
+     */
+    public static void dot(float[] query, FloatBuffer vectors, int offset, int count, float[] scores) {
+        batch(query, vectors, offset, count, scores, Measure.DOT);
+    }
+
+    /**
+     * Cosine similarities of the query with {@code count} consecutive vectors, the
+     * first starting at {@code offset}, in floats.
+     */
+    public static void cosine(float[] query, FloatBuffer vectors, int offset, int count, float[] scores) {
+        batch(query, vectors, offset, count, scores, Measure.COSINE);
+    }
+
+    /**
+     * Euclidean distances of the query to {@code count} consecutive vectors, the
+     * first starting at {@code offset}, in floats.
+     */
+    public static void l2(float[] query, FloatBuffer vectors, int offset, int count, float[] distances) {
+        batch(query, vectors, offset, count, distances, Measure.L2);
+    }
+
+    /**
+     * Dot product of the query with the int8 codes that start at {@code offset};
+     * multiply by the codes' scale to get back to the original vector.
+     */
+    public static float dot(float[] query, ByteBuffer codes, int offset) {
+        byte[] block = byteScratch(query.length);
+        codes.get(offset, block, 0, query.length);
+        return KERNELS.dot(query, block, 0, query.length);
+    }
+
+    /**
+     * Dot product of two int8 code ranges of the same buffer, exact in integers.
+     */
+    public static int dot(ByteBuffer codes, int offsetA, int offsetB, int length) {
+        byte[] block = byteScratch(2 * length);
+        codes.get(offsetA, block, 0, length);
+        codes.get(offsetB, block, length, length);
+        return KERNELS.dot(block, 0, block, length, length);
+    }
+
+    private enum Measure { DOT, COSINE, L2 }
+
+    private static void batch(float[] query, FloatBuffer vectors, int offset, int count, float[] scores,
+                              Measure measure) {
+        int dimensions = query.length;
+        if (scores.length < count) {
+            throw new IllegalArgumentException("Room for " + scores.length + " scores, " + count + " needed");
+        }
+        float queryNorm = measure == Measure.COSINE
+                ? (float) Math.sqrt(KERNELS.dot(query, 0, query, 0, dimensions))
+                : 0;
+        float[] block = floatScratch(Math.min(count, BLOCK_VECTORS) * dimensions);
+        for (int first = 0; first < count; first += BLOCK_VECTORS) {
+            int inBlock = Math.min(BLOCK_VECTORS, count - first);
+            vectors.get(offset + first * dimensions, block, 0, inBlock * dimensions);
+            for (int v = 0; v < inBlock; v++) {
+                int start = v * dimensions;
+                scores[first + v] = switch (measure) {
+                    case DOT -> KERNELS.dot(query, 0, block, start, dimensions);
+                    case COSINE -> cosine(query, queryNorm, block, start);
+                    case L2 -> (float) Math.sqrt(KERNELS.squaredL2(query, 0, block, start, dimensions));
+                };
+            }
+        }
+    }
+
+    private static float cosine(float[] query, float queryNorm, float[] vectors, int offset) {
+        int dimensions = query.length;
+        float norms = queryNorm * (float) Math.sqrt(KERNELS.dot(vectors, offset, vectors, offset, dimensions));
+        return norms == 0 ? 0 : KERNELS.dot(query, 0, vectors, offset, dimensions) / norms;
+    }
+
+    private static float[] floatScratch(int length) {
+        float[] scratch = FLOAT_SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new float[length];
+            FLOAT_SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private static byte[] byteScratch(int length) {
+        byte[] scratch = BYTE_SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[length];
+            BYTE_SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+
+    private static void checkLength(int a, int b) {
+        if (a != b) {
+            throw new IllegalArgumentException("Vectors of different lengths: " + a + " and " + b);
+        }
+    }
+
+    private static void checkBatch(int available, int dimensions, int count, float[] scores) {
+        if ((long) count * dimensions > available) {
+            throw new IllegalArgumentException(count + " vectors of " + dimensions + " dimensions don't fit in "
+                    + available + " floats");
+        }
+        if (scores.length < count) {
+            throw new IllegalArgumentException("Room for " + scores.length + " scores, " + count + " needed");
+        }
+    }
+
+    private static Kernels selectKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("similarity.simd", "true"))) {
+            log.info("Similarity kernels: scalar (disabled with similarity.simd=false)");
+            return new ScalarKernels();
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("Similarity kernels: scalar; start the JVM with --add-modules jdk.incubator.vector for SIMD");
+            return new ScalarKernels();
+        }
+        try {
+            SimdKernels kernels = new SimdKernels();
+            log.info("Similarity kernels: SIMD, {} float lanes", SimdKernels.lanes());
+            return kernels;
+        } catch (LinkageError e) {
+            log.warn("Similarity kernels: scalar, the Vector API could not be loaded", e);
+            return new ScalarKernels();
+        }
+    }
+}
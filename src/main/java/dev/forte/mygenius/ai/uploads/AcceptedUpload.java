@@ -0,0 +1,9 @@
+package dev.forte.mygenius.ai.uploads;
+
+/**
+ * An upload as accepted by the upload endpoints, with its processing status:
+ * {@code queued}, or {@code completed} when the user had already uploaded the
+ * same file and its processed content is reused.
+ */
+public record AcceptedUpload(Upload upload, String status) {
+}
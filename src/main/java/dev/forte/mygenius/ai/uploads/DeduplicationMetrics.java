@@ -0,0 +1,32 @@
+package dev.forte.mygenius.ai.uploads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts how uploads were processed, as {@code uploads.deduplication} tagged with
+ * the upload {@code type} and an {@code outcome}:
+ * <ul>
+ *     <li>{@code same_user}: the user already had the file, nothing was processed</li>
+ *     <li>{@code cross_user}: another upload of the file was processed, its extraction was reused</li>
+ *     <li>{@code miss}: the file was processed from scratch</li>
+ * </ul>
+ * The hit rate is {@code (same_user + cross_user) / total}.
+ */
+@Component
+public class DeduplicationMetrics {
+
+    public static final String SAME_USER = "same_user";
+    public static final String CROSS_USER = "cross_user";
+    public static final String MISS = "miss";
+
+    private final MeterRegistry meterRegistry;
+
+    public DeduplicationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String type, String outcome) {
+        meterRegistry.counter("uploads.deduplication", "type", type, "outcome", outcome).increment();
+    }
+}
@@ -1,47 +1,96 @@
 package dev.forte.mygenius.ai.uploads;
 
+import dev.forte.mygenius.paging.CursorPage;
 import dev.forte.mygenius.security.CustomUserPrincipal;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/user/uploads")
 public class UploadController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Either {@code uploadIds}, or a filter of {@code fileType} ({@code IMAGE} or
+     * {@code DOCUMENT}) and/or {@code createdBefore}.
+     */
+    public record BulkDeleteRequest(List<UUID> uploadIds, String fileType, LocalDateTime createdBefore) {
+    }
+
     private final UploadService uploadService;
+    private final int maxDeleteIds;
 
-    public UploadController(UploadService uploadService) {
+    public UploadController(UploadService uploadService,
+                            @Value("${uploads.delete.max-ids:1000}") int maxDeleteIds) {
         this.uploadService = uploadService;
+        this.maxDeleteIds = maxDeleteIds;
     }
 
+    /**
+     * The caller's uploads, newest first. Pass the {@code nextCursor} of a page as
+     * {@code cursor} to get the next one; {@code includeTotal} adds an approximate
+     * count. The older {@code page} parameter still gives offset paging with exact
+     * totals, which is slow for large libraries.
+     */
     @GetMapping
     public ResponseEntity<Map<String, Object>> getUserUploads(
             @AuthenticationPrincipal CustomUserPrincipal userPrincipal,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
 
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+        }
         UUID userId = userPrincipal.getUserId();
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<UploadDTO> uploadsPage = uploadService.getUserUploadDTOs(userId, pageable);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("uploads", uploadsPage.getContent());
-        response.put("currentPage", uploadsPage.getNumber());
-        response.put("totalItems", uploadsPage.getTotalElements());
-        response.put("totalPages", uploadsPage.getTotalPages());
 
+        if (page != null && cursor == null) {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+            Page<UploadDTO> uploadsPage = uploadService.getUserUploadDTOs(userId, pageable);
+            response.put("uploads", uploadsPage.getContent());
+            response.put("currentPage", uploadsPage.getNumber());
+            response.put("totalItems", uploadsPage.getTotalElements());
+            response.put("totalPages", uploadsPage.getTotalPages());
+            return ResponseEntity.ok(response);
+        }
+
+        CursorPage<UploadDTO> uploads = uploadService.listUploads(userId, cursor, size);
+        response.put("uploads", uploads.items());
+        response.put("nextCursor", uploads.nextCursor());
+        response.put("hasMore", uploads.hasMore());
+        if (includeTotal) {
+            response.put("approximateTotal", uploadService.approximateUploadCount(userId));
+        }
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/{uploadId}/status")
+    public ResponseEntity<Map<String, Object>> getUploadStatus(
+            @PathVariable UUID uploadId,
+            @AuthenticationPrincipal CustomUserPrincipal userPrincipal) {
+
+        UUID userId = userPrincipal.getUserId();
+        return ResponseEntity.ok(uploadService.getUploadStatus(uploadId, userId));
+    }
+
     @DeleteMapping("/{uploadId}")
     public ResponseEntity<?> deleteUpload(
             @PathVariable UUID uploadId,
@@ -51,4 +100,38 @@ public class UploadController {
         uploadService.deleteUpload(uploadId, userId);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Deletes many of the caller's uploads at once, listed by id or matched by a
+     * filter. Both delete in batches, so on failure part of the uploads may
+     * already be gone.
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> deleteUploads(
+            @AuthenticationPrincipal CustomUserPrincipal userPrincipal,
+            @RequestBody BulkDeleteRequest request) {
+
+        UUID userId = userPrincipal.getUserId();
+        long deleted;
+        if (request.uploadIds() != null) {
+            if (request.fileType() != null || request.createdBefore() != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Give either uploadIds or a filter, not both");
+            }
+            if (request.uploadIds().isEmpty() || request.uploadIds().size() > maxDeleteIds) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "uploadIds must list between 1 and " + maxDeleteIds + " uploads");
+            }
+            deleted = uploadService.deleteUploads(userId, Set.copyOf(request.uploadIds()));
+        } else {
+            if (request.fileType() == null && request.createdBefore() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Give uploadIds, fileType or createdBefore");
+            }
+            if (request.fileType() != null && !"IMAGE".equals(request.fileType())
+                    && !"DOCUMENT".equals(request.fileType())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fileType must be IMAGE or DOCUMENT");
+            }
+            deleted = uploadService.deleteUploadsMatching(userId, request.fileType(), request.createdBefore());
+        }
+        return ResponseEntity.ok(Map.of("deleted", deleted));
+    }
+}
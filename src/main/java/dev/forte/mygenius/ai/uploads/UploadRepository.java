@@ -10,4 +10,6 @@ import java.util.UUID;
 public interface UploadRepository extends JpaRepository<Upload, UUID> {
     Page<Upload> findByUserId(UUID userId, Pageable pageable);
     Optional<Upload> findByUploadIdAndUserId(UUID uploadId, UUID userId);
+
+    boolean existsByContentIdAndUploadIdNot(UUID contentId, UUID uploadId);
 }
\ No newline at end of file
@@ -1,103 +1,347 @@
 package dev.forte.mygenius.ai.uploads;
 
-import dev.forte.mygenius.ai.document_processing.DocumentContents;
-import dev.forte.mygenius.ai.document_processing.DocumentContentsRepository;
-import dev.forte.mygenius.ai.document_processing.DocumentRepository;
-import dev.forte.mygenius.ai.image_processing.ImageContent;
-import dev.forte.mygenius.ai.image_processing.ImageContentRepository;
-import dev.forte.mygenius.ai.image_processing.ImageRepository;
+import dev.forte.mygenius.ai.ingestion.IngestionJob;
+import dev.forte.mygenius.ai.ingestion.IngestionJobService;
+import dev.forte.mygenius.ai.vector_store.PartitionedVectorStore;
 import dev.forte.mygenius.errors.ResourceNotFoundException;
+import dev.forte.mygenius.paging.ApproximateTotals;
+import dev.forte.mygenius.paging.Cursor;
+import dev.forte.mygenius.paging.CursorPage;
+import dev.forte.mygenius.storage.BlobReferences;
+import lombok.extern.slf4j.Slf4j;
 
-
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @Transactional
 public class UploadService {
 
+    private static final RowMapper<UploadDTO> UPLOAD_ROW = (rs, rowNum) -> {
+        UploadDTO upload = new UploadDTO();
+        upload.setUploadId(rs.getObject("upload_id", UUID.class));
+        upload.setFileName(rs.getString("file_name"));
+        upload.setFileType(rs.getString("file_type"));
+        upload.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        return upload;
+    };
+
     private final UploadRepository uploadRepository;
-    private final DocumentRepository documentRepository;
-    private final DocumentContentsRepository documentContentsRepository;
-    private final ImageRepository imageRepository;
-    private final ImageContentRepository imageContentRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IngestionJobService ingestionJobService;
+    private final BlobReferences blobReferences;
+    private final PartitionedVectorStore vectorStore;
+    private final ApproximateTotals approximateTotals;
+    private final int deleteBatchSize;
+    private final int vectorDeleteBatchSize;
 
     public UploadService(UploadRepository uploadRepository,
-                         DocumentRepository documentRepository,
-                         DocumentContentsRepository documentContentsRepository,
-                         ImageRepository imageRepository,
-                         ImageContentRepository imageContentRepository,
-                         JdbcTemplate jdbcTemplate) {
+                         JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         IngestionJobService ingestionJobService,
+                         BlobReferences blobReferences,
+                         PartitionedVectorStore vectorStore,
+                         ApproximateTotals approximateTotals,
+                         @Value("${uploads.delete.batch-size:200}") int deleteBatchSize,
+                         @Value("${uploads.delete.vector-batch-size:5000}") int vectorDeleteBatchSize) {
         this.uploadRepository = uploadRepository;
-        this.documentRepository = documentRepository;
-        this.documentContentsRepository = documentContentsRepository;
-        this.imageRepository = imageRepository;
-        this.imageContentRepository = imageContentRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ingestionJobService = ingestionJobService;
+        this.blobReferences = blobReferences;
+        this.vectorStore = vectorStore;
+        this.approximateTotals = approximateTotals;
+        this.deleteBatchSize = deleteBatchSize;
+        this.vectorDeleteBatchSize = vectorDeleteBatchSize;
     }
 
-    @Transactional
+    /**
+     * Deletes one of the user's uploads, see {@link #deleteUploads(UUID, Collection)}.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void deleteUpload(UUID uploadId, UUID userId) {
-        // Find the upload and verify it belongs to the user
-        Upload upload = uploadRepository.findByUploadIdAndUserId(uploadId, userId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Upload not found or doesn't belong to user"));
+        if (deleteUploads(userId, List.of(uploadId)) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found or doesn't belong to user");
+        }
+    }
 
-        UUID contentId = upload.getContentId();
+    /**
+     * Deletes those of {@code uploadIds} that belong to the user, with their queued
+     * processing, their content and its vectors. Ids of other users' uploads, or of
+     * uploads already gone, are skipped. Runs {@code uploads.delete.batch-size}
+     * uploads per transaction like {@link #deleteUploadsMatching}; if a batch
+     * fails, the batches before it stay deleted.
+     *
+     * @return the number of uploads deleted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int deleteUploads(UUID userId, Collection<UUID> uploadIds) {
+        List<String> ids = uploadIds.stream().map(UUID::toString).toList();
+        int total = 0;
+        for (int from = 0; from < ids.size(); from += deleteBatchSize) {
+            String[] batch = ids.subList(from, Math.min(from + deleteBatchSize, ids.size())).toArray(String[]::new);
+            total += runDeleteBatch(userId, "user_id = ? AND upload_id = ANY(?::uuid[])", userId, batch);
+        }
+        return total;
+    }
 
-        if ("IMAGE".equals(upload.getFileType())) {
-            // Get the content_id from image_contents for vector deletion
-            Optional<ImageContent> imageContent = imageContentRepository.findByImageId(contentId);
+    /**
+     * Deletes the user's uploads of {@code fileType} created before
+     * {@code createdBefore}; either may be null to match any. Runs
+     * {@code uploads.delete.batch-size} uploads per transaction, so a large
+     * library never holds its locks for the whole delete; if a batch fails, the
+     * batches before it stay deleted.
+     *
+     * @return the number of uploads deleted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long deleteUploadsMatching(UUID userId, String fileType, LocalDateTime createdBefore) {
+        StringBuilder filter = new StringBuilder("user_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (fileType != null) {
+            filter.append(" AND file_type = ?");
+            args.add(fileType);
+        }
+        if (createdBefore != null) {
+            filter.append(" AND created_at < ?");
+            args.add(createdBefore);
+        }
+        args.add(deleteBatchSize);
+        String target = "upload_id IN (SELECT upload_id FROM uploads WHERE " + filter + " LIMIT ?)";
 
-            if (imageContent.isPresent()) {
-                // Delete vector embeddings directly via SQL
-                deleteVectorEmbeddings(imageContent.get().getContentId());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = runDeleteBatch(userId, target, args.toArray());
+            total += deleted;
+        } while (deleted == deleteBatchSize);
+        return total;
+    }
 
-                // Delete the image content
-                imageContentRepository.deleteByImageId(contentId);
-            }
+    /**
+     * Deletes all of the user's uploads, then any vectors and queued processing
+     * left without an upload, in short transactions. For removing an account.
+     *
+     * @return the number of uploads deleted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long purgeUploads(UUID userId) {
+        long uploads = deleteUploadsMatching(userId, null, null);
+        long strayVectors = vectorStore.deleteUser(userId, vectorDeleteBatchSize);
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("DELETE FROM ingestion_jobs WHERE user_id = ?", userId));
+        log.info("Purged {} uploads of user {}, {} vectors had no upload left", uploads, userId, strayVectors);
+        return uploads;
+    }
 
-            // Delete the image
-            imageRepository.deleteById(contentId);
+    /**
+     * Deletes the uploads matched by {@code target}, a condition on {@code uploads}
+     * whose parameters are {@code targetArgs}, in one statement: their ingestion
+     * jobs go with them, and so do their images or documents and the stored
+     * contents, unless another upload outside the batch still uses them. Their
+     * blobs are deleted after the transaction commits. Nothing is loaded into
+     * entities, and no content bytes are read.
+     *
+     * <p>The uploads and their contents are locked first, in statements of their
+     * own. A re-upload that found one of the contents to reuse holds it share-locked
+     * until its new upload commits, so the delete waits for it, and then runs on a
+     * snapshot that sees the new upload and keeps the content.
+     */
+    private DeletedBatch deleteBatch(String target, Object... targetArgs) {
+        String[] uploadIds = jdbcTemplate.queryForList(
+                        "SELECT upload_id::text FROM uploads WHERE " + target + " ORDER BY upload_id FOR UPDATE",
+                        String.class, targetArgs)
+                .toArray(String[]::new);
+        if (uploadIds.length == 0) {
+            return new DeletedBatch(0, List.of(), List.of());
         }
-        else if ("DOCUMENT".equals(upload.getFileType())) {
-            // Get the content_id from document_contents for vector deletion
-            Optional<DocumentContents> documentContent = documentContentsRepository.findByDocumentId(contentId);
+        jdbcTemplate.queryForObject("""
+                WITH documents_locked AS (
+                    SELECT 1 FROM document_contents
+                    WHERE document_id IN (SELECT content_id FROM uploads
+                                          WHERE upload_id = ANY(?::uuid[]) AND file_type = 'DOCUMENT')
+                    ORDER BY document_id
+                    FOR UPDATE
+                ), images_locked AS (
+                    SELECT 1 FROM image_contents
+                    WHERE image_id IN (SELECT content_id FROM uploads
+                                       WHERE upload_id = ANY(?::uuid[]) AND file_type = 'IMAGE')
+                    ORDER BY image_id
+                    FOR UPDATE
+                )
+                SELECT (SELECT count(*) FROM documents_locked) + (SELECT count(*) FROM images_locked)
+                """, Long.class, uploadIds, uploadIds);
 
-            if (documentContent.isPresent()) {
-                // Delete vector embeddings directly via SQL
-                deleteVectorEmbeddings(documentContent.get().getContentId());
+        DeletedBatch batch = jdbcTemplate.queryForObject("""
+                WITH doomed AS (
+                    DELETE FROM uploads WHERE upload_id = ANY(?::uuid[])
+                    RETURNING upload_id, content_id, file_type
+                ), jobs AS (
+                    DELETE FROM ingestion_jobs WHERE upload_id IN (SELECT upload_id FROM doomed)
+                ), orphaned AS (
+                    -- A re-upload of the same file shares the content, which stays for the other upload
+                    SELECT DISTINCT d.content_id, d.file_type FROM doomed d
+                    WHERE NOT EXISTS (SELECT 1 FROM uploads u
+                                      WHERE u.content_id = d.content_id
+                                        AND u.upload_id NOT IN (SELECT upload_id FROM doomed))
+                ), image_contents_gone AS (
+                    DELETE FROM image_contents
+                    WHERE image_id IN (SELECT content_id FROM orphaned WHERE file_type = 'IMAGE')
+                    RETURNING content_id, blob_key
+                ), images_gone AS (
+                    DELETE FROM images WHERE image_id IN (SELECT content_id FROM orphaned WHERE file_type = 'IMAGE')
+                ), document_contents_gone AS (
+                    DELETE FROM document_contents
+                    WHERE document_id IN (SELECT content_id FROM orphaned WHERE file_type = 'DOCUMENT')
+                    RETURNING content_id, blob_key
+                ), documents_gone AS (
+                    DELETE FROM documents
+                    WHERE document_id IN (SELECT content_id FROM orphaned WHERE file_type = 'DOCUMENT')
+                ), contents_gone AS (
+                    SELECT content_id, blob_key FROM image_contents_gone
+                    UNION ALL
+                    SELECT content_id, blob_key FROM document_contents_gone
+                )
+                SELECT (SELECT count(*) FROM doomed) AS uploads,
+                       ARRAY(SELECT content_id::text FROM contents_gone) AS content_ids,
+                       ARRAY(SELECT blob_key FROM contents_gone WHERE blob_key IS NOT NULL) AS blob_keys
+                """, (rs, rowNum) -> new DeletedBatch(
+                rs.getInt("uploads"),
+                Arrays.stream((String[]) rs.getArray("content_ids").getArray()).map(UUID::fromString).toList(),
+                List.of((String[]) rs.getArray("blob_keys").getArray())), (Object) uploadIds);
 
-                // For document_contents, we have to delete it explicitly since your interface
-                // doesn't appear to have a deleteByDocumentId method
-                documentContentsRepository.deleteById(documentContent.get().getContentId());
-            }
+        deleteBlobsAfterCommit(batch.blobKeys());
+        return batch;
+    }
 
-            // Now delete the document
-            documentRepository.deleteById(contentId);
-        }
+    /**
+     * Runs {@link #deleteBatch} in a transaction of its own, then deletes the
+     * vectors of the deleted contents, {@code uploads.delete.vector-batch-size}
+     * rows per transaction, so the vectors' locks are never held along with the
+     * uploads'. If that fails, the vectors left behind belong to no upload and
+     * are removed by {@link #purgeUploads}.
+     */
+    private int runDeleteBatch(UUID userId, String target, Object... targetArgs) {
+        DeletedBatch batch = transactionTemplate.execute(status -> deleteBatch(target, targetArgs));
+        // Vectors of the same content live in the user's partition
+        vectorStore.deleteContents(userId, batch.contentIds(), vectorDeleteBatchSize);
+        return batch.uploads();
+    }
 
-        // Finally delete the upload record
-        uploadRepository.deleteById(uploadId);
+    private record DeletedBatch(int uploads, List<UUID> contentIds, List<String> blobKeys) {
     }
 
-    private void deleteVectorEmbeddings(UUID contentId) {
-        // Updated SQL to search within the metadata JSONB field
-        String sql = "DELETE FROM vector_store WHERE metadata->>'content_id' = ?";
-        jdbcTemplate.update(sql, contentId.toString());
+    /**
+     * Removes the stored files once the rows are gone for good, except those
+     * another upload of the same bytes still points to, see {@link BlobReferences}.
+     */
+    private void deleteBlobsAfterCommit(List<String> blobKeys) {
+        if (blobKeys.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                blobReferences.deleteUnreferenced(blobKeys);
+            }
+        });
     }
 
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUploadStatus(UUID uploadId, UUID userId) {
+        Upload upload = uploadRepository.findByUploadIdAndUserId(uploadId, userId)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Upload not found or doesn't belong to user"));
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", upload.getUploadId());
+        status.put("fileName", upload.getFileName());
+        status.put("fileType", upload.getFileType());
+
+        Optional<IngestionJob> job = ingestionJobService.findLatestForUpload(uploadId);
+        if (job.isPresent()) {
+            status.put("status", job.get().getStatus());
+            status.put("attempts", job.get().getAttempts());
+            status.put("maxAttempts", job.get().getMaxAttempts());
+            status.put("updatedAt", job.get().getUpdatedAt());
+            if (job.get().getLastError() != null) {
+                status.put("error", job.get().getLastError());
+            }
+        } else {
+            // Uploads made before the ingestion queue existed were processed inline
+            status.put("status", IngestionJob.STATUS_COMPLETED);
+        }
+        return status;
+    }
+
+    /**
+     * Offset paging with a total count; both get slower the larger the library.
+     *
+     * @deprecated use {@link #listUploads(UUID, String, int)}
+     */
+    @Deprecated
     public Page<UploadDTO> getUserUploadDTOs(UUID userId, Pageable pageable) {
         Page<Upload> uploads = uploadRepository.findByUserId(userId, pageable);
         return uploads.map(UploadDTO::fromEntity);
     }
+
+    /**
+     * The user's uploads, newest first, {@code size} at a time from {@code cursor}
+     * (null for the first page). Each page is one seek on
+     * {@code idx_uploads_user_created}, and no count is run.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UploadDTO> listUploads(UUID userId, String cursor, int size) {
+        List<UploadDTO> rows;
+        if (cursor == null) {
+            rows = jdbcTemplate.query("""
+                    SELECT upload_id, file_name, file_type, created_at FROM uploads
+                    WHERE user_id = ?
+                    ORDER BY created_at DESC, upload_id DESC
+                    LIMIT ?
+                    """, UPLOAD_ROW, userId, size + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            rows = jdbcTemplate.query("""
+                    SELECT upload_id, file_name, file_type, created_at FROM uploads
+                    WHERE user_id = ? AND (created_at, upload_id) < (?, ?)
+                    ORDER BY created_at DESC, upload_id DESC
+                    LIMIT ?
+                    """, UPLOAD_ROW, userId, after.createdAt(), after.id(), size + 1);
+        }
+        return CursorPage.of(rows, size, upload -> new Cursor(upload.getCreatedAt(), upload.getUploadId()));
+    }
+
+    /**
+     * The number of uploads the user has, up to {@code paging.totals.ttl} old.
+     */
+    @Transactional(readOnly = true)
+    public long approximateUploadCount(UUID userId) {
+        return approximateTotals.get("uploads", userId, () -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM uploads WHERE user_id = ?", Long.class, userId));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,429 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) over
+ * {@link QuantizedVectors}, for cosine similarity.
+ *
+ * <p>The graph is built and walked on the int8 codes. A search collects
+ * {@code max(ef, k * rerank)} candidates on the bottom layer and re-ranks the
+ * best {@code k * rerank} of them on the original floats, so the similarities it
+ * returns are exact and only the candidate set is approximate.
+ *
+ * <p>Deleted vectors stay in the graph as tombstones, so it stays connected, and
+ * are left out of results. Callers should rebuild the index once a large share is
+ * deleted.
+ *
+ * <p>Not thread-safe: searches may run concurrently with each other, but not with
+ * {@link #add} or {@link #deleteContent}.
+ */
+public final class HnswIndex {
+
+    /**
+     * A search result, most similar first.
+     */
+    public record Match(UUID id, double similarity) {
+    }
+
+    private final int maxConnections;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final int initialCapacity;
+    private QuantizedVectors vectors;
+    // Per node and level: neighbour count followed by neighbour nodes
+    private int[][][] links;
+    private UUID[] ids;
+    private UUID[] contentIds;
+    private final Map<UUID, Integer> nodesById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param m               neighbours per node on the upper layers, twice that on the bottom one
+     * @param efConstruction  candidates considered when linking a new node
+     * @param initialCapacity expected number of vectors
+     */
+    public HnswIndex(int m, int efConstruction, int initialCapacity) {
+        this.maxConnections = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.initialCapacity = Math.max(16, initialCapacity);
+        this.links = new int[this.initialCapacity][][];
+        this.ids = new UUID[this.initialCapacity];
+        this.contentIds = new UUID[this.initialCapacity];
+    }
+
+    /**
+     * Adds a vector, replacing the one with the same id.
+     */
+    public void add(UUID id, UUID contentId, float[] embedding) {
+        Integer previous = nodesById.get(id);
+        if (previous != null) {
+            delete(previous);
+        }
+        if (vectors == null) {
+            vectors = new QuantizedVectors(embedding.length, initialCapacity);
+        }
+        float[] query = QuantizedVectors.normalize(embedding);
+        int node = vectors.add(embedding);
+        if (node == links.length) {
+            links = Arrays.copyOf(links, node * 2);
+            ids = Arrays.copyOf(ids, node * 2);
+            contentIds = Arrays.copyOf(contentIds, node * 2);
+        }
+        ids[node] = id;
+        contentIds[node] = contentId;
+        nodesById.put(id, node);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + (l == 0 ? maxConnections0 : maxConnections)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int nearest = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            nearest = greedyClosest(query, nearest, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(query, nearest, efConstruction, l);
+            float[] distances = new float[candidates.size()];
+            int[] sorted = candidates.drainNearestFirst(distances);
+            int[] selected = selectNeighbors(node, sorted, distances, l == 0 ? maxConnections0 : maxConnections);
+            int[] own = links[node][l];
+            own[0] = selected.length;
+            System.arraycopy(selected, 0, own, 1, selected.length);
+            for (int neighbor : selected) {
+                link(neighbor, node, l);
+            }
+            nearest = sorted[0];
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Marks all vectors of a content as deleted.
+     *
+     * @return how many were deleted
+     */
+    public int deleteContent(UUID contentId) {
+        int count = 0;
+        int size = size();
+        for (int node = 0; node < size; node++) {
+            if (!deleted.get(node) && contentId.equals(contentIds[node])) {
+                delete(node);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns up to {@code k} live vectors with a similarity of at least
+     * {@code threshold}, most similar first.
+     *
+     * @param ef     candidates kept while walking the bottom layer
+     * @param rerank candidates re-ranked exactly, per result asked for
+     */
+    public List<Match> search(float[] embedding, int k, int ef, int rerank, double threshold) {
+        if (entryPoint < 0 || live() == 0) {
+            return List.of();
+        }
+        float[] query = QuantizedVectors.normalize(embedding);
+        int nearest = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            nearest = greedyClosest(query, nearest, l);
+        }
+        int rerankCount = k * rerank;
+        NodeHeap found = searchLayer(query, nearest, Math.max(ef, rerankCount), 0);
+        int[] candidates = found.drainNearestFirst(new float[found.size()]);
+
+        List<Match> matches = new ArrayList<>(Math.min(rerankCount, candidates.length));
+        for (int i = 0; i < candidates.length && matches.size() < rerankCount; i++) {
+            int node = candidates[i];
+            if (!deleted.get(node)) {
+                matches.add(new Match(ids[node], vectors.exactSimilarity(query, node)));
+            }
+        }
+        matches.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
+        return matches.stream()
+                .filter(match -> match.similarity() >= threshold)
+                .limit(k)
+                .toList();
+    }
+
+    /**
+     * Number of live vectors.
+     */
+    public int live() {
+        return size() - deletedCount;
+    }
+
+    /**
+     * Share of the graph that is tombstones.
+     */
+    public double deletedRatio() {
+        int size = size();
+        return size == 0 ? 0 : (double) deletedCount / size;
+    }
+
+    /**
+     * Approximate memory held: the vectors off the heap, plus links and ids.
+     */
+    public long bytes() {
+        long vectorBytes = vectors == null ? 0 : vectors.bytes();
+        // Links: one array per node and level, bottom layer dominant; ids: two UUIDs and a map entry
+        long perNode = (1 + maxConnections0) * Integer.BYTES + 48 + 2 * 32 + 64;
+        return vectorBytes + (long) links.length * perNode;
+    }
+
+    private int size() {
+        return vectors == null ? 0 : vectors.size();
+    }
+
+    private void delete(int node) {
+        deleted.set(node);
+        deletedCount++;
+        nodesById.remove(ids[node]);
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+    }
+
+    private float distance(float[] query, int node) {
+        return 1 - vectors.approximateSimilarity(query, node);
+    }
+
+    private float distance(int a, int b) {
+        return 1 - vectors.approximateSimilarity(a, b);
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float d = distance(query, neighbors[i]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer, keeping the {@code ef} nearest nodes found.
+     */
+    private NodeHeap searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size());
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap nearest = new NodeHeap(ef + 1, true);
+        float startDistance = distance(query, start);
+        visited.set(start);
+        candidates.push(start, startDistance);
+        nearest.push(start, startDistance);
+
+        while (candidates.size() > 0) {
+            float candidateDistance = candidates.topDistance();
+            if (nearest.size() >= ef && candidateDistance > nearest.topDistance()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] neighbors = links[candidate][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(query, neighbor);
+                if (nearest.size() < ef || d < nearest.topDistance()) {
+                    candidates.push(neighbor, d);
+                    nearest.push(neighbor, d);
+                    if (nearest.size() > ef) {
+                        nearest.pop();
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * The paper's neighbour heuristic: a candidate is kept only if it is nearer to
+     * the new node than to every neighbour kept so far, which spreads the links in
+     * different directions instead of into one dense cluster.
+     */
+    private int[] selectNeighbors(int node, int[] sorted, float[] distances, int max) {
+        int[] selected = new int[Math.min(max, sorted.length)];
+        int count = 0;
+        for (int i = 0; i < sorted.length && count < selected.length; i++) {
+            int candidate = sorted[i];
+            if (candidate == node) {
+                continue;
+            }
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidate, selected[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void link(int from, int to, int level) {
+        int[] neighbors = links[from][level];
+        int max = neighbors.length - 1;
+        if (neighbors[0] < max) {
+            neighbors[++neighbors[0]] = to;
+            return;
+        }
+        // Full: choose again among the current neighbours and the new one
+        int[] pool = Arrays.copyOfRange(neighbors, 1, max + 2);
+        pool[max] = to;
+        float[] distances = new float[pool.length];
+        for (int i = 0; i < pool.length; i++) {
+            distances[i] = distance(from, pool[i]);
+        }
+        sortByDistance(pool, distances);
+        int[] selected = selectNeighbors(from, pool, distances, max);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private static void sortByDistance(int[] nodes, float[] distances) {
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float d = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > d) {
+                nodes[j + 1] = nodes[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            distances[j + 1] = d;
+        }
+    }
+
+    /**
+     * Binary heap of nodes by distance, nearest on top or, for {@code farthestOnTop},
+     * farthest on top.
+     */
+    private static final class NodeHeap {
+
+        private final boolean farthestOnTop;
+        private int[] nodes;
+        private float[] distances;
+        private int size;
+
+        NodeHeap(int capacity, boolean farthestOnTop) {
+            this.farthestOnTop = farthestOnTop;
+            this.nodes = new int[Math.max(4, capacity)];
+            this.distances = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topDistance() {
+            return distances[0];
+        }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(distance, distances[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            int node = nodes[size];
+            float distance = distances[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && above(distances[child + 1], distances[child])) {
+                    child++;
+                }
+                if (!above(distances[child], distance)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+            return top;
+        }
+
+        /**
+         * Empties a farthest-on-top heap into arrays, nearest first.
+         */
+        int[] drainNearestFirst(float[] distancesOut) {
+            int[] sorted = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                distancesOut[i] = distances[0];
+                sorted[i] = pop();
+            }
+            return sorted;
+        }
+
+        private boolean above(float a, float b) {
+            return farthestOnTop ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional in-process tier in front of pgvector for users with large libraries:
+ * an {@link HnswIndex} per user over int8-quantized copies of their vectors, kept
+ * outside the heap.
+ *
+ * <p>The first search of a user starts loading their vectors in the background
+ * and goes to Postgres, as do all searches until the index is ready. Users with
+ * fewer than {@code min-vectors} vectors are not worth the memory and are checked
+ * again after a while. Indexes stay in sync through {@link UserVectorsChangedEvent}s:
+ * written vectors are inserted, deleted content is tombstoned, and any other
+ * change, or too many tombstones, drops the index so the next search reloads it.
+ *
+ * <p>All indexes together stay under {@code max-bytes}; the least recently
+ * searched ones are dropped first.
+ */
+@Slf4j
+@Component
+public class HotVectorTier {
+
+    private enum State { LOADING, READY, COLD }
+
+    private static final class Slot {
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        volatile State state = State.LOADING;
+        volatile HnswIndex index;
+        // Guarded by the write lock while loading
+        final List<UserVectorsChangedEvent> pending = new ArrayList<>();
+        // Guarded by the tier
+        long bytes;
+        long coldUntilNanos;
+    }
+
+    private final PartitionedVectorStore vectorStore;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long minVectors;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int rerankMultiplier;
+    private final double maxDeletedRatio;
+    private final long coldRecheckNanos;
+
+    // Access-ordered, least recently searched first; guarded by this
+    private final LinkedHashMap<UUID, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loadTimer;
+
+    public HotVectorTier(PartitionedVectorStore vectorStore, MeterRegistry meterRegistry,
+                         @Value("${vectors.hot-tier.enabled:false}") boolean enabled,
+                         @Value("${vectors.hot-tier.max-bytes:268435456}") long maxBytes,
+                         @Value("${vectors.hot-tier.min-vectors:5000}") long minVectors,
+                         @Value("${vectors.hot-tier.hnsw.m:16}") int m,
+                         @Value("${vectors.hot-tier.hnsw.ef-construction:64}") int efConstruction,
+                         @Value("${vectors.hot-tier.hnsw.ef-search:100}") int efSearch,
+                         @Value("${vectors.hot-tier.rerank-multiplier:4}") int rerankMultiplier,
+                         @Value("${vectors.hot-tier.max-deleted-ratio:0.3}") double maxDeletedRatio,
+                         @Value("${vectors.hot-tier.cold-recheck-minutes:30}") long coldRecheckMinutes) {
+        this.vectorStore = vectorStore;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.minVectors = minVectors;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.rerankMultiplier = rerankMultiplier;
+        this.maxDeletedRatio = maxDeletedRatio;
+        this.coldRecheckNanos = TimeUnit.MINUTES.toNanos(coldRecheckMinutes);
+        this.hits = Counter.builder("vectors.hot-tier.searches").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("vectors.hot-tier.searches").tag("result", "miss").register(meterRegistry);
+        this.loadTimer = Timer.builder("vectors.hot-tier.load")
+                .description("Time to read a user's vectors and build their index")
+                .register(meterRegistry);
+        Gauge.builder("vectors.hot-tier.bytes", this, HotVectorTier::usedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Searches the user's index like {@link PartitionedVectorStore#similaritySearch},
+     * with the same scores and {@code distance} metadata.
+     *
+     * @return the results, or null when the user has no index ready
+     */
+    public List<Document> search(UUID userId, float[] queryEmbedding, int topK, double threshold) {
+        if (!enabled) {
+            return null;
+        }
+        Slot slot = slotFor(userId);
+        if (slot.state != State.READY) {
+            misses.increment();
+            return null;
+        }
+        List<HnswIndex.Match> matches;
+        slot.lock.readLock().lock();
+        try {
+            HnswIndex index = slot.index;
+            if (index == null) {
+                misses.increment();
+                return null;
+            }
+            matches = index.search(queryEmbedding, topK, efSearch, rerankMultiplier, threshold);
+        } finally {
+            slot.lock.readLock().unlock();
+        }
+        hits.increment();
+
+        Map<String, Document> byId = vectorStore.findByIds(userId,
+                matches.stream().map(match -> match.id().toString()).toList());
+        List<Document> documents = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            Document document = byId.get(match.id().toString());
+            if (document != null) {
+                Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+                metadata.put("distance", 1 - match.similarity());
+                documents.add(document.mutate().metadata(metadata).score(match.similarity()).build());
+            }
+        }
+        return documents;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserVectorsChanged(UserVectorsChangedEvent event) {
+        Slot slot;
+        synchronized (this) {
+            slot = slots.get(event.userId());
+        }
+        if (slot == null || slot.state == State.COLD) {
+            return;
+        }
+        boolean keep;
+        slot.lock.writeLock().lock();
+        try {
+            if (slot.state == State.LOADING) {
+                slot.pending.add(event);
+                return;
+            }
+            keep = apply(slot, event);
+        } finally {
+            slot.lock.writeLock().unlock();
+        }
+        synchronized (this) {
+            if (slots.get(event.userId()) != slot) {
+                return;
+            }
+            if (keep) {
+                account(slot);
+                evictOverBudget(slot);
+            } else {
+                drop(event.userId(), slot);
+            }
+        }
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+
+    private synchronized Slot slotFor(UUID userId) {
+        Slot slot = slots.get(userId);
+        if (slot != null && slot.state == State.COLD && System.nanoTime() - slot.coldUntilNanos > 0) {
+            slots.remove(userId);
+            slot = null;
+        }
+        if (slot == null) {
+            Slot loading = new Slot();
+            slots.put(userId, loading);
+            loader.execute(() -> load(userId, loading));
+            return loading;
+        }
+        return slot;
+    }
+
+    private void load(UUID userId, Slot slot) {
+        try {
+            long count = vectorStore.countVectors(userId);
+            if (count < minVectors) {
+                markCold(userId, slot);
+                return;
+            }
+            HnswIndex index = new HnswIndex(m, efConstruction, (int) count);
+            long start = System.nanoTime();
+            vectorStore.forEachVector(userId, vector -> index.add(vector.id(), vector.contentId(), vector.embedding()));
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (index.bytes() > maxBytes) {
+                log.info("Index of user {} needs {} bytes, more than the hot tier's {}", userId, index.bytes(), maxBytes);
+                markCold(userId, slot);
+                return;
+            }
+
+            boolean keep = true;
+            slot.lock.writeLock().lock();
+            try {
+                slot.index = index;
+                for (UserVectorsChangedEvent event : slot.pending) {
+                    keep &= apply(slot, event);
+                }
+                slot.pending.clear();
+                slot.state = State.READY;
+            } finally {
+                slot.lock.writeLock().unlock();
+            }
+            synchronized (this) {
+                if (slots.get(userId) != slot) {
+                    slot.index = null;
+                    return;
+                }
+                if (!keep) {
+                    drop(userId, slot);
+                    return;
+                }
+                account(slot);
+                evictOverBudget(slot);
+            }
+            log.info("Loaded {} vectors of user {} into the hot tier", index.live(), userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not load the vectors of user {} into the hot tier", userId, e);
+            markCold(userId, slot);
+        }
+    }
+
+    /**
+     * Applies a change to a loaded index, under the slot's write lock.
+     *
+     * @return false when the index should be dropped instead
+     */
+    private boolean apply(Slot slot, UserVectorsChangedEvent event) {
+        HnswIndex index = slot.index;
+        if (index == null) {
+            return false;
+        }
+        if (event.written() != null) {
+            for (UserVectorsChangedEvent.WrittenVector vector : event.written()) {
+                index.add(vector.id(), vector.contentId(), vector.embedding());
+            }
+            return true;
+        }
+        if (event.deletedContentId() != null) {
+            index.deleteContent(event.deletedContentId());
+            return index.deletedRatio() <= maxDeletedRatio;
+        }
+        return false;
+    }
+
+    private synchronized void markCold(UUID userId, Slot slot) {
+        slot.state = State.COLD;
+        slot.index = null;
+        slot.coldUntilNanos = System.nanoTime() + coldRecheckNanos;
+        if (slots.get(userId) == slot) {
+            usedBytes -= slot.bytes;
+            slot.bytes = 0;
+        }
+    }
+
+    // Callers hold the tier's monitor
+    private void account(Slot slot) {
+        HnswIndex index = slot.index;
+        long bytes = index == null ? 0 : index.bytes();
+        usedBytes += bytes - slot.bytes;
+        slot.bytes = bytes;
+    }
+
+    private void drop(UUID userId, Slot slot) {
+        slots.remove(userId);
+        usedBytes -= slot.bytes;
+        slot.bytes = 0;
+        slot.index = null;
+    }
+
+    /**
+     * Drops least recently searched indexes until the tier fits its budget, never
+     * the one just loaded or updated.
+     */
+    private void evictOverBudget(Slot keep) {
+        Iterator<Map.Entry<UUID, Slot>> entries = slots.entrySet().iterator();
+        while (usedBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<UUID, Slot> entry = entries.next();
+            Slot slot = entry.getValue();
+            if (slot == keep || slot.state != State.READY) {
+                continue;
+            }
+            entries.remove();
+            usedBytes -= slot.bytes;
+            slot.bytes = 0;
+            slot.index = null;
+            log.debug("Evicted the hot tier index of user {}", entry.getKey());
+        }
+    }
+}
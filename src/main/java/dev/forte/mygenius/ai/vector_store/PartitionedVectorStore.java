@@ -0,0 +1,438 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Vector store over the Flyway-owned {@code vector_store} table (V6): hash
+ * partitioned by {@code user_id}, with {@code user_id} and {@code content_id} as
+ * real columns next to the JSONB metadata, and an HNSW index per partition.
+ *
+ * <p>Every write takes the user from the {@code user_id} metadata, and every
+ * search and filtered delete must be scoped to one user, so Postgres only ever
+ * touches that user's partition. Searches set {@code hnsw.ef_search} for their own
+ * transaction.
+ *
+ * <p>Writes and deletes scoped to a user publish a {@link UserVectorsChangedEvent}.
+ *
+ * <p>Spring AI's PgVectorStore can't be used on this table: it upserts with
+ * {@code ON CONFLICT (id)}, and a partitioned table's keys must include the
+ * partition column.
+ */
+@Slf4j
+public class PartitionedVectorStore implements VectorStore {
+
+    private static final String USER_ID = "user_id";
+    private static final String CONTENT_ID = "content_id";
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper;
+    private final PgVectorFilterExpressionConverter filterConverter = new PgVectorFilterExpressionConverter();
+    private final int efSearch;
+    private final String iterativeScan;
+    private final int writeBatchSize;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * @param efSearch      candidates kept while walking the HNSW graph; higher is
+     *                      slower and finds more of the true nearest neighbours
+     * @param iterativeScan pgvector 0.8 {@code hnsw.iterative_scan} mode, or empty to
+     *                      leave the server setting alone
+     */
+    public PartitionedVectorStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                  EmbeddingModel embeddingModel, ObjectMapper objectMapper,
+                                  int efSearch, String iterativeScan, int writeBatchSize,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.embeddingModel = embeddingModel;
+        this.objectMapper = objectMapper;
+        this.efSearch = efSearch;
+        this.iterativeScan = iterativeScan;
+        this.writeBatchSize = writeBatchSize;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return "PartitionedVectorStore";
+    }
+
+    /**
+     * Embeds and upserts the documents. Each needs a UUID id and a {@code user_id}
+     * in its metadata; a {@code content_id} is copied to its column when present.
+     */
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<float[]> embeddings = embeddingModel.embed(documents.stream().map(Document::getText).toList());
+
+        List<Object[]> rows = new ArrayList<>(documents.size());
+        Map<UUID, List<UserVectorsChangedEvent.WrittenVector>> writtenByUser = new LinkedHashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            Map<String, Object> metadata = document.getMetadata();
+            Object userId = metadata.get(USER_ID);
+            if (userId == null) {
+                throw new IllegalArgumentException("Document " + document.getId() + " has no user_id metadata");
+            }
+            Object contentId = metadata.get(CONTENT_ID);
+            UUID id = UUID.fromString(document.getId());
+            UUID user = UUID.fromString(userId.toString());
+            UUID content = contentId == null ? null : UUID.fromString(contentId.toString());
+            rows.add(new Object[]{id, user, content, document.getText(), toJson(metadata),
+                    new PGvector(embeddings.get(i))});
+            writtenByUser.computeIfAbsent(user, u -> new ArrayList<>())
+                    .add(new UserVectorsChangedEvent.WrittenVector(id, content, embeddings.get(i)));
+        }
+
+        for (int from = 0; from < rows.size(); from += writeBatchSize) {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO vector_store (id, user_id, content_id, content, metadata, embedding)
+                    VALUES (?, ?, ?, ?, ?::jsonb, ?)
+                    ON CONFLICT (user_id, id) DO UPDATE
+                    SET content_id = EXCLUDED.content_id, content = EXCLUDED.content,
+                        metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding
+                    """, rows.subList(from, Math.min(rows.size(), from + writeBatchSize)));
+        }
+        writtenByUser.forEach((userId, written) ->
+                eventPublisher.publishEvent(UserVectorsChangedEvent.written(userId, written)));
+    }
+
+    /**
+     * Upserts documents with the embedding of another of the user's vectors instead
+     * of embedding them, one {@code sourceIds} entry per document. Metadata
+     * requirements are those of {@link #add(List)}.
+     *
+     * @return the documents not stored because their source vector doesn't exist
+     */
+    public List<Document> addWithEmbeddingsOf(List<Document> documents, List<UUID> sourceIds) {
+        List<Document> missing = new ArrayList<>();
+        Map<UUID, List<UserVectorsChangedEvent.WrittenVector>> writtenByUser = new LinkedHashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            Map<String, Object> metadata = document.getMetadata();
+            Object userId = metadata.get(USER_ID);
+            if (userId == null) {
+                throw new IllegalArgumentException("Document " + document.getId() + " has no user_id metadata");
+            }
+            Object contentId = metadata.get(CONTENT_ID);
+            UUID id = UUID.fromString(document.getId());
+            UUID user = UUID.fromString(userId.toString());
+            UUID content = contentId == null ? null : UUID.fromString(contentId.toString());
+            List<String> embeddings = jdbcTemplate.queryForList("""
+                    INSERT INTO vector_store (id, user_id, content_id, content, metadata, embedding)
+                    SELECT ?, user_id, ?, ?, ?::jsonb, embedding FROM vector_store WHERE user_id = ? AND id = ?
+                    ON CONFLICT (user_id, id) DO UPDATE
+                    SET content_id = EXCLUDED.content_id, content = EXCLUDED.content,
+                        metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding
+                    RETURNING embedding::text
+                    """, String.class, id, content, document.getText(), toJson(metadata), user, sourceIds.get(i));
+            if (embeddings.isEmpty()) {
+                missing.add(document);
+                continue;
+            }
+            writtenByUser.computeIfAbsent(user, u -> new ArrayList<>())
+                    .add(new UserVectorsChangedEvent.WrittenVector(id, content, parseVector(embeddings.getFirst())));
+        }
+        writtenByUser.forEach((userId, written) ->
+                eventPublisher.publishEvent(UserVectorsChangedEvent.written(userId, written)));
+        return missing;
+    }
+
+    /**
+     * Deletes by id. Ids alone don't say which partition holds them, so this checks
+     * every partition's primary key; prefer {@link #deleteContent(UUID, UUID)}.
+     */
+    @Override
+    public void delete(List<String> idList) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement("DELETE FROM vector_store WHERE id = ANY(?)");
+            Array ids = connection.createArrayOf("uuid", idList.stream().map(UUID::fromString).toArray());
+            statement.setArray(1, ids);
+            return statement;
+        });
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        UUID userId = requireUserId(filterExpression);
+        jdbcTemplate.update("DELETE FROM vector_store WHERE user_id = ? AND metadata @@ ?::jsonpath",
+                userId, filterConverter.convertExpression(filterExpression));
+        eventPublisher.publishEvent(UserVectorsChangedEvent.anyChange(userId));
+    }
+
+    /**
+     * Deletes the vectors of one document or image of a user.
+     *
+     * @return the number of vectors deleted
+     */
+    public int deleteContent(UUID userId, UUID contentId) {
+        int deleted = jdbcTemplate.update("DELETE FROM vector_store WHERE user_id = ? AND content_id = ?",
+                userId, contentId);
+        eventPublisher.publishEvent(UserVectorsChangedEvent.contentDeleted(userId, contentId));
+        return deleted;
+    }
+
+    /**
+     * Deletes the vectors of many documents or images of a user, at most
+     * {@code batchSize} rows per transaction so no transaction has to hold locks
+     * on a whole library's worth of rows. Inside a caller's transaction the
+     * batches join it instead.
+     *
+     * @return the number of vectors deleted
+     */
+    public int deleteContents(UUID userId, Collection<UUID> contentIds, int batchSize) {
+        if (contentIds.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> jdbcTemplate.update(connection -> {
+                var statement = connection.prepareStatement("""
+                        DELETE FROM vector_store WHERE user_id = ? AND id IN (
+                            SELECT id FROM vector_store WHERE user_id = ? AND content_id = ANY(?) LIMIT ?)
+                        """);
+                statement.setObject(1, userId);
+                statement.setObject(2, userId);
+                statement.setArray(3, connection.createArrayOf("uuid", contentIds.toArray()));
+                statement.setInt(4, batchSize);
+                return statement;
+            }));
+            total += deleted;
+        } while (deleted == batchSize);
+        contentIds.forEach(contentId ->
+                eventPublisher.publishEvent(UserVectorsChangedEvent.contentDeleted(userId, contentId)));
+        return total;
+    }
+
+    /**
+     * Deletes every vector of a user, {@code batchSize} rows per transaction, for
+     * removing an account without locking its whole partition slice at once.
+     *
+     * @return the number of vectors deleted
+     */
+    public long deleteUser(UUID userId, int batchSize) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> jdbcTemplate.update("""
+                    DELETE FROM vector_store WHERE user_id = ? AND id IN (
+                        SELECT id FROM vector_store WHERE user_id = ? LIMIT ?)
+                    """, userId, userId, batchSize));
+            total += deleted;
+        } while (deleted == batchSize);
+        eventPublisher.publishEvent(UserVectorsChangedEvent.anyChange(userId));
+        return total;
+    }
+
+    /**
+     * Loads a user's vectors by id, without their embeddings, keyed by id.
+     */
+    public Map<String, Document> findByIds(UUID userId, List<String> idList) {
+        Map<String, Document> documents = new HashMap<>();
+        if (idList.isEmpty()) {
+            return documents;
+        }
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(
+                    "SELECT id, content, metadata FROM vector_store WHERE user_id = ? AND id = ANY(?)");
+            statement.setObject(1, userId);
+            statement.setArray(2, connection.createArrayOf("uuid", idList.stream().map(UUID::fromString).toArray()));
+            return statement;
+        }, (RowCallbackHandler) rs -> documents.put(rs.getString("id"), toDocument(rs, null, 0, null)));
+        return documents;
+    }
+
+    /**
+     * Number of vectors a user has.
+     */
+    public long countVectors(UUID userId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM vector_store WHERE user_id = ?",
+                Long.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Reads all of a user's vectors with their embeddings, a few hundred rows at a time.
+     */
+    public void forEachVector(UUID userId, Consumer<UserVectorsChangedEvent.WrittenVector> consumer) {
+        // The driver only fetches in batches inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(
+                    "SELECT id, content_id, embedding::text AS embedding FROM vector_store WHERE user_id = ?");
+            statement.setFetchSize(500);
+            statement.setObject(1, userId);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(new UserVectorsChangedEvent.WrittenVector(
+                rs.getObject("id", UUID.class),
+                rs.getObject("content_id", UUID.class),
+                parseVector(rs.getString("embedding"))))));
+    }
+
+    /**
+     * Parses pgvector's text form, {@code [1,2.5,-3]}.
+     */
+    static float[] parseVector(String text) {
+        String[] parts = text.substring(1, text.length() - 1).split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i]);
+        }
+        return vector;
+    }
+
+    /**
+     * Searches one user's vectors. The request's filter must contain a
+     * {@code user_id == ...} condition, joined to the rest with {@code &&}.
+     */
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(request, embeddingModel.embed(request.getQuery()));
+    }
+
+    /**
+     * Same as {@link #similaritySearch(SearchRequest)}, with the query already embedded.
+     */
+    public List<Document> similaritySearch(SearchRequest request, float[] queryEmbedding) {
+        UUID userId = requireUserId(request.getFilterExpression());
+        String jsonPath = filterConverter.convertExpression(request.getFilterExpression());
+        PGvector query = new PGvector(queryEmbedding);
+        double maxDistance = 1 - request.getSimilarityThreshold();
+
+        return transactionTemplate.execute(status -> {
+            // SET LOCAL only lasts until the end of this transaction
+            jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+            if (!iterativeScan.isEmpty()) {
+                jdbcTemplate.execute("SET LOCAL hnsw.iterative_scan = " + iterativeScan);
+            }
+            return jdbcTemplate.query("""
+                    SELECT id, content, metadata, embedding <=> ? AS distance
+                    FROM vector_store
+                    WHERE user_id = ? AND metadata @@ ?::jsonpath AND embedding <=> ? < ?
+                    ORDER BY distance
+                    LIMIT ?
+                    """, (rs, rowNum) -> {
+                double distance = rs.getDouble("distance");
+                return toDocument(rs, "distance", distance, 1 - distance);
+            }, query, userId, jsonPath, query, maxDistance, request.getTopK());
+        });
+    }
+
+    /**
+     * Full-text search over one user's chunks, best matches first. The query is
+     * read like a web search box ({@code "exact phrase"}, {@code -excluded},
+     * {@code or}), and matches are ranked with {@code ts_rank_cd}, which weighs how
+     * close together the terms are, normalized by the chunk's length. The filter
+     * must be scoped to a user as for {@link #similaritySearch(SearchRequest)}; the
+     * similarity threshold doesn't apply.
+     */
+    public List<Document> lexicalSearch(SearchRequest request) {
+        UUID userId = requireUserId(request.getFilterExpression());
+        String jsonPath = filterConverter.convertExpression(request.getFilterExpression());
+        return jdbcTemplate.query("""
+                SELECT id, content, metadata, ts_rank_cd(content_tsv, query, 1) AS rank
+                FROM vector_store, websearch_to_tsquery('english', ?) AS query
+                WHERE user_id = ? AND metadata @@ ?::jsonpath AND content_tsv @@ query
+                ORDER BY rank DESC
+                LIMIT ?
+                """, (rs, rowNum) -> {
+            double rank = rs.getDouble("rank");
+            return toDocument(rs, "rank", rank, rank);
+        }, request.getQuery(), userId, jsonPath, request.getTopK());
+    }
+
+    private Document toDocument(ResultSet rs, String measure, double value, Double score) throws SQLException {
+        Map<String, Object> metadata = fromJson(rs.getString("metadata"));
+        if (measure != null) {
+            metadata.put(measure, value);
+        }
+        return Document.builder()
+                .id(rs.getString("id"))
+                .text(rs.getString("content"))
+                .metadata(metadata)
+                .score(score)
+                .build();
+    }
+
+    /**
+     * Finds the {@code user_id == "..."} condition a search or delete is scoped to.
+     */
+    static UUID requireUserId(Filter.Expression expression) {
+        UUID userId = findUserId(expression);
+        if (userId == null) {
+            throw new IllegalArgumentException("Vector store searches and deletes must filter on user_id");
+        }
+        return userId;
+    }
+
+    private static UUID findUserId(Filter.Expression expression) {
+        if (expression == null) {
+            return null;
+        }
+        if (expression.type() == Filter.ExpressionType.EQ
+                && expression.left() instanceof Filter.Key key && USER_ID.equals(key.key())
+                && expression.right() instanceof Filter.Value value) {
+            return UUID.fromString(value.value().toString());
+        }
+        if (expression.type() == Filter.ExpressionType.AND) {
+            UUID left = expression.left() instanceof Filter.Expression e ? findUserId(e) : null;
+            return left != null ? left : expression.right() instanceof Filter.Expression e ? findUserId(e) : null;
+        }
+        return null;
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata is not serializable", e);
+        }
+    }
+
+    private Map<String, Object> fromJson(String json) {
+        if (json == null) {
+            return new HashMap<>();
+        }
+        try {
+            return objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable vector metadata", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published when vectors of a user were written or deleted, so anything derived
+ * from that user's vectors can be updated or dropped.
+ *
+ * <p>Listeners that only need to know that something changed can ignore the
+ * details. Otherwise exactly one of them describes the change: the vectors that
+ * were written, or the content whose vectors were deleted; when neither is set,
+ * any of the user's vectors may have changed.
+ *
+ * @param written          the vectors upserted, or null
+ * @param deletedContentId the content whose vectors were deleted, or null
+ */
+public record UserVectorsChangedEvent(UUID userId, List<WrittenVector> written, UUID deletedContentId) {
+
+    /**
+     * A vector as it was stored, with its embedding.
+     */
+    public record WrittenVector(UUID id, UUID contentId, float[] embedding) {
+    }
+
+    public static UserVectorsChangedEvent written(UUID userId, List<WrittenVector> vectors) {
+        return new UserVectorsChangedEvent(userId, vectors, null);
+    }
+
+    public static UserVectorsChangedEvent contentDeleted(UUID userId, UUID contentId) {
+        return new UserVectorsChangedEvent(userId, null, contentId);
+    }
+
+    public static UserVectorsChangedEvent anyChange(UUID userId) {
+        return new UserVectorsChangedEvent(userId, null, null);
+    }
+}
@@ -2,8 +2,8 @@ package dev.forte.mygenius.auth;
 
 import dev.forte.mygenius.security.CustomUserPrincipal;
 import dev.forte.mygenius.security.JwtService;
-import dev.forte.mygenius.user.User;
-import dev.forte.mygenius.user.UserService;
+import dev.forte.mygenius.user.AccountService;
+import dev.forte.mygenius.user.UserProfile;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
@@ -15,6 +15,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -28,10 +29,10 @@ import java.util.UUID;
 @RequestMapping("/api/auth")
 public class AuthController {
 
-    private final UserService userService;
+    private final AccountService accountService;
 
-    public AuthController(UserService userService) {
-        this.userService = userService;
+    public AuthController(AccountService accountService) {
+        this.accountService = accountService;
     }
 
     @GetMapping("/me")
@@ -41,19 +42,28 @@ public class AuthController {
                     .body(Map.of("error", "Not authenticated"));
         }
 
-        try {
-            User user = userService.findByEmail(userPrincipal.getEmail());
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Authentication successful!");
-            response.put("email", user.getEmail());
-            response.put("userId", user.getUserId());
-            response.put("username", user.getUsername());
-            response.put("timestamp", new Date());
-            response.put("isAuthenticated", true);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Error retrieving user: " + e.getMessage()));
+        UserProfile profile = userPrincipal.getProfile();
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Authentication successful!");
+        response.put("email", profile.email());
+        response.put("userId", profile.userId());
+        response.put("username", profile.username());
+        response.put("timestamp", new Date());
+        response.put("isAuthenticated", true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Deletes the caller's account and everything in it. Tokens already issued
+     * stop authenticating once the user is gone.
+     */
+    @DeleteMapping("/me")
+    public ResponseEntity<Map<String, Object>> deleteAccount(@AuthenticationPrincipal CustomUserPrincipal userPrincipal) {
+        if (userPrincipal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Not authenticated"));
         }
+        long uploads = accountService.deleteAccount(userPrincipal.getUserId());
+        return ResponseEntity.ok(Map.of("deletedUploads", uploads));
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,14 @@
 package dev.forte.mygenius.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.forte.mygenius.ai.embedding.BatchingEmbeddingModel;
+import dev.forte.mygenius.ai.embedding.CachingEmbeddingModel;
+import dev.forte.mygenius.ai.openai.OpenAiLanes;
+import dev.forte.mygenius.ai.openai.ResilientChatModel;
+import dev.forte.mygenius.ai.openai.ResilientEmbeddingModel;
+import dev.forte.mygenius.ai.vector_store.PartitionedVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.openai.OpenAiChatModel;
@@ -7,13 +16,24 @@ import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.OpenAiEmbeddingModel;
 import org.springframework.ai.openai.OpenAiEmbeddingOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
-import org.springframework.ai.retry.RetryUtils;
-import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.ai.retry.TransientAiException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
 import org.springframework.jdbc.core.JdbcTemplate;
-import static org.springframework.ai.vectorstore.pgvector.PgVectorStore.PgDistanceType.COSINE_DISTANCE;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class AiConfig {
@@ -21,12 +41,21 @@ public class AiConfig {
     @Value("${spring.ai.openai.api-key}")
     private String openAiApiKey;
 
-    @Bean
-    public OpenAiChatModel openAiApi() {
+    @Value("${openai.http.connect-timeout:10s}")
+    private Duration connectTimeout;
 
-        OpenAiApi openAiApi = OpenAiApi.builder()
-                .apiKey(openAiApiKey)
-                .build();
+    // Backstop for a stalled connection; the lane timeouts are usually shorter
+    @Value("${openai.http.read-timeout:180s}")
+    private Duration readTimeout;
+
+    @Value("${openai.retry.max-attempts:2}")
+    private int retryMaxAttempts;
+
+    /**
+     * The vision model, behind the {@code vision} lane.
+     */
+    @Bean
+    public ChatModel openAiApi(OpenAiLanes lanes) {
 
         OpenAiChatOptions chatOptions = OpenAiChatOptions.builder()
                 .model("gpt-4o")
@@ -34,19 +63,19 @@ public class AiConfig {
                 .maxTokens(900)
                 .build();
 
-        return OpenAiChatModel.builder()
-                .openAiApi(openAiApi)
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(openAiApi())
                 .defaultOptions(chatOptions)
+                .retryTemplate(retryTemplate())
                 .build();
+        return new ResilientChatModel(chatModel, lanes.vision());
     }
 
+    /**
+     * The topic labelling model, behind the {@code topics} lane.
+     */
     @Bean
-    public OpenAiChatModel openAiApiJson() {
-
-
-        OpenAiApi openAiApi = OpenAiApi.builder()
-                .apiKey(openAiApiKey)
-                .build();
+    public ChatModel openAiApiJson(OpenAiLanes lanes) {
 
         OpenAiChatOptions chatOptions = OpenAiChatOptions.builder()
                 .model("gpt-4o")
@@ -54,36 +83,101 @@ public class AiConfig {
                 .maxTokens(16384)
                 .build();
 
-        return OpenAiChatModel.builder()
-                .openAiApi(openAiApi)
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(openAiApi())
                 .defaultOptions(chatOptions)
+                .retryTemplate(retryTemplate())
                 .build();
+        return new ResilientChatModel(chatModel, lanes.topics());
     }
 
     @Bean
     public OpenAiEmbeddingModel openAiEmbeddingModel() {
 
-        OpenAiApi openAiApi = OpenAiApi.builder()
-                .apiKey(openAiApiKey)
-                .build();
-
         return new OpenAiEmbeddingModel(
-                openAiApi,
+                openAiApi(),
                 MetadataMode.EMBED,
                 OpenAiEmbeddingOptions.builder()
                         .model("text-embedding-ada-002")
                         .user("user-6")
                         .build(),
-                RetryUtils.DEFAULT_RETRY_TEMPLATE);
+                retryTemplate());
     }
 
+    /**
+     * Packs the embedding requests of all concurrent ingestions and searches into
+     * few provider calls, see {@link BatchingEmbeddingModel}. The calls go through
+     * the {@code embeddings} lane.
+     */
     @Bean
-    public PgVectorStore vectorStore(JdbcTemplate jdbcTemplate, EmbeddingModel embeddingModel) {
-        return PgVectorStore.builder(jdbcTemplate, embeddingModel)
-                .dimensions(1536)
-                .distanceType(COSINE_DISTANCE)
-                .vectorTableName("vector_store")
-                .initializeSchema(false)
+    public BatchingEmbeddingModel batchingEmbeddingModel(
+            OpenAiEmbeddingModel openAiEmbeddingModel, OpenAiLanes lanes, MeterRegistry meterRegistry,
+            @Value("${chunking.token.encoding:cl100k_base}") String encoding,
+            @Value("${embedding.batch.window-ms:20}") long windowMillis,
+            @Value("${embedding.batch.max-inputs:2048}") int maxInputs,
+            @Value("${embedding.batch.max-tokens:300000}") int maxTokens,
+            @Value("${embedding.batch.max-queued-inputs:8192}") int maxQueuedInputs,
+            @Value("${embedding.batch.queue-timeout-ms:30000}") long queueTimeoutMillis,
+            @Value("${embedding.batch.max-concurrent-requests:4}") int maxConcurrentRequests) {
+        EmbeddingModel resilient = new ResilientEmbeddingModel(openAiEmbeddingModel, lanes.embeddings());
+        return new BatchingEmbeddingModel(resilient, encoding, windowMillis, maxInputs, maxTokens,
+                maxQueuedInputs, queueTimeoutMillis, maxConcurrentRequests, meterRegistry);
+    }
+
+    /**
+     * The embedding model everything else uses: the OpenAI model behind the
+     * batcher, behind an in-memory and Postgres embedding cache, so cached texts
+     * never wait for a batch.
+     */
+    @Bean
+    @Primary
+    public EmbeddingModel embeddingModel(BatchingEmbeddingModel batchingEmbeddingModel, JdbcTemplate jdbcTemplate,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${embedding.cache.max-memory-bytes:67108864}") long maxMemoryBytes) {
+        return new CachingEmbeddingModel(batchingEmbeddingModel, "text-embedding-ada-002", jdbcTemplate,
+                maxMemoryBytes, meterRegistry);
+    }
+
+    /**
+     * Vectors live in the partitioned {@code vector_store} table created by the
+     * Flyway migrations, see {@link PartitionedVectorStore}.
+     */
+    @Bean
+    public PartitionedVectorStore vectorStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                              EmbeddingModel embeddingModel, ObjectMapper objectMapper,
+                                              @Value("${vectors.hnsw.ef-search:100}") int efSearch,
+                                              @Value("${vectors.hnsw.iterative-scan:}") String iterativeScan,
+                                              @Value("${vectors.write-batch-size:500}") int writeBatchSize,
+                                              ApplicationEventPublisher eventPublisher) {
+        return new PartitionedVectorStore(jdbcTemplate, transactionTemplate, embeddingModel, objectMapper,
+                efSearch, iterativeScan, writeBatchSize, eventPublisher);
+    }
+
+    private OpenAiApi openAiApi() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(httpClient);
+        connector.setReadTimeout(readTimeout);
+
+        return OpenAiApi.builder()
+                .apiKey(openAiApiKey)
+                .restClientBuilder(RestClient.builder().requestFactory(requestFactory))
+                .webClientBuilder(WebClient.builder().clientConnector(connector))
+                .build();
+    }
+
+    /**
+     * Retries inside a lane's call, so together with the first attempt they have to
+     * fit in the lane's timeout; the lane's circuit sees one failure for all of them.
+     */
+    private RetryTemplate retryTemplate() {
+        return RetryTemplate.builder()
+                .maxAttempts(retryMaxAttempts)
+                .exponentialBackoff(Duration.ofSeconds(1), 2, Duration.ofSeconds(10))
+                .retryOn(List.of(TransientAiException.class, ResourceAccessException.class))
                 .build();
     }
 }
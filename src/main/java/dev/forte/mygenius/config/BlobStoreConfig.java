@@ -0,0 +1,75 @@
+package dev.forte.mygenius.config;
+
+import dev.forte.mygenius.storage.BlobStore;
+import dev.forte.mygenius.storage.FileSystemBlobStore;
+import dev.forte.mygenius.storage.S3BlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Chooses where uploaded files are kept: {@code blobs.store=filesystem}, the
+ * default, under {@code blobs.filesystem.root}, or {@code blobs.store=s3}. A
+ * dyno's disk is wiped on restart and not shared with the other dynos, so
+ * production sets s3, and the filesystem store warns at startup. Setting
+ * {@code blobs.s3.endpoint} points the S3 store at a compatible service such as
+ * MinIO instead of AWS.
+ */
+@Slf4j
+@Configuration
+public class BlobStoreConfig {
+
+    public BlobStoreConfig(@Value("${blobs.store:filesystem}") String store) {
+        if (!"s3".equals(store) && !"filesystem".equals(store)) {
+            throw new IllegalStateException("blobs.store (BLOB_STORE) must be filesystem or s3, was '" + store + "'");
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "blobs.store", havingValue = "filesystem", matchIfMissing = true)
+    public BlobStore fileSystemBlobStore(@Value("${blobs.filesystem.root:${user.home}/.mygenius/blobs}") String root)
+            throws IOException {
+        Path directory = Path.of(root).toAbsolutePath();
+        log.warn("Keeping uploaded files on local disk under {}. Set BLOB_STORE=s3 where this disk is wiped on "
+                + "restart or not shared between instances", directory);
+        return new FileSystemBlobStore(directory);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "blobs.store", havingValue = "s3")
+    public S3Client blobS3Client(@Value("${blobs.s3.region:us-east-1}") String region,
+                                 @Value("${blobs.s3.endpoint:}") String endpoint,
+                                 @Value("${blobs.s3.access-key:}") String accessKey,
+                                 @Value("${blobs.s3.secret-key:}") String secretKey) {
+        S3ClientBuilder builder = S3Client.builder().region(Region.of(region));
+        if (!endpoint.isBlank()) {
+            // Compatible services are usually addressed by path rather than by bucket subdomain
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        // Without explicit keys the SDK's default chain is used (environment, instance role, ...)
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "blobs.store", havingValue = "s3")
+    public BlobStore s3BlobStore(S3Client blobS3Client,
+                                 @Value("${blobs.s3.bucket}") String bucket,
+                                 @Value("${blobs.s3.prefix:uploads/}") String prefix,
+                                 @Value("${blobs.s3.spool-dir:${java.io.tmpdir}}") String spoolDir) throws IOException {
+        return new S3BlobStore(blobS3Client, bucket, prefix, Path.of(spoolDir));
+    }
+}
@@ -0,0 +1,13 @@
+package dev.forte.mygenius.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the scheduled polling, heartbeat and lease recovery of the
+ * ingestion worker.
+ */
+@Configuration
+@EnableScheduling
+public class IngestionConfig {
+}
@@ -0,0 +1,41 @@
+package dev.forte.mygenius.paging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Row counts of users' listings, for clients that ask for a total along with a
+ * keyset page. A count is reused for {@code paging.totals.ttl}, so it can be off
+ * by what the user added or deleted since.
+ */
+@Component
+public class ApproximateTotals {
+
+    private record Key(String listing, UUID userId) {
+    }
+
+    private final Cache<Key, Long> totals;
+
+    public ApproximateTotals(MeterRegistry meterRegistry,
+                             @Value("${paging.totals.ttl:60s}") Duration ttl,
+                             @Value("${paging.totals.max-size:10000}") long maxSize) {
+        this.totals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, totals, "paging.totals");
+    }
+
+    public long get(String listing, UUID userId, LongSupplier count) {
+        return totals.get(new Key(listing, userId), key -> count.getAsLong());
+    }
+}
@@ -0,0 +1,50 @@
+package dev.forte.mygenius.paging;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Where a newest-first listing left off: the {@code (created_at, id)} of the last
+ * row returned. Clients get it as an opaque URL-safe string and send it back for
+ * the next page, which starts right after that row however many rows were added
+ * or removed in between.
+ */
+public record Cursor(LocalDateTime createdAt, UUID id) {
+
+    private static final int BYTES = Long.BYTES * 3;
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES);
+        // Postgres keeps timestamps in microseconds
+        buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + createdAt.getNano() / 1_000);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws ResponseStatusException with 400 if the string isn't a cursor
+     */
+    public static Cursor decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != BYTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long micros = buffer.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        return new Cursor(createdAt, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+}
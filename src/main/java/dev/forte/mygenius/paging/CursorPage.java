@@ -0,0 +1,26 @@
+package dev.forte.mygenius.paging;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset listing. {@code nextCursor} is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * The page from up to {@code size + 1} rows, newest first: the extra row only
+     * tells that there is a next page, which starts after the last row kept.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(items, cursorOf.apply(items.getLast()).encode());
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -1,5 +1,6 @@
 package dev.forte.mygenius.security;
 
+import dev.forte.mygenius.user.UserProfile;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -7,22 +8,28 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
 
+/**
+ * The authenticated user, with the profile {@link JwtAuthenticationFilter} found
+ * in the profile cache, so endpoints don't need to look the user up again.
+ */
 public class CustomUserPrincipal implements UserDetails {
 
-    private final UUID userId;
-    private final String email;
+    private final UserProfile profile;
 
-    public CustomUserPrincipal(UUID userId, String email) {
-        this.userId = userId;
-        this.email = email;
+    public CustomUserPrincipal(UserProfile profile) {
+        this.profile = profile;
     }
 
     public UUID getUserId() {
-        return userId;
+        return profile.userId();
     }
 
     public String getEmail() {
-        return email;
+        return profile.email();
+    }
+
+    public UserProfile getProfile() {
+        return profile;
     }
 
     @Override
@@ -36,9 +43,10 @@ public class CustomUserPrincipal implements UserDetails {
         return null;
     }
 
+    // The login name as far as Spring Security is concerned, see getProfile().username() for the handle
     @Override
     public String getUsername() {
-        return email;
+        return profile.email();
     }
 
     @Override
@@ -1,8 +1,7 @@
 package dev.forte.mygenius.security;
+import dev.forte.mygenius.user.UserProfile;
 import dev.forte.mygenius.user.UserService;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -19,10 +18,12 @@ import java.util.UUID;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
+    private final TokenCodec tokenCodec;
+    private final UserService userService;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
-        this.jwtService = jwtService;
+    public JwtAuthenticationFilter(TokenCodec tokenCodec, UserService userService) {
+        this.tokenCodec = tokenCodec;
+        this.userService = userService;
     }
 
     @Override
@@ -37,20 +38,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             if (token != null) {
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(Keys.hmacShaKeyFor(jwtService.getJwtSecret().getBytes()))
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
+                Claims claims = tokenCodec.verify(token);
 
-                String email = claims.getSubject();
                 UUID userId = UUID.fromString(claims.get("userId", String.class));
 
-                CustomUserPrincipal principal = new CustomUserPrincipal(userId, email);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                // From the profile cache, null once the account is gone
+                UserProfile profile = userService.findProfile(userId);
+                if (profile != null) {
+                    CustomUserPrincipal principal = new CustomUserPrincipal(profile);
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("JWT validation failed", e);
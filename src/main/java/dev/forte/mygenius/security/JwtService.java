@@ -1,55 +1,27 @@
 package dev.forte.mygenius.security;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-
-import io.jsonwebtoken.Claims;
-import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-import java.util.Date;
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final TokenCodec tokenCodec;
 
     @Value("${jwt.expiration}")
     private long jwtExpirationMs;
 
-    public String generateToken(String email, UUID userId) {
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("userId", userId.toString());
-        claims.put("authMethod", "google");
-
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(email)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()), SignatureAlgorithm.HS256)
-                .compact();
+    public JwtService(TokenCodec tokenCodec) {
+        this.tokenCodec = tokenCodec;
     }
 
-    public String getJwtSecret() {
-        return jwtSecret;
+    public String generateToken(String email, UUID userId) {
+        return tokenCodec.issue(email,
+                Map.of("userId", userId.toString(), "authMethod", "google"),
+                Duration.ofMillis(jwtExpirationMs));
     }
-}
\ No newline at end of file
+}
@@ -42,6 +42,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authorize -> authorize
                         // Permit public endpoints and OAuth2 paths
                         .requestMatchers("/", "/error", "/public/**", "/api/auth/**").permitAll()
+                        // The chat service authenticates with its own key, see ChatServiceTokenController
+                        .requestMatchers(HttpMethod.POST, "/api/internal/chat/tokens").permitAll()
                         // All other requests require authentication
                         .anyRequest().authenticated()
                 )
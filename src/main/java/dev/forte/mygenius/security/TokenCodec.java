@@ -0,0 +1,161 @@
+package dev.forte.mygenius.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Signs and verifies our HS256 tokens. Keys and the parser are built once, at
+ * startup; both are immutable and shared by all requests.
+ *
+ * <p>Tokens carry the id of their signing key in the {@code kid} header. New
+ * tokens are signed with {@code jwt.secret} under {@code jwt.key-id}; retired keys
+ * listed in {@code jwt.previous-keys} ({@code kid=secret,...}) still verify the
+ * tokens they signed until those expire. Tokens without a {@code kid}, issued
+ * before key ids were introduced, are checked against the current key.
+ *
+ * <p>A verified token's claims are cached until the token expires, keyed by the
+ * exact token, so a client sending the same token again skips the signature
+ * check. The cached claims are shared and must not be modified.
+ */
+@Component
+public class TokenCodec {
+
+    private final String keyId;
+    private final SecretKey signingKey;
+    private final Map<String, Key> verificationKeys;
+    private final JwtParser parser;
+    // Null when disabled
+    private final Cache<String, Claims> verified;
+
+    public TokenCodec(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.key-id:primary}") String keyId,
+                      @Value("${jwt.previous-keys:}") String previousKeys,
+                      @Value("${jwt.verification-cache.max-size:10000}") long cacheMaxSize,
+                      MeterRegistry meterRegistry) {
+        this.keyId = keyId;
+        this.signingKey = key(secret);
+        this.verificationKeys = keyring(keyId, signingKey, previousKeys);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return keyFor(header.getKeyId());
+                    }
+                })
+                .build();
+        if (cacheMaxSize > 0) {
+            this.verified = Caffeine.newBuilder()
+                    .maximumSize(cacheMaxSize)
+                    .expireAfter(new UntilExpiration())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verifications");
+        } else {
+            this.verified = null;
+        }
+    }
+
+    /**
+     * A token for {@code subject} with the given claims, valid for {@code ttl}.
+     */
+    public String issue(String subject, Map<String, ?> claims, Duration ttl) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyId)
+                .setClaims(new HashMap<>(claims))
+                .setSubject(subject)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttl.toMillis()))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * The claims of a token with a valid signature that hasn't expired.
+     *
+     * @throws JwtException if the token is malformed, expired, or not signed by one
+     *                      of our keys
+     */
+    public Claims verify(String token) {
+        if (verified != null) {
+            Claims claims = verified.getIfPresent(token);
+            if (claims != null) {
+                return claims;
+            }
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        // Tokens that never expire are checked every time
+        if (verified != null && claims.getExpiration() != null) {
+            verified.put(token, claims);
+        }
+        return claims;
+    }
+
+    private Key keyFor(String kid) {
+        Key key = verificationKeys.get(kid == null ? keyId : kid);
+        if (key == null) {
+            throw new JwtException("Unknown signing key: " + kid);
+        }
+        return key;
+    }
+
+    private static Map<String, Key> keyring(String keyId, SecretKey signingKey, String previousKeys) {
+        Map<String, Key> keys = new HashMap<>();
+        for (String entry : previousKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("jwt.previous-keys entries must look like kid=secret");
+            }
+            keys.put(entry.substring(0, separator).trim(), key(entry.substring(separator + 1).trim()));
+        }
+        keys.put(keyId, signingKey);
+        return Map.copyOf(keys);
+    }
+
+    private static SecretKey key(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class UntilExpiration implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), claims.getExpiration().toInstant()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package dev.forte.mygenius.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves upload bytes still held in the {@code content_data} columns into the
+ * {@link BlobStore}, then clears the column. Runs once at startup when
+ * {@code blobs.migration.enabled} is set.
+ *
+ * <p>Rows are walked in content id order and each one is moved on its own, so
+ * the job can be stopped and restarted at any point. Running it on several
+ * instances at once is harmless: putting the same bytes twice yields the same
+ * key, and the row is only updated if no other run got there first.
+ */
+@Slf4j
+@Component
+public class BlobMigrationJob {
+
+    private static final List<String> TABLES = List.of("document_contents", "image_contents");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final BlobReferences blobReferences;
+
+    @Value("${blobs.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${blobs.migration.batch-size:100}")
+    private int batchSize;
+
+    @Value("${documents.extraction.read-buffer-bytes:1048576}")
+    private int readSliceBytes;
+
+    public BlobMigrationJob(JdbcTemplate jdbcTemplate, BlobStore blobStore, BlobReferences blobReferences) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.blobReferences = blobReferences;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            Thread.ofVirtual().name("blob-migration").start(this::migrateAll);
+        }
+    }
+
+    public void migrateAll() {
+        for (String table : TABLES) {
+            int moved = migrateTable(table);
+            log.info("Moved {} rows of {} to the blob store", moved, table);
+        }
+    }
+
+    private int migrateTable(String table) {
+        int moved = 0;
+        UUID after = new UUID(0, 0);
+        while (true) {
+            List<UUID> contentIds = jdbcTemplate.queryForList(
+                    "SELECT content_id FROM " + table + " WHERE blob_key IS NULL AND content_data IS NOT NULL"
+                            + " AND content_id > ? ORDER BY content_id LIMIT ?",
+                    UUID.class, after, batchSize);
+            if (contentIds.isEmpty()) {
+                return moved;
+            }
+            for (UUID contentId : contentIds) {
+                if (migrateRow(table, contentId)) {
+                    moved++;
+                }
+            }
+            after = contentIds.getLast();
+        }
+    }
+
+    private boolean migrateRow(String table, UUID contentId) {
+        InputStreamSource source = () -> new ByteaSliceInputStream(
+                jdbcTemplate, table, "content_data", "content_id", contentId, readSliceBytes);
+        try (InputStream data = source.getInputStream()) {
+            String blobKey = blobStore.put(data);
+            int updated = blobReferences.insertReferencing(blobKey, source, () -> jdbcTemplate.update(
+                    "UPDATE " + table + " SET blob_key = ?, content_data = NULL WHERE content_id = ? AND blob_key IS NULL",
+                    blobKey, contentId));
+            return updated == 1;
+        } catch (Exception e) {
+            // Leave the row as it is, it is still readable and the next run retries it
+            log.error("Failed to move {} {} to the blob store: {}", table, contentId, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.forte.mygenius.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps rows and the blobs they point to in step. Blobs are shared by key, so a
+ * new upload of some bytes can reuse the blob of an upload being deleted: its
+ * {@link BlobStore#put} finds the blob and keeps no copy, and if the delete
+ * removed the blob before the new row was written, that row would point at
+ * nothing.
+ *
+ * <p>Both sides therefore take a transaction-scoped advisory lock on the key:
+ * writing a row that refers to a blob holds it from checking that the blob is
+ * still stored until the row is committed, and removing a blob holds it from
+ * checking that no row refers to it until the blob is gone.
+ *
+ * <p>A blob is put before the transaction that writes its row starts, so that
+ * transaction registers {@link #deleteIfRolledBack(String)} to not leave the
+ * blob behind when it fails.
+ */
+@Slf4j
+@Component
+public class BlobReferences {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate joiningTransactionTemplate;
+    private final BlobStore blobStore;
+
+    public BlobReferences(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          BlobStore blobStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Deletes run after other transactions end, so never join one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.joiningTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Runs {@code insert}, which writes a row referring to {@code blobKey}, under the
+     * key's lock, in the caller's transaction or else its own. The lock is held
+     * until that transaction ends. If the blob was removed since it was put, it is
+     * put again from {@code data} first.
+     */
+    public <T> T insertReferencing(String blobKey, InputStreamSource data, Supplier<T> insert) {
+        return joiningTransactionTemplate.execute(status -> {
+            lock(blobKey);
+            try {
+                if (!blobStore.exists(blobKey)) {
+                    log.info("Blob {} was deleted while it was being reused, storing it again", blobKey);
+                    try (InputStream input = data.getInputStream()) {
+                        blobStore.put(input);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return insert.get();
+        });
+    }
+
+    /**
+     * Deletes those of the blobs that no row refers to, each under its key's lock.
+     * Failures are logged; an orphaned blob only costs space.
+     */
+    public void deleteUnreferenced(Collection<String> blobKeys) {
+        for (String blobKey : blobKeys) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    lock(blobKey);
+                    Boolean referenced = jdbcTemplate.queryForObject("""
+                            SELECT EXISTS (SELECT 1 FROM document_contents WHERE blob_key = ?)
+                                OR EXISTS (SELECT 1 FROM image_contents WHERE blob_key = ?)
+                            """, Boolean.class, blobKey, blobKey);
+                    if (Boolean.TRUE.equals(referenced)) {
+                        return;
+                    }
+                    try {
+                        blobStore.delete(blobKey);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Failed to delete blob {}: {}", blobKey, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deletes the blob, unless something else refers to it, if the current
+     * transaction rolls back.
+     */
+    public void deleteIfRolledBack(String blobKey) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteUnreferenced(List.of(blobKey));
+                }
+            }
+        });
+    }
+
+    private void lock(String blobKey) {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtextextended(?, 0))", Object.class, blobKey);
+    }
+}
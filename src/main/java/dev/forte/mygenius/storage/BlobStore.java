@@ -0,0 +1,26 @@
+package dev.forte.mygenius.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage for uploaded files. A blob's key is the hex SHA-256
+ * of its bytes, so storing the same bytes twice keeps a single copy. Reading a
+ * key that isn't stored throws {@link java.nio.file.NoSuchFileException}.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores everything read from {@code data} and returns its key.
+     */
+    String put(InputStream data) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Removes the blob; deleting a key that isn't stored is not an error.
+     */
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,89 @@
+package dev.forte.mygenius.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads a {@code bytea} column in fixed-size slices with {@code substring}, one
+ * query per slice, so a large value is never loaded as a whole. Used for rows
+ * whose bytes haven't been moved to the {@link BlobStore} yet.
+ */
+public class ByteaSliceInputStream extends InputStream {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sliceSql;
+    private final UUID id;
+    private final int sliceBytes;
+
+    private byte[] slice = new byte[0];
+    private int position;
+    // 1-based offset of the next slice, as substring counts
+    private long nextOffset = 1;
+    private boolean exhausted;
+
+    /**
+     * Reads {@code column} of the row of {@code table} whose {@code idColumn} is {@code id}.
+     * The names are interpolated into SQL and must not come from user input.
+     */
+    public ByteaSliceInputStream(JdbcTemplate jdbcTemplate, String table, String column, String idColumn,
+                                 UUID id, int sliceBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sliceSql = "SELECT substring(" + column + " from ? for ?) FROM " + table + " WHERE " + idColumn + " = ?";
+        this.id = id;
+        this.sliceBytes = sliceBytes;
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) {
+            return -1;
+        }
+        return slice[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, slice.length - position);
+        System.arraycopy(slice, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return slice.length - position;
+    }
+
+    private boolean fill() {
+        if (position < slice.length) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        List<byte[]> rows = jdbcTemplate.queryForList(sliceSql, byte[].class, nextOffset, sliceBytes, id);
+        byte[] next = rows.isEmpty() ? null : rows.getFirst();
+        if (next == null || next.length == 0) {
+            exhausted = true;
+            slice = new byte[0];
+            position = 0;
+            return false;
+        }
+        if (next.length < sliceBytes) {
+            exhausted = true;
+        }
+        slice = next;
+        position = 0;
+        nextOffset += next.length;
+        return true;
+    }
+}
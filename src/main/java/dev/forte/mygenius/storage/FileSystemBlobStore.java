@@ -0,0 +1,63 @@
+package dev.forte.mygenius.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps blobs as files under a root directory, sharded by key. New blobs are
+ * written to {@code root/tmp} and renamed into place, so a reader never sees a
+ * partially written file.
+ */
+@Slf4j
+public class FileSystemBlobStore implements BlobStore {
+
+    private final Path root;
+    private final Path spoolDirectory;
+
+    public FileSystemBlobStore(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.spoolDirectory = this.root.resolve("tmp");
+        Files.createDirectories(spoolDirectory);
+        log.info("Storing blobs under {}", this.root);
+    }
+
+    @Override
+    public String put(InputStream data) throws IOException {
+        SpooledBlob spooled = SpooledBlob.spool(data, spoolDirectory);
+        Path target = pathFor(spooled.key());
+        if (Files.exists(target)) {
+            // Already stored
+            spooled.discard();
+            return spooled.key();
+        }
+        Files.createDirectories(target.getParent());
+        // Same directory tree, so the rename is atomic; a concurrent put of the
+        // same bytes just replaces the file with identical content
+        Files.move(spooled.file(), target, StandardCopyOption.ATOMIC_MOVE);
+        return spooled.key();
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(pathFor(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(pathFor(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    private Path pathFor(String key) {
+        return root.resolve(SpooledBlob.shardedPath(key));
+    }
+}
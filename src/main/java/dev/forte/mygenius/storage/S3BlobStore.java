@@ -0,0 +1,75 @@
+package dev.forte.mygenius.storage;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Keeps blobs in an S3 bucket (or any S3-compatible service, through an endpoint
+ * override). The upload is spooled to a local temp file first: the key is the
+ * hash of the content, so it is only known once everything has been read, and a
+ * file body gives the SDK a length and lets it retry.
+ */
+public class S3BlobStore implements BlobStore {
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String prefix;
+    private final Path spoolDirectory;
+
+    public S3BlobStore(S3Client s3Client, String bucket, String prefix, Path spoolDirectory) throws IOException {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.spoolDirectory = spoolDirectory;
+        Files.createDirectories(spoolDirectory);
+    }
+
+    @Override
+    public String put(InputStream data) throws IOException {
+        SpooledBlob spooled = SpooledBlob.spool(data, spoolDirectory);
+        try {
+            if (!exists(spooled.key())) {
+                s3Client.putObject(request -> request.bucket(bucket).key(objectKey(spooled.key())),
+                        RequestBody.fromFile(spooled.file()));
+            }
+            return spooled.key();
+        } finally {
+            spooled.discard();
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3Client.getObject(request -> request.bucket(bucket).key(objectKey(key)));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            s3Client.headObject(request -> request.bucket(bucket).key(objectKey(key)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(request -> request.bucket(bucket).key(objectKey(key)));
+    }
+
+    private String objectKey(String key) {
+        return prefix + SpooledBlob.shardedPath(key);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.forte.mygenius.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * A stream written to a temp file while its SHA-256 is computed, which is how
+ * both stores learn a blob's key before putting it in its final place.
+ */
+record SpooledBlob(Path file, String key, long size) {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    static SpooledBlob spool(InputStream data, Path directory) throws IOException {
+        MessageDigest digest = sha256();
+        Path file = Files.createTempFile(directory, "blob-", ".part");
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            int read;
+            while ((read = data.read(buffer.array())) != -1) {
+                digest.update(buffer.array(), 0, read);
+                buffer.position(0).limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                size += read;
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new SpooledBlob(file, HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    /**
+     * Shards keys two levels deep ({@code ab/cd/abcd...}) so no directory or
+     * key prefix grows too large.
+     */
+    static String shardedPath(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not a blob key: " + key);
+        }
+        return key.substring(0, 2) + "/" + key.substring(2, 4) + "/" + key;
+    }
+
+    void discard() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
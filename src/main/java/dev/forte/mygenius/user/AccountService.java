@@ -0,0 +1,40 @@
+package dev.forte.mygenius.user;
+
+import dev.forte.mygenius.ai.chat.ChatTokenService;
+import dev.forte.mygenius.ai.uploads.UploadService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Removes a whole account: every upload with its content, vectors and stored
+ * files, then the user. Uploads go in short batches, so even a library of
+ * hundreds of thousands of uploads never holds locks for long; an interrupted
+ * purge can simply be run again.
+ */
+@Slf4j
+@Service
+public class AccountService {
+
+    private final UploadService uploadService;
+    private final UserService userService;
+    private final ChatTokenService chatTokenService;
+
+    public AccountService(UploadService uploadService, UserService userService, ChatTokenService chatTokenService) {
+        this.uploadService = uploadService;
+        this.userService = userService;
+        this.chatTokenService = chatTokenService;
+    }
+
+    /**
+     * @return the number of uploads deleted
+     */
+    public long deleteAccount(UUID userId) {
+        long uploads = uploadService.purgeUploads(userId);
+        userService.delete(userId);
+        chatTokenService.forget(userId);
+        log.info("Deleted account {} with {} uploads", userId, uploads);
+        return uploads;
+    }
+}
@@ -0,0 +1,17 @@
+package dev.forte.mygenius.user;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * What the request path needs to know about a user, as kept by
+ * {@link UserProfileCache}.
+ */
+public record UserProfile(UUID userId, String email, String username, String oauthProvider,
+                          OffsetDateTime createdAt) {
+
+    public static UserProfile of(User user) {
+        return new UserProfile(user.getUserId(), user.getEmail(), user.getUsername(), user.getOauthProvider(),
+                user.getCreatedAt());
+    }
+}
@@ -0,0 +1,82 @@
+package dev.forte.mygenius.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Profiles of recently active users by id, so authenticating a request doesn't
+ * read the users table. Entries live for {@code users.profile-cache.ttl} at most;
+ * {@link UserService} replaces a user's entry whenever it saves the user. Lookups
+ * don't lock each other, and concurrent misses for the same user load it once.
+ *
+ * <p>Unknown users are not cached, so a user created on another instance is seen
+ * at once.
+ */
+@Component
+public class UserProfileCache {
+
+    private final Cache<UUID, UserProfile> profiles;
+    private final Function<Collection<UUID>, List<User>> loader;
+
+    @Autowired
+    public UserProfileCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                            @Value("${users.profile-cache.max-size:10000}") long maxSize,
+                            @Value("${users.profile-cache.ttl:10m}") Duration ttl) {
+        this(userRepository::findAllById, meterRegistry, maxSize, ttl);
+    }
+
+    UserProfileCache(Function<Collection<UUID>, List<User>> loader, MeterRegistry meterRegistry, long maxSize,
+                     Duration ttl) {
+        this.loader = loader;
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "users.profiles");
+    }
+
+    /**
+     * The user's profile, or {@code null} for a user that doesn't exist.
+     */
+    public UserProfile get(UUID userId) {
+        return profiles.get(userId, id -> load(List.of(id)).get(id));
+    }
+
+    /**
+     * The profiles of those of the users that exist, loading the missing ones in
+     * one query.
+     */
+    public Map<UUID, UserProfile> getAll(Collection<UUID> userIds) {
+        return profiles.getAll(userIds, this::load);
+    }
+
+    public void put(User user) {
+        profiles.put(user.getUserId(), UserProfile.of(user));
+    }
+
+    public void invalidate(UUID userId) {
+        profiles.invalidate(userId);
+    }
+
+    private Map<UUID, UserProfile> load(Collection<? extends UUID> userIds) {
+        Map<UUID, UserProfile> loaded = new HashMap<>();
+        for (User user : loader.apply(List.copyOf(userIds))) {
+            loaded.put(user.getUserId(), UserProfile.of(user));
+        }
+        return loaded;
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Service;
 
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,9 +17,11 @@ import java.util.UUID;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserProfileCache profileCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserProfileCache profileCache) {
         this.userRepository = userRepository;
+        this.profileCache = profileCache;
     }
 
     public User findOrCreateGoogleUser(OAuth2User oauthUser) {
@@ -29,6 +33,8 @@ public class UserService {
         Optional<User> existingUser = userRepository.findByOauthProviderAndOauthId("google", oauthId);
 
         if (existingUser.isPresent()) {
+            // Warm the cache for the requests that follow the login
+            profileCache.put(existingUser.get());
             return existingUser.get();
         }
 
@@ -40,7 +46,7 @@ public class UserService {
             User user = existingUser.get();
             user.setOauthProvider("google");
             user.setOauthId(oauthId);
-            return userRepository.save(user);
+            return save(user);
         }
 
         // Create new user
@@ -51,7 +57,13 @@ public class UserService {
         newUser.setOauthId(oauthId);
         newUser.setCreatedAt(OffsetDateTime.now());
 
-        return userRepository.save(newUser);
+        return save(newUser);
+    }
+
+    private User save(User user) {
+        User saved = userRepository.save(user);
+        profileCache.put(saved);
+        return saved;
     }
 
     private String generateUsername(String name, String email) {
@@ -77,6 +89,28 @@ public class UserService {
         return emailUsername + UUID.randomUUID().toString().substring(0, 8);
     }
 
+    /**
+     * The user's cached profile, or {@code null} for a user that doesn't exist.
+     */
+    public UserProfile findProfile(UUID userId) {
+        return profileCache.get(userId);
+    }
+
+    /**
+     * The cached profiles of those of the users that exist.
+     */
+    public Map<UUID, UserProfile> findProfiles(Collection<UUID> userIds) {
+        return profileCache.getAll(userIds);
+    }
+
+    /**
+     * Removes the user row; the user's data must be gone already.
+     */
+    public void delete(UUID userId) {
+        userRepository.deleteById(userId);
+        profileCache.invalidate(userId);
+    }
+
     public User findByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
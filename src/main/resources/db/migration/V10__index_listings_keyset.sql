@@ -0,0 +1,7 @@
+-- Upload and image listings seek on (user, timestamp, id) and read the page in
+-- index order, whatever page they are on. Built concurrently so uploads continue
+-- while it builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_uploads_user_created
+    ON uploads (user_id, created_at, upload_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_images_user_created
+    ON images (user_id, uploaded_at, image_id);
@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS ingestion_jobs (
+    job_id          UUID PRIMARY KEY,
+    upload_id       UUID        NOT NULL,
+    user_id         UUID        NOT NULL,
+    job_type        VARCHAR(16) NOT NULL,
+    content_id      UUID        NOT NULL,
+    status          VARCHAR(16) NOT NULL,
+    attempts        INTEGER     NOT NULL DEFAULT 0,
+    max_attempts    INTEGER     NOT NULL,
+    next_attempt_at TIMESTAMP   NOT NULL,
+    locked_by       VARCHAR(128),
+    locked_at       TIMESTAMP,
+    last_error      TEXT,
+    created_at      TIMESTAMP   NOT NULL,
+    updated_at      TIMESTAMP   NOT NULL
+);
+
+-- Workers only ever scan queued jobs that are due, so keep the index small.
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_due
+    ON ingestion_jobs (next_attempt_at)
+    WHERE status = 'queued';
+
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_running
+    ON ingestion_jobs (locked_at)
+    WHERE status = 'running';
+
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_upload
+    ON ingestion_jobs (upload_id);
@@ -0,0 +1,9 @@
+-- Upload bytes move to the blob store; the rows keep the blob's key. content_data
+-- stays until BlobMigrationJob has moved every existing row over.
+ALTER TABLE document_contents ADD COLUMN IF NOT EXISTS blob_key VARCHAR(64);
+ALTER TABLE document_contents ALTER COLUMN content_data DROP NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_document_contents_blob_key ON document_contents (blob_key);
+
+ALTER TABLE image_contents ADD COLUMN IF NOT EXISTS blob_key VARCHAR(64);
+ALTER TABLE image_contents ALTER COLUMN content_data DROP NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_image_contents_blob_key ON image_contents (blob_key);
@@ -0,0 +1,9 @@
+-- Persistent tier of CachingEmbeddingModel. text_hash is the SHA-256 of the
+-- normalized text, embedding the vector as little-endian float32.
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    model      VARCHAR(100) NOT NULL,
+    text_hash  BYTEA        NOT NULL,
+    embedding  BYTEA        NOT NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT now(),
+    PRIMARY KEY (model, text_hash)
+);
@@ -0,0 +1,5 @@
+-- PgVectorStore filters with metadata::jsonb @@ '<jsonpath>'; this index lets the
+-- planner find a user's rows (and a document's, or a topic's) without scanning the
+-- whole shared table. Built concurrently so writes continue while it builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_vector_store_metadata
+    ON vector_store USING gin ((metadata::jsonb) jsonb_path_ops);
@@ -0,0 +1,65 @@
+-- The vector table moves under Flyway. user_id and content_id become real columns,
+-- rows are hash partitioned by user_id, and every partition gets its own HNSW
+-- index, so deletes and searches scoped to a user touch a single partition.
+--
+-- ${vector_partitions}, ${vector_hnsw_m} and ${vector_hnsw_ef_construction} come
+-- from spring.flyway.placeholders.*. Changing them after this has run takes a new
+-- migration that rebuilds the table or its indexes.
+--
+-- Rows are copied from the old table in this transaction, and the HNSW index is
+-- built after the copy, which is much faster than maintaining it row by row.
+-- On a large table run this with a generous maintenance_work_mem.
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+-- V5's index on the old table isn't needed for the copy, and the new table's
+-- metadata index below takes its name
+DROP INDEX IF EXISTS idx_vector_store_metadata;
+
+ALTER TABLE IF EXISTS vector_store RENAME TO vector_store_legacy;
+
+CREATE TABLE vector_store (
+    id         UUID         NOT NULL,
+    user_id    UUID         NOT NULL,
+    content_id UUID,
+    content    TEXT,
+    metadata   JSONB        NOT NULL DEFAULT '{}',
+    embedding  VECTOR(1536) NOT NULL,
+    PRIMARY KEY (user_id, id)
+) PARTITION BY HASH (user_id);
+
+DO $$
+BEGIN
+    FOR i IN 0 .. ${vector_partitions} - 1 LOOP
+        EXECUTE format('CREATE TABLE vector_store_p%s PARTITION OF vector_store '
+                       'FOR VALUES WITH (MODULUS %s, REMAINDER %s)', i, ${vector_partitions}, i);
+    END LOOP;
+END $$;
+
+-- Vectors without a user_id were never reachable by any search and are left behind
+DO $$
+BEGIN
+    IF to_regclass('vector_store_legacy') IS NOT NULL THEN
+        INSERT INTO vector_store (id, user_id, content_id, content, metadata, embedding)
+        SELECT id,
+               (metadata::jsonb ->> 'user_id')::uuid,
+               (metadata::jsonb ->> 'content_id')::uuid,
+               content,
+               metadata::jsonb,
+               embedding
+        FROM vector_store_legacy
+        WHERE metadata::jsonb ? 'user_id' AND embedding IS NOT NULL;
+
+        DROP TABLE vector_store_legacy;
+    END IF;
+END $$;
+
+-- Deletes and chunk reuse look vectors up by content_id
+CREATE INDEX idx_vector_store_content_id ON vector_store (content_id);
+
+-- Document and topic filters of a search, inside the user's partition
+CREATE INDEX idx_vector_store_metadata ON vector_store USING gin (metadata jsonb_path_ops);
+
+CREATE INDEX idx_vector_store_embedding ON vector_store
+    USING hnsw (embedding vector_cosine_ops)
+    WITH (m = ${vector_hnsw_m}, ef_construction = ${vector_hnsw_ef_construction});
@@ -0,0 +1,7 @@
+-- Lexical leg of hybrid search: the chunk text as a tsvector, kept up to date by
+-- Postgres. 'english' stems words and drops stop words; identifiers and codes are
+-- kept as they are. Adding a stored column rewrites every partition once.
+ALTER TABLE vector_store ADD COLUMN content_tsv tsvector
+    GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED;
+
+CREATE INDEX idx_vector_store_content_tsv ON vector_store USING gin (content_tsv);
@@ -0,0 +1,25 @@
+-- MinHash signatures of stored document chunks, for near-duplicate detection at
+-- ingestion. signature is the MinHash values as little-endian int64. Rows go away
+-- with their vector; chunks ingested before this migration have no signature and
+-- are simply not matched against.
+CREATE TABLE chunk_signatures (
+    user_id    UUID  NOT NULL,
+    vector_id  UUID  NOT NULL,
+    content_id UUID  NOT NULL,
+    signature  BYTEA NOT NULL,
+    PRIMARY KEY (user_id, vector_id),
+    FOREIGN KEY (user_id, vector_id) REFERENCES vector_store (user_id, id) ON DELETE CASCADE
+);
+
+-- The LSH band keys of each signature, so ingestion looks up only the chunks that
+-- share a band with an incoming one instead of loading all of a user's signatures.
+CREATE TABLE chunk_signature_bands (
+    user_id   UUID   NOT NULL,
+    band_key  BIGINT NOT NULL,
+    vector_id UUID   NOT NULL,
+    PRIMARY KEY (user_id, band_key, vector_id),
+    FOREIGN KEY (user_id, vector_id) REFERENCES chunk_signatures (user_id, vector_id) ON DELETE CASCADE
+);
+
+-- For the cascade from chunk_signatures
+CREATE INDEX idx_chunk_signature_bands_vector ON chunk_signature_bands (user_id, vector_id);
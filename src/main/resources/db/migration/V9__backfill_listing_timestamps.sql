@@ -0,0 +1,9 @@
+-- Listings page by (timestamp, id), which needs every row to have a timestamp.
+-- Rows written before the columns were always set sort last.
+UPDATE uploads SET created_at = TIMESTAMP '1970-01-01' WHERE created_at IS NULL;
+UPDATE images SET uploaded_at = TIMESTAMP '1970-01-01' WHERE uploaded_at IS NULL;
+
+ALTER TABLE uploads ALTER COLUMN created_at SET DEFAULT now();
+ALTER TABLE uploads ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE images ALTER COLUMN uploaded_at SET DEFAULT now();
+ALTER TABLE images ALTER COLUMN uploaded_at SET NOT NULL;
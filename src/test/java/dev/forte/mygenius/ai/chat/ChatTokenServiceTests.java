@@ -0,0 +1,90 @@
+package dev.forte.mygenius.ai.chat;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import dev.forte.mygenius.security.TokenCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatTokenServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenCodec codec =
+            new TokenCodec("chat-secret-chat-secret-chat-secret-chat", "v1", "", 100, meterRegistry);
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    // Refreshes, and the cache's housekeeping, wait here until the test runs them
+    private final Queue<Runnable> refreshes = new ConcurrentLinkedQueue<>();
+    private final ChatTokenService service = new ChatTokenService(codec, meterRegistry, Duration.ofMinutes(30),
+            Duration.ofMinutes(10), Duration.ofMinutes(5), 100, ticker, refreshes::add);
+
+    @Test
+    void reusesAUsersTokenUntilItIsDueForRefresh() {
+        UUID userId = UUID.randomUUID();
+
+        ChatTokenService.ChatToken first = service.getChatToken(userId);
+        advance(Duration.ofMinutes(19));
+
+        assertThat(service.getChatToken(userId)).isSameAs(first);
+        assertThat(codec.verify(first.token()).getSubject()).isEqualTo(userId.toString());
+        assertThat(first.expiresAt()).isBetween(Instant.now().plus(Duration.ofMinutes(29)),
+                Instant.now().plus(Duration.ofMinutes(30)));
+    }
+
+    @Test
+    void refreshesAheadOfExpiryWhileStillServingTheCurrentToken() {
+        UUID userId = UUID.randomUUID();
+        ChatTokenService.ChatToken first = service.getChatToken(userId);
+
+        advance(Duration.ofMinutes(21));
+        // This request starts the refresh and still gets the current token
+        assertThat(service.getChatToken(userId)).isSameAs(first);
+        runRefreshes();
+
+        assertThat(service.getChatToken(userId)).isNotSameAs(first);
+    }
+
+    @Test
+    void neverHandsOutATokenCloseToExpiry() {
+        UUID userId = UUID.randomUUID();
+        ChatTokenService.ChatToken first = service.getChatToken(userId);
+
+        advance(Duration.ofMinutes(26));
+
+        assertThat(service.getChatToken(userId)).isNotSameAs(first);
+    }
+
+    @Test
+    void issuesTokensForManyUsersAndSharesThemWithSingleRequests() {
+        UUID cached = UUID.randomUUID();
+        ChatTokenService.ChatToken cachedToken = service.getChatToken(cached);
+        List<UUID> userIds = List.of(cached, UUID.randomUUID(), UUID.randomUUID());
+
+        Map<UUID, ChatTokenService.ChatToken> tokens = service.getChatTokens(userIds);
+
+        assertThat(tokens).containsOnlyKeys(userIds);
+        assertThat(tokens.get(cached)).isSameAs(cachedToken);
+        assertThat(service.getChatToken(userIds.get(1))).isSameAs(tokens.get(userIds.get(1)));
+        assertThat(meterRegistry.get("chat.tokens.mint").timer().count()).isEqualTo(3);
+    }
+
+    private void runRefreshes() {
+        for (Runnable task; (task = refreshes.poll()) != null; ) {
+            task.run();
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
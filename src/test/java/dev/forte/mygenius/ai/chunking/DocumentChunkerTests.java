@@ -0,0 +1,80 @@
+package dev.forte.mygenius.ai.chunking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentChunkerTests {
+
+    private final DocumentChunker chunker = new DocumentChunker(100, 500, 65536);
+
+    @Test
+    void smallDocumentIsASingleChunk() {
+        List<TextChunk> chunks = chunker.stream("  A short note.\n\nWith two paragraphs.  ").toList();
+
+        assertThat(chunks).containsExactly(new TextChunk("A short note.\n\nWith two paragraphs.", 6));
+    }
+
+    @Test
+    void chunksStayWithinWordLimitsAndKeepEveryWord() {
+        StringBuilder text = new StringBuilder();
+        for (int p = 0; p < 200; p++) {
+            text.append(words("p" + p, 37 + (p * 13) % 180)).append("\n\n");
+        }
+
+        List<TextChunk> chunks = chunker.stream(text).toList();
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            assertThat(chunks.get(i).wordCount()).isBetween(100, 500);
+        }
+        for (TextChunk chunk : chunks) {
+            assertThat(chunk.wordCount()).isEqualTo(chunk.text().split("\\s+").length);
+        }
+        assertThat(wordsOf(chunks)).isEqualTo(text.toString().trim().split("\\s+"));
+    }
+
+    @Test
+    void overlongParagraphIsCutAtMaxWords() {
+        String text = words("w", 1234);
+
+        List<TextChunk> chunks = chunker.stream(text).toList();
+
+        assertThat(chunks).extracting(TextChunk::wordCount).containsExactly(500, 500, 234);
+        assertThat(wordsOf(chunks)).isEqualTo(text.split("\\s+"));
+    }
+
+    @Test
+    void wallOfTextIsSplitOnSentences() {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < 120; s++) {
+            text.append(words("s" + s, 9)).append(". ");
+        }
+
+        List<TextChunk> chunks = chunker.stream(text).toList();
+
+        // 120 sentences of 9 words: two chunks of 55 sentences, and the 90-word
+        // tail is too small to stand alone so it joins the last chunk
+        assertThat(chunks).extracting(TextChunk::wordCount).containsExactly(495, 585);
+    }
+
+    private static String words(String prefix, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(i % 17 == 0 ? "\n" : " ");
+            }
+            words.append(prefix).append('_').append(i);
+        }
+        return words.toString();
+    }
+
+    private static String[] wordsOf(List<TextChunk> chunks) {
+        return chunks.stream()
+                .flatMap(chunk -> Arrays.stream(chunk.text().split("\\s+")))
+                .toArray(String[]::new);
+    }
+}
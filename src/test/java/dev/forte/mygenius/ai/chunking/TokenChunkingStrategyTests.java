@@ -0,0 +1,78 @@
+package dev.forte.mygenius.ai.chunking;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenChunkingStrategyTests {
+
+    private final TokenChunkingStrategy strategy = new TokenChunkingStrategy("cl100k_base", 200, 40, 50, 8191);
+    private final Encoding encoding = Encodings.newDefaultEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    @Test
+    void chunksStayWithinTargetTokensAndEndOnSentences() {
+        String text = sentences(300);
+
+        List<TextChunk> chunks = strategy.stream(text).toList();
+
+        assertThat(chunks).hasSizeGreaterThan(5);
+        for (TextChunk chunk : chunks.subList(0, chunks.size() - 1)) {
+            assertThat(encoding.countTokens(chunk.text())).isLessThanOrEqualTo(200);
+            assertThat(chunk.text()).endsWith(".");
+        }
+    }
+
+    @Test
+    void consecutiveChunksOverlapBySentences() {
+        List<TextChunk> chunks = strategy.stream(sentences(300)).toList();
+
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1).text();
+            String firstSentence = chunks.get(i).text().substring(0, chunks.get(i).text().indexOf('.') + 1);
+            // The sentence is repeated from near the end of the previous chunk
+            assertThat(previous.substring(previous.length() - 40 * 5)).contains(firstSentence);
+        }
+    }
+
+    @Test
+    void overlongSentenceIsCutBetweenWords() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("word").append(i).append(' ');
+        }
+
+        List<TextChunk> chunks = strategy.stream(text).toList();
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        for (TextChunk chunk : chunks) {
+            assertThat(encoding.countTokens(chunk.text())).isLessThanOrEqualTo(200 + 50);
+            assertThat(chunk.text()).doesNotStartWith("ord").matches("(word\\d+ ?)+");
+        }
+    }
+
+    @Test
+    void strategyIsChosenByMimeType() {
+        DocumentChunker words = new DocumentChunker(100, 500, 65536);
+        ChunkingStrategies strategies = new ChunkingStrategies(List.of(words, strategy), "token",
+                new String[]{"text/csv=word", "application/vnd.ms-excel = word", ""});
+
+        assertThat(strategies.forMimeType("text/csv; charset=UTF-8")).isSameAs(words);
+        assertThat(strategies.forMimeType("APPLICATION/VND.MS-EXCEL")).isSameAs(words);
+        assertThat(strategies.forMimeType("application/pdf")).isSameAs(strategy);
+        assertThat(strategies.forMimeType(null)).isSameAs(strategy);
+    }
+
+    private static String sentences(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < count; s++) {
+            text.append("Sentence number ").append(s).append(" talks about topic ").append(s % 7).append('.');
+            text.append(s % 10 == 9 ? "\n\n" : " ");
+        }
+        return text.toString();
+    }
+}
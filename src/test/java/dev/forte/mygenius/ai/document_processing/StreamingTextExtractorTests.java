@@ -0,0 +1,44 @@
+package dev.forte.mygenius.ai.document_processing;
+
+import dev.forte.mygenius.ai.chunking.ChunkWriter;
+import dev.forte.mygenius.ai.chunking.DocumentChunker;
+import dev.forte.mygenius.ai.chunking.TextChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingTextExtractorTests {
+
+    private final DocumentChunker chunker = new DocumentChunker(100, 500, 65536);
+
+    @Test
+    void htmlParagraphsArePushedIntoTheChunker() throws Exception {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int p = 0; p < 40; p++) {
+            html.append("<p>");
+            for (int w = 0; w < 60; w++) {
+                html.append("p").append(p).append("w").append(w).append(' ');
+            }
+            html.append("</p>");
+        }
+        html.append("</body></html>");
+
+        List<TextChunk> chunks = new ArrayList<>();
+        ChunkWriter writer = chunker.open(chunks::add);
+        StreamingTextExtractor.ExtractedText extracted = new StreamingTextExtractor(1000).extract(
+                new ByteArrayInputStream(html.toString().getBytes(StandardCharsets.UTF_8)),
+                "notes.html", "text/html", writer);
+        writer.finish();
+
+        assertThat(chunks).extracting(TextChunk::wordCount).allMatch(words -> words >= 100 && words <= 500);
+        assertThat(chunks.stream().mapToInt(TextChunk::wordCount).sum()).isEqualTo(40 * 60);
+        assertThat(chunks.getFirst().text()).startsWith("p0w0 p0w1");
+        assertThat(extracted.length()).isGreaterThan(1000);
+        assertThat(extracted.storedText()).hasSize(1000);
+    }
+}
@@ -0,0 +1,169 @@
+package dev.forte.mygenius.ai.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchingEmbeddingModelTests {
+
+    private final RecordingModel delegate = new RecordingModel();
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+    private BatchingEmbeddingModel model;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (model != null) {
+            model.close();
+        }
+    }
+
+    @Test
+    void concurrentCallersShareRequestsAndGetTheirOwnVectors() {
+        delegate.latencyMillis = 50;
+        model = batching(1_000_000, 100, 1);
+
+        List<CompletableFuture<List<float[]>>> results = new ArrayList<>();
+        for (int caller = 0; caller < 100; caller++) {
+            List<String> texts = List.of("caller " + caller + " first", "caller " + caller + " second");
+            results.add(CompletableFuture.supplyAsync(() -> model.embed(texts), callers));
+        }
+
+        for (int caller = 0; caller < 100; caller++) {
+            List<float[]> vectors = results.get(caller).join();
+            assertThat(vectors.get(0)).isEqualTo(vectorFor("caller " + caller + " first"));
+            assertThat(vectors.get(1)).isEqualTo(vectorFor("caller " + caller + " second"));
+        }
+        assertThat(delegate.requests).hasSizeLessThan(20);
+    }
+
+    @Test
+    void anIdleBatcherSendsARequestsTextsTogetherAtOnce() {
+        model = batching(1_000_000, 100, 4);
+
+        model.embed(List.of("one", "two", "three"));
+
+        assertThat(delegate.requests).containsExactly(List.of("one", "two", "three"));
+    }
+
+    @Test
+    void batchesStayUnderTheTokenLimit() {
+        // Each text is ten tokens
+        String text = "alpha beta gamma delta epsilon zeta eta theta iota kappa";
+        model = batching(25, 100, 1);
+
+        List<float[]> vectors = model.embed(List.of(text, text + " 2", text + " 3", text + " 4", text + " 5"));
+
+        assertThat(vectors).hasSize(5);
+        assertThat(delegate.requests).allSatisfy(request -> assertThat(request).hasSizeLessThanOrEqualTo(2));
+    }
+
+    @Test
+    void aRejectedInputOnlyFailsItsOwnCaller() throws Exception {
+        delegate.latencyMillis = 50;
+        model = batching(1_000_000, 100, 1);
+
+        // Keep the only request slot busy so the next two callers share a batch
+        CompletableFuture<List<float[]>> first = embedAsync("x");
+        delegate.started.await(1, TimeUnit.SECONDS);
+        CompletableFuture<List<float[]>> good = embedAsync("good");
+        CompletableFuture<List<float[]>> bad = embedAsync("bad");
+
+        assertThat(first.join()).hasSize(1);
+        assertThat(good.join().getFirst()).isEqualTo(vectorFor("good"));
+        assertThatThrownBy(bad::join).hasCauseInstanceOf(NonTransientAiException.class);
+    }
+
+    @Test
+    void callersFailWhenTheQueueStaysFull() throws Exception {
+        delegate.latencyMillis = 1_000;
+        model = new BatchingEmbeddingModel(delegate, "cl100k_base", 20, 1, 1_000_000, 1, 50, 1,
+                new SimpleMeterRegistry());
+
+        // One text in flight, one queued, and no room for a third
+        callers.execute(() -> model.embed(List.of("in flight")));
+        delegate.started.await(1, TimeUnit.SECONDS);
+        callers.execute(() -> model.embed(List.of("queued")));
+        Thread.sleep(20);
+
+        assertThatThrownBy(() -> model.embed(List.of("rejected"))).isInstanceOf(TransientAiException.class);
+    }
+
+    @Test
+    void requestsWithOptionsBypassTheQueue() {
+        model = batching(1_000_000, 100, 1);
+
+        model.call(new EmbeddingRequest(List.of("short"),
+                EmbeddingOptionsBuilder.builder().withDimensions(256).build()));
+
+        assertThat(delegate.requests).containsExactly(List.of("short"));
+        assertThat(delegate.optionsSeen.getFirst().getDimensions()).isEqualTo(256);
+    }
+
+    private CompletableFuture<List<float[]>> embedAsync(String text) {
+        return CompletableFuture.supplyAsync(() -> model.embed(List.of(text)), callers);
+    }
+
+    private BatchingEmbeddingModel batching(int maxTokens, int maxInputs, int maxConcurrentRequests) {
+        return new BatchingEmbeddingModel(delegate, "cl100k_base", 20, maxInputs, maxTokens, 10_000, 5_000,
+                maxConcurrentRequests, new SimpleMeterRegistry());
+    }
+
+    private static float[] vectorFor(String text) {
+        return new float[]{text.length(), text.hashCode()};
+    }
+
+    private static class RecordingModel implements EmbeddingModel {
+
+        final List<List<String>> requests = new CopyOnWriteArrayList<>();
+        final List<EmbeddingOptions> optionsSeen = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile long latencyMillis;
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            started.countDown();
+            requests.add(request.getInstructions());
+            optionsSeen.add(request.getOptions());
+            if (request.getInstructions().contains("bad")) {
+                throw new NonTransientAiException("400 - invalid input");
+            }
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vectorFor(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectorFor(document.getText());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package dev.forte.mygenius.ai.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingEmbeddingModelTests {
+
+    private final CountingModel delegate = new CountingModel();
+    private final InMemoryTable table = new InMemoryTable();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void cachedTextsDoNotReachTheModel() {
+        CachingEmbeddingModel model = cachingModel();
+
+        model.embed(List.of("alpha", "beta"));
+        List<float[]> again = model.embed(List.of("beta", "alpha"));
+
+        assertThat(delegate.embeddedTexts).containsExactly("alpha", "beta");
+        assertThat(again.get(0)).isEqualTo(vectorFor("beta"));
+        assertThat(again.get(1)).isEqualTo(vectorFor("alpha"));
+    }
+
+    @Test
+    void textsAreNormalizedAndSentOncePerRequest() {
+        CachingEmbeddingModel model = cachingModel();
+
+        List<float[]> vectors = model.embed(List.of("Legal  footer\n", " Legal footer", "Legal footer"));
+
+        assertThat(delegate.embeddedTexts).containsExactly("Legal  footer\n");
+        assertThat(vectors).hasSize(3).allSatisfy(vector -> assertThat(vector).isEqualTo(vectors.getFirst()));
+    }
+
+    @Test
+    void databaseTierServesWhatMemoryLost() {
+        cachingModel().embed(List.of("persisted"));
+        delegate.embeddedTexts.clear();
+
+        // A fresh process: empty memory tier, same table
+        CachingEmbeddingModel restarted = cachingModel();
+        float[] vector = restarted.embed("persisted");
+
+        assertThat(delegate.embeddedTexts).isEmpty();
+        assertThat(vector).isEqualTo(vectorFor("persisted"));
+        assertThat(meterRegistry.get("embedding.cache.database").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void vectorsRoundTripThroughTheirByteForm() {
+        float[] vector = {0.25f, -1.5f, 3.0e-7f};
+
+        assertThat(EmbeddingCacheTable.toFloats(EmbeddingCacheTable.toBytes(vector))).isEqualTo(vector);
+    }
+
+    private CachingEmbeddingModel cachingModel() {
+        return new CachingEmbeddingModel(delegate, "test-model", table, 1 << 20, meterRegistry);
+    }
+
+    private static float[] vectorFor(String text) {
+        String normalized = CachingEmbeddingModel.normalize(text);
+        return new float[]{normalized.length(), normalized.hashCode()};
+    }
+
+    private static class CountingModel implements EmbeddingModel {
+
+        private final List<String> embeddedTexts = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddedTexts.add(text);
+                embeddings.add(new Embedding(vectorFor(text), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectorFor(document.getText());
+        }
+    }
+
+    private static class InMemoryTable extends EmbeddingCacheTable {
+
+        private final Map<String, float[]> rows = new HashMap<>();
+
+        InMemoryTable() {
+            super(null);
+        }
+
+        @Override
+        Map<String, float[]> findAll(String model, List<String> textHashes) {
+            Map<String, float[]> found = new HashMap<>();
+            for (String hash : textHashes) {
+                float[] vector = rows.get(model + hash);
+                if (vector != null) {
+                    found.put(hash, vector);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        void saveAll(String model, Map<String, float[]> embeddings) {
+            embeddings.forEach((hash, vector) -> rows.put(model + hash, vector));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package dev.forte.mygenius.ai.image_processing;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DescriptionStreamsTests {
+
+    private final DescriptionStreams streams = new DescriptionStreams();
+    private final UUID imageId = UUID.randomUUID();
+
+    @Test
+    void lateFollowerGetsTheWholeDescription() {
+        Sinks.Many<String> tokens = streams.startProducing(imageId);
+        tokens.tryEmitNext("A cat ");
+        tokens.tryEmitNext("on a mat");
+
+        // Subscribed mid-way: replays what was produced, then follows live
+        List<String> seen = new ArrayList<>();
+        streams.follow(imageId).subscribe(seen::add);
+        tokens.tryEmitNext(".");
+        tokens.tryEmitComplete();
+        streams.finishProducing(imageId, tokens);
+
+        assertThat(seen).containsExactly("A cat ", "on a mat", ".");
+    }
+
+    @Test
+    void followerWaitingBeforeTheWorkerSeesItsTokens() {
+        List<String> seen = new ArrayList<>();
+        streams.follow(imageId).subscribe(seen::add);
+
+        Sinks.Many<String> tokens = streams.startProducing(imageId);
+        tokens.tryEmitNext("text");
+        tokens.tryEmitComplete();
+
+        assertThat(seen).containsExactly("text");
+    }
+
+    @Test
+    void finishedStreamIsDropped() {
+        Sinks.Many<String> first = streams.startProducing(imageId);
+        first.tryEmitNext("old");
+        first.tryEmitError(new IllegalStateException("failed"));
+        streams.finishProducing(imageId, first);
+
+        // A retried job starts over on a fresh stream
+        Sinks.Many<String> retry = streams.startProducing(imageId);
+        assertThat(retry).isNotSameAs(first);
+        List<String> seen = streams.follow(imageId).collectList().toFuture().getNow(List.of());
+        assertThat(seen).isEmpty();
+    }
+}
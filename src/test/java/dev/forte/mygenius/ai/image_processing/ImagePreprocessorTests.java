@@ -0,0 +1,165 @@
+package dev.forte.mygenius.ai.image_processing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImagePreprocessorTests {
+
+    private final ImagePreprocessor preprocessor =
+            new ImagePreprocessor(2048, 768, "jpeg", 0.85f, new SimpleMeterRegistry());
+
+    @Test
+    void largePhotoIsScaledToTheModelsSizeLimits() throws IOException {
+        byte[] original = encode(gradient(4032, 3024), "png");
+
+        ImagePreprocessor.VisionImage prepared = preprocessor.prepare(() -> new ByteArrayInputStream(original));
+
+        assertThat(prepared.mimeType()).isEqualTo(MimeTypeUtils.IMAGE_JPEG);
+        assertThat(prepared.width()).isEqualTo(1024);
+        assertThat(prepared.height()).isEqualTo(768);
+        assertThat(prepared.dataUrl()).startsWith("data:image/jpeg;base64,");
+        assertThat(prepared.sentBytes()).isEqualTo(prepared.dataUrl().length()).isLessThan(original.length);
+
+        BufferedImage sent = decode(prepared.dataUrl());
+        assertThat(sent.getWidth()).isEqualTo(1024);
+        assertThat(sent.getHeight()).isEqualTo(768);
+    }
+
+    @Test
+    void smallJpegKeepsItsSize() throws IOException {
+        byte[] original = encode(gradient(300, 200), "jpeg");
+
+        ImagePreprocessor.VisionImage prepared = preprocessor.prepare(() -> new ByteArrayInputStream(original));
+
+        assertThat(prepared.width()).isEqualTo(300);
+        assertThat(prepared.height()).isEqualTo(200);
+    }
+
+    @Test
+    void smallPngIsSentAsIs() throws IOException {
+        byte[] original = encode(gradient(300, 200), "png");
+
+        ImagePreprocessor.VisionImage prepared = preprocessor.prepare(() -> new ByteArrayInputStream(original));
+
+        assertThat(prepared.mimeType()).isEqualTo(MimeTypeUtils.IMAGE_PNG);
+        assertThat(prepared.dataUrl()).isEqualTo("data:image/png;base64," + Base64.getEncoder().encodeToString(original));
+    }
+
+    @Test
+    void reencodedJpegCarriesNoExif() throws IOException {
+        byte[] original = withApp1(encode(gradient(64, 32), "jpeg"), exif(6, true));
+
+        ImagePreprocessor.VisionImage prepared = preprocessor.prepare(() -> new ByteArrayInputStream(original));
+
+        // Turned upright, so the sides swap, and the EXIF segment is gone
+        assertThat(prepared.width()).isEqualTo(32);
+        assertThat(prepared.height()).isEqualTo(64);
+        byte[] sent = Base64.getDecoder().decode(prepared.dataUrl().substring(prepared.dataUrl().indexOf(',') + 1));
+        assertThat(new String(sent, StandardCharsets.ISO_8859_1)).doesNotContain("Exif");
+    }
+
+    @Test
+    void unreadableFormatIsSentAsIs() throws IOException {
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 not really".getBytes(StandardCharsets.ISO_8859_1);
+
+        ImagePreprocessor.VisionImage prepared = preprocessor.prepare(() -> new ByteArrayInputStream(webp));
+
+        assertThat(prepared.mimeType().toString()).isEqualTo("image/webp");
+        assertThat(prepared.dataUrl()).isEqualTo("data:image/webp;base64," + Base64.getEncoder().encodeToString(webp));
+    }
+
+    @Test
+    void readsOrientationInEitherByteOrder() {
+        assertThat(ImagePreprocessor.exifOrientation(exif(6, true))).isEqualTo(6);
+        assertThat(ImagePreprocessor.exifOrientation(exif(8, false))).isEqualTo(8);
+        assertThat(ImagePreprocessor.exifOrientation("not exif at all".getBytes(StandardCharsets.US_ASCII))).isZero();
+    }
+
+    @Test
+    void orientationTransformsKeepTheImageOnTheCanvas() {
+        int width = 40;
+        int height = 30;
+        for (int orientation = 1; orientation <= 8; orientation++) {
+            AffineTransform transform = ImagePreprocessor.orientationTransform(orientation, width, height);
+            boolean swapped = orientation >= 5;
+            int canvasWidth = swapped ? height : width;
+            int canvasHeight = swapped ? width : height;
+            for (Point2D corner : new Point2D[]{new Point2D.Double(0, 0), new Point2D.Double(width, height)}) {
+                Point2D mapped = transform.transform(corner, null);
+                assertThat(mapped.getX()).isBetween(0.0, (double) canvasWidth);
+                assertThat(mapped.getY()).isBetween(0.0, (double) canvasHeight);
+            }
+        }
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int x = 0; x < width; x += 8) {
+            graphics.setColor(new Color(x * 255 / width, 128, 255 - x * 255 / width));
+            graphics.fillRect(x, 0, 8, height);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage decode(String dataUrl) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(dataUrl.substring(dataUrl.indexOf(',') + 1));
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * An APP1 payload holding one IFD with just the orientation tag.
+     */
+    static byte[] exif(int orientation, boolean littleEndian) {
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 8 + 2 + 12 + 4)
+                .order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        buffer.put("Exif\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        buffer.put(littleEndian ? "II".getBytes(StandardCharsets.US_ASCII) : "MM".getBytes(StandardCharsets.US_ASCII));
+        buffer.putShort((short) 42).putInt(8);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    /**
+     * Inserts an APP1 segment after the SOI marker and JFIF APP0 segment of a JPEG.
+     */
+    static byte[] withApp1(byte[] jpeg, byte[] payload) {
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | jpeg[5] & 0xFF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, app0End);
+        out.write(0xFF);
+        out.write(0xE1);
+        int length = payload.length + 2;
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.writeBytes(payload);
+        out.write(jpeg, app0End, jpeg.length - app0End);
+        return out.toByteArray();
+    }
+}
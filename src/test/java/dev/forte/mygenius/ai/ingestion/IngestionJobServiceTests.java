@@ -0,0 +1,108 @@
+package dev.forte.mygenius.ai.ingestion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class IngestionJobServiceTests {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private JdbcTemplate jdbcTemplate;
+    private IngestionJobService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__create_ingestion_jobs.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("TRUNCATE ingestion_jobs");
+        service = new IngestionJobService(jdbcTemplate, null, event -> { });
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "backoffInitialSeconds", 10L);
+        ReflectionTestUtils.setField(service, "backoffMaxSeconds", 900L);
+    }
+
+    @Test
+    void aWorkerThatLostItsLeaseCannotFinishTheJob() {
+        UUID jobId = service.enqueue(UUID.randomUUID(), UUID.randomUUID(), "DOCUMENT", UUID.randomUUID());
+        IngestionJob first = single(service.claim("worker-a", 1));
+
+        // worker-a stops heart-beating, the job is recovered and claimed by worker-b
+        expireLease(jobId);
+        assertThat(service.recoverStaleJobs(60)).hasSize(1);
+        IngestionJob second = single(service.claim("worker-b", 1));
+
+        assertThat(service.complete(first, "worker-a")).isFalse();
+        assertThat(service.fail(first, "worker-a", new RuntimeException("late")))
+                .isEqualTo(IngestionJobService.FailOutcome.LEASE_LOST);
+        assertThat(row(jobId)).containsEntry("status", "running").containsEntry("locked_by", "worker-b");
+
+        assertThat(service.complete(second, "worker-b")).isTrue();
+        assertThat(row(jobId)).containsEntry("status", "completed");
+    }
+
+    @Test
+    void aLateFailureOnTheLastAttemptDoesNotFailTheJob() {
+        UUID jobId = service.enqueue(UUID.randomUUID(), UUID.randomUUID(), "IMAGE", UUID.randomUUID());
+        jdbcTemplate.update("UPDATE ingestion_jobs SET max_attempts = 1 WHERE job_id = ?", jobId);
+        IngestionJob first = single(service.claim("worker-a", 1));
+
+        expireLease(jobId);
+        service.recoverStaleJobs(60);
+
+        // Recovery already failed it, the late report changes nothing
+        assertThat(service.fail(first, "worker-a", new RuntimeException("late")))
+                .isEqualTo(IngestionJobService.FailOutcome.LEASE_LOST);
+        assertThat(row(jobId)).containsEntry("status", "failed")
+                .containsEntry("last_error", "Worker lease expired");
+    }
+
+    @Test
+    void theOwnerRetriesAndFailsAsBefore() {
+        UUID jobId = service.enqueue(UUID.randomUUID(), UUID.randomUUID(), "DOCUMENT", UUID.randomUUID());
+        jdbcTemplate.update("UPDATE ingestion_jobs SET max_attempts = 2 WHERE job_id = ?", jobId);
+
+        IngestionJob first = single(service.claim("worker-a", 1));
+        assertThat(service.fail(first, "worker-a", new RuntimeException("boom")))
+                .isEqualTo(IngestionJobService.FailOutcome.RETRYING);
+        assertThat(row(jobId)).containsEntry("status", "queued");
+
+        jdbcTemplate.update("UPDATE ingestion_jobs SET next_attempt_at = now() WHERE job_id = ?", jobId);
+        IngestionJob second = single(service.claim("worker-a", 1));
+        assertThat(service.fail(second, "worker-a", new RuntimeException("boom")))
+                .isEqualTo(IngestionJobService.FailOutcome.FAILED);
+        assertThat(row(jobId)).containsEntry("status", "failed");
+    }
+
+    private void expireLease(UUID jobId) {
+        jdbcTemplate.update("UPDATE ingestion_jobs SET locked_at = now() - interval '1 hour' WHERE job_id = ?", jobId);
+    }
+
+    private Map<String, Object> row(UUID jobId) {
+        return jdbcTemplate.queryForMap(
+                "SELECT status, locked_by, last_error FROM ingestion_jobs WHERE job_id = ?", jobId);
+    }
+
+    private static IngestionJob single(List<IngestionJob> jobs) {
+        assertThat(jobs).hasSize(1);
+        return jobs.get(0);
+    }
+}
@@ -0,0 +1,66 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LshIndexTests {
+
+    private final MinHash minHash = new MinHash(128, 3);
+
+    @Test
+    void findsTheNearDuplicateAmongManyTexts() {
+        SplittableRandom random = new SplittableRandom(11);
+        LshIndex index = new LshIndex(16, 8);
+        String[] texts = new String[5000];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = randomText(random, 80);
+            index.add(new UUID(0, i), minHash.signature(texts[i]));
+        }
+
+        // The same text with one word changed near the end
+        String nearDuplicate = texts[1234].substring(0, texts[1234].lastIndexOf(' ')) + " changed";
+        LshIndex.Match match = index.findMostSimilar(minHash.signature(nearDuplicate), 0.8);
+
+        assertThat(match).isNotNull();
+        assertThat(match.id()).isEqualTo(new UUID(0, 1234));
+        assertThat(match.similarity()).isGreaterThanOrEqualTo(0.8);
+        assertThat(index.size()).isEqualTo(5000);
+    }
+
+    @Test
+    void ignoresCandidatesBelowTheThreshold() {
+        SplittableRandom random = new SplittableRandom(3);
+        LshIndex index = new LshIndex(16, 8);
+        String text = randomText(random, 40);
+        index.add(new UUID(0, 1), minHash.signature(text));
+
+        // Half of the text replaced
+        String half = text.substring(0, text.length() / 2) + " " + randomText(random, 20);
+
+        assertThat(index.findMostSimilar(minHash.signature(half), 0.8)).isNull();
+        assertThat(index.findMostSimilar(minHash.signature(randomText(random, 40)), 0.8)).isNull();
+    }
+
+    @Test
+    void returnsTheMostSimilarOfSeveralMatches() {
+        SplittableRandom random = new SplittableRandom(5);
+        String text = randomText(random, 100);
+        LshIndex index = new LshIndex(16, 8);
+        index.add(new UUID(0, 1), minHash.signature(text.substring(0, text.lastIndexOf(' ')) + " a b c d e"));
+        index.add(new UUID(0, 2), minHash.signature(text));
+
+        assertThat(index.findMostSimilar(minHash.signature(text), 0.8).id()).isEqualTo(new UUID(0, 2));
+    }
+
+    private static String randomText(SplittableRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append("w").append(random.nextInt(50_000));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MinHashTests {
+
+    private final MinHash minHash = new MinHash(128, 3);
+
+    @Test
+    void ignoresCasePunctuationAndWhitespace() {
+        long[] a = minHash.signature("Confidential: do not distribute this document outside the company.");
+        long[] b = minHash.signature("confidential  do NOT distribute this document\noutside the company");
+
+        assertThat(MinHash.similarity(a, b)).isEqualTo(1.0);
+    }
+
+    @Test
+    void estimatesTheJaccardSimilarityOfShingles() {
+        SplittableRandom random = new SplittableRandom(7);
+        String[] words = new String[200];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + random.nextInt(100_000);
+        }
+        String[] changed = words.clone();
+        // Replacing every 10th word changes up to three shingles each
+        for (int i = 5; i < changed.length; i += 10) {
+            changed[i] = "x" + i;
+        }
+
+        double estimate = MinHash.similarity(minHash.signature(String.join(" ", words)),
+                minHash.signature(String.join(" ", changed)));
+
+        assertThat(estimate).isCloseTo(jaccard(words, changed), within(0.12));
+    }
+
+    @Test
+    void unrelatedTextsAreDissimilar() {
+        long[] a = minHash.signature("Quarterly revenue grew by twelve percent on strong subscription sales in Europe");
+        long[] b = minHash.signature("The recipe calls for two cups of flour, one egg and a pinch of salt");
+
+        assertThat(MinHash.similarity(a, b)).isLessThan(0.1);
+    }
+
+    @Test
+    void shortTextsAreOneShingle() {
+        assertThat(MinHash.similarity(minHash.signature("Page 1"), minHash.signature("page 1"))).isEqualTo(1.0);
+        assertThat(MinHash.similarity(minHash.signature("Page 1"), minHash.signature("Page 2"))).isLessThan(0.1);
+    }
+
+    private static double jaccard(String[] a, String[] b) {
+        Set<String> first = shingles(a);
+        Set<String> second = shingles(b);
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        first.retainAll(second);
+        return first.size() / (double) union.size();
+    }
+
+    private static Set<String> shingles(String[] words) {
+        Set<String> shingles = new HashSet<>();
+        for (int i = 0; i + 3 <= words.length; i++) {
+            shingles.add(words[i] + " " + words[i + 1] + " " + words[i + 2]);
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,123 @@
+package dev.forte.mygenius.ai.near_duplicates;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateDetectorTests {
+
+    private static final String FOOTER = "This document is confidential and intended solely for the use of the "
+            + "individual to whom it is addressed. If you received it in error, notify the sender.";
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID contentId = UUID.randomUUID();
+    private final InMemoryTable table = new InMemoryTable();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NearDuplicateDetector detector = new NearDuplicateDetector(table, meterRegistry, true,
+            NearDuplicateDetector.Mode.SKIP, 0.8, 3, 128, 16);
+
+    @Test
+    void matchesRepeatsWithinTheDocument() {
+        NearDuplicateDetector.Session session = detector.open(userId, contentId);
+        UUID first = UUID.randomUUID();
+
+        assertThat(session.check(FOOTER + " Page 1", first)).isNull();
+        assertThat(session.check(FOOTER + " Page 2", UUID.randomUUID()))
+                .isEqualTo(new NearDuplicateDetector.Duplicate(first, true));
+        assertThat(session.check("An unrelated paragraph about the quarterly results and outlook", UUID.randomUUID()))
+                .isNull();
+    }
+
+    @Test
+    void matchesChunksOfOtherContentAndSavesNewSignatures() {
+        UUID stored = UUID.randomUUID();
+        table.add(UUID.randomUUID(), stored, FOOTER);
+        NearDuplicateDetector.Session session = detector.open(userId, contentId);
+
+        assertThat(session.check(FOOTER, UUID.randomUUID()))
+                .isEqualTo(new NearDuplicateDetector.Duplicate(stored, false));
+        UUID own = UUID.randomUUID();
+        session.check("A paragraph of this document that the user has nowhere else", own);
+        session.save();
+
+        assertThat(table.saved).extracting(ChunkSignatureTable.Row::vectorId).containsExactly(own);
+    }
+
+    @Test
+    void ignoresTheContentBeingIngested() {
+        // Signatures left by an earlier attempt at the same content
+        table.add(contentId, UUID.randomUUID(), FOOTER);
+
+        assertThat(detector.open(userId, contentId).check(FOOTER, UUID.randomUUID())).isNull();
+    }
+
+    @Test
+    void readsOnlyChunksSharingABand() {
+        table.add(UUID.randomUUID(), UUID.randomUUID(), FOOTER);
+        table.add(UUID.randomUUID(), UUID.randomUUID(), "Minutes of the weekly planning meeting with the design team");
+
+        detector.open(userId, contentId).check(FOOTER + " Page 1", UUID.randomUUID());
+
+        assertThat(table.read).isEqualTo(1);
+    }
+
+    @Test
+    void countsTheSavings() {
+        detector.recordSkipped(3);
+        detector.recordLinked(2);
+        detector.recordUnique(10);
+
+        assertThat(meterRegistry.get("ingestion.dedup.vectors-saved").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("ingestion.dedup.embeddings-saved").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("ingestion.dedup.chunks").tag("outcome", "unique").counter().count())
+                .isEqualTo(10);
+    }
+
+    private static class InMemoryTable extends ChunkSignatureTable {
+
+        private record Stored(UUID contentId, Row row) {
+        }
+
+        private static final LshIndex BANDS = new LshIndex(16, 8);
+
+        final List<Stored> rows = new ArrayList<>();
+        final List<Row> saved = new ArrayList<>();
+        int read;
+
+        InMemoryTable() {
+            super(null);
+        }
+
+        void add(UUID contentId, UUID vectorId, String text) {
+            long[] signature = new MinHash(128, 3).signature(text);
+            rows.add(new Stored(contentId, new Row(vectorId, signature, BANDS.bandKeys(signature))));
+        }
+
+        @Override
+        List<Candidate> candidates(UUID userId, UUID excludedContentId, long[] bandKeys, int limit) {
+            Set<Long> keys = Arrays.stream(bandKeys).boxed().collect(Collectors.toSet());
+            List<Candidate> candidates = new ArrayList<>();
+            for (Stored stored : rows) {
+                if (!excludedContentId.equals(stored.contentId())
+                        && Arrays.stream(stored.row().bandKeys()).anyMatch(keys::contains)) {
+                    candidates.add(new Candidate(stored.row().vectorId(), stored.row().signature()));
+                }
+            }
+            read += candidates.size();
+            return candidates;
+        }
+
+        @Override
+        void saveAll(UUID userId, UUID contentId, List<Row> rows) {
+            saved.addAll(rows);
+        }
+    }
+}
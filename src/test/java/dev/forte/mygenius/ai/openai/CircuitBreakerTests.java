@@ -0,0 +1,70 @@
+package dev.forte.mygenius.ai.openai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTests {
+
+    @Test
+    void opensOnceTheFailureRateReachesTheThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, TimeUnit.SECONDS.toNanos(30), 1);
+
+        fail(breaker, 3);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        succeed(breaker, 1);
+        fail(breaker, 1);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void staysClosedWhileFailuresAreRare() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, TimeUnit.SECONDS.toNanos(30), 1);
+
+        for (int i = 0; i < 20; i++) {
+            succeed(breaker, 3);
+            fail(breaker, 1);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.failureRate()).isLessThan(0.5);
+    }
+
+    @Test
+    void halfOpenTrialsDecideWhetherItCloses() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, TimeUnit.MILLISECONDS.toNanos(20), 2);
+        fail(breaker, 2);
+        Thread.sleep(30);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        // Only two trial calls at a time
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(30);
+        succeed(breaker, 2);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.failureRate()).isZero();
+    }
+
+    private static void succeed(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onSuccess();
+        }
+    }
+
+    private static void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package dev.forte.mygenius.ai.openai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAiLaneTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OpenAiLane lane;
+
+    @AfterEach
+    void tearDown() {
+        lane.shutdown();
+    }
+
+    @Test
+    void givesUpOnACallThatOutlivesItsTimeout() {
+        lane = lane(2, Duration.ofMillis(50), false);
+
+        assertThatThrownBy(() -> lane.call(() -> sleep(1_000)))
+                .isInstanceOf(OpenAiUnavailableException.class)
+                .hasMessageContaining("ran out of time");
+        assertThat(meterRegistry.get("openai.calls").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void theCallersDeadlineShortensTheTimeout() {
+        lane = lane(2, Duration.ofSeconds(10), false);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> Deadline.run(Duration.ofMillis(50), () -> lane.call(() -> sleep(1_000))))
+                .isInstanceOf(OpenAiUnavailableException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    void rejectsCallsWhileTheBulkheadIsFull() throws Exception {
+        lane = lane(1, Duration.ofSeconds(10), false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> lane.call(() -> {
+            started.countDown();
+            await(release);
+            return "first";
+        }));
+        started.await(1, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> lane.call(() -> "second"))
+                .isInstanceOf(OpenAiUnavailableException.class)
+                .hasMessageContaining("in flight");
+        release.countDown();
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+    }
+
+    @Test
+    void failsFastOnceTheCircuitOpens() {
+        lane = lane(2, Duration.ofSeconds(10), false);
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> lane.call(() -> {
+                attempts.incrementAndGet();
+                throw new NonTransientAiException("500 - server error");
+            })).isInstanceOf(NonTransientAiException.class);
+        }
+        assertThatThrownBy(() -> lane.call(attempts::incrementAndGet))
+                .isInstanceOf(OpenAiUnavailableException.class)
+                .hasMessageContaining("circuit open");
+        assertThat(attempts).hasValue(4);
+    }
+
+    @Test
+    void aHedgedCallTakesTheFasterAttempt() {
+        lane = lane(2, Duration.ofSeconds(10), true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String answer = lane.call(() -> attempts.incrementAndGet() == 1 ? sleep(2_000) : "backup");
+
+        assertThat(answer).isEqualTo("backup");
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(1_000));
+        assertThat(meterRegistry.get("openai.calls.hedged").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void streamsReleaseTheirSlotWhenDone() {
+        lane = lane(1, Duration.ofSeconds(10), false);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(lane.stream(() -> Flux.just("a", "b")).collectList().block()).containsExactly("a", "b");
+        }
+        assertThatThrownBy(() -> lane.stream(() -> Flux.never()).blockLast(Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(lane.describe()).containsEntry("inFlight", 0);
+    }
+
+    private OpenAiLane lane(int maxConcurrent, Duration timeout, boolean hedge) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(4, 4, 0.5, TimeUnit.SECONDS.toNanos(30), 1);
+        return new OpenAiLane("test", maxConcurrent, Duration.ZERO, timeout, hedge, Duration.ofMillis(50),
+                circuitBreaker, meterRegistry);
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slow";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package dev.forte.mygenius.ai.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryEmbeddingCacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void embedsEachQueryOnce() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 1 << 20);
+        AtomicInteger calls = new AtomicInteger();
+
+        float[] first = cache.get("hash", () -> {
+            calls.incrementAndGet();
+            return new float[]{0.25f, -1.5f, 3};
+        });
+        float[] second = cache.get("hash", () -> {
+            calls.incrementAndGet();
+            return new float[]{9, 9, 9};
+        });
+
+        assertThat(calls).hasValue(1);
+        assertThat(second).containsExactly(0.25f, -1.5f, 3).isNotSameAs(first);
+    }
+
+    @Test
+    void callersCannotChangeTheCachedVector() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 1 << 20);
+
+        cache.get("hash", () -> new float[]{1, 2})[0] = 42;
+
+        assertThat(cache.get("hash", () -> new float[0])).containsExactly(1, 2);
+    }
+}
@@ -0,0 +1,41 @@
+package dev.forte.mygenius.ai.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankFusionTests {
+
+    @Test
+    void documentsFoundByBothLegsComeFirst() {
+        List<Document> vector = List.of(doc("a"), doc("b"), doc("c"));
+        List<Document> lexical = List.of(doc("c"), doc("d"));
+
+        List<Document> fused = RankFusion.fuse(List.of(vector, lexical), 60, 10);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("c", "a", "b", "d");
+        assertThat(fused.getFirst().getScore()).isEqualTo(1.0 / 63 + 1.0 / 61);
+    }
+
+    @Test
+    void tiesKeepTheFirstRankingsOrder() {
+        List<Document> fused = RankFusion.fuse(List.of(List.of(doc("a")), List.of(doc("b"))), 60, 10);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("a", "b");
+    }
+
+    @Test
+    void returnsAtMostTheLimit() {
+        List<Document> fused = RankFusion.fuse(List.of(List.of(doc("a"), doc("b"), doc("c")), List.of()), 60, 2);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("a", "b");
+    }
+
+    private static Document doc(String id) {
+        return new Document(id, "text " + id, Map.of());
+    }
+}
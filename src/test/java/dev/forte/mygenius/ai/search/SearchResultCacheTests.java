@@ -0,0 +1,68 @@
+package dev.forte.mygenius.ai.search;
+
+import dev.forte.mygenius.ai.vector_store.UserVectorsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache(meterRegistry, 100, 600);
+    private final UUID userId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID otherUserId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Test
+    void servesRankedHitsForTheSameSearch() {
+        SearchResultCache.Key key = key(userId);
+        cache.put(key, List.of(document("b", 0.9), document("a", 0.5)), 1_000_000);
+
+        assertThat(cache.get(key(userId))).containsExactly(
+                new SearchResultCache.Hit("b", 0.9), new SearchResultCache.Hit("a", 0.5));
+        assertThat(meterRegistry.get("search.cache.time-saved").tag("level", "results").counter().count())
+                .isEqualTo(0.001);
+    }
+
+    @Test
+    void equivalentFiltersShareAKey() {
+        UUID first = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+        UUID second = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+        assertThat(cache.key(userId, SearchMode.HYBRID, "q", 5, 0, List.of(second, first), " "))
+                .isEqualTo(cache.key(userId, SearchMode.HYBRID, "q", 5, 0, List.of(first, second), null));
+    }
+
+    @Test
+    void changedVectorsHideTheUsersEarlierResults() {
+        cache.put(key(userId), List.of(document("a", 0.5)), 1);
+        cache.put(key(otherUserId), List.of(document("b", 0.5)), 1);
+
+        cache.onUserVectorsChanged(UserVectorsChangedEvent.anyChange(userId));
+
+        assertThat(cache.get(key(userId))).isNull();
+        assertThat(cache.get(key(otherUserId))).isNotNull();
+    }
+
+    @Test
+    void resultsOfASearchRacingAChangeAreNeverServed() {
+        SearchResultCache.Key before = key(userId);
+        cache.invalidate(userId);
+        cache.put(before, List.of(document("a", 0.5)), 1);
+
+        assertThat(cache.get(key(userId))).isNull();
+    }
+
+    private SearchResultCache.Key key(UUID user) {
+        return cache.key(user, SearchMode.VECTOR, "hash", 5, 0.5, null, null);
+    }
+
+    private static Document document(String id, double score) {
+        return Document.builder().id(id).text("text").metadata(Map.of()).score(score).build();
+    }
+}
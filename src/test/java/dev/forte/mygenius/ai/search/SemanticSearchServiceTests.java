@@ -0,0 +1,43 @@
+package dev.forte.mygenius.ai.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.pgvector.PgVectorFilterExpressionConverter;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SemanticSearchServiceTests {
+
+    private final PgVectorFilterExpressionConverter converter = new PgVectorFilterExpressionConverter();
+    private final UUID userId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Test
+    void alwaysFiltersOnTheUser() {
+        String jsonPath = converter.convertExpression(SemanticSearchService.filter(userId, null, null));
+
+        assertThat(jsonPath).isEqualTo("$.user_id == \"" + userId + "\"");
+    }
+
+    @Test
+    void addsDocumentAndTopicFilters() {
+        UUID documentId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+        String jsonPath = converter.convertExpression(
+                SemanticSearchService.filter(userId, List.of(documentId), "Invoices"));
+
+        assertThat(jsonPath)
+                .contains("$.user_id == \"" + userId + "\"")
+                .contains("$.document_id == \"" + documentId + "\"")
+                .contains("$.topic == \"Invoices\"");
+    }
+
+    @Test
+    void rejectsTopicsThatWouldEscapeTheFilter() {
+        assertThatThrownBy(() -> SemanticSearchService.filter(userId, null, "x' OR '1'='1"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+}
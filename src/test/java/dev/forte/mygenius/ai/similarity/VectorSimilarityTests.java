@@ -0,0 +1,119 @@
+package dev.forte.mygenius.ai.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorSimilarityTests {
+
+    private final SplittableRandom random = new SplittableRandom(5);
+
+    @Test
+    void runsOnSimdInTests() {
+        // Surefire starts the JVM with --add-modules jdk.incubator.vector
+        assertThat(VectorSimilarity.simd()).isTrue();
+    }
+
+    @Test
+    void simdAndScalarKernelsAgreeAtEveryLength() {
+        Kernels simd = new SimdKernels();
+        Kernels scalar = new ScalarKernels();
+        for (int length = 0; length <= 70; length++) {
+            float[] a = randomVector(length + 3);
+            float[] b = randomVector(length + 5);
+            byte[] codesA = randomCodes(length + 2);
+            byte[] codesB = randomCodes(length + 7);
+
+            assertThat(simd.dot(a, 3, b, 5, length)).isCloseTo(scalar.dot(a, 3, b, 5, length), within(1e-3f));
+            assertThat(simd.squaredL2(a, 3, b, 5, length))
+                    .isCloseTo(scalar.squaredL2(a, 3, b, 5, length), within(1e-3f));
+            assertThat(simd.dot(a, codesB, 7, length)).isCloseTo(scalar.dot(a, codesB, 7, length), within(1e-2f));
+            assertThat(simd.dot(codesA, 2, codesB, 7, length)).isEqualTo(scalar.dot(codesA, 2, codesB, 7, length));
+        }
+    }
+
+    @Test
+    void computesTheUsualMeasures() {
+        float[] a = {1, 2, 3};
+        float[] b = {4, -5, 6};
+
+        assertThat(VectorSimilarity.dot(a, b)).isEqualTo(12);
+        assertThat(VectorSimilarity.cosine(a, b)).isCloseTo((float) (12 / Math.sqrt(14 * 77)), within(1e-6f));
+        assertThat(VectorSimilarity.l2(a, b)).isCloseTo((float) Math.sqrt(9 + 49 + 9), within(1e-6f));
+        assertThat(VectorSimilarity.cosine(a, new float[3])).isZero();
+    }
+
+    @Test
+    void batchesAgreeWithPairwiseCalls() {
+        int dimensions = 1536;
+        int count = 150;
+        float[] query = randomVector(dimensions);
+        float[] flat = randomVector(dimensions * count);
+        FloatBuffer buffer = ByteBuffer.allocateDirect((count + 1) * dimensions * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        buffer.put(dimensions, flat);
+
+        float[] dots = new float[count];
+        float[] cosines = new float[count];
+        float[] distances = new float[count];
+        float[] bufferCosines = new float[count];
+        float[] bufferDistances = new float[count];
+        VectorSimilarity.dot(query, flat, count, dots);
+        VectorSimilarity.cosine(query, flat, count, cosines);
+        VectorSimilarity.l2(query, flat, count, distances);
+        VectorSimilarity.cosine(query, buffer, dimensions, count, bufferCosines);
+        VectorSimilarity.l2(query, buffer, dimensions, count, bufferDistances);
+
+        for (int v = 0; v < count; v++) {
+            float[] vector = new float[dimensions];
+            System.arraycopy(flat, v * dimensions, vector, 0, dimensions);
+            assertThat(dots[v]).isEqualTo(VectorSimilarity.dot(query, vector));
+            assertThat(VectorSimilarity.dot(query, buffer, (v + 1) * dimensions)).isEqualTo(dots[v]);
+            assertThat(cosines[v]).isCloseTo(VectorSimilarity.cosine(query, vector), within(1e-6f));
+            assertThat(bufferCosines[v]).isEqualTo(cosines[v]);
+            assertThat(distances[v]).isEqualTo(VectorSimilarity.l2(query, vector));
+            assertThat(bufferDistances[v]).isEqualTo(distances[v]);
+        }
+    }
+
+    @Test
+    void readsInt8CodesFromBuffers() {
+        ByteBuffer codes = ByteBuffer.allocateDirect(8);
+        codes.put(0, new byte[]{1, -2, 3, 4, 5, 6, -7, 8});
+
+        assertThat(VectorSimilarity.dot(new float[]{0.5f, 1, 2, 0}, codes, 4)).isEqualTo(2.5f + 6 - 14);
+        assertThat(VectorSimilarity.dot(codes, 0, 4, 4)).isEqualTo(5 - 12 - 21 + 32);
+    }
+
+    @Test
+    void rejectsMismatchedVectors() {
+        assertThatThrownBy(() -> VectorSimilarity.dot(new float[3], new float[4]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> VectorSimilarity.dot(new float[3], new float[8], 3, new float[3]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private float[] randomVector(int length) {
+        float[] vector = new float[length];
+        for (int i = 0; i < length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private byte[] randomCodes(int length) {
+        byte[] codes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            codes[i] = (byte) (random.nextInt(255) - 127);
+        }
+        return codes;
+    }
+}
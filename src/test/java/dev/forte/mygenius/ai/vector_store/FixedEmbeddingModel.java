@@ -0,0 +1,30 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embeds every text as the same small vector.
+ */
+class FixedEmbeddingModel implements EmbeddingModel {
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(new float[]{1, 0, 0}, i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return new float[]{1, 0, 0};
+    }
+}
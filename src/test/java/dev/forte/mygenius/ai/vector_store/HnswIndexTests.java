@@ -0,0 +1,117 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class HnswIndexTests {
+
+    private static final int DIMENSIONS = 64;
+
+    @Test
+    void findsNearlyAllTrueNeighbours() {
+        SplittableRandom random = new SplittableRandom(7);
+        float[][] vectors = new float[3000][];
+        UUID[] ids = new UUID[vectors.length];
+        HnswIndex index = new HnswIndex(16, 100, vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            ids[i] = new UUID(0, i);
+            index.add(ids[i], null, vectors[i]);
+        }
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            Set<UUID> expected = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> -cosine(query, vectors[i])))
+                    .limit(10)
+                    .map(i -> ids[i])
+                    .collect(Collectors.toSet());
+            List<HnswIndex.Match> matches = index.search(query, 10, 64, 4, -1);
+            found += (int) matches.stream().filter(match -> expected.contains(match.id())).count();
+        }
+
+        assertThat(found / (queries * 10.0)).isGreaterThan(0.95);
+    }
+
+    @Test
+    void returnsExactSimilaritiesInOrder() {
+        SplittableRandom random = new SplittableRandom(11);
+        HnswIndex index = new HnswIndex(8, 50, 100);
+        float[][] vectors = new float[200][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random);
+            index.add(new UUID(0, i), null, vectors[i]);
+        }
+
+        List<HnswIndex.Match> matches = index.search(vectors[17], 5, 32, 4, 0);
+
+        assertThat(matches.get(0).id()).isEqualTo(new UUID(0, 17));
+        assertThat(matches.get(0).similarity()).isCloseTo(1, offset(1e-5));
+        assertThat(matches).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Match::similarity).reversed());
+    }
+
+    @Test
+    void leavesDeletedContentAndReplacedVectorsOut() {
+        SplittableRandom random = new SplittableRandom(3);
+        UUID deletedContent = new UUID(1, 1);
+        HnswIndex index = new HnswIndex(8, 50, 100);
+        float[] target = randomVector(random);
+        index.add(new UUID(0, 0), deletedContent, target);
+        index.add(new UUID(0, 1), null, target);
+        for (int i = 2; i < 100; i++) {
+            index.add(new UUID(0, i), i % 2 == 0 ? deletedContent : null, randomVector(random));
+        }
+        index.add(new UUID(0, 1), null, randomVector(random));
+
+        assertThat(index.deleteContent(deletedContent)).isEqualTo(50);
+
+        List<HnswIndex.Match> matches = index.search(target, 100, 100, 1, -1);
+        assertThat(matches).hasSize(50).extracting(HnswIndex.Match::id)
+                .doesNotContain(new UUID(0, 0), new UUID(0, 2))
+                .containsOnlyOnce(new UUID(0, 1));
+        assertThat(index.live()).isEqualTo(50);
+    }
+
+    @Test
+    void appliesTheThreshold() {
+        HnswIndex index = new HnswIndex(8, 50, 10);
+        index.add(new UUID(0, 0), null, new float[]{1, 0});
+        index.add(new UUID(0, 1), null, new float[]{0, 1});
+
+        assertThat(index.search(new float[]{1, 0.1f}, 10, 10, 1, 0.5))
+                .extracting(HnswIndex.Match::id)
+                .containsExactly(new UUID(0, 0));
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,141 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HotVectorTierTests {
+
+    private final UUID userId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID contentId = UUID.fromString("00000000-0000-0000-0000-00000000000c");
+    private final InMemoryStore store = new InMemoryStore();
+
+    @Test
+    void servesSearchesOnceTheIndexIsLoaded() {
+        store.put(new UUID(0, 1), contentId, new float[]{1, 0, 0});
+        store.put(new UUID(0, 2), contentId, new float[]{0, 1, 0});
+        HotVectorTier tier = tier(1 << 20, 2);
+
+        List<Document> documents = awaitResults(tier, new float[]{1, 0.1f, 0}, 2);
+
+        assertThat(store.loads).isEqualTo(1);
+        assertThat(documents).extracting(Document::getId)
+                .containsExactly(new UUID(0, 1).toString(), new UUID(0, 2).toString());
+        assertThat(documents.get(0).getScore()).isGreaterThan(0.99);
+        assertThat(documents.get(0).getMetadata()).containsKey("distance");
+    }
+
+    @Test
+    void leavesSmallLibrariesToPostgres() throws InterruptedException {
+        store.put(new UUID(0, 1), contentId, new float[]{1, 0, 0});
+        HotVectorTier tier = tier(1 << 20, 2);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(tier.search(userId, new float[]{1, 0, 0}, 1, 0)).isNull();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void followsWritesAndDeletes() {
+        store.put(new UUID(0, 1), contentId, new float[]{1, 0, 0});
+        store.put(new UUID(0, 2), null, new float[]{0, 1, 0});
+        HotVectorTier tier = tier(1 << 20, 2);
+        awaitResults(tier, new float[]{1, 0, 0}, 3);
+
+        UUID written = new UUID(0, 3);
+        store.put(written, null, new float[]{0, 0, 1});
+        tier.onUserVectorsChanged(UserVectorsChangedEvent.written(userId,
+                List.of(new UserVectorsChangedEvent.WrittenVector(written, null, new float[]{0, 0, 1}))));
+        assertThat(tier.search(userId, new float[]{0, 0, 1}, 1, 0))
+                .extracting(Document::getId).containsExactly(written.toString());
+
+        tier.onUserVectorsChanged(UserVectorsChangedEvent.contentDeleted(userId, contentId));
+        // One of three vectors deleted is under the default tombstone ratio, so the index stays
+        assertThat(tier.search(userId, new float[]{1, 0, 0}, 3, 0))
+                .extracting(Document::getId).doesNotContain(new UUID(0, 1).toString());
+    }
+
+    @Test
+    void dropsIndexesOnUnspecifiedChanges() {
+        store.put(new UUID(0, 1), contentId, new float[]{1, 0, 0});
+        HotVectorTier tier = tier(1 << 20, 1);
+        awaitResults(tier, new float[]{1, 0, 0}, 1);
+        assertThat(tier.usedBytes()).isPositive();
+
+        tier.onUserVectorsChanged(UserVectorsChangedEvent.anyChange(userId));
+
+        assertThat(tier.usedBytes()).isZero();
+        awaitResults(tier, new float[]{1, 0, 0}, 1);
+        assertThat(store.loads).isEqualTo(2);
+    }
+
+    @Test
+    void staysWithinItsBudget() {
+        store.put(new UUID(0, 1), contentId, new float[]{1, 0, 0});
+        HotVectorTier tier = tier(10, 1);
+
+        tier.search(userId, new float[]{1, 0, 0}, 1, 0);
+
+        await().untilAsserted(() -> assertThat(store.loads).isEqualTo(1));
+        assertThat(tier.search(userId, new float[]{1, 0, 0}, 1, 0)).isNull();
+        assertThat(tier.usedBytes()).isZero();
+    }
+
+    private HotVectorTier tier(long maxBytes, long minVectors) {
+        return new HotVectorTier(store, new SimpleMeterRegistry(), true, maxBytes, minVectors,
+                8, 32, 16, 4, 0.4, 30);
+    }
+
+    private List<Document> awaitResults(HotVectorTier tier, float[] query, int topK) {
+        return await().until(() -> tier.search(userId, query, topK, 0), documents -> documents != null);
+    }
+
+    /**
+     * One user's vectors, in a map instead of Postgres.
+     */
+    private class InMemoryStore extends PartitionedVectorStore {
+
+        final Map<UUID, UserVectorsChangedEvent.WrittenVector> vectors = new LinkedHashMap<>();
+        volatile int loads;
+
+        InMemoryStore() {
+            super(null, null, new FixedEmbeddingModel(), new ObjectMapper(), 100, "", 500, event -> { });
+        }
+
+        void put(UUID id, UUID content, float[] embedding) {
+            vectors.put(id, new UserVectorsChangedEvent.WrittenVector(id, content, embedding));
+        }
+
+        @Override
+        public long countVectors(UUID user) {
+            return vectors.size();
+        }
+
+        @Override
+        public void forEachVector(UUID user, Consumer<UserVectorsChangedEvent.WrittenVector> consumer) {
+            vectors.values().forEach(consumer);
+            loads++;
+        }
+
+        @Override
+        public Map<String, Document> findByIds(UUID user, List<String> idList) {
+            Map<String, Document> documents = new HashMap<>();
+            for (String id : idList) {
+                documents.put(id, Document.builder().id(id).text("chunk " + id).metadata(Map.of()).build());
+            }
+            return documents;
+        }
+    }
+}
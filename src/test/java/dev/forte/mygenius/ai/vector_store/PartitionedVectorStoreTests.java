@@ -0,0 +1,54 @@
+package dev.forte.mygenius.ai.vector_store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionedVectorStoreTests {
+
+    private final FilterExpressionBuilder b = new FilterExpressionBuilder();
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void findsTheUserAnywhereInAConjunction() {
+        var filter = b.and(b.and(b.eq("topic", "Invoices"), b.eq("user_id", userId.toString())),
+                b.in("document_id", "a", "b")).build();
+
+        assertThat(PartitionedVectorStore.requireUserId(filter)).isEqualTo(userId);
+    }
+
+    @Test
+    void refusesUnscopedFilters() {
+        assertThatThrownBy(() -> PartitionedVectorStore.requireUserId(b.eq("topic", "Invoices").build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PartitionedVectorStore.requireUserId(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aUserInOnlyOneBranchOfAnOrDoesNotScopeTheFilter() {
+        var filter = b.or(b.eq("user_id", userId.toString()), b.eq("topic", "Invoices")).build();
+
+        assertThatThrownBy(() -> PartitionedVectorStore.requireUserId(filter))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void refusesDocumentsWithoutAUser() {
+        PartitionedVectorStore store = new PartitionedVectorStore(null, null,
+                new FixedEmbeddingModel(), new ObjectMapper(), 100, "", 500, event -> { });
+        Document document = new Document(UUID.randomUUID().toString(), "text", Map.of("content_id", "x"));
+
+        assertThatThrownBy(() -> store.add(List.of(document)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("user_id");
+    }
+}
@@ -0,0 +1,72 @@
+package dev.forte.mygenius.benchmarks;
+
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * The Postgres a database benchmark runs against. With {@code -Dbenchmark.jdbc-url}
+ * (and {@code benchmark.user}, {@code benchmark.password}) it is that database;
+ * without, the benchmark's {@code main} starts a throwaway Testcontainers one for
+ * the whole run, which needs Docker. Either way the forked benchmark JVMs get the
+ * same three properties and {@link #connect()} with them.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> container, String url, String user, String password) {
+        this.container = container;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * The database named by the system properties, or else a new container of
+     * {@code image}, a Postgres image or one built on it such as pgvector's.
+     */
+    static BenchmarkDatabase start(String image) {
+        String url = System.getProperty("benchmark.jdbc-url");
+        if (url != null) {
+            return new BenchmarkDatabase(null, url, System.getProperty("benchmark.user"),
+                    System.getProperty("benchmark.password"));
+        }
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>(
+                DockerImageName.parse(image).asCompatibleSubstituteFor("postgres"));
+        container.start();
+        return new BenchmarkDatabase(container, container.getJdbcUrl(), container.getUsername(),
+                container.getPassword());
+    }
+
+    /**
+     * Hands the connection settings to the forked benchmark JVMs. Prepended, as
+     * appending would replace the benchmark's own {@code @Fork(jvmArgsAppend)}.
+     */
+    ChainedOptionsBuilder passTo(ChainedOptionsBuilder options) {
+        return options.jvmArgsPrepend("-Dbenchmark.jdbc-url=" + url, "-Dbenchmark.user=" + user,
+                "-Dbenchmark.password=" + password);
+    }
+
+    /**
+     * Connects from inside a benchmark fork.
+     */
+    static Connection connect() throws SQLException {
+        return DriverManager.getConnection(System.getProperty("benchmark.jdbc-url"),
+                System.getProperty("benchmark.user"), System.getProperty("benchmark.password"));
+    }
+
+    @Override
+    public void close() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
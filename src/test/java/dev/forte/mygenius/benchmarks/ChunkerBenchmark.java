@@ -0,0 +1,68 @@
+package dev.forte.mygenius.benchmarks;
+
+import dev.forte.mygenius.ai.chunking.DocumentChunker;
+import dev.forte.mygenius.ai.chunking.TextChunk;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DocumentChunker} with the regex-split chunking it replaced on
+ * 1, 10 and 50 MB of extracted text. Run with the GC profiler for allocation
+ * rates:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.forte.mygenius.benchmarks.ChunkerBenchmark
+ * </pre>
+ *
+ * The legacy chunker re-splits the growing chunk for every paragraph, so expect
+ * the 50 MB case of {@code regexSplit} to take a while.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ChunkerBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int sizeMb;
+
+    private String text;
+    private DocumentChunker chunker;
+
+    @Setup
+    public void setUp() {
+        text = SyntheticText.generate(sizeMb * 1024 * 1024, 42);
+        chunker = new DocumentChunker(100, 500, 65536);
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole blackhole) {
+        blackhole.consume(LegacyRegexChunker.chunk(text));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        for (Iterator<TextChunk> chunks = chunker.chunk(text); chunks.hasNext(); ) {
+            blackhole.consume(chunks.next());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChunkerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,251 @@
+package dev.forte.mygenius.benchmarks;
+
+import com.pgvector.PGvector;
+import dev.forte.mygenius.ai.vector_store.HnswIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 latency and recall@10 of one user's library in the in-process
+ * {@link HnswIndex} (int8 graph, exact re-ranking) against pgvector's HNSW index
+ * with the production settings. The setup prints the recall against exact
+ * search over 200 queries:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.forte.mygenius.benchmarks.HotVectorTierBenchmark
+ * </pre>
+ *
+ * Only the in-process backend runs by default. For pgvector add
+ * {@code -Dbenchmark.backends=hot,pgvector} and the connection properties of
+ * {@link VectorStoreBenchmark}; the vectors are loaded into a scratch table that
+ * is dropped afterwards, and the time to reach Postgres over JDBC is part of what
+ * is measured.
+ *
+ * <p>The vectors are unit vectors around a few hundred random topics, which
+ * clusters them roughly like text embeddings; queries are perturbed library
+ * vectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g", "--add-modules=jdk.incubator.vector"})
+public class HotVectorTierBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+    private static final int TOPICS = 300;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    @Param({"hot"})
+    public String backend;
+
+    @Param({"10000", "50000"})
+    public int vectors;
+
+    private float[][] library;
+    private float[][] queries;
+    private HnswIndex index;
+    private Connection connection;
+    private String table;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        SplittableRandom random = new SplittableRandom(42);
+        float[][] topics = new float[TOPICS][];
+        for (int t = 0; t < TOPICS; t++) {
+            topics[t] = gaussian(random, 1);
+        }
+        library = new float[vectors][];
+        for (int i = 0; i < vectors; i++) {
+            library[i] = normalize(add(topics[random.nextInt(TOPICS)], gaussian(random, 0.6f)));
+        }
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = normalize(add(library[random.nextInt(vectors)], gaussian(random, 0.3f)));
+        }
+
+        long start = System.nanoTime();
+        if ("hot".equals(backend)) {
+            index = new HnswIndex(16, 64, vectors);
+            for (int i = 0; i < vectors; i++) {
+                index.add(id(i), null, library[i]);
+            }
+            System.out.printf("%nBuilt the index of %,d vectors in %.1f s, %,d MB%n", vectors,
+                    (System.nanoTime() - start) / 1e9, index.bytes() >> 20);
+        } else {
+            loadIntoPostgres();
+            System.out.printf("%nLoaded and indexed %,d vectors in %.1f s%n", vectors, (System.nanoTime() - start) / 1e9);
+        }
+
+        int found = 0;
+        for (float[] query : queries) {
+            Set<UUID> expected = exactTop(query);
+            for (UUID id : search(query)) {
+                if (expected.contains(id)) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("Recall@%d of %s at %,d vectors: %.3f%n", K, backend, vectors, found / (double) (QUERIES * K));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + table);
+            }
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public List<UUID> search() throws SQLException {
+        next = (next + 1) % QUERIES;
+        return search(queries[next]);
+    }
+
+    private List<UUID> search(float[] query) throws SQLException {
+        if (index != null) {
+            return index.search(query, K, 100, 4, -1).stream().map(HnswIndex.Match::id).toList();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id FROM " + table + " ORDER BY embedding <=> ? LIMIT " + K)) {
+            statement.setObject(1, new PGvector(query));
+            List<UUID> ids = new ArrayList<>(K);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getObject(1, UUID.class));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private void loadIntoPostgres() throws SQLException {
+        connection = DriverManager.getConnection(System.getProperty("benchmark.jdbc-url"),
+                System.getProperty("benchmark.user"), System.getProperty("benchmark.password"));
+        table = "bench_hot_tier_" + vectors;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, embedding vector(" + DIMENSIONS + "))");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " VALUES (?, ?)")) {
+            for (int i = 0; i < vectors; i++) {
+                insert.setObject(1, id(i));
+                insert.setObject(2, new PGvector(library[i]));
+                insert.addBatch();
+                if (i % 500 == 499) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            // The production index and search settings, see V6 and vectors.hnsw.ef-search
+            statement.execute("SET maintenance_work_mem = '1GB'");
+            statement.execute("CREATE INDEX ON " + table
+                    + " USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64)");
+            statement.execute("ANALYZE " + table);
+            statement.execute("SET hnsw.ef_search = 100");
+        }
+    }
+
+    private Set<UUID> exactTop(float[] query) {
+        int[] best = new int[K];
+        double[] bestScores = new double[K];
+        Arrays.fill(bestScores, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < vectors; i++) {
+            double score = dot(query, library[i]);
+            if (score > bestScores[K - 1]) {
+                int j = K - 1;
+                while (j > 0 && bestScores[j - 1] < score) {
+                    bestScores[j] = bestScores[j - 1];
+                    best[j] = best[j - 1];
+                    j--;
+                }
+                bestScores[j] = score;
+                best[j] = i;
+            }
+        }
+        Set<UUID> ids = new HashSet<>();
+        for (int i : best) {
+            ids.add(id(i));
+        }
+        return ids;
+    }
+
+    private static UUID id(int i) {
+        return new UUID(0, i);
+    }
+
+    private static float[] gaussian(SplittableRandom random, float sigma) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] add(float[] a, float[] b) {
+        float[] sum = new float[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HotVectorTierBenchmark.class.getSimpleName())
+                .param("backend", System.getProperty("benchmark.backends", "hot").split(","))
+                .jvmArgsAppend("-Dbenchmark.jdbc-url=" + System.getProperty("benchmark.jdbc-url"),
+                        "-Dbenchmark.user=" + System.getProperty("benchmark.user"),
+                        "-Dbenchmark.password=" + System.getProperty("benchmark.password"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package dev.forte.mygenius.benchmarks;
+
+import dev.forte.mygenius.security.TokenCodec;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens verified per second on one thread, cycling through the tokens of 1,000
+ * users the way the authentication filter sees them:
+ * <ul>
+ *     <li>{@code per-request}: the filter before {@link TokenCodec}, deriving the
+ *     key and building a parser for every request</li>
+ *     <li>{@code shared-parser}: {@link TokenCodec} with the verification cache off</li>
+ *     <li>{@code cached}: {@link TokenCodec} as configured, every token seen before</li>
+ * </ul>
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.forte.mygenius.benchmarks.JwtVerifyBenchmark
+ * </pre>
+ *
+ * Run with {@code -prof gc} to compare the allocation per verification as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final int USERS = 1000;
+
+    @Param({"per-request", "shared-parser", "cached"})
+    public String verifier;
+
+    private TokenCodec codec;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        codec = new TokenCodec(SECRET, "primary", "", "cached".equals(verifier) ? 10_000 : 0,
+                new SimpleMeterRegistry());
+        tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            tokens[i] = codec.issue(userId + "@example.com",
+                    Map.of("userId", userId.toString(), "authMethod", "google"), Duration.ofHours(1));
+        }
+    }
+
+    @Benchmark
+    public String verify() {
+        String token = tokens[next];
+        next = (next + 1) % USERS;
+        Claims claims = "per-request".equals(verifier)
+                ? Jwts.parserBuilder()
+                        .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                        .build()
+                        .parseClaimsJws(token)
+                        .getBody()
+                : codec.verify(token);
+        return claims.get("userId", String.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
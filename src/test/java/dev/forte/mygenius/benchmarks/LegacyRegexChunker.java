@@ -0,0 +1,97 @@
+package dev.forte.mygenius.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The regex-split chunking that DocumentProcessingService used before
+ * DocumentChunker, kept verbatim as the benchmark baseline.
+ */
+final class LegacyRegexChunker {
+
+    private LegacyRegexChunker() {
+    }
+
+    static List<String> chunk(String extractedText) {
+        // Split into paragraphs
+        List<String> paragraphs = Arrays.stream(extractedText.split("\\n\\s*\\n"))
+                .filter(para -> !para.trim().isEmpty())
+                .collect(Collectors.toList());
+
+        // If there are very few paragraphs, try sentence splitting
+        if (paragraphs.size() < 3 && extractedText.length() > 1000) {
+            paragraphs = Arrays.stream(extractedText.split("(?<=[.!?])\\s+"))
+                    .filter(sent -> !sent.trim().isEmpty())
+                    .collect(Collectors.toList());
+        }
+
+        // Combine paragraphs into appropriately sized chunks
+        List<String> properChunks = new ArrayList<>();
+        StringBuilder currentChunk = new StringBuilder();
+        int minWords = 100; // Aim for at least 100 words per chunk
+        int maxWords = 500; // But no more than 500 words
+
+        for (String paragraph : paragraphs) {
+            int currentWords = currentChunk.toString().split("\\s+").length;
+            int paragraphWords = paragraph.split("\\s+").length;
+
+            if (currentWords + paragraphWords <= maxWords) {
+                // Add to current chunk if within max size
+                if (currentChunk.length() > 0) {
+                    currentChunk.append("\n\n");
+                }
+                currentChunk.append(paragraph);
+            } else if (currentWords >= minWords) {
+                // Current chunk is big enough, save it and start new chunk
+                properChunks.add(currentChunk.toString());
+                currentChunk = new StringBuilder(paragraph);
+            } else {
+                // Current chunk is too small, but adding paragraph would exceed max
+                // Split the paragraph to fit what we can
+                String[] words = paragraph.split("\\s+");
+                int wordsToAdd = maxWords - currentWords;
+
+                // Add as many words as we can to current chunk
+                if (!currentChunk.isEmpty()) {
+                    currentChunk.append("\n\n");
+                }
+                currentChunk.append(String.join(" ", Arrays.copyOfRange(words, 0, Math.min(wordsToAdd, words.length))));
+
+                // Save current chunk
+                properChunks.add(currentChunk.toString());
+
+                // Start new chunk with remaining words if any
+                if (wordsToAdd < words.length) {
+                    currentChunk = new StringBuilder(String.join(" ",
+                            Arrays.copyOfRange(words, wordsToAdd, words.length)));
+                } else {
+                    currentChunk = new StringBuilder();
+                }
+            }
+        }
+
+        // Add the final chunk if it's not empty and meets minimum size
+        if (!currentChunk.isEmpty()) {
+            int finalChunkWords = currentChunk.toString().split("\\s+").length;
+            if (finalChunkWords >= minWords) {
+                properChunks.add(currentChunk.toString());
+            } else if (!properChunks.isEmpty()) {
+                // If final chunk is too small, append it to the last chunk
+                String lastChunk = properChunks.remove(properChunks.size() - 1);
+                properChunks.add(lastChunk + "\n\n" + currentChunk);
+            } else {
+                // If this is the only chunk, keep it despite being small
+                properChunks.add(currentChunk.toString());
+            }
+        }
+
+        // Special case: if the entire document is very small, use it as a single chunk
+        if (properChunks.isEmpty() && !paragraphs.isEmpty()) {
+            properChunks.add(extractedText);
+        }
+
+        return properChunks;
+    }
+}
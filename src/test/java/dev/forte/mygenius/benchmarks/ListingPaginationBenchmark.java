@@ -0,0 +1,184 @@
+package dev.forte.mygenius.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetching one page of 10 deep into a user's uploads, the old way (OFFSET plus a
+ * count for the totals) against the keyset query {@code UploadService.listUploads}
+ * runs. Starts a Postgres 16 in Docker through Testcontainers:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.forte.mygenius.benchmarks.ListingPaginationBenchmark
+ * </pre>
+ *
+ * or runs against an existing database with {@code -Dbenchmark.jdbc-url=...
+ * -Dbenchmark.user=... -Dbenchmark.password=...}, see {@link BenchmarkDatabase}.
+ * JMH options such as {@code -Dexec.args="-p page=1000"} are passed through.
+ *
+ * The {@code bench_listings} schema is seeded once with 100 users of 20,000
+ * uploads each and reused by later runs. The keyset benchmark starts from the
+ * cursor of the row just before the page, as a client paging through would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx512m"})
+public class ListingPaginationBenchmark {
+
+    private static final int USERS = 100;
+    private static final int UPLOADS_PER_USER = 20_000;
+    private static final int SIZE = 10;
+
+    @Param({"1", "100", "1000"})
+    public int page;
+
+    private Connection connection;
+    private UUID userId;
+    private Timestamp afterCreatedAt;
+    private UUID afterId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.connect();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS bench_listings");
+            statement.execute("SET search_path = bench_listings");
+            if (!seeded(statement)) {
+                seed(statement);
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT user_id FROM uploads LIMIT 1")) {
+            rs.next();
+            userId = rs.getObject(1, UUID.class);
+        }
+        if (page == 1) {
+            return;
+        }
+        // The last row of the page before, where a client's cursor would point
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT created_at, upload_id FROM uploads WHERE user_id = ?
+                ORDER BY created_at DESC, upload_id DESC OFFSET ? LIMIT 1""")) {
+            statement.setObject(1, userId);
+            statement.setInt(2, (page - 1) * SIZE - 1);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    afterCreatedAt = rs.getTimestamp(1);
+                    afterId = rs.getObject(2, UUID.class);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long offset() throws SQLException {
+        long read = 0;
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT upload_id, file_name, file_type, created_at FROM uploads WHERE user_id = ?
+                ORDER BY created_at DESC OFFSET ? LIMIT ?""")) {
+            statement.setObject(1, userId);
+            statement.setInt(2, (page - 1) * SIZE);
+            statement.setInt(3, SIZE);
+            read += drain(statement);
+        }
+        // The count behind totalItems and totalPages
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT count(*) FROM uploads WHERE user_id = ?")) {
+            statement.setObject(1, userId);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                read += rs.getLong(1);
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public long keyset() throws SQLException {
+        if (afterId == null) {
+            try (PreparedStatement statement = connection.prepareStatement("""
+                    SELECT upload_id, file_name, file_type, created_at FROM uploads WHERE user_id = ?
+                    ORDER BY created_at DESC, upload_id DESC LIMIT ?""")) {
+                statement.setObject(1, userId);
+                statement.setInt(2, SIZE + 1);
+                return drain(statement);
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT upload_id, file_name, file_type, created_at FROM uploads
+                WHERE user_id = ? AND (created_at, upload_id) < (?, ?)
+                ORDER BY created_at DESC, upload_id DESC LIMIT ?""")) {
+            statement.setObject(1, userId);
+            statement.setTimestamp(2, afterCreatedAt);
+            statement.setObject(3, afterId);
+            statement.setInt(4, SIZE + 1);
+            return drain(statement);
+        }
+    }
+
+    private static long drain(PreparedStatement statement) throws SQLException {
+        long read = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private boolean seeded(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT to_regclass('uploads') IS NOT NULL")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Shaped like the real uploads table, with the V10 index and no other.
+     */
+    private void seed(Statement statement) throws SQLException {
+        statement.execute("""
+                CREATE TABLE uploads (upload_id uuid PRIMARY KEY, user_id uuid NOT NULL, file_name text,
+                                      file_type text, content_id uuid, created_at timestamp NOT NULL)""");
+        statement.execute("""
+                INSERT INTO uploads (upload_id, user_id, file_name, file_type, content_id, created_at)
+                SELECT md5('upload' || n)::uuid, md5('user' || (n %% %d))::uuid, 'file-' || n || '.pdf',
+                       'DOCUMENT', md5('content' || n)::uuid, TIMESTAMP '2024-01-01' + n * INTERVAL '1 second'
+                FROM generate_series(0, %d - 1) AS n""".formatted(USERS, (long) USERS * UPLOADS_PER_USER));
+        statement.execute("CREATE INDEX idx_uploads_user_created ON uploads (user_id, created_at, upload_id)");
+        statement.execute("ANALYZE uploads");
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        try (BenchmarkDatabase database = BenchmarkDatabase.start("postgres:16-alpine")) {
+            Options options = database.passTo(new OptionsBuilder()
+                            .parent(new CommandLineOptions(args))
+                            .include(ListingPaginationBenchmark.class.getSimpleName()))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dev.forte.mygenius.benchmarks;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic stand-ins for what users upload: a phone photo (noisy, high
+ * quality JPEG), a phone screenshot and a scanned page (text on flat colour,
+ * PNG), and a small web image.
+ */
+final class SampleImages {
+
+    private SampleImages() {
+    }
+
+    static byte[] generate(String kind) {
+        return switch (kind) {
+            case "photo" -> jpeg(photo(4032, 3024), 0.95f);
+            case "screenshot" -> png(text(1170, 2532, 34));
+            case "scan" -> png(text(2480, 3508, 28));
+            case "web" -> jpeg(photo(640, 480), 0.8f);
+            default -> throw new IllegalArgumentException(kind);
+        };
+    }
+
+    private static BufferedImage photo(int width, int height) {
+        SplittableRandom random = new SplittableRandom(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(24);
+                int r = Math.min(255, x * 200 / width + noise);
+                int g = Math.min(255, y * 200 / height + noise);
+                int b = Math.min(255, 120 + noise);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage text(int width, int height, int fontSize) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.DARK_GRAY);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, fontSize));
+        String[] lines = SyntheticText.generate(height / fontSize * 80, 7).split("(?<=\\G.{60})");
+        int y = fontSize * 2;
+        for (String line : lines) {
+            if (y > height - fontSize) {
+                break;
+            }
+            graphics.drawString(line.replace('\n', ' '), fontSize, y);
+            y += fontSize * 3 / 2;
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    private static byte[] jpeg(BufferedImage image, float quality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] png(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
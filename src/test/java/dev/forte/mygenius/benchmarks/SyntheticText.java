@@ -0,0 +1,41 @@
+package dev.forte.mygenius.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic stand-in for extracted document text: words of varying length,
+ * sentences of 5-30 words and paragraphs of 1-8 sentences.
+ */
+final class SyntheticText {
+
+    private static final String[] WORDS = (
+            "the of and to in is that for it as was with be by on not he this are or his from at which but "
+                    + "have an they you were her she there been one all we their has would when what if more "
+                    + "retrieval embedding document vector invoice quarterly agreement configuration paragraph "
+                    + "section contract liability customer transaction analysis summary appendix reference").split(" ");
+
+    private SyntheticText() {
+    }
+
+    static String generate(int targetChars, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder(targetChars + 256);
+        while (text.length() < targetChars) {
+            int sentences = 1 + random.nextInt(8);
+            for (int s = 0; s < sentences; s++) {
+                int words = 5 + random.nextInt(26);
+                for (int w = 0; w < words; w++) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    if (w == 0) {
+                        text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                    } else {
+                        text.append(' ').append(word);
+                    }
+                }
+                text.append(random.nextInt(10) == 0 ? '?' : '.').append(' ');
+            }
+            text.append("\n\n");
+        }
+        return text.toString();
+    }
+}
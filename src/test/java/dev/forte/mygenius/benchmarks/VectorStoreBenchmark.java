@@ -0,0 +1,235 @@
+package dev.forte.mygenius.benchmarks;
+
+import com.pgvector.PGvector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delete and search latency on the old {@code vector_store} layout (JSON metadata
+ * only, one HNSW index) against the partitioned one from V6, at 1M, 10M and 50M
+ * rows. Starts a Postgres with pgvector in Docker through Testcontainers:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=dev.forte.mygenius.benchmarks.VectorStoreBenchmark \
+ *     -Dexec.args="-p rows=1000000"
+ * </pre>
+ *
+ * or runs against an existing database with {@code -Dbenchmark.jdbc-url=...
+ * -Dbenchmark.user=... -Dbenchmark.password=...}, see {@link BenchmarkDatabase}.
+ * A container lives for one run, so it has to seed every size it is given; the
+ * larger sizes want a database of their own.
+ *
+ * Each layout and size is seeded once into its own schema ({@code bench_legacy_1000000},
+ * ...) and reused by later runs; seeding 50M rows of 1536 dimensions takes hours
+ * and about 350 GB. Rows belong to 10,000 users with 50 chunks per content.
+ * Deletes run in a transaction that is rolled back, so every invocation deletes
+ * the same amount of data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class VectorStoreBenchmark {
+
+    private static final int DIMENSIONS = 1536;
+    private static final int USERS = 10_000;
+    private static final int CHUNKS_PER_CONTENT = 50;
+    private static final int PARTITIONS = 16;
+
+    @Param({"legacy", "partitioned"})
+    public String layout;
+
+    @Param({"1000000", "10000000", "50000000"})
+    public long rows;
+
+    private Connection connection;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.connect();
+        String schema = "bench_" + layout + "_" + rows;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+            statement.execute("SET search_path = " + schema + ", public");
+            if (!seeded(statement)) {
+                seed(statement);
+            }
+            statement.execute("SET hnsw.ef_search = 100");
+        }
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int search() throws SQLException {
+        String userId = user(random.nextInt(USERS)).toString();
+        PGvector query = randomVector(random);
+        String sql = "legacy".equals(layout)
+                // What PgVectorStore.similaritySearch runs with a user_id filter
+                ? "SELECT id, embedding <=> ? AS distance FROM vector_store "
+                + "WHERE embedding <=> ? < 1 AND metadata::jsonb @@ '$.user_id == \"" + userId + "\"'::jsonpath "
+                + "ORDER BY distance LIMIT 10"
+                : "SELECT id, embedding <=> ? AS distance FROM vector_store "
+                + "WHERE user_id = '" + userId + "' AND embedding <=> ? < 1 ORDER BY distance LIMIT 10";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setObject(1, query);
+            statement.setObject(2, query);
+            int found = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    found++;
+                }
+            }
+            return found;
+        }
+    }
+
+    @Benchmark
+    public int deleteContent() throws SQLException {
+        long contents = rows / CHUNKS_PER_CONTENT;
+        long content = random.nextLong(contents);
+        String sql = "legacy".equals(layout)
+                // What UploadService ran before V6
+                ? "DELETE FROM vector_store WHERE metadata->>'content_id' = ?"
+                : "DELETE FROM vector_store WHERE user_id = ?::uuid AND content_id = ?::uuid";
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if ("legacy".equals(layout)) {
+                statement.setString(1, contentId(content).toString());
+            } else {
+                statement.setString(1, user((int) (content % USERS)).toString());
+                statement.setString(2, contentId(content).toString());
+            }
+            return statement.executeUpdate();
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private boolean seeded(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT to_regclass('vector_store') IS NOT NULL")) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Fills the table server-side. Content n belongs to user n % USERS, and ids are
+     * derived from the numbers so the benchmark can address them without a lookup.
+     */
+    private void seed(Statement statement) throws SQLException {
+        statement.execute("""
+                CREATE OR REPLACE FUNCTION bench_uuid(kind text, n bigint) RETURNS uuid
+                LANGUAGE sql IMMUTABLE AS $$ SELECT md5(kind || n)::uuid $$""");
+        if ("legacy".equals(layout)) {
+            statement.execute("""
+                    CREATE TABLE vector_store (id uuid PRIMARY KEY, content text, metadata json,
+                                               embedding vector(%d))""".formatted(DIMENSIONS));
+        } else {
+            statement.execute("""
+                    CREATE TABLE vector_store (id uuid NOT NULL, user_id uuid NOT NULL, content_id uuid,
+                                               content text, metadata jsonb NOT NULL, embedding vector(%d) NOT NULL,
+                                               PRIMARY KEY (user_id, id)) PARTITION BY HASH (user_id)"""
+                    .formatted(DIMENSIONS));
+            for (int i = 0; i < PARTITIONS; i++) {
+                statement.execute("CREATE TABLE vector_store_p%d PARTITION OF vector_store FOR VALUES WITH (MODULUS %d, REMAINDER %d)"
+                        .formatted(i, PARTITIONS, i));
+            }
+        }
+
+        String columns = "legacy".equals(layout)
+                ? "id, content, metadata, embedding"
+                : "id, user_id, content_id, content, metadata, embedding";
+        String values = "legacy".equals(layout)
+                ? "bench_uuid('row', n), 'chunk', json_build_object('user_id', u, 'content_id', c), v"
+                : "bench_uuid('row', n), u, c, 'chunk', jsonb_build_object('user_id', u, 'content_id', c), v";
+        statement.execute("""
+                INSERT INTO vector_store (%s)
+                SELECT %s
+                FROM generate_series(0, %d - 1) AS n,
+                     LATERAL (SELECT bench_uuid('content', n / %d) AS c,
+                                     bench_uuid('user', (n / %d) %% %d) AS u,
+                                     -- Correlated on n so every row gets its own vector
+                                     (SELECT array_agg(random())::vector FROM generate_series(1, %d) WHERE n >= 0) AS v) AS r
+                """.formatted(columns, values, rows, CHUNKS_PER_CONTENT, CHUNKS_PER_CONTENT, USERS, DIMENSIONS));
+
+        statement.execute("SET maintenance_work_mem = '4GB'");
+        statement.execute("CREATE INDEX ON vector_store USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64)");
+        if (!"legacy".equals(layout)) {
+            statement.execute("CREATE INDEX ON vector_store (content_id)");
+        }
+        statement.execute("ANALYZE vector_store");
+    }
+
+    private static UUID user(int n) {
+        return benchUuid("user", n);
+    }
+
+    private static UUID contentId(long n) {
+        return benchUuid("content", n);
+    }
+
+    /**
+     * Same as the {@code bench_uuid} SQL function: the md5 of the text, read as a UUID.
+     */
+    private static UUID benchUuid(String kind, long n) {
+        try {
+            byte[] md5 = MessageDigest.getInstance("MD5")
+                    .digest((kind + n).getBytes(StandardCharsets.UTF_8));
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = high << 8 | (md5[i] & 0xFF);
+                low = low << 8 | (md5[i + 8] & 0xFF);
+            }
+            return new UUID(high, low);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PGvector randomVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextDouble();
+        }
+        return new PGvector(vector);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        try (BenchmarkDatabase database = BenchmarkDatabase.start("pgvector/pgvector:pg16")) {
+            Options options = database.passTo(new OptionsBuilder()
+                            .parent(new CommandLineOptions(args))
+                            .include(VectorStoreBenchmark.class.getSimpleName()))
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dev.forte.mygenius.paging;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorTests {
+
+    @Test
+    void roundTripsToTheMicrosecond() {
+        Cursor cursor = new Cursor(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000), UUID.randomUUID());
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(Cursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripsTimestampsBeforeTheEpoch() {
+        Cursor cursor = new Cursor(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1_000), UUID.randomUUID());
+
+        assertThat(Cursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsStringsThatAreNotCursors() {
+        for (String garbage : List.of("", "not a cursor!", "AAAA")) {
+            assertThatThrownBy(() -> Cursor.decode(garbage))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    @Test
+    void pageHasANextCursorOnlyWhenThereAreMoreRows() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Cursor> rows = List.of(new Cursor(now, new UUID(0, 3)), new Cursor(now, new UUID(0, 2)),
+                new Cursor(now, new UUID(0, 1)));
+
+        CursorPage<Cursor> first = CursorPage.of(rows, 2, row -> row);
+        CursorPage<Cursor> last = CursorPage.of(rows, 3, row -> row);
+
+        assertThat(first.items()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(first.hasMore()).isTrue();
+        assertThat(Cursor.decode(first.nextCursor())).isEqualTo(rows.get(1));
+        assertThat(last.items()).isEqualTo(rows);
+        assertThat(last.hasMore()).isFalse();
+    }
+}
@@ -0,0 +1,92 @@
+package dev.forte.mygenius.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenCodecTests {
+
+    private static final String OLD_SECRET = "the-old-secret-the-old-secret-the-old-secret";
+    private static final String NEW_SECRET = "the-new-secret-the-new-secret-the-new-secret";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void verifiesTheTokensItIssues() {
+        TokenCodec codec = codec(NEW_SECRET, "v2", "");
+
+        String token = codec.issue("someone@example.com", Map.of("userId", "42"), Duration.ofMinutes(5));
+        Claims claims = codec.verify(token);
+
+        assertThat(claims.getSubject()).isEqualTo("someone@example.com");
+        assertThat(claims.get("userId", String.class)).isEqualTo("42");
+    }
+
+    @Test
+    void acceptsTokensOfRetiredKeysAfterARotation() {
+        String issuedBeforeRotation = codec(OLD_SECRET, "v1", "")
+                .issue("someone", Map.of(), Duration.ofMinutes(5));
+
+        TokenCodec rotated = codec(NEW_SECRET, "v2", "v1=" + OLD_SECRET);
+
+        assertThat(rotated.verify(issuedBeforeRotation).getSubject()).isEqualTo("someone");
+        assertThatThrownBy(() -> codec(NEW_SECRET, "v2", "").verify(issuedBeforeRotation))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void checksTokensWithoutAKeyIdAgainstTheCurrentKey() {
+        String legacy = Jwts.builder()
+                .setSubject("someone")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(NEW_SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThat(codec(NEW_SECRET, "v2", "").verify(legacy).getSubject()).isEqualTo("someone");
+        assertThatThrownBy(() -> codec(OLD_SECRET, "v1", "").verify(legacy)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        TokenCodec codec = codec(NEW_SECRET, "v2", "");
+        String token = codec.issue("someone", Map.of("userId", "42"), Duration.ofMinutes(5));
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + codec.issue("someone else", Map.of("userId", "43"), Duration.ofMinutes(5))
+                .split("\\.")[1] + "." + parts[2];
+
+        assertThatThrownBy(() -> codec.verify(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> codec.verify(codec.issue("someone", Map.of(), Duration.ofSeconds(-1))))
+                .isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void servesRepeatedTokensFromTheCacheUntilTheyExpire() throws InterruptedException {
+        TokenCodec codec = codec(NEW_SECRET, "v2", "");
+        String token = codec.issue("someone", Map.of(), Duration.ofMillis(1500));
+
+        Claims first = codec.verify(token);
+        assertThat(codec.verify(token)).isSameAs(first);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt.verifications").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+
+        Thread.sleep(1600);
+        assertThatThrownBy(() -> codec.verify(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    private TokenCodec codec(String secret, String keyId, String previousKeys) {
+        return new TokenCodec(secret, keyId, previousKeys, 100, meterRegistry);
+    }
+}
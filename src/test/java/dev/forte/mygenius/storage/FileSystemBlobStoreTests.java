@@ -0,0 +1,63 @@
+package dev.forte.mygenius.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSystemBlobStoreTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void blobsAreStoredUnderTheirShardedSha256() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(root);
+
+        String key = store.put(stream("hello"));
+
+        assertThat(key).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(root.resolve("2c/f2/" + key)).hasContent("hello");
+        try (InputStream data = store.open(key)) {
+            assertThat(data.readAllBytes()).asString(StandardCharsets.UTF_8).isEqualTo("hello");
+        }
+    }
+
+    @Test
+    void sameBytesAreStoredOnce() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(root);
+
+        String first = store.put(stream("same content"));
+        String second = store.put(stream("same content"));
+
+        assertThat(second).isEqualTo(first);
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+    }
+
+    @Test
+    void deletedBlobIsGone() throws Exception {
+        FileSystemBlobStore store = new FileSystemBlobStore(root);
+        String key = store.put(stream("short lived"));
+
+        store.delete(key);
+        store.delete(key);
+
+        assertThat(store.exists(key)).isFalse();
+        assertThatThrownBy(() -> store.open(key)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
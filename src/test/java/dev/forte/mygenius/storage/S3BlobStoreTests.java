@@ -0,0 +1,195 @@
+package dev.forte.mygenius.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the S3 store against a minimal in-process stand-in for the S3 object API,
+ * reached through the same endpoint override used for MinIO and friends.
+ */
+class S3BlobStoreTests {
+
+    @TempDir
+    Path spool;
+
+    private FakeS3 fakeS3;
+    private S3Client s3Client;
+    private S3BlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeS3 = new FakeS3();
+        s3Client = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create("http://localhost:" + fakeS3.port()))
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .build();
+        store = new S3BlobStore(s3Client, "uploads-bucket", "blobs", spool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Client.close();
+        fakeS3.stop();
+    }
+
+    @Test
+    void blobRoundTripsUnderItsShardedKey() throws Exception {
+        String key = store.put(stream("hello"));
+
+        assertThat(key).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(fakeS3.objects).containsOnlyKeys("/uploads-bucket/blobs/2c/f2/" + key);
+        assertThat(store.exists(key)).isTrue();
+        try (InputStream data = store.open(key)) {
+            assertThat(data.readAllBytes()).asString(StandardCharsets.UTF_8).isEqualTo("hello");
+        }
+    }
+
+    @Test
+    void sameBytesAreUploadedOnce() throws Exception {
+        store.put(stream("same content"));
+        store.put(stream("same content"));
+
+        assertThat(fakeS3.puts).isEqualTo(1);
+        assertThat(spool).isEmptyDirectory();
+    }
+
+    @Test
+    void deletedBlobIsGone() throws Exception {
+        String key = store.put(stream("short lived"));
+
+        store.delete(key);
+
+        assertThat(store.exists(key)).isFalse();
+        assertThatThrownBy(() -> store.open(key)).isInstanceOf(NoSuchFileException.class);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Path-style PUT, GET, HEAD and DELETE of whole objects, which is all the store uses.
+     */
+    private static class FakeS3 {
+
+        private final HttpServer server;
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private int puts;
+
+        FakeS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        int port() {
+            return server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    objects.put(path, decode(exchange, body));
+                    puts++;
+                    exchange.getResponseHeaders().add("ETag", "\"fake\"");
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET", "HEAD" -> {
+                    byte[] object = objects.get(path);
+                    if (object == null) {
+                        notFound(exchange);
+                    } else if (exchange.getRequestMethod().equals("HEAD")) {
+                        exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, object.length);
+                        exchange.getResponseBody().write(object);
+                    }
+                }
+                case "DELETE" -> {
+                    objects.remove(path);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+            exchange.close();
+        }
+
+        private static void notFound(HttpExchange exchange) throws IOException {
+            byte[] error = "<Error><Code>NoSuchKey</Code><Message>Not found</Message></Error>"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.sendResponseHeaders(404, error.length);
+                exchange.getResponseBody().write(error);
+            }
+        }
+
+        /**
+         * Strips the aws-chunked framing ("size;chunk-signature=...\r\ndata\r\n") the
+         * SDK uses for signed uploads over plain HTTP.
+         */
+        private static byte[] decode(HttpExchange exchange, byte[] body) {
+            String decodedLength = exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length");
+            if (decodedLength == null) {
+                return body;
+            }
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            int position = 0;
+            while (position < body.length) {
+                int lineEnd = indexOfCrlf(body, position);
+                String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+                int size = Integer.parseInt(header.split(";")[0], 16);
+                position = lineEnd + 2;
+                if (size == 0) {
+                    break;
+                }
+                data.write(body, position, size);
+                position += size + 2;
+            }
+            return data.toByteArray();
+        }
+
+        private static int indexOfCrlf(byte[] body, int from) {
+            for (int i = from; i < body.length - 1; i++) {
+                if (body[i] == '\r' && body[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dev.forte.mygenius.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserProfileCacheTests {
+
+    private final Map<UUID, User> users = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UserProfileCache cache = new UserProfileCache(ids -> {
+        loads.incrementAndGet();
+        return ids.stream().map(users::get).filter(Objects::nonNull).toList();
+    }, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    @Test
+    void loadsEachUserOnce() {
+        User user = user("someone@example.com", "someone");
+
+        assertThat(cache.get(user.getUserId()).username()).isEqualTo("someone");
+        assertThat(cache.get(user.getUserId()).email()).isEqualTo("someone@example.com");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void savedUsersReplaceTheirEntry() {
+        User user = user("someone@example.com", "someone");
+        cache.get(user.getUserId());
+
+        user.setUsername("renamed");
+        cache.put(user);
+
+        assertThat(cache.get(user.getUserId()).username()).isEqualTo("renamed");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        UUID userId = UUID.randomUUID();
+        assertThat(cache.get(userId)).isNull();
+
+        User user = new User();
+        user.setUserId(userId);
+        user.setEmail("late@example.com");
+        users.put(userId, user);
+
+        assertThat(cache.get(userId).email()).isEqualTo("late@example.com");
+    }
+
+    @Test
+    void loadsTheMissingUsersOfABatchTogether() {
+        User cached = user("cached@example.com", "cached");
+        User first = user("first@example.com", "first");
+        User second = user("second@example.com", "second");
+        cache.get(cached.getUserId());
+        UUID unknown = UUID.randomUUID();
+
+        Map<UUID, UserProfile> profiles =
+                cache.getAll(List.of(cached.getUserId(), first.getUserId(), second.getUserId(), unknown));
+
+        assertThat(profiles).containsOnlyKeys(cached.getUserId(), first.getUserId(), second.getUserId());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void invalidatedUsersAreLoadedAgain() {
+        User user = user("someone@example.com", "someone");
+        cache.get(user.getUserId());
+        users.remove(user.getUserId());
+
+        cache.invalidate(user.getUserId());
+
+        assertThat(cache.get(user.getUserId())).isNull();
+    }
+
+    private User user(String email, String username) {
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+        user.setEmail(email);
+        user.setUsername(username);
+        users.put(user.getUserId(), user);
+        return user;
+    }
+}